@@ -0,0 +1,258 @@
+package com.gamesbykevin.nonograms.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The Flight Recorder events of the game, only loaded by Flight once it knows the Flight Recorder is available.<br>
+ * An event is only created when its type is enabled in a recording, so nothing is allocated when there is no recording.
+ * This source folder needs JDK 11 or later and is only compiled when the JDK building the game has the Flight Recorder.
+ * @author GOD
+ */
+final class FlightEvents implements Flight.Emitter
+{
+    @Name("nonograms.LibraryLoad")
+    @Label("Library Load")
+    @Category({"Nonograms", "Startup"})
+    @Description("A phase of parsing the puzzle pack")
+    @StackTrace(false)
+    static final class LibraryEvent extends Event
+    {
+        @Label("Phase")
+        String phase;
+        
+        @Label("Puzzles")
+        int puzzles;
+    }
+    
+    @Name("nonograms.PuzzleCreate")
+    @Label("Puzzle Create")
+    @Category({"Nonograms", "Puzzle"})
+    @Description("A puzzle created from the pack, or a board created for the player")
+    @StackTrace(false)
+    static final class PuzzleEvent extends Event
+    {
+        @Label("Source")
+        String source;
+        
+        @Label("Columns")
+        int cols;
+        
+        @Label("Rows")
+        int rows;
+    }
+    
+    @Name("nonograms.Solve")
+    @Label("Solve")
+    @Category({"Nonograms", "Puzzle"})
+    @Description("A run of the line solver")
+    @StackTrace(false)
+    static final class SolverEvent extends Event
+    {
+        @Label("Columns")
+        int cols;
+        
+        @Label("Rows")
+        int rows;
+        
+        @Label("Steps")
+        @Description("The number of times a line was solved")
+        int steps;
+        
+        @Label("Moves")
+        @Description("The number of cells known")
+        int moves;
+        
+        @Label("Solved")
+        boolean solved;
+    }
+    
+    @Name("nonograms.Frame")
+    @Label("Frame")
+    @Category({"Nonograms", "Game Loop"})
+    @Description("A pass of the game loop, the updates performed and the frame rendered")
+    @StackTrace(false)
+    static final class FrameEvent extends Event
+    {
+        @Label("Updates")
+        int updates;
+        
+        @Label("Update Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long update;
+        
+        @Label("Render Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long render;
+        
+        @Label("Present Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long present;
+    }
+    
+    @Name("nonograms.ResourceLoad")
+    @Label("Resource Load")
+    @Category({"Nonograms", "Startup"})
+    @Description("A stage of loading the game resources")
+    @StackTrace(false)
+    static final class ResourceEvent extends Event
+    {
+        @Label("Stage")
+        String stage;
+        
+        @Label("Resources")
+        int resources;
+    }
+    
+    @Name("nonograms.Move")
+    @Label("Move")
+    @Category({"Nonograms", "Player"})
+    @Description("A location of the board changed by the player")
+    @StackTrace(false)
+    static final class MoveEvent extends Event
+    {
+        @Label("Column")
+        int col;
+        
+        @Label("Row")
+        int row;
+        
+        @Label("Previous Value")
+        int previous;
+        
+        @Label("Value")
+        int value;
+    }
+    
+    //the type of each event, to check if it is enabled before creating one
+    static final EventType LIBRARY = EventType.getEventType(LibraryEvent.class);
+    static final EventType PUZZLE = EventType.getEventType(PuzzleEvent.class);
+    static final EventType SOLVER = EventType.getEventType(SolverEvent.class);
+    static final EventType FRAME = EventType.getEventType(FrameEvent.class);
+    static final EventType RESOURCE = EventType.getEventType(ResourceEvent.class);
+    static final EventType MOVE = EventType.getEventType(MoveEvent.class);
+    
+    FlightEvents()
+    {
+        //created by Flight once the Flight Recorder is known to be available
+    }
+    
+    /**
+     * Start timing the event
+     * @param event The event, only created when its type is enabled
+     * @return The event
+     */
+    private static Event begin(final Event event)
+    {
+        event.begin();
+        
+        return event;
+    }
+    
+    @Override
+    public Object beginLibrary()
+    {
+        return (LIBRARY.isEnabled()) ? begin(new LibraryEvent()) : null;
+    }
+    
+    @Override
+    public void commitLibrary(final Object object, final String phase, final int puzzles)
+    {
+        final LibraryEvent event = (LibraryEvent)object;
+        
+        event.phase = phase;
+        event.puzzles = puzzles;
+        event.commit();
+    }
+    
+    @Override
+    public Object beginPuzzle()
+    {
+        return (PUZZLE.isEnabled()) ? begin(new PuzzleEvent()) : null;
+    }
+    
+    @Override
+    public void commitPuzzle(final Object object, final String source, final int cols, final int rows)
+    {
+        final PuzzleEvent event = (PuzzleEvent)object;
+        
+        event.source = source;
+        event.cols = cols;
+        event.rows = rows;
+        event.commit();
+    }
+    
+    @Override
+    public Object beginSolver()
+    {
+        return (SOLVER.isEnabled()) ? begin(new SolverEvent()) : null;
+    }
+    
+    @Override
+    public void commitSolver(final Object object, final int cols, final int rows, final int steps, final int moves, final boolean solved)
+    {
+        final SolverEvent event = (SolverEvent)object;
+        
+        event.cols = cols;
+        event.rows = rows;
+        event.steps = steps;
+        event.moves = moves;
+        event.solved = solved;
+        event.commit();
+    }
+    
+    @Override
+    public Object beginFrame()
+    {
+        return (FRAME.isEnabled()) ? begin(new FrameEvent()) : null;
+    }
+    
+    @Override
+    public void commitFrame(final Object object, final int updates, final long update, final long render, final long present)
+    {
+        final FrameEvent event = (FrameEvent)object;
+        
+        event.updates = updates;
+        event.update = update;
+        event.render = render;
+        event.present = present;
+        event.commit();
+    }
+    
+    @Override
+    public Object beginResource()
+    {
+        return (RESOURCE.isEnabled()) ? begin(new ResourceEvent()) : null;
+    }
+    
+    @Override
+    public void commitResource(final Object object, final String stage, final int resources)
+    {
+        final ResourceEvent event = (ResourceEvent)object;
+        
+        event.stage = stage;
+        event.resources = resources;
+        event.commit();
+    }
+    
+    @Override
+    public void move(final int col, final int row, final int previous, final int value)
+    {
+        if (!MOVE.isEnabled())
+            return;
+        
+        final MoveEvent event = new MoveEvent();
+        
+        event.col = col;
+        event.row = row;
+        event.previous = previous;
+        event.value = value;
+        event.commit();
+    }
+}
\ No newline at end of file
@@ -28,6 +28,7 @@ public final class StartApplet extends JApplet
         
         //set default values in case no parameters have been passed
         int ups = Shared.DEFAULT_UPS;
+        int fps = Shared.DEFAULT_FPS;
         
         try
         {
@@ -39,8 +40,18 @@ public final class StartApplet extends JApplet
             e.printStackTrace();
         }
         
+        try
+        {
+            //get parameters here
+            fps = Integer.parseInt(getParameter("fps"));
+        }
+        catch(Exception e)
+        {
+            e.printStackTrace();
+        }
+        
         //create new instance of Main with specified ups/fps
-        main = new Main(ups, this);
+        main = new Main(ups, fps, this);
     }
     
     @Override
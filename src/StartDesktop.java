@@ -106,8 +106,8 @@ public final class StartDesktop extends JPanel
         
         try
         {
-            //create a new instance of main with the specified ups
-            main = new Main(Shared.DEFAULT_UPS, this);
+            //create a new instance of main with the specified ups/fps
+            main = new Main(Shared.DEFAULT_UPS, Shared.DEFAULT_FPS, this);
             
             //new instance of our main engine
             main.create();
@@ -1,19 +1,35 @@
 package com.gamesbykevin.nonograms.engine;
 
+import com.gamesbykevin.nonograms.resources.GameText;
 import com.gamesbykevin.nonograms.resources.Resources;
 import com.gamesbykevin.nonograms.main.Main;
 import com.gamesbykevin.nonograms.manager.Manager;
 import com.gamesbykevin.nonograms.menu.CustomMenu;
+import com.gamesbykevin.nonograms.menu.CustomMenu.LayerKey;
+import com.gamesbykevin.nonograms.metrics.Metrics;
+import com.gamesbykevin.nonograms.player.Computer;
+import com.gamesbykevin.nonograms.puzzles.Library;
+import com.gamesbykevin.nonograms.player.stat.Leaderboard;
+import com.gamesbykevin.nonograms.puzzles.Progress;
 import com.gamesbykevin.nonograms.shared.Shared;
 
 import com.gamesbykevin.framework.input.*;
 
 import java.awt.*;
 import java.awt.event.*;
-import java.util.Random;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class Engine implements KeyListener, MouseMotionListener, MouseListener, IEngine 
 {
+    //the most time (seconds) to wait for the fastest solve times and progress to finish loading or saving when the game ends
+    private static final long STORAGE_WAIT = 5;
+    
     //our Main class has important information in it so we need a reference here
     private final Main main;
     
@@ -32,14 +48,57 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
     //object containing all of the game elements
     private Manager manager;
     
+    //the parsed puzzles, kept for every game
+    private Library library;
+    
+    //the puzzles the player has solved
+    private Progress progress;
+    
+    //the fastest solve times
+    private Leaderboard leaderboard;
+    
+    //loads and saves the fastest solve times, and saves the progress, in the background one at a time so the file is loaded before it is saved
+    private ExecutorService storage;
+    
+    //is a save of the fastest solve times or the progress waiting to start
+    private final AtomicBoolean savingLeaderboard = new AtomicBoolean();
+    private final AtomicBoolean savingProgress = new AtomicBoolean();
+    
     //object used to make random decisions
-    private Random random;
+    private ResumableRandom random;
     
     //default font
     private Font font;
     
     //seed for the Random object
-    private final long seed = System.nanoTime();
+    private final long seed;
+    
+    //input received from the listeners, applied at the start of the next update so the input of each update is known
+    private final Queue<AWTEvent> input = new ConcurrentLinkedQueue<>();
+    
+    //the number of updates performed, not including the updates spent loading resources
+    private long tick = 0;
+    
+    //the game time covered by the current update
+    private long elapsed;
+    
+    //does the container have focus, as of the current update
+    private boolean focus = true;
+    
+    //records the input so the game can be replayed, null if not recording
+    private Recorder recorder;
+    
+    //the recording being played, null if the game is being played by the user
+    private final Replay replay;
+    
+    //the computer plays instead of the user, null if the user is playing
+    private Computer.Policy computerPolicy;
+    
+    //the game time (nanoseconds) between each move of the computer
+    private long computerThinkTime;
+    
+    //the chance of the computer making a mistake each move
+    private double computerErrorRate;
     
     //the game font size
     private static final float GAME_FONT_SIZE = 64f;
@@ -51,10 +110,27 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
      * @throws CustomException 
      */
     public Engine(final Main main) throws Exception
+    {
+        this(main, System.nanoTime(), null);
+    }
+    
+    /**
+     * The Engine that contains the game/menu objects
+     * 
+     * @param main Main object that contains important information so we need a reference to it
+     * @param seed Seed for the Random object
+     * @param replay The recording to play, null if the game is played by the user
+     * @throws Exception 
+     */
+    Engine(final Main main, final long seed, final Replay replay) throws Exception
     {
         //reference to parent class
         this.main = main;
         
+        this.seed = seed;
+        this.replay = replay;
+        this.elapsed = main.getTime();
+        
         //object used to track mouse input
         this.mouse = new Mouse();
         
@@ -62,11 +138,25 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
         this.keyboard = new Keyboard();
         
         //create new Random object
-        random = new Random(seed);
+        random = new ResumableRandom(seed);
         
         //display seed if debugging
         if (Shared.DEBUG)
             System.out.println("Seed = " + seed);
+        
+        //record the game so it can be replayed
+        if (Shared.RECORD && replay == null)
+        {
+            try
+            {
+                recorder = new Recorder(Recorder.DEFAULT_FILE, seed, (int)Math.round((double)TimeUnit.SECONDS.toNanos(1) / main.getTime()));
+            }
+            catch (Exception e)
+            {
+                //we can still play without recording
+                e.printStackTrace();
+            }
+        }
     }
     
     /**
@@ -77,6 +167,14 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
     {
         try
         {
+            if (recorder != null)
+            {
+                //finish with the state of the game so the replay can be verified
+                recorder.finish(tick, this);
+                recorder.dispose();
+                recorder = null;
+            }
+            
             if (resources != null)
             {
                 resources.dispose();
@@ -107,6 +205,29 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
                 manager = null;
             }
             
+            if (library != null)
+            {
+                library.dispose();
+                library = null;
+            }
+            
+            progress = null;
+            
+            if (storage != null)
+            {
+                //let the background load or save finish before the final save
+                storage.shutdown();
+                storage.awaitTermination(STORAGE_WAIT, TimeUnit.SECONDS);
+                storage = null;
+            }
+            
+            if (leaderboard != null)
+            {
+                //keep the times recorded since the last save
+                leaderboard.save();
+                leaderboard = null;
+            }
+            
             random = null;
         }
         catch(Exception e)
@@ -118,6 +239,40 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
     @Override
     public void update(Main main) throws Exception
     {
+        //the number of updates spent loading is different every time, so they are not counted or given input
+        final boolean loading = (resources != null && resources.isLoading());
+        
+        if (loading)
+        {
+            input.clear();
+        }
+        else
+        {
+            //get the input for this update
+            if (replay != null)
+            {
+                replay.next(this);
+                
+                elapsed = replay.getElapsed();
+                focus = replay.hasFocus();
+            }
+            else
+            {
+                elapsed = main.getElapsed();
+                focus = main.hasFocus();
+                
+                if (recorder != null)
+                {
+                    if (elapsed != main.getTime())
+                        recorder.recordElapsed(tick, elapsed);
+                    
+                    recorder.recordFocus(tick, focus);
+                }
+            }
+            
+            applyInput();
+        }
+        
         if (menu == null)
         {
             //create new menu
@@ -137,31 +292,61 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
 
             //update the menu
             menu.update(this);
+            
+            //the menu layers animate, except the layer displayed when focus is lost
+            if (!menu.hasFinished() && !menu.isCurrentLayer(LayerKey.NoFocus))
+                main.setDirty();
 
             //if the menu is finished and the window has focus
             if (menu.hasFinished() && menu.hasFocus())
             {
                 //if our resources object is empty create a new one
                 if (resources == null)
+                {
                     this.resources = new Resources();
+                    
+                    //nobody is listening to a replay
+                    if (replay != null)
+                        resources.setMuted(true);
+                }
 
                 //check if we are still loading resources
                 if (resources.isLoading())
                 {
                     //load resources
                     resources.update(main.getContainerClass());
+                    
+                    //the progress has changed
+                    main.setDirty();
                 }
                 else
                 {
                     //create new manager because at this point our resources have loaded
                     if (manager == null)
                     {
+                        //the library is only parsed for the first game
+                        if (library == null)
+                        {
+                            library = new Library(resources.getGameText(GameText.Keys.Puzzles));
+                            
+                            //load the puzzles already solved
+                            loadProgress();
+                            
+                            //load the fastest solve times
+                            loadLeaderboard();
+                        }
+                        
                         manager = new Manager(this);
                         manager.reset(this);
+                        
+                        //the game has been created
+                        main.setDirty();
                     }
 
                     //update main game logic
+                    final long start = Metrics.start();
                     manager.update(this);
+                    Metrics.MANAGER_UPDATE.stop(start);
                 }
             }
 
@@ -169,6 +354,83 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
             if (mouse.isMouseReleased())
                 mouse.reset();
         }
+        
+        if (!loading)
+            tick++;
+    }
+    
+    /**
+     * Apply the input received since the previous update to the mouse and keyboard
+     */
+    private void applyInput()
+    {
+        AWTEvent event;
+        
+        while ((event = input.poll()) != null)
+        {
+            if (recorder != null)
+                recorder.record(tick, event);
+            
+            switch (event.getID())
+            {
+                case KeyEvent.KEY_PRESSED:
+                    keyboard.addKeyPressed(((KeyEvent)event).getKeyCode());
+                    break;
+                
+                case KeyEvent.KEY_RELEASED:
+                    keyboard.addKeyReleased(((KeyEvent)event).getKeyCode());
+                    break;
+                
+                case MouseEvent.MOUSE_CLICKED:
+                    mouse.setMouseClicked((MouseEvent)event);
+                    break;
+                
+                case MouseEvent.MOUSE_PRESSED:
+                    mouse.setMousePressed((MouseEvent)event);
+                    break;
+                
+                case MouseEvent.MOUSE_RELEASED:
+                    mouse.setMouseReleased((MouseEvent)event);
+                    break;
+                
+                case MouseEvent.MOUSE_ENTERED:
+                    mouse.setMouseEntered(((MouseEvent)event).getPoint());
+                    break;
+                
+                case MouseEvent.MOUSE_EXITED:
+                    mouse.setMouseExited(((MouseEvent)event).getPoint());
+                    break;
+                
+                case MouseEvent.MOUSE_MOVED:
+                    mouse.setMouseMoved(((MouseEvent)event).getPoint());
+                    break;
+                
+                case MouseEvent.MOUSE_DRAGGED:
+                    mouse.setMouseDragged(((MouseEvent)event).getPoint());
+                    break;
+            }
+        }
+    }
+    
+    /**
+     * Is the game idle?<br>
+     * The game is idle when nothing on screen will change without input.
+     * @return true if the screen is static, false otherwise
+     */
+    public boolean isIdle()
+    {
+        if (menu == null)
+            return false;
+        
+        //the container lost focus and only the static layer is displayed
+        if (menu.isCurrentLayer(LayerKey.NoFocus))
+            return true;
+        
+        //the game is over and only the victory/gameover image is displayed
+        if (menu.hasFinished() && manager != null && manager.hasFinished())
+            return true;
+        
+        return false;
     }
     
     public long getSeed()
@@ -176,6 +438,86 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
         return this.seed;
     }
     
+    /**
+     * Get the number of updates performed.<br>
+     * The updates spent loading resources are not counted.
+     * @return The number of updates
+     */
+    long getTick()
+    {
+        return this.tick;
+    }
+    
+    /**
+     * Get the game time covered by the current update
+     * @return The nanoseconds passed for the current update
+     */
+    public long getElapsed()
+    {
+        return this.elapsed;
+    }
+    
+    /**
+     * Does the container have focus?
+     * @return true if the container had focus at the start of the current update, false otherwise
+     */
+    public boolean hasFocus()
+    {
+        return this.focus;
+    }
+    
+    /**
+     * Is the game stored on disk so it can be resumed?<br>
+     * A recorded or replayed game always starts new, so it can be reproduced.
+     * A game played by the computer is never stored, so it doesn't replace the game of the user.
+     * @return true=yes, false=no
+     */
+    public boolean isPersistent()
+    {
+        return (recorder == null && replay == null && computerPolicy == null);
+    }
+    
+    /**
+     * Have the computer play instead of the user.<br>
+     * This needs to be called before the first game is created.
+     * @param policy The order the computer makes the moves
+     * @param thinkTime The game time (nanoseconds) between each move
+     * @param errorRate The chance of a mistake each move (0.0 - 1.0)
+     */
+    public void setComputer(final Computer.Policy policy, final long thinkTime, final double errorRate)
+    {
+        this.computerPolicy = policy;
+        this.computerThinkTime = thinkTime;
+        this.computerErrorRate = errorRate;
+    }
+    
+    /**
+     * Get the order the computer makes the moves
+     * @return The policy of the computer, null if the user is playing
+     */
+    public Computer.Policy getComputerPolicy()
+    {
+        return this.computerPolicy;
+    }
+    
+    /**
+     * Get the game time between each move of the computer
+     * @return The think time in nanoseconds
+     */
+    public long getComputerThinkTime()
+    {
+        return this.computerThinkTime;
+    }
+    
+    /**
+     * Get the chance of the computer making a mistake each move
+     * @return The error rate (0.0 - 1.0)
+     */
+    public double getComputerErrorRate()
+    {
+        return this.computerErrorRate;
+    }
+    
     /**
      * Reset keyboard and mouse input.<br>
      * Stop any existing sound from playing.<br>
@@ -217,7 +559,7 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
      * Get our object used to make random decisions
      * @return Random
      */
-    public Random getRandom()
+    public ResumableRandom getRandom()
     {
         return this.random;
     }
@@ -257,7 +599,9 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
                 //set default font
                 graphics.setFont(font);
                 
+                final long start = Metrics.start();
                 manager.render(graphics);
+                Metrics.MANAGER_RENDER.stop(start);
             }
             
             //draw menu on top of the game if visible
@@ -285,6 +629,178 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
         }
     }
     
+    /**
+     * Load the puzzles the player has solved.<br>
+     * If the progress can't be read every puzzle will be available.
+     */
+    private void loadProgress()
+    {
+        final long before = System.nanoTime();
+        
+        //a replay uses the recorded progress, and the computer starts with nothing solved, neither is stored
+        progress = new Progress(library, (replay != null || computerPolicy != null) ? null : Progress.DEFAULT_FILE);
+        
+        try
+        {
+            if (replay != null)
+            {
+                replay.loadProgress(progress);
+            }
+            else
+            {
+                progress.load();
+            }
+        }
+        catch (Exception e)
+        {
+            //start with nothing solved
+            e.printStackTrace();
+            
+            progress = new Progress(library, (replay != null || computerPolicy != null) ? null : Progress.DEFAULT_FILE);
+        }
+        
+        //the remaining puzzles depend on the progress, so it is part of the recording
+        if (recorder != null)
+            recorder.recordProgress(tick, progress);
+        
+        //display the time to load the progress if debugging
+        if (Shared.DEBUG)
+            System.out.println("Progress loaded in " + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - before) + " us");
+    }
+    
+    /**
+     * Load the fastest solve times in the background, so the game can be played while they load.<br>
+     * Only the times of a stored game are kept on disk.
+     */
+    private void loadLeaderboard()
+    {
+        leaderboard = new Leaderboard(isPersistent() ? Leaderboard.DEFAULT_FILE : null);
+        
+        storage = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "storage");
+                
+                //loading and saving don't keep the game running
+                thread.setDaemon(true);
+                
+                return thread;
+            }
+        });
+        
+        final Leaderboard loading = leaderboard;
+        
+        storage.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    loading.load();
+                }
+                catch (Exception e)
+                {
+                    //start with no times
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+    
+    /**
+     * Save the fastest solve times in the background, so the game isn't blocked writing the file.<br>
+     * If a save is already waiting to start no other is queued, it will include the times recorded until it starts.
+     */
+    public void saveLeaderboard()
+    {
+        if (storage == null || !savingLeaderboard.compareAndSet(false, true))
+            return;
+        
+        final Leaderboard saved = leaderboard;
+        
+        storage.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                //times recorded from now on need another save
+                savingLeaderboard.set(false);
+                
+                try
+                {
+                    saved.save();
+                }
+                catch (Exception e)
+                {
+                    //we can still play without saving the times
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+    
+    /**
+     * Save the puzzles the player has solved in the background, so the game isn't blocked writing the file.<br>
+     * If a save is already waiting to start no other is queued, it will include the puzzles solved until it starts.
+     */
+    public void saveProgress()
+    {
+        if (storage == null || !savingProgress.compareAndSet(false, true))
+            return;
+        
+        final Progress saved = progress;
+        
+        storage.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                //puzzles solved from now on need another save
+                savingProgress.set(false);
+                
+                try
+                {
+                    saved.save();
+                }
+                catch (Exception e)
+                {
+                    //we can still play without saving the progress
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+    
+    /**
+     * Get the fastest solve times
+     * @return The leaderboard
+     */
+    public Leaderboard getLeaderboard()
+    {
+        return this.leaderboard;
+    }
+    
+    /**
+     * Get the puzzles the player has solved
+     * @return The progress of the player
+     */
+    public Progress getProgress()
+    {
+        return this.progress;
+    }
+    
+    /**
+     * Get the library of every puzzle
+     * @return The parsed puzzles, shared by every game
+     */
+    public Library getLibrary()
+    {
+        return this.library;
+    }
+    
     /**
      * Object that contains all of the game elements
      * @return Manager
@@ -307,13 +823,19 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
     @Override
     public void keyReleased(KeyEvent e)
     {
-        keyboard.addKeyReleased(e.getKeyCode());
+        input.add(e);
+        
+        //input may change the screen
+        main.setDirty();
     }
     
     @Override
     public void keyPressed(KeyEvent e)
     {
-        keyboard.addKeyPressed(e.getKeyCode());
+        input.add(e);
+        
+        //input may change the screen
+        main.setDirty();
     }
     
     @Override
@@ -326,43 +848,64 @@ public final class Engine implements KeyListener, MouseMotionListener, MouseList
     @Override
     public void mouseClicked(MouseEvent e)
     {
-        mouse.setMouseClicked(e);
+        input.add(e);
+        
+        //input may change the screen
+        main.setDirty();
     }
     
     @Override
     public void mousePressed(MouseEvent e)
     {
-        mouse.setMousePressed(e);
+        input.add(e);
+        
+        //input may change the screen
+        main.setDirty();
     }
     
     @Override
     public void mouseReleased(MouseEvent e)
     {
-        mouse.setMouseReleased(e);
+        input.add(e);
+        
+        //input may change the screen
+        main.setDirty();
     }
     
     @Override
     public void mouseEntered(MouseEvent e)
     {
-        mouse.setMouseEntered(e.getPoint());
+        input.add(e);
+        
+        //input may change the screen
+        main.setDirty();
     }
     
     @Override
     public void mouseExited(MouseEvent e)
     {
-        mouse.setMouseExited(e.getPoint());
+        input.add(e);
+        
+        //input may change the screen
+        main.setDirty();
     }
     
     @Override
     public void mouseMoved(MouseEvent e)
     {
-        mouse.setMouseMoved(e.getPoint());
+        input.add(e);
+        
+        //input may change the screen
+        main.setDirty();
     }
     
     @Override
     public void mouseDragged(MouseEvent e)
     {
-        mouse.setMouseDragged(e.getPoint());
+        input.add(e);
+        
+        //input may change the screen
+        main.setDirty();
     }
     
     public Mouse getMouse()
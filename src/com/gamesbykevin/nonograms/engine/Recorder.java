@@ -0,0 +1,356 @@
+package com.gamesbykevin.nonograms.engine;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import com.gamesbykevin.nonograms.player.Player;
+import com.gamesbykevin.nonograms.puzzles.Progress;
+
+import java.awt.AWTEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Records everything the Engine consumes so the game can be replayed exactly.<br>
+ * The seed is written first, then every input event, focus change and irregular update duration with the update it was applied in.
+ * The update of each record is written as the difference from the previous record, so a long session is still a small file.
+ * @author GOD
+ */
+public final class Recorder implements Disposable
+{
+    //the default location of the recording
+    public static final File DEFAULT_FILE = new File(new File(System.getProperty("user.home"), ".nonograms"), "replay.dat");
+    
+    //identifies our file and the layout of it
+    static final int MAGIC = 0x4e475250;
+    static final int VERSION = 1;
+    
+    //the different types of records
+    static final int TYPE_KEY_PRESSED = 0;
+    static final int TYPE_KEY_RELEASED = 1;
+    static final int TYPE_MOUSE_CLICKED = 2;
+    static final int TYPE_MOUSE_PRESSED = 3;
+    static final int TYPE_MOUSE_RELEASED = 4;
+    static final int TYPE_MOUSE_ENTERED = 5;
+    static final int TYPE_MOUSE_EXITED = 6;
+    static final int TYPE_MOUSE_MOVED = 7;
+    static final int TYPE_MOUSE_DRAGGED = 8;
+    static final int TYPE_ELAPSED = 9;
+    static final int TYPE_FOCUS = 10;
+    static final int TYPE_PROGRESS = 11;
+    static final int TYPE_END = 12;
+    
+    //where the records are written
+    private DataOutputStream stream;
+    
+    //the update of the previous record
+    private long previous = 0;
+    
+    //the focus of the previous update, the container starts with focus
+    private boolean focus = true;
+    
+    /**
+     * Create the recording
+     * @param file Where the recording is stored
+     * @param seed The seed of the random object
+     * @param ups The number of updates per second
+     * @throws Exception if the file can't be created
+     */
+    public Recorder(final File file, final long seed, final int ups) throws Exception
+    {
+        if (file.getParentFile() != null && !file.getParentFile().isDirectory() && !file.getParentFile().mkdirs())
+            throw new Exception("Unable to create directory - " + file.getParentFile());
+        
+        this.stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        
+        stream.writeInt(MAGIC);
+        stream.writeInt(VERSION);
+        stream.writeLong(seed);
+        stream.writeInt(ups);
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (stream != null)
+        {
+            try
+            {
+                stream.close();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+            
+            stream = null;
+        }
+    }
+    
+    /**
+     * The recording can't be written so stop recording
+     * @param e The reason
+     */
+    private void disable(final Exception e)
+    {
+        e.printStackTrace();
+        
+        dispose();
+    }
+    
+    /**
+     * Record the input event
+     * @param tick The update the event was applied in
+     * @param event The key or mouse event
+     */
+    public void record(final long tick, final AWTEvent event)
+    {
+        if (stream == null)
+            return;
+        
+        try
+        {
+            switch (event.getID())
+            {
+                case KeyEvent.KEY_PRESSED:
+                    writeHeader(tick, TYPE_KEY_PRESSED);
+                    writeVarLong(stream, ((KeyEvent)event).getKeyCode());
+                    break;
+                
+                case KeyEvent.KEY_RELEASED:
+                    writeHeader(tick, TYPE_KEY_RELEASED);
+                    writeVarLong(stream, ((KeyEvent)event).getKeyCode());
+                    break;
+                
+                case MouseEvent.MOUSE_CLICKED:
+                    writeButton(tick, TYPE_MOUSE_CLICKED, (MouseEvent)event);
+                    break;
+                
+                case MouseEvent.MOUSE_PRESSED:
+                    writeButton(tick, TYPE_MOUSE_PRESSED, (MouseEvent)event);
+                    break;
+                
+                case MouseEvent.MOUSE_RELEASED:
+                    writeButton(tick, TYPE_MOUSE_RELEASED, (MouseEvent)event);
+                    break;
+                
+                case MouseEvent.MOUSE_ENTERED:
+                    writeLocation(tick, TYPE_MOUSE_ENTERED, (MouseEvent)event);
+                    break;
+                
+                case MouseEvent.MOUSE_EXITED:
+                    writeLocation(tick, TYPE_MOUSE_EXITED, (MouseEvent)event);
+                    break;
+                
+                case MouseEvent.MOUSE_MOVED:
+                    writeLocation(tick, TYPE_MOUSE_MOVED, (MouseEvent)event);
+                    break;
+                
+                case MouseEvent.MOUSE_DRAGGED:
+                    writeLocation(tick, TYPE_MOUSE_DRAGGED, (MouseEvent)event);
+                    break;
+            }
+        }
+        catch (Exception e)
+        {
+            disable(e);
+        }
+    }
+    
+    /**
+     * Record the game time covered by the update, only needed when it isn't the normal duration
+     * @param tick The update
+     * @param elapsed The nanoseconds passed for the update
+     */
+    public void recordElapsed(final long tick, final long elapsed)
+    {
+        if (stream == null)
+            return;
+        
+        try
+        {
+            writeHeader(tick, TYPE_ELAPSED);
+            writeVarLong(stream, elapsed);
+        }
+        catch (Exception e)
+        {
+            disable(e);
+        }
+    }
+    
+    /**
+     * Record the focus of the container, only written when it has changed
+     * @param tick The update
+     * @param focus Does the container have focus
+     */
+    public void recordFocus(final long tick, final boolean focus)
+    {
+        if (stream == null || this.focus == focus)
+            return;
+        
+        this.focus = focus;
+        
+        try
+        {
+            writeHeader(tick, TYPE_FOCUS);
+            stream.writeBoolean(focus);
+        }
+        catch (Exception e)
+        {
+            disable(e);
+        }
+    }
+    
+    /**
+     * Record the puzzles solved before the game started, since the remaining puzzles depend on it
+     * @param tick The update the progress was loaded in
+     * @param progress The progress of the player
+     */
+    public void recordProgress(final long tick, final Progress progress)
+    {
+        if (stream == null)
+            return;
+        
+        try
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            
+            try (DataOutputStream output = new DataOutputStream(bytes))
+            {
+                progress.write(output);
+            }
+            
+            writeHeader(tick, TYPE_PROGRESS);
+            writeVarLong(stream, bytes.size());
+            bytes.writeTo(stream);
+        }
+        catch (Exception e)
+        {
+            disable(e);
+        }
+    }
+    
+    /**
+     * Finish the recording with the state of the game, so the replay can be verified
+     * @param tick The number of updates performed
+     * @param engine Object containing all game elements
+     */
+    public void finish(final long tick, final Engine engine)
+    {
+        if (stream == null)
+            return;
+        
+        try
+        {
+            writeHeader(tick, TYPE_END);
+            stream.writeLong(getChecksum(engine));
+        }
+        catch (Exception e)
+        {
+            disable(e);
+            return;
+        }
+        
+        dispose();
+    }
+    
+    /**
+     * Write the update and type of the record
+     * @param tick The update
+     * @param type The type of record
+     * @throws IOException if the record can't be written
+     */
+    private void writeHeader(final long tick, final int type) throws IOException
+    {
+        writeVarLong(stream, tick - previous);
+        stream.writeByte(type);
+        
+        previous = tick;
+    }
+    
+    /**
+     * Write a mouse button event
+     * @param tick The update
+     * @param type The type of record
+     * @param event The mouse event
+     * @throws IOException if the record can't be written
+     */
+    private void writeButton(final long tick, final int type, final MouseEvent event) throws IOException
+    {
+        writeHeader(tick, type);
+        stream.writeByte(event.getButton());
+        stream.writeByte(Math.min(event.getClickCount(), Byte.MAX_VALUE));
+        writeVarLong(stream, event.getModifiersEx());
+        stream.writeShort(event.getX());
+        stream.writeShort(event.getY());
+    }
+    
+    /**
+     * Write a mouse location event
+     * @param tick The update
+     * @param type The type of record
+     * @param event The mouse event
+     * @throws IOException if the record can't be written
+     */
+    private void writeLocation(final long tick, final int type, final MouseEvent event) throws IOException
+    {
+        writeHeader(tick, type);
+        stream.writeShort(event.getX());
+        stream.writeShort(event.getY());
+    }
+    
+    /**
+     * Write a value that is not negative using as few bytes as possible, 7 bits per byte
+     * @param output Where the value is written
+     * @param value The value
+     * @throws IOException if the value can't be written
+     */
+    static void writeVarLong(final DataOutput output, long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            output.writeByte((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        
+        output.writeByte((int)value);
+    }
+    
+    /**
+     * Get a checksum of the game state, the same input from the same seed will always have the same checksum
+     * @param engine Object containing all game elements
+     * @return The checksum of the game
+     */
+    static long getChecksum(final Engine engine)
+    {
+        long checksum = engine.getTick();
+        
+        if (engine.getManager() == null || engine.getManager().getPlayer() == null || engine.getManager().getPlayer().getPuzzle() == null)
+            return checksum;
+        
+        final Player player = engine.getManager().getPlayer();
+        
+        checksum = (checksum * 31) + engine.getManager().getPuzzles().getDifficulty().ordinal();
+        checksum = (checksum * 31) + engine.getManager().getPuzzles().getId();
+        checksum = (checksum * 31) + (engine.getManager().hasFinished() ? 1 : 0);
+        checksum = (checksum * 31) + player.getStats().getLevel();
+        checksum = (checksum * 31) + player.getStats().getTimer().getPassed();
+        checksum = (checksum * 31) + player.getStats().getTimer().getRemaining();
+        
+        for (int row = 0; row < player.getPuzzle().getRows(); row++)
+        {
+            for (int col = 0; col < player.getPuzzle().getCols(); col++)
+            {
+                checksum = (checksum * 31) + player.getPuzzle().getKeyValue(col, row);
+            }
+        }
+        
+        return checksum;
+    }
+}
\ No newline at end of file
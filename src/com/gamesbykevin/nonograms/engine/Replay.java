@@ -0,0 +1,333 @@
+package com.gamesbykevin.nonograms.engine;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import com.gamesbykevin.nonograms.main.Main;
+import com.gamesbykevin.nonograms.puzzles.Progress;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Plays a recording back through the Engine as fast as possible.<br>
+ * The Engine is created with the recorded seed, and before each update it is given the recorded input,
+ * focus and duration of that update, so the game ends in the same state it was recorded in.
+ * Nothing is rendered and the game in progress and progress of the player are not changed.
+ * @author GOD
+ */
+public final class Replay implements Disposable
+{
+    //where the records are read from
+    private DataInputStream stream;
+    
+    //the recorded seed and updates per second
+    private final long seed;
+    private final int ups;
+    
+    //the update and type of the next record, the type is -1 if there are no more records
+    private long nextTick = 0;
+    private int nextType = -1;
+    
+    //the number of updates recorded, -1 until it is known
+    private long end = -1;
+    
+    //the recorded checksum of the game
+    private long checksum;
+    
+    //was the checksum recorded
+    private boolean verified = false;
+    
+    //the game time covered by the current update
+    private long elapsed;
+    
+    //does the container have focus
+    private boolean focus = true;
+    
+    //the recorded progress of the player
+    private byte[] progress;
+    
+    //the source of the input events we create
+    private final Component source = new Container();
+    
+    /**
+     * Open the recording
+     * @param file The recording
+     * @throws Exception if the file can't be read or is not a recording
+     */
+    public Replay(final File file) throws Exception
+    {
+        this.stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        
+        if (stream.readInt() != Recorder.MAGIC || stream.readInt() != Recorder.VERSION)
+        {
+            dispose();
+            throw new Exception("Not a recording - " + file);
+        }
+        
+        this.seed = stream.readLong();
+        this.ups = stream.readInt();
+        
+        //read ahead to the first record
+        readNext();
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (stream != null)
+        {
+            try
+            {
+                stream.close();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+            
+            stream = null;
+        }
+        
+        progress = null;
+    }
+    
+    /**
+     * Get the seed of the recorded game
+     * @return The seed of the random object
+     */
+    public long getSeed()
+    {
+        return this.seed;
+    }
+    
+    /**
+     * Get the number of updates per second of the recorded game
+     * @return The updates per second
+     */
+    public int getUps()
+    {
+        return this.ups;
+    }
+    
+    /**
+     * Play the entire recording.<br>
+     * The main object is only used for the screen dimensions, container and update duration, it is not started.
+     * @param main Main object created with the recorded updates per second
+     * @return true if the game ended in the recorded state, or no state was recorded, false otherwise
+     * @throws Exception if there was an error updating the game
+     */
+    public boolean play(final Main main) throws Exception
+    {
+        final Engine engine = new Engine(main, seed, this);
+        
+        try
+        {
+            while (end < 0 || engine.getTick() < end)
+            {
+                engine.update(main);
+                
+                //the resources are loaded on other threads, so let them run while we wait
+                if (engine.getResources() != null && engine.getResources().isLoading())
+                    Thread.yield();
+            }
+            
+            return (!verified || Recorder.getChecksum(engine) == checksum);
+        }
+        finally
+        {
+            engine.dispose();
+        }
+    }
+    
+    /**
+     * Give the engine the recorded input of the current update.<br>
+     * This is called by the engine once for each update that is recorded.
+     * @param engine The engine being played
+     * @throws IOException if the recording can't be read
+     */
+    void next(final Engine engine) throws IOException
+    {
+        //every update is the normal duration unless recorded otherwise
+        elapsed = engine.getMain().getTime();
+        
+        while (nextType >= 0 && nextTick <= engine.getTick())
+        {
+            switch (nextType)
+            {
+                case Recorder.TYPE_KEY_PRESSED:
+                    engine.keyPressed(createKeyEvent(KeyEvent.KEY_PRESSED));
+                    break;
+                
+                case Recorder.TYPE_KEY_RELEASED:
+                    engine.keyReleased(createKeyEvent(KeyEvent.KEY_RELEASED));
+                    break;
+                
+                case Recorder.TYPE_MOUSE_CLICKED:
+                    engine.mouseClicked(createButtonEvent(MouseEvent.MOUSE_CLICKED));
+                    break;
+                
+                case Recorder.TYPE_MOUSE_PRESSED:
+                    engine.mousePressed(createButtonEvent(MouseEvent.MOUSE_PRESSED));
+                    break;
+                
+                case Recorder.TYPE_MOUSE_RELEASED:
+                    engine.mouseReleased(createButtonEvent(MouseEvent.MOUSE_RELEASED));
+                    break;
+                
+                case Recorder.TYPE_MOUSE_ENTERED:
+                    engine.mouseEntered(createLocationEvent(MouseEvent.MOUSE_ENTERED));
+                    break;
+                
+                case Recorder.TYPE_MOUSE_EXITED:
+                    engine.mouseExited(createLocationEvent(MouseEvent.MOUSE_EXITED));
+                    break;
+                
+                case Recorder.TYPE_MOUSE_MOVED:
+                    engine.mouseMoved(createLocationEvent(MouseEvent.MOUSE_MOVED));
+                    break;
+                
+                case Recorder.TYPE_MOUSE_DRAGGED:
+                    engine.mouseDragged(createLocationEvent(MouseEvent.MOUSE_DRAGGED));
+                    break;
+                
+                case Recorder.TYPE_ELAPSED:
+                    elapsed = readVarLong(stream);
+                    break;
+                
+                case Recorder.TYPE_FOCUS:
+                    focus = stream.readBoolean();
+                    break;
+                
+                case Recorder.TYPE_PROGRESS:
+                    progress = new byte[(int)readVarLong(stream)];
+                    stream.readFully(progress);
+                    break;
+                
+                default:
+                    throw new IOException("Unknown record type - " + nextType);
+            }
+            
+            readNext();
+        }
+    }
+    
+    /**
+     * Read the update and type of the next record.<br>
+     * The end of the recording is read here so we know when to stop.
+     * @throws IOException if the recording can't be read
+     */
+    private void readNext() throws IOException
+    {
+        try
+        {
+            nextTick += readVarLong(stream);
+            nextType = stream.readUnsignedByte();
+        }
+        catch (EOFException e)
+        {
+            //the recording was not finished, so play the last update recorded
+            nextType = -1;
+            end = nextTick + 1;
+            return;
+        }
+        
+        if (nextType == Recorder.TYPE_END)
+        {
+            checksum = stream.readLong();
+            verified = true;
+            end = nextTick;
+            nextType = -1;
+        }
+    }
+    
+    /**
+     * Get the game time covered by the current update
+     * @return The recorded nanoseconds passed for the update
+     */
+    long getElapsed()
+    {
+        return this.elapsed;
+    }
+    
+    /**
+     * Does the container have focus?
+     * @return The recorded focus as of the current update
+     */
+    boolean hasFocus()
+    {
+        return this.focus;
+    }
+    
+    /**
+     * Load the recorded progress of the player
+     * @param progress The progress to change
+     * @throws Exception if the progress was not recorded or can't be read
+     */
+    void loadProgress(final Progress progress) throws Exception
+    {
+        if (this.progress == null)
+            throw new Exception("Progress was not recorded");
+        
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(this.progress)))
+        {
+            progress.read(input);
+        }
+    }
+    
+    private KeyEvent createKeyEvent(final int id) throws IOException
+    {
+        return new KeyEvent(source, id, 0, 0, (int)readVarLong(stream), KeyEvent.CHAR_UNDEFINED);
+    }
+    
+    private MouseEvent createButtonEvent(final int id) throws IOException
+    {
+        final int button = stream.readUnsignedByte();
+        final int clickCount = stream.readUnsignedByte();
+        final int modifiers = (int)readVarLong(stream);
+        final int x = stream.readShort();
+        final int y = stream.readShort();
+        
+        return new MouseEvent(source, id, 0, modifiers, x, y, clickCount, false, button);
+    }
+    
+    private MouseEvent createLocationEvent(final int id) throws IOException
+    {
+        final int x = stream.readShort();
+        final int y = stream.readShort();
+        
+        return new MouseEvent(source, id, 0, 0, x, y, 0, false, MouseEvent.NOBUTTON);
+    }
+    
+    /**
+     * Read a value written with Recorder.writeVarLong
+     * @param input Where the value is read from
+     * @return The value
+     * @throws IOException if the value can't be read
+     */
+    private static long readVarLong(final DataInput input) throws IOException
+    {
+        long value = 0;
+        
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            final int b = input.readUnsignedByte();
+            
+            value |= (long)(b & 0x7F) << shift;
+            
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        
+        throw new IOException("Malformed value");
+    }
+}
\ No newline at end of file
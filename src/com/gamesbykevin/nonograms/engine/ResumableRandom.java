@@ -0,0 +1,67 @@
+package com.gamesbykevin.nonograms.engine;
+
+import java.util.Random;
+
+/**
+ * A random object whose state can be read and restored, so a resumed game makes the same random decisions as the saved game.<br>
+ * The numbers are generated the same as java.util.Random, the state is kept here because Random doesn't expose it.
+ * A value kept by nextGaussian() is not part of the state.
+ * @author GOD
+ */
+public final class ResumableRandom extends Random
+{
+    private static final long serialVersionUID = 1L;
+    
+    //the values java.util.Random uses to calculate the next state
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+    
+    //the current state, assigned by setSeed() when Random is constructed
+    private long state;
+    
+    /**
+     * Create the random object
+     * @param seed The seed of the random object
+     */
+    public ResumableRandom(final long seed)
+    {
+        super(seed);
+    }
+    
+    @Override
+    public synchronized void setSeed(final long seed)
+    {
+        super.setSeed(seed);
+        
+        //scramble the seed the same as java.util.Random
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+    
+    @Override
+    protected int next(final int bits)
+    {
+        state = ((state * MULTIPLIER) + ADDEND) & MASK;
+        
+        return (int)(state >>> (48 - bits));
+    }
+    
+    /**
+     * Get the current state, so it can be saved
+     * @return The state of the random object
+     */
+    public long getState()
+    {
+        return this.state;
+    }
+    
+    /**
+     * Continue from a saved state
+     * @param state The state returned by getState()
+     */
+    public void setState(final long state)
+    {
+        //undo the scramble so setSeed() assigns the state as is
+        setSeed(state ^ MULTIPLIER);
+    }
+}
\ No newline at end of file
@@ -1,20 +1,20 @@
 package com.gamesbykevin.nonograms.main;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
 
 import com.gamesbykevin.framework.resources.Disposable;
 
 import com.gamesbykevin.nonograms.engine.Engine;
+import com.gamesbykevin.nonograms.metrics.Flight;
+import com.gamesbykevin.nonograms.metrics.Metrics;
 import com.gamesbykevin.nonograms.shared.Shared;
 
 public final class Main extends Thread implements Disposable
 {
-    //image where all game/menu elements will be written to
-    private Image bufferedImage;
-    
-    //Graphics object used to draw buffered image
-    private Graphics bufferedImageGraphics;
+    //the presentation layer where all game/menu elements will be written to
+    private Renderer renderer;
     
     //our dimensions for the original screen window
     private Rectangle originalSizeWindow;
@@ -37,38 +37,90 @@ public final class Main extends Thread implements Disposable
     //need double for accuracy
     private double nanoSecondsPerUpdate;
     
+    //the minimum duration of each rendered frame in nanoseconds
+    private double nanoSecondsPerFrame;
+    
+    //the game time (nanoseconds) covered by the current update
+    private long elapsed;
+    
+    //game time (nanoseconds) that was dropped while catching up, to be added to the next update
+    private long dropped = 0;
+    
     //reference to our applet
     private JApplet applet;
     
     //reference to our panel
     private JPanel panel;
     
+    //class in the root directory of the project, when there is no container
+    private Class<?> source;
+    
+    //when there is no container, do we update as fast as possible instead of at the desired rate
+    private boolean unthrottled = false;
+    
+    //when there is no container, do we render each frame to an image
+    private boolean renderEnabled = false;
+    
     //cache this graphics object so we aren't constantly creating it
     private Graphics graphics;
     
     //is the thread active
     private boolean active = true;
     
+    //does the screen need to be rendered again
+    private volatile boolean dirty = true;
+    
+    //object used to block the thread while the game is idle
+    private final Object idle = new Object();
+    
+    //the longest we will block (milliseconds) while idle before checking again
+    private static final long IDLE_WAIT_MILLIS = 250;
+    
     public Main(final int ups, final JApplet applet)
     {
-        this(ups);
+        this(ups, Shared.DEFAULT_FPS, applet);
+    }
+    
+    public Main(final int ups, final JPanel panel)
+    {
+        this(ups, Shared.DEFAULT_FPS, panel);
+    }
+    
+    public Main(final int ups, final int fps, final JApplet applet)
+    {
+        this(ups, fps);
         
         this.applet = applet;
     }
     
-    public Main(final int ups, final JPanel panel)
+    public Main(final int ups, final int fps, final JPanel panel)
     {
-        this(ups);
+        this(ups, fps);
         
         this.panel = panel;
     }
     
+    /**
+     * Main class that runs the game without a container, so no display is needed.<br>
+     * Each update still covers the same game time, and frames are only rendered to an image if enabled.
+     * 
+     * @param ups Desired updates per second
+     * @param source Class in root directory of project so we have a relative location so we know how to access resources
+     */
+    public Main(final int ups, final Class<?> source)
+    {
+        this(ups, Shared.DEFAULT_FPS);
+        
+        this.source = source;
+    }
+    
     /**
      * Main class that manages the game engine
      * 
      * @param ups Desired updates per second
+     * @param fps Maximum frames rendered per second
      */
-    private Main(final int ups)
+    private Main(final int ups, final int fps)
     {
         //the dimensions used for original/full screen
         originalSizeWindow = new Rectangle(0, 0, Shared.ORIGINAL_WIDTH, Shared.ORIGINAL_HEIGHT);
@@ -76,6 +128,12 @@ public final class Main extends Thread implements Disposable
 
         //duration of each update in nanoseconds
         this.nanoSecondsPerUpdate = NANO_SECONDS_PER_SECOND / ups;
+        
+        //minimum duration of each frame in nanoseconds
+        this.nanoSecondsPerFrame = NANO_SECONDS_PER_SECOND / fps;
+        
+        //each update covers the same amount of game time
+        this.elapsed = (long)nanoSecondsPerUpdate;
     }
     
     /**
@@ -84,16 +142,10 @@ public final class Main extends Thread implements Disposable
     @Override
     public void dispose()
     {
-        if (bufferedImage != null)
-        {
-            bufferedImage.flush();
-            bufferedImage = null;
-        }
-        
-        if (bufferedImageGraphics != null)
+        if (renderer != null)
         {
-            bufferedImageGraphics.dispose();
-            bufferedImageGraphics = null;
+            renderer.dispose();
+            renderer = null;
         }
         
         if (graphics != null)
@@ -132,6 +184,10 @@ public final class Main extends Thread implements Disposable
     {
         engine = new Engine(this);
         
+        //without a container the input is given to the engine directly
+        if (isHeadless())
+            return;
+        
         //now that engine is created apply listeners so we can detect key/mouse input
         if (applet != null)
         {
@@ -150,12 +206,41 @@ public final class Main extends Thread implements Disposable
     @Override
     public void run()
     {
-        //keep track of the number of updates
+        //without a container we only need to update
+        if (isHeadless())
+        {
+            runHeadless();
+            return;
+        }
+        
+        //keep track of the number of updates and frames
         int updates = 0;
+        int frames = 0;
         
         //store the time to track ups (updates per second)
         long previous = System.nanoTime();
         
+        //if pacing to the display, render once per refresh
+        if (Shared.VSYNC)
+        {
+            final int refreshRate = getRefreshRate();
+            
+            if (refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN)
+                nanoSecondsPerFrame = NANO_SECONDS_PER_SECOND / refreshRate;
+        }
+        
+        //the time of the previous loop
+        long last = System.nanoTime();
+        
+        //game time that has passed but has not been updated yet
+        double accumulator = nanoSecondsPerUpdate;
+        
+        //when the next frame is due to be rendered
+        double nextFrame = last;
+        
+        //when the last frame was rendered
+        long rendered = last;
+        
         while (active)
         {
             try
@@ -163,17 +248,96 @@ public final class Main extends Thread implements Disposable
                 //get the current time
                 final long before = System.nanoTime();
                 
-                //update game
-                engine.update(this);
+                //begin this pass of the loop, if it is being recorded
+                final Object frame = Flight.beginFrame();
                 
-                //render image
-                renderImage();
-
-                //draw image
-                drawScreen();
+                //the updates performed in this pass, and the time spent rendering and presenting
+                int performed = 0;
+                long render = 0, present = 0;
                 
-                //keep track of the number of updates
-                updates++;
+                //add the time passed since the previous loop
+                accumulator += (before - last);
+                last = before;
+                
+                //if we have fallen too far behind, drop the extra updates so we don't spiral
+                final double maximum = nanoSecondsPerUpdate * Shared.MAX_FRAME_SKIP;
+                
+                if (accumulator > maximum)
+                {
+                    //remember the dropped time so timers still reflect the actual time passed
+                    dropped += (long)(accumulator - maximum);
+                    accumulator = maximum;
+                    
+                    Metrics.UPDATES_DROPPED.increment();
+                }
+                
+                //update game at a fixed rate, catching up (skipping frames) if we are behind
+                while (accumulator >= nanoSecondsPerUpdate && active)
+                {
+                    //any dropped time is included in this update
+                    elapsed = (long)nanoSecondsPerUpdate + dropped;
+                    dropped = 0;
+                    
+                    //update game
+                    final long start = Metrics.start();
+                    engine.update(this);
+                    Metrics.ENGINE_UPDATE.stop(start);
+                    
+                    //keep track of the number of updates
+                    updates++;
+                    performed++;
+                    
+                    accumulator -= nanoSecondsPerUpdate;
+                }
+                
+                final long updated = (frame != null) ? System.nanoTime() : 0;
+                
+                //refresh the screen at least once a second in case the window has been painted over
+                if (before - rendered >= NANO_SECONDS_PER_SECOND)
+                    setDirty();
+                
+                //render a frame only if one is due and something has changed
+                if (before >= nextFrame && dirty)
+                {
+                    //clear the flag first so changes made while rendering are not lost
+                    dirty = false;
+                    
+                    do
+                    {
+                        final long rendering = (frame != null) ? System.nanoTime() : 0;
+                        
+                        //render image
+                        renderImage();
+                        
+                        final long presenting = (frame != null) ? System.nanoTime() : 0;
+                        
+                        //draw image
+                        drawScreen();
+                        
+                        if (frame != null)
+                        {
+                            render += presenting - rendering;
+                            present += System.nanoTime() - presenting;
+                        }
+                    }
+                    while (renderer.hasContentsLost());
+                    
+                    //keep track of the number of frames
+                    frames++;
+                    
+                    //store the time rendered
+                    rendered = before;
+                    
+                    //when pacing keep a steady cadence, otherwise simply wait a full frame from now
+                    nextFrame = (Shared.VSYNC) ? nextFrame + nanoSecondsPerFrame : before + nanoSecondsPerFrame;
+                    
+                    //if we are more than a frame behind don't try to catch up
+                    if (nextFrame < before)
+                        nextFrame = before + nanoSecondsPerFrame;
+                }
+                
+                //end this pass of the loop
+                Flight.commitFrame(frame, performed, updated - before, render, present);
                 
                 //get the time after processing complete
                 final long after = System.nanoTime();
@@ -184,47 +348,182 @@ public final class Main extends Thread implements Disposable
                     //if 1 second has passed display ups
                     if (after - previous >= NANO_SECONDS_PER_SECOND)
                     {
-                        //display updates per second
-                        System.out.println("UPS = " + updates);
+                        //display updates and frames per second
+                        System.out.println("UPS = " + updates + ", FPS = " + frames);
+                        
+                        //display the average time to present a frame so the accelerated/software paths can be compared
+                        System.out.println("Present (" + (renderer.isAccelerated() ? "accelerated" : "software") + ") = " + (renderer.getAveragePresentTime() / NANO_SECONDS_PER_MILLISECOND) + " ms");
+                        
+                        //display the delay between triggering a sound effect and it being mixed
+                        if (engine.getResources() != null && engine.getResources().getSoundEffects() != null)
+                            System.out.println("Effect latency = " + (engine.getResources().getSoundEffects().getAverageLatency() / NANO_SECONDS_PER_MILLISECOND) + " ms (max " + (engine.getResources().getSoundEffects().getMaxLatency() / NANO_SECONDS_PER_MILLISECOND) + " ms)");
+                        
+                        //display the worst time the game thread spent on audio, compared to performing the command directly
+                        if (engine.getResources() != null)
+                            System.out.println("Audio worst = " + (engine.getResources().getAudioWorker().getWorstSendTime() / NANO_SECONDS_PER_MILLISECOND) + " ms (performed " + (engine.getResources().getAudioWorker().getWorstPerformTime() / NANO_SECONDS_PER_MILLISECOND) + " ms)");
 
                         //reset count
                         updates = 0;
+                        frames = 0;
 
                         //update the previous time with the current
                         previous = after;
                     }
                 }
                 
-                //get the time passed for this update (in nanoseconds)
-                final long passed = (after - before);
+                //if nothing is changing we can block until there is input
+                if (!dirty && engine.isIdle())
+                {
+                    synchronized (idle)
+                    {
+                        //check again now that we own the lock
+                        if (!dirty)
+                            idle.wait(IDLE_WAIT_MILLIS);
+                    }
+                    
+                    //don't try to catch up for the time spent idle, but make sure the input is processed
+                    last = System.nanoTime();
+                    accumulator = nanoSecondsPerUpdate;
+                }
+                else
+                {
+                    //the time until the next update is due
+                    final double nextUpdate = nanoSecondsPerUpdate - (accumulator + (after - before));
+                    
+                    //sleep until the next update, or the next frame if one is waiting to be rendered
+                    sleep(dirty ? Math.min(nextUpdate, nextFrame - after) : nextUpdate);
+                }
+            }
+            catch(Exception e)
+            {
+                //dislay error
+                e.printStackTrace();
+
+                //no longer active thread
+                active = false;
+            }
+        }
+    }
+    
+    /**
+     * Run the game without a container.<br>
+     * When unthrottled the updates are performed back to back, otherwise at the desired rate.
+     */
+    private void runHeadless()
+    {
+        //keep track of the number of updates
+        int updates = 0;
+        
+        //store the time to track ups (updates per second)
+        long previous = System.nanoTime();
+        
+        while (active)
+        {
+            try
+            {
+                final long before = System.nanoTime();
                 
-                //get the extra leftover time
-                double remaining = nanoSecondsPerUpdate - passed;
+                //update game, and render if enabled
+                step();
                 
-                //the time remaining can't be negative
-                if (remaining < 0)
-                    remaining = 0;
+                //keep track of the number of updates
+                updates++;
                 
-                //get the milliseconds to sleep
-                long millis = (long)(remaining / NANO_SECONDS_PER_MILLISECOND);
+                final long after = System.nanoTime();
                 
-                //take the remainder to get the nanoseconds
-                int nanos = (int)(((remaining / NANO_SECONDS_PER_MILLISECOND) - (double)millis) * NANO_SECONDS_PER_MILLISECOND);
+                //if 1 second has passed display ups
+                if (Shared.DEBUG && after - previous >= NANO_SECONDS_PER_SECOND)
+                {
+                    System.out.println("UPS = " + updates);
+                    
+                    updates = 0;
+                    previous = after;
+                }
                 
-                //sleep thread for the specified amount so each second maintains the same number of updates
-                Thread.sleep(millis, nanos);
+                //wait until the next update is due
+                if (!unthrottled)
+                    sleep(nanoSecondsPerUpdate - (after - before));
             }
             catch(Exception e)
             {
                 //dislay error
                 e.printStackTrace();
-
+                
                 //no longer active thread
                 active = false;
             }
         }
     }
     
+    /**
+     * Perform a single update of the game, then render a frame if rendering is enabled and something changed.<br>
+     * This is used when there is no container, so the game can be driven without starting the thread.
+     * @throws Exception if there was an error updating or rendering the game
+     */
+    public void step() throws Exception
+    {
+        //each update covers the same amount of game time
+        elapsed = (long)nanoSecondsPerUpdate;
+        
+        //begin this step, if it is being recorded
+        final Object frame = Flight.beginFrame();
+        
+        final long before = (frame != null) ? System.nanoTime() : 0;
+        
+        final long start = Metrics.start();
+        engine.update(this);
+        Metrics.ENGINE_UPDATE.stop(start);
+        
+        final long updated = (frame != null) ? System.nanoTime() : 0;
+        
+        if (renderEnabled && dirty)
+        {
+            //clear the flag first so changes made while rendering are not lost
+            dirty = false;
+            
+            renderImage();
+        }
+        
+        //there is nothing to present without a container
+        if (frame != null)
+            Flight.commitFrame(frame, 1, updated - before, System.nanoTime() - updated, 0);
+    }
+    
+    /**
+     * Sleep the thread
+     * @param remaining The time to sleep (nanoseconds), if not positive we won't sleep
+     * @throws InterruptedException 
+     */
+    private void sleep(final double remaining) throws InterruptedException
+    {
+        //the time remaining can't be negative
+        if (remaining <= 0)
+            return;
+        
+        //get the milliseconds to sleep
+        long millis = (long)(remaining / NANO_SECONDS_PER_MILLISECOND);
+        
+        //take the remainder to get the nanoseconds
+        int nanos = (int)(((remaining / NANO_SECONDS_PER_MILLISECOND) - (double)millis) * NANO_SECONDS_PER_MILLISECOND);
+        
+        //sleep thread for the specified amount so each second maintains the same number of updates
+        Thread.sleep(millis, nanos);
+    }
+    
+    /**
+     * Get the refresh rate of the display our container is on
+     * @return The refresh rate (hz) or DisplayMode.REFRESH_RATE_UNKNOWN if it can't be determined
+     */
+    private int getRefreshRate()
+    {
+        final GraphicsConfiguration configuration = getContainer().getGraphicsConfiguration();
+        
+        if (configuration == null)
+            return DisplayMode.REFRESH_RATE_UNKNOWN;
+        
+        return configuration.getDevice().getDisplayMode().getRefreshRate();
+    }
+    
     /**
      * Set this thread active.<br>
      * If the thread is not active the game will end
@@ -235,6 +534,58 @@ public final class Main extends Thread implements Disposable
         this.active = active;
     }
     
+    /**
+     * Do we update as fast as possible?<br>
+     * Only used when there is no container, each update still covers the same game time.
+     * @param unthrottled true to update back to back, false to update at the desired rate
+     */
+    public void setUnthrottled(final boolean unthrottled)
+    {
+        this.unthrottled = unthrottled;
+    }
+    
+    /**
+     * Do we render each frame to an image?<br>
+     * Only used when there is no container, the image is available from getImage()
+     * @param renderEnabled true=yes, false=no
+     */
+    public void setRenderEnabled(final boolean renderEnabled)
+    {
+        this.renderEnabled = renderEnabled;
+    }
+    
+    /**
+     * Get the image of the last frame rendered
+     * @return The rendered image, null if nothing has been rendered or the frame is not in software
+     */
+    public BufferedImage getImage()
+    {
+        return (renderer != null) ? renderer.getImage() : null;
+    }
+    
+    /**
+     * Is the game running without a container?
+     * @return true if there is no applet or panel, false otherwise
+     */
+    public boolean isHeadless()
+    {
+        return (applet == null && panel == null);
+    }
+    
+    /**
+     * Flag that the screen has changed and needs to be rendered again.<br>
+     * If the thread is blocked because the game is idle it will resume.
+     */
+    public void setDirty()
+    {
+        dirty = true;
+        
+        synchronized (idle)
+        {
+            idle.notifyAll();
+        }
+    }
+    
     public JApplet getApplet()
     {
         return applet;
@@ -253,22 +604,19 @@ public final class Main extends Thread implements Disposable
         if (panel != null)
             return panel.getClass();
         
-        return null;
+        return source;
     }
     
     /**
-     * Create buffered Image
+     * Get the container where the game is displayed
+     * @return The applet or panel, whichever was provided
      */
-    private void createBufferedImage()
+    private Component getContainer()
     {
         if (applet != null)
-        {
-            bufferedImage = applet.createImage(originalSizeWindow.width, originalSizeWindow.height);
-        }
-        else
-        {
-            bufferedImage = panel.createImage(originalSizeWindow.width, originalSizeWindow.height);
-        }
+            return applet;
+        
+        return panel;
     }
     
     /**
@@ -285,7 +633,12 @@ public final class Main extends Thread implements Disposable
      */
     public void setFullScreen()
     {
-        if (applet != null)
+        if (isHeadless())
+        {
+            //there is no window to fill
+            fullSizeWindow = new Rectangle(originalSizeWindow);
+        }
+        else if (applet != null)
         {
             fullSizeWindow = new Rectangle(0, 0, applet.getWidth(), applet.getHeight());
         }
@@ -310,29 +663,43 @@ public final class Main extends Thread implements Disposable
         return (long)nanoSecondsPerUpdate;
     }
     
+    /**
+     * Get the game time covered by the current update.<br>
+     * This is normally the same as getTime(), but if updates had to be dropped
+     * because we fell behind the dropped time is included so timers remain accurate.
+     * @return long The nanoseconds passed for the current update
+     */
+    public long getElapsed()
+    {
+        return this.elapsed;
+    }
+    
     /**
      * Writes all game/menu elements in our 
-     * engine to our single bufferedImage.
+     * engine to the back buffer of our presentation layer.
      * 
      * @throws Exception 
      */
     private void renderImage() throws Exception
     {
-        if (bufferedImage != null)
+        //create the presentation layer if it does not exist
+        if (renderer == null)
+            renderer = new Renderer(originalSizeWindow.width, originalSizeWindow.height, Shared.ACCELERATED);
+        
+        //get the graphics object of the back buffer, without a container it will be a software image
+        final Graphics2D bufferedImageGraphics = renderer.createGraphics(isHeadless() ? null : getContainer().getGraphicsConfiguration());
+        
+        try
         {
-            if (bufferedImageGraphics == null)
-                bufferedImageGraphics = bufferedImage.getGraphics();
-            
             //background by itself will be a black rectangle
             bufferedImageGraphics.setColor(Color.BLACK);
             bufferedImageGraphics.fillRect(0, 0, Shared.ORIGINAL_WIDTH, Shared.ORIGINAL_HEIGHT);
 
             engine.render(bufferedImageGraphics);
         }
-        else
+        finally
         {
-            //create the image that will be displayed to the user
-            createBufferedImage();
+            bufferedImageGraphics.dispose();
         }
     }
     
@@ -349,7 +716,7 @@ public final class Main extends Thread implements Disposable
         }
         else
         {
-            //jPanel will always have focus
+            //jPanel, or no container, will always have focus
             return true;
         }
     }
@@ -371,8 +738,8 @@ public final class Main extends Thread implements Disposable
      */
     private void drawScreen()
     {
-        //if no image has been rendered yet return
-        if (bufferedImage == null)
+        //if nothing has been rendered yet return
+        if (renderer == null)
             return;
         
         //cache graphics object to save resources
@@ -385,20 +752,10 @@ public final class Main extends Thread implements Disposable
         
         try
         {
-            //the destination will be the size of the window
-            int dx1 = currentWindow.x;
-            int dy1 = currentWindow.y;
-            int dx2 = currentWindow.x + currentWindow.width;
-            int dy2 = currentWindow.y + currentWindow.height;
-
-            //the source will be the entire image
-            int sx1 = 0;
-            int sy1 = 0;
-            int sx2 = bufferedImage.getWidth(null);
-            int sy2 = bufferedImage.getHeight(null);
-            
-            //draw our rendered image at the specified location
-            graphics.drawImage(bufferedImage, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null);
+            //draw our rendered image scaled to the current window
+            final long start = Metrics.start();
+            renderer.present(graphics, currentWindow);
+            Metrics.DRAW_SCREEN.stop(start);
         }
         catch(Exception e)
         {
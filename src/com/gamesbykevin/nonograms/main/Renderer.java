@@ -0,0 +1,190 @@
+package com.gamesbykevin.nonograms.main;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/**
+ * The presentation layer where every frame is rendered and then drawn to the container.<br>
+ * Frames are rendered to a hardware accelerated VolatileImage when available,
+ * otherwise we fall back to a software BufferedImage.
+ * @author GOD
+ */
+public final class Renderer implements Disposable
+{
+    //the dimensions of the image we render the game to
+    private final int width, height;
+    
+    //the accelerated back buffer
+    private VolatileImage volatileImage;
+    
+    //the software back buffer if acceleration is not available
+    private BufferedImage softwareImage;
+    
+    //are we using the accelerated back buffer
+    private boolean accelerated;
+    
+    //track the total time spent presenting (nano-seconds) and the number of frames presented
+    private long presentTime = 0;
+    private int presents = 0;
+    
+    /**
+     * Create the presentation layer
+     * @param width The width of the rendered image
+     * @param height The height of the rendered image
+     * @param accelerated Do we want to attempt hardware acceleration
+     */
+    public Renderer(final int width, final int height, final boolean accelerated)
+    {
+        this.width = width;
+        this.height = height;
+        this.accelerated = accelerated;
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (volatileImage != null)
+        {
+            volatileImage.flush();
+            volatileImage = null;
+        }
+        
+        if (softwareImage != null)
+        {
+            softwareImage.flush();
+            softwareImage = null;
+        }
+    }
+    
+    /**
+     * Is the hardware accelerated back buffer in use?
+     * @return true=yes, false=software fallback
+     */
+    public boolean isAccelerated()
+    {
+        return this.accelerated;
+    }
+    
+    /**
+     * Get a graphics object for rendering the next frame.<br>
+     * The accelerated surface will be validated (and re-created if needed) before it is returned.
+     * @param configuration The configuration of the container we are drawing to, may be null
+     * @return Graphics object for the back buffer, the caller is responsible for disposing it
+     */
+    public Graphics2D createGraphics(final GraphicsConfiguration configuration)
+    {
+        //without a configuration we can't create an accelerated surface
+        if (accelerated && configuration == null)
+            accelerated = false;
+        
+        if (accelerated)
+        {
+            if (volatileImage == null)
+                volatileImage = configuration.createCompatibleVolatileImage(width, height);
+            
+            //if the surface is no longer compatible (display mode change etc...) we need to create a new one
+            if (volatileImage.validate(configuration) == VolatileImage.IMAGE_INCOMPATIBLE)
+            {
+                volatileImage.flush();
+                volatileImage = configuration.createCompatibleVolatileImage(width, height);
+            }
+            
+            //if the surface is not actually accelerated there is no benefit over the software path
+            if (volatileImage.getCapabilities().isAccelerated())
+                return volatileImage.createGraphics();
+            
+            //recycle and fall back to software
+            volatileImage.flush();
+            volatileImage = null;
+            accelerated = false;
+        }
+        
+        if (softwareImage == null)
+        {
+            if (configuration != null)
+            {
+                softwareImage = configuration.createCompatibleImage(width, height);
+            }
+            else
+            {
+                softwareImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            }
+        }
+        
+        return softwareImage.createGraphics();
+    }
+    
+    /**
+     * Get the software back buffer
+     * @return The image of the last frame rendered, null if rendering to the accelerated back buffer
+     */
+    public BufferedImage getImage()
+    {
+        return (accelerated) ? null : softwareImage;
+    }
+    
+    /**
+     * Have the contents of the accelerated surface been lost since the frame was rendered?<br>
+     * If so the frame needs to be rendered and presented again.
+     * @return true if the frame needs to be rendered again, false otherwise
+     */
+    public boolean hasContentsLost()
+    {
+        return (accelerated && volatileImage != null && volatileImage.contentsLost());
+    }
+    
+    /**
+     * Draw the rendered frame to the container, scaled to the window
+     * @param graphics The graphics object of the container
+     * @param window The destination window
+     */
+    public void present(final Graphics graphics, final Rectangle window)
+    {
+        final Image image = (accelerated) ? volatileImage : softwareImage;
+        
+        //nothing has been rendered yet
+        if (image == null)
+            return;
+        
+        final long before = System.nanoTime();
+        
+        //bilinear scaling is only cheap when hardware accelerated
+        if (accelerated && graphics instanceof Graphics2D && (window.width != width || window.height != height))
+            ((Graphics2D)graphics).setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        
+        //draw our rendered image to the destination window
+        graphics.drawImage(image, window.x, window.y, window.x + window.width, window.y + window.height, 0, 0, width, height, null);
+        
+        //flush the drawing to the display to prevent tearing
+        Toolkit.getDefaultToolkit().sync();
+        
+        //track the time spent presenting
+        presentTime += (System.nanoTime() - before);
+        presents++;
+    }
+    
+    /**
+     * Get the average time spent presenting a frame since the last time this was called.<br>
+     * Used to compare the accelerated and software paths.
+     * @return The average present time in nano-seconds
+     */
+    public long getAveragePresentTime()
+    {
+        final long average = (presents > 0) ? presentTime / presents : 0;
+        
+        //reset the measurement
+        presentTime = 0;
+        presents = 0;
+        
+        return average;
+    }
+}
\ No newline at end of file
@@ -27,8 +27,11 @@ public final class Manager implements IManager
     //the puzzles in the game
     private Puzzles puzzles;
     
-    //object representing the human
-    private Human human;
+    //object representing the player, the human or the computer
+    private Player player;
+    
+    //saves the game in progress so it can be resumed
+    private SaveGame save;
     
     //the background image
     private Image background;
@@ -49,6 +52,30 @@ public final class Manager implements IManager
     private static final long DELAY_DIFFICULTY_MEDIUM    = (Timers.NANO_SECONDS_PER_MINUTE * 15) + Timers.NANO_SECONDS_PER_SECOND;
     private static final long DELAY_DIFFICULTY_HARD      = (Timers.NANO_SECONDS_PER_MINUTE * 30) + Timers.NANO_SECONDS_PER_SECOND;
     
+    /**
+     * Get the time allowed when playing timed mode
+     * @param difficulty The difficulty of the puzzles
+     * @return The time limit in nanoseconds
+     */
+    public static long getTimeLimit(final Puzzles.Difficulty difficulty)
+    {
+        switch (difficulty)
+        {
+            case VeryEasy:
+                return DELAY_DIFFICULTY_VERY_EASY;
+            
+            case Easy:
+                return DELAY_DIFFICULTY_EASY;
+            
+            case Medium:
+                return DELAY_DIFFICULTY_MEDIUM;
+            
+            case Hard:
+            default:
+                return DELAY_DIFFICULTY_HARD;
+        }
+    }
+    
     /**
      * Constructor for Manager, this is the point where we load any menu option configurations
      * @param engine Engine for our game that contains all objects needed
@@ -83,78 +110,100 @@ public final class Manager implements IManager
             background = engine.getResources().getGameImage(keys.get(engine.getRandom().nextInt(keys.size())));
         }
         
-        //store the images
-        if (imageVictory == null)
-            imageVictory = engine.getResources().getGameImage(GameImages.Keys.Victory);
-        if (imageGameover == null)
-            imageGameover = engine.getResources().getGameImage(GameImages.Keys.Gameover);
+        //decode the images for win/lose in the background so they are ready when the game ends
+        engine.getResources().prefetchGameImage(GameImages.Keys.Victory);
+        engine.getResources().prefetchGameImage(GameImages.Keys.Gameover);
     }
     
     @Override
     public void reset(final Engine engine) throws Exception
     {
         if (puzzles == null)
-            puzzles = new Puzzles(engine.getResources().getGameImage(GameImages.Keys.Board));
+            puzzles = new Puzzles(engine.getResources().getGameImage(GameImages.Keys.Board), engine.getLibrary(), engine.getProgress());
         
         //set the difficulty
         getPuzzles().setDifficulty(Puzzles.Difficulty.values()[engine.getMenu().getOptionSelectionIndex(LayerKey.Options, OptionKey.Difficulty)]);
         
-        if (human == null)
+        if (player == null)
         {
-            human = new Human(
-                engine.getResources().getGameImage(GameImages.Keys.Board), 
-                engine.getResources().getGameImage(GameImages.Keys.BackgroundStat)
-            );
+            if (engine.getComputerPolicy() != null)
+            {
+                //the computer plays instead of the user
+                player = new Computer(
+                    engine.getResources().getGameImage(GameImages.Keys.Board), 
+                    engine.getResources().getGameImage(GameImages.Keys.BackgroundStat),
+                    engine.getComputerPolicy(),
+                    engine.getComputerThinkTime(),
+                    engine.getComputerErrorRate()
+                );
+            }
+            else
+            {
+                player = new Human(
+                    engine.getResources().getGameImage(GameImages.Keys.Board), 
+                    engine.getResources().getGameImage(GameImages.Keys.BackgroundStat)
+                );
+            }
             
             //do we have hints enabled
-            getHuman().setHintEnabled(engine.getMenu().getOptionSelectionIndex(LayerKey.Options, OptionKey.Hint) == 1);
+            getPlayer().setHintEnabled(engine.getMenu().getOptionSelectionIndex(LayerKey.Options, OptionKey.Hint) == 1);
             
             //set the mode (regular or timed)
-            getHuman().getStats().setTimed(engine.getMenu().getOptionSelectionIndex(LayerKey.Options, OptionKey.Mode) == 1);
+            getPlayer().getStats().setTimed(engine.getMenu().getOptionSelectionIndex(LayerKey.Options, OptionKey.Mode) == 1);
             
-            //time remaining for timer
-            long time = 0;
-
             switch (getPuzzles().getDifficulty())
             {
                 case VeryEasy:
-                    getHuman().getStats().setMiscDesc("Difficulty: Very Easy");
-                    
-                    if (getHuman().getStats().hasTimed())
-                        time = DELAY_DIFFICULTY_VERY_EASY;
+                    getPlayer().getStats().setMiscDesc("Difficulty: Very Easy");
                     break;
 
                 case Easy:
-                    getHuman().getStats().setMiscDesc("Difficulty: Easy");
-                    
-                    if (getHuman().getStats().hasTimed())
-                        time = DELAY_DIFFICULTY_EASY;
+                    getPlayer().getStats().setMiscDesc("Difficulty: Easy");
                     break;
 
                 case Medium:
-                    getHuman().getStats().setMiscDesc("Difficulty: Medium");
-                    
-                    if (getHuman().getStats().hasTimed())
-                        time = DELAY_DIFFICULTY_MEDIUM;
+                    getPlayer().getStats().setMiscDesc("Difficulty: Medium");
                     break;
 
                 case Hard:
                 default:
-                    getHuman().getStats().setMiscDesc("Difficulty: Hard");
-                    
-                    if (getHuman().getStats().hasTimed())
-                        time = DELAY_DIFFICULTY_HARD;
+                    getPlayer().getStats().setMiscDesc("Difficulty: Hard");
                     break;
             }
             
-            //setup timer
-            getHuman().getStats().setupTimer(time);
+            //setup timer, the time remaining is only counted in timed mode
+            getPlayer().getStats().setupTimer(getPlayer().getStats().hasTimed() ? getTimeLimit(getPuzzles().getDifficulty()) : 0);
+            
+            //continue the saved game if it has the same options
+            save = new SaveGame(engine.isPersistent() ? SaveGame.DEFAULT_DIR : null, engine.getSeed(), engine.getRandom());
+            
+            if (save.resume(this, engine))
+            {
+                //stop all sound
+                engine.getResources().stopAllSound();
+                
+                //play main theme
+                engine.getResources().playGameAudio(GameAudio.Keys.Theme, true);
+            }
         }
     }
     
-    public Human getHuman()
+    /**
+     * Get the object saving the game in progress
+     * @return The save game
+     */
+    public SaveGame getSaveGame()
+    {
+        return this.save;
+    }
+    
+    /**
+     * Get the player solving the puzzles
+     * @return The human, or the computer if it is playing instead
+     */
+    public Player getPlayer()
     {
-        return this.human;
+        return this.player;
     }
     
     public Puzzles getPuzzles()
@@ -183,10 +232,20 @@ public final class Manager implements IManager
         if (window != null)
             window = null;
         
-        if (human != null)
+        if (save != null)
         {
-            human.dispose();
-            human = null;
+            //save the game in progress so it can be resumed
+            if (!finished)
+                save.snapshot(this);
+            
+            save.dispose();
+            save = null;
+        }
+        
+        if (player != null)
+        {
+            player.dispose();
+            player = null;
         }
         
         if (puzzles != null)
@@ -211,6 +270,15 @@ public final class Manager implements IManager
         this.finished = finished;
     }
     
+    /**
+     * Is the game finished?
+     * @return true=yes, false=no
+     */
+    public boolean hasFinished()
+    {
+        return this.finished;
+    }
+    
     public void setVictory(final boolean victory)
     {
         this.victory = victory;
@@ -230,8 +298,8 @@ public final class Manager implements IManager
             if (getPuzzles() != null)
                 getPuzzles().update(engine);
 
-            if (getHuman() != null)
-                getHuman().update(engine);
+            if (getPlayer() != null)
+                getPlayer().update(engine);
             
             if (!getPuzzles().hasPuzzles())
             {
@@ -243,13 +311,13 @@ public final class Manager implements IManager
             }
             
             //if timed mode
-            if (getHuman().getStats().hasTimed())
+            if (getPlayer().getStats().hasTimed())
             {
                 //if time has passed
-                if (getHuman().getStats().getTimer().hasTimePassed())
+                if (getPlayer().getStats().getTimer().hasTimePassed())
                 {
                     //set time remaining to 0
-                    getHuman().getStats().getTimer().setRemaining(0);
+                    getPlayer().getStats().getTimer().setRemaining(0);
                     
                     //flag finished
                     setFinished(true);
@@ -262,16 +330,29 @@ public final class Manager implements IManager
             //if the game is now finished
             if (finished)
             {
+                //the victory/gameover image needs to be displayed
+                engine.getMain().setDirty();
+                
+                //there is nothing left to resume
+                if (save != null)
+                    save.delete();
+                
                 //stop sound
                 engine.getResources().stopAllSound();
                 
                 if (victory)
                 {
+                    //store the image to display
+                    imageVictory = engine.getResources().getGameImage(GameImages.Keys.Victory);
+                    
                     //play victory music
                     engine.getResources().playGameAudio(GameAudio.Keys.Victory, true);
                 }
                 else
                 {
+                    //store the image to display
+                    imageGameover = engine.getResources().getGameImage(GameImages.Keys.Gameover);
+                    
                     //play game over music
                     engine.getResources().playGameAudio(GameAudio.Keys.Gameover, true);
                 }
@@ -286,7 +367,7 @@ public final class Manager implements IManager
     @Override
     public void render(final Graphics graphics) throws Exception
     {
-        if (getPuzzles() == null || getHuman() == null)
+        if (getPuzzles() == null || getPlayer() == null)
             return;
         
         //if the game is finished
@@ -302,22 +383,22 @@ public final class Manager implements IManager
         if (background != null)
             graphics.drawImage(background, 0, 0, null);
         
-        //if the human solved the puzzle
-        if (getHuman().getPuzzle().hasSolved())
+        //if the player solved the puzzle
+        if (getPlayer().getPuzzle().hasSolved())
         {
-            //draw human board
-            getHuman().render(graphics);
+            //draw player board
+            getPlayer().render(graphics);
             
             //draw puzzle description
-            getHuman().renderDesc(graphics, getPuzzles().getPuzzle().getDesc());
+            getPlayer().renderDesc(graphics, getPuzzles().getPuzzle().getDesc());
         }
         else
         {
             //draw the puzzle with hints
             getPuzzles().render(graphics);
             
-            //now draw human board
-            getHuman().render(graphics);
+            //now draw player board
+            getPlayer().render(graphics);
         }
     }
 }
\ No newline at end of file
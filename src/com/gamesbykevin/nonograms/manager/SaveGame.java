@@ -0,0 +1,663 @@
+package com.gamesbykevin.nonograms.manager;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import com.gamesbykevin.nonograms.engine.Engine;
+import com.gamesbykevin.nonograms.engine.ResumableRandom;
+import com.gamesbykevin.nonograms.player.MoveLog;
+import com.gamesbykevin.nonograms.player.Player;
+import com.gamesbykevin.nonograms.puzzles.Puzzle;
+import com.gamesbykevin.nonograms.puzzles.Puzzles;
+import com.gamesbykevin.nonograms.puzzles.Puzzles.Difficulty;
+import com.gamesbykevin.nonograms.shared.Shared;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the game in progress so it can be resumed after the game is closed.<br>
+ * A snapshot contains the player board, move history, puzzle id, difficulty, level, timer, options, random seed and random state.
+ * Every move after the snapshot is appended to a small journal, and the journal is compacted into a new snapshot periodically.
+ * Each move in the journal also has the position of the move history, so moves can still be undone after the game is resumed.
+ * The snapshot and journal share a generation number so a journal left from an older snapshot is never applied,
+ * and a journal with a corrupt move is ignored so the game continues from the snapshot.
+ * The snapshot and moves are copied on the game thread and written by a single background thread, so the game is never blocked writing files.
+ * @author GOD
+ */
+public final class SaveGame implements Disposable
+{
+    //the default location of the save files
+    public static final File DEFAULT_DIR = new File(System.getProperty("user.home"), ".nonograms");
+    
+    //identifies our files and the layout of them
+    private static final int MAGIC_SNAPSHOT = 0x4e475331;
+    private static final int MAGIC_JOURNAL = 0x4e474a31;
+    private static final int VERSION = 1;
+    
+    //the size of the journal header (magic, generation)
+    private static final int JOURNAL_HEADER_SIZE = 12;
+    
+    //the size of each move in the journal (column, row, value, remaining, passed, history length, history position, last move, previous time, random state)
+    private static final int MOVE_SIZE = 51;
+    
+    //the number of moves in the journal before it is compacted into a new snapshot
+    private static final int COMPACT_MOVES = 64;
+    
+    //the number of bits used for each location on the board
+    private static final int BITS_PER_CELL = 2;
+    
+    //the most time (seconds) to wait for the files to be written when the game ends
+    private static final long WRITE_WAIT = 5;
+    
+    //the snapshot and journal files
+    private final File snapshotFile, journalFile;
+    
+    //the seed of the random object for this game
+    private long seed;
+    
+    //the random object for this game, its state is saved so a resumed game makes the same random decisions
+    private final ResumableRandom random;
+    
+    //the generation of the current snapshot, started from the clock so an older journal never matches
+    private long generation = System.currentTimeMillis();
+    
+    //the journal we are appending moves to, only used by the writer
+    private FileChannel journal;
+    
+    //writes the snapshot and journal in the background, null if the game is not saved
+    private final ExecutorService writer;
+    
+    //the number of moves in the journal
+    private int moves = 0;
+    
+    //has a snapshot been written, moves are only appended to the journal after one
+    private boolean started = false;
+    
+    //can we save, set false if the files can't be written
+    private volatile boolean enabled = true;
+    
+    /**
+     * Create the save game
+     * @param directory The directory where the save files are stored, null if the game is not saved
+     * @param seed The seed of the random object for this game
+     * @param random The random object for this game
+     */
+    public SaveGame(final File directory, final long seed, final ResumableRandom random)
+    {
+        this.snapshotFile = (directory != null) ? new File(directory, "save.dat") : null;
+        this.journalFile = (directory != null) ? new File(directory, "save.journal") : null;
+        this.seed = seed;
+        this.random = random;
+        this.enabled = (directory != null);
+        
+        if (directory == null)
+        {
+            this.writer = null;
+        }
+        else
+        {
+            this.writer = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(final Runnable runnable)
+                {
+                    final Thread thread = new Thread(runnable, "savegame");
+                    
+                    //saving doesn't keep the game running
+                    thread.setDaemon(true);
+                    
+                    return thread;
+                }
+            });
+        }
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (writer != null)
+        {
+            try
+            {
+                //let the files queued be written
+                writer.shutdown();
+                writer.awaitTermination(WRITE_WAIT, TimeUnit.SECONDS);
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+        
+        closeJournal();
+    }
+    
+    /**
+     * Close the journal
+     */
+    private void closeJournal()
+    {
+        if (journal != null)
+        {
+            try
+            {
+                journal.close();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+            
+            journal = null;
+        }
+    }
+    
+    /**
+     * The save files can't be written so stop saving, the journal is closed when disposed
+     * @param e The reason
+     */
+    private void disable(final Exception e)
+    {
+        e.printStackTrace();
+        
+        enabled = false;
+    }
+    
+    /**
+     * Resume the saved game if the options of the saved game match the options of the new game.<br>
+     * The difficulty, hint and timed options of the manager need to be set, and the timer setup, before this is called.
+     * @param manager The manager of the new game
+     * @param engine Object containing the library and random object
+     * @return true if the saved game was resumed, false if there is nothing to resume
+     */
+    public boolean resume(final Manager manager, final Engine engine)
+    {
+        if (!enabled || !snapshotFile.isFile())
+            return false;
+        
+        final long before = System.nanoTime();
+        
+        try (DataInputStream stream = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(snapshotFile.toPath()))))
+        {
+            if (stream.readInt() != MAGIC_SNAPSHOT || stream.readInt() != VERSION)
+                return false;
+            
+            final long savedGeneration = stream.readLong();
+            final long savedSeed = stream.readLong();
+            long state = stream.readLong();
+            final Difficulty difficulty = Difficulty.values()[stream.readInt()];
+            final int id = stream.readInt();
+            final int level = stream.readInt();
+            final boolean hint = stream.readBoolean();
+            final boolean timed = stream.readBoolean();
+            long remaining = stream.readLong();
+            long passed = stream.readLong();
+            final int cols = stream.readInt();
+            final int rows = stream.readInt();
+            
+            final Player player = manager.getPlayer();
+            
+            //the options of the new game need to match
+            if (difficulty != manager.getPuzzles().getDifficulty() || hint != player.hasHintEnabled() || timed != player.getStats().hasTimed())
+                return false;
+            
+            //the puzzle needs to exist with the same size
+            if (id < 0 || id >= engine.getLibrary().size(difficulty))
+                return false;
+            
+            final Puzzle puzzle = engine.getLibrary().getPuzzle(difficulty, id);
+            
+            if (puzzle.getCols() != cols || puzzle.getRows() != rows)
+                return false;
+            
+            //read the board, a corrupt snapshot can't be resumed
+            final long[] packed = new long[getWords(cols, rows)];
+            
+            for (int i = 0; i < packed.length; i++)
+            {
+                packed[i] = stream.readLong();
+            }
+            
+            final int[] board = new int[cols * rows];
+            
+            for (int cell = 0; cell < board.length; cell++)
+            {
+                final int bit = cell * BITS_PER_CELL;
+                
+                board[cell] = (int)((packed[bit >>> 6] >>> (bit & 63)) & 3L);
+                
+                if (!isValue(board[cell]))
+                    return false;
+            }
+            
+            //read the move history
+            final int length = stream.readInt();
+            final int position = stream.readInt();
+            final long previous = stream.readLong();
+            
+            if (length < 0 || position < 0 || position > length || length > stream.available() / 8)
+                return false;
+            
+            final long[] history = new long[length];
+            
+            for (int i = 0; i < length; i++)
+            {
+                history[i] = stream.readLong();
+                
+                if (!isValid(history[i], board.length))
+                    return false;
+            }
+            
+            //if the puzzle has been solved since it can't be resumed
+            if (!manager.getPuzzles().resume(id))
+                return false;
+            
+            player.create(puzzle);
+            
+            //restore the board
+            for (int cell = 0; cell < board.length; cell++)
+            {
+                player.getPuzzle().setKeyValue(cell % cols, cell / cols, board[cell]);
+            }
+            
+            //restore the move history
+            final MoveLog log = player.getMoveLog();
+            
+            for (int i = 0; i < length; i++)
+            {
+                log.set(i, history[i]);
+            }
+            
+            log.restore(length, position, previous);
+            
+            //apply the moves made after the snapshot
+            int applied = 0;
+            
+            if (journalFile.isFile())
+            {
+                final ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(journalFile.toPath()));
+                
+                if (bytes.remaining() >= JOURNAL_HEADER_SIZE && bytes.getInt() == MAGIC_JOURNAL && bytes.getLong() == savedGeneration)
+                {
+                    //if any move is corrupt none are applied, and the game continues from the snapshot
+                    if (isValid(bytes.duplicate(), cols, rows, length, position))
+                    {
+                        //a partially written move at the end is ignored
+                        while (bytes.remaining() >= MOVE_SIZE)
+                        {
+                            final int col = bytes.get();
+                            final int row = bytes.get();
+                            final int value = bytes.get();
+                            
+                            remaining = bytes.getLong();
+                            passed = bytes.getLong();
+                            
+                            final int logLength = bytes.getInt();
+                            final int logPosition = bytes.getInt();
+                            final long last = bytes.getLong();
+                            final long logPrevious = bytes.getLong();
+                            
+                            state = bytes.getLong();
+                            
+                            player.getPuzzle().setKeyValue(col, row, value);
+                            
+                            //the moves before the last applied move are already restored
+                            if (logPosition > 0)
+                                log.set(logPosition - 1, last);
+                            
+                            log.restore(logLength, logPosition, logPrevious);
+                            
+                            applied++;
+                        }
+                    }
+                    else
+                    {
+                        System.out.println("Journal is corrupt, resuming from the snapshot - " + journalFile);
+                    }
+                }
+            }
+            
+            //restore the level and timer
+            player.getStats().setLevel(level);
+            player.getStats().getTimer().reset();
+            player.getStats().getTimer().update(passed);
+            player.getStats().getTimer().setRemaining(remaining);
+            
+            //continue with the random state of the saved game, so the same random decisions are made
+            this.seed = savedSeed;
+            this.generation = savedGeneration;
+            random.setState(state);
+            
+            //start a new journal from the resumed state
+            snapshot(manager);
+            
+            //display the time to resume if debugging
+            if (Shared.DEBUG)
+                System.out.println("Resumed in " + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - before) + " us, " + applied + " moves");
+            
+            return true;
+        }
+        catch (Exception e)
+        {
+            //the save can't be read, so start a new game
+            e.printStackTrace();
+            
+            return false;
+        }
+    }
+    
+    /**
+     * Write a snapshot of the game and start a new journal.<br>
+     * The snapshot is copied now and written in the background.
+     * @param manager The manager of the game
+     */
+    public void snapshot(final Manager manager)
+    {
+        if (!enabled || manager.getPlayer() == null || manager.getPlayer().getPuzzle() == null || !manager.getPuzzles().hasPuzzles())
+            return;
+        
+        final Player player = manager.getPlayer();
+        final Puzzle board = player.getPuzzle();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        
+        generation++;
+        
+        try (DataOutputStream stream = new DataOutputStream(bytes))
+        {
+            stream.writeInt(MAGIC_SNAPSHOT);
+            stream.writeInt(VERSION);
+            stream.writeLong(generation);
+            stream.writeLong(seed);
+            stream.writeLong(random.getState());
+            stream.writeInt(manager.getPuzzles().getDifficulty().ordinal());
+            stream.writeInt(manager.getPuzzles().getId());
+            stream.writeInt(player.getStats().getLevel());
+            stream.writeBoolean(player.hasHintEnabled());
+            stream.writeBoolean(player.getStats().hasTimed());
+            stream.writeLong(player.getStats().getTimer().getRemaining());
+            stream.writeLong(player.getStats().getTimer().getPassed());
+            stream.writeInt(board.getCols());
+            stream.writeInt(board.getRows());
+            
+            //pack the board with 2 bits for each location
+            final long[] packed = new long[getWords(board.getCols(), board.getRows())];
+            
+            for (int row = 0; row < board.getRows(); row++)
+            {
+                for (int col = 0; col < board.getCols(); col++)
+                {
+                    final int bit = ((row * board.getCols()) + col) * BITS_PER_CELL;
+                    
+                    packed[bit >>> 6] |= ((long)board.getKeyValue(col, row) & 3L) << (bit & 63);
+                }
+            }
+            
+            for (long word : packed)
+            {
+                stream.writeLong(word);
+            }
+            
+            //the move history, including the moves that can be redone
+            final MoveLog log = player.getMoveLog();
+            
+            stream.writeInt(log.getLength());
+            stream.writeInt(log.size());
+            stream.writeLong(log.getPrevious());
+            
+            for (int i = 0; i < log.getLength(); i++)
+            {
+                stream.writeLong(log.get(i));
+            }
+        }
+        catch (Exception e)
+        {
+            disable(e);
+            return;
+        }
+        
+        final byte[] snapshot = bytes.toByteArray();
+        final long written = generation;
+        
+        moves = 0;
+        started = true;
+        
+        writer.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                writeSnapshot(snapshot, written);
+            }
+        });
+    }
+    
+    /**
+     * Write the snapshot and start a new journal, called by the writer
+     * @param snapshot The bytes of the snapshot
+     * @param written The generation of the snapshot
+     */
+    private void writeSnapshot(final byte[] snapshot, final long written)
+    {
+        if (!enabled)
+            return;
+        
+        try
+        {
+            if (!snapshotFile.getParentFile().isDirectory() && !snapshotFile.getParentFile().mkdirs())
+                throw new Exception("Unable to create directory - " + snapshotFile.getParentFile());
+            
+            final File temp = new File(snapshotFile.getPath() + ".tmp");
+            
+            try (FileOutputStream stream = new FileOutputStream(temp))
+            {
+                stream.write(snapshot);
+            }
+            
+            //replace the previous snapshot in one step
+            Files.move(temp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            
+            //start a new journal for this generation
+            closeJournal();
+            
+            journal = new RandomAccessFile(journalFile, "rw").getChannel();
+            journal.truncate(0);
+            
+            final ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+            header.putInt(MAGIC_JOURNAL);
+            header.putLong(written);
+            header.flip();
+            
+            journal.write(header);
+        }
+        catch (Exception e)
+        {
+            disable(e);
+        }
+    }
+    
+    /**
+     * Append the move to the journal, the journal will be compacted if it has enough moves.<br>
+     * The move is copied now and written in the background.
+     * @param manager The manager of the game
+     * @param col The column of the move
+     * @param row The row of the move
+     */
+    public void record(final Manager manager, final int col, final int row)
+    {
+        if (!enabled)
+            return;
+        
+        //without a journal we need a snapshot first
+        if (!started)
+        {
+            snapshot(manager);
+            return;
+        }
+        
+        final MoveLog log = manager.getPlayer().getMoveLog();
+        final ByteBuffer move = ByteBuffer.allocate(MOVE_SIZE);
+        
+        move.put((byte)col);
+        move.put((byte)row);
+        move.put((byte)manager.getPlayer().getPuzzle().getKeyValue(col, row));
+        move.putLong(manager.getPlayer().getStats().getTimer().getRemaining());
+        move.putLong(manager.getPlayer().getStats().getTimer().getPassed());
+        move.putInt(log.getLength());
+        move.putInt(log.size());
+        move.putLong(log.canUndo() ? log.get(log.size() - 1) : 0);
+        move.putLong(log.getPrevious());
+        move.putLong(random.getState());
+        move.flip();
+        
+        writer.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                //the journal isn't open if the snapshot failed
+                if (!enabled || journal == null)
+                    return;
+                
+                try
+                {
+                    journal.write(move);
+                }
+                catch (Exception e)
+                {
+                    disable(e);
+                }
+            }
+        });
+        
+        moves++;
+        
+        //compact the journal into a new snapshot
+        if (moves >= COMPACT_MOVES)
+            snapshot(manager);
+    }
+    
+    /**
+     * Remove the saved game in the background, because the game has finished
+     */
+    public void delete()
+    {
+        //nothing else will be saved for this game
+        enabled = false;
+        
+        if (writer == null)
+            return;
+        
+        writer.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                closeJournal();
+                
+                if (snapshotFile.exists() && !snapshotFile.delete())
+                    System.out.println("Unable to delete - " + snapshotFile);
+                
+                if (journalFile.exists() && !journalFile.delete())
+                    System.out.println("Unable to delete - " + journalFile);
+            }
+        });
+    }
+    
+    /**
+     * Check every whole move in the journal before any are applied
+     * @param bytes The moves of the journal
+     * @param cols The number of columns
+     * @param rows The number of rows
+     * @param length The length of the move history in the snapshot
+     * @param position The position of the move history in the snapshot
+     * @return true if every move is on the board with valid values, false if the journal is corrupt
+     */
+    private static boolean isValid(final ByteBuffer bytes, final int cols, final int rows, final int length, final int position)
+    {
+        //the history before the current move
+        int currentLength = length;
+        int currentPosition = position;
+        
+        while (bytes.remaining() >= MOVE_SIZE)
+        {
+            final int col = bytes.get();
+            final int row = bytes.get();
+            final int value = bytes.get();
+            
+            //skip the time remaining, it is negative once the time has run out
+            bytes.getLong();
+            
+            final long passed = bytes.getLong();
+            final int logLength = bytes.getInt();
+            final int logPosition = bytes.getInt();
+            final long last = bytes.getLong();
+            
+            //skip the previous time and random state, any value is valid
+            bytes.getLong();
+            bytes.getLong();
+            
+            if (col < 0 || col >= cols || row < 0 || row >= rows || !isValue(value) || passed < 0)
+                return false;
+            
+            //the history changes by one move at most, a move is recorded, undone, redone or nothing changed
+            final boolean recorded = (logPosition == currentPosition + 1 && logLength == logPosition);
+            final boolean moved = (logLength == currentLength && Math.abs(logPosition - currentPosition) <= 1);
+            
+            if (logPosition < 0 || logPosition > logLength || (!recorded && !moved))
+                return false;
+            
+            if (logPosition > 0 && !isValid(last, cols * rows))
+                return false;
+            
+            currentLength = logLength;
+            currentPosition = logPosition;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Check a move of the history
+     * @param move The packed move
+     * @param cells The number of locations on the board
+     * @return true if the move is on the board with valid values, false otherwise
+     */
+    private static boolean isValid(final long move, final int cells)
+    {
+        return (MoveLog.getCell(move) < cells && isValue(MoveLog.getOldValue(move)) && isValue(MoveLog.getNewValue(move)));
+    }
+    
+    /**
+     * Check the value of a board location
+     * @param value The value
+     * @return true if the value is filled, empty or marked, false otherwise
+     */
+    private static boolean isValue(final int value)
+    {
+        return (value == Puzzles.KEY_FILL || value == Puzzles.KEY_EMPTY || value == Puzzles.KEY_MARK);
+    }
+    
+    /**
+     * Get the number of longs needed to pack the board
+     * @param cols The number of columns
+     * @param rows The number of rows
+     * @return The number of longs
+     */
+    private static int getWords(final int cols, final int rows)
+    {
+        return ((cols * rows * BITS_PER_CELL) + 63) / 64;
+    }
+}
\ No newline at end of file
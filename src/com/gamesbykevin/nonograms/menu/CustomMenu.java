@@ -195,7 +195,7 @@ public final class CustomMenu extends Menu implements IElement
             }
             
             //if the values are not equal a change was made
-            if (focus != engine.getMain().hasFocus())
+            if (focus != engine.hasFocus())
             {
                 //if the previous Layer is stored
                 if (previousLayerKey != null)
@@ -216,6 +216,9 @@ public final class CustomMenu extends Menu implements IElement
                 }
                 
                 this.focus = !focus;
+                
+                //the displayed layer has changed
+                engine.getMain().setDirty();
             }
             
             super.update(engine.getMouse(), engine.getKeyboard(), engine.getMain().getTime());
@@ -267,7 +270,7 @@ public final class CustomMenu extends Menu implements IElement
         {
             screen.switchFullScreen(main.getApplet());
         }
-        else
+        else if (main.getPanel() != null)
         {
             screen.switchFullScreen(main.getPanel());
         }
@@ -0,0 +1,51 @@
+package com.gamesbykevin.nonograms.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the times something happened, counting does nothing when the metrics are disabled
+ * @author GOD
+ */
+public final class Counter implements CounterMXBean
+{
+    //the name of the counter
+    private final String name;
+    
+    //the count
+    private final AtomicLong count = new AtomicLong();
+    
+    /**
+     * Create the counter
+     * @param name The name of the counter
+     */
+    Counter(final String name)
+    {
+        this.name = name;
+    }
+    
+    public String getName()
+    {
+        return this.name;
+    }
+    
+    /**
+     * Add one to the count
+     */
+    public void increment()
+    {
+        if (Metrics.ENABLED)
+            count.incrementAndGet();
+    }
+    
+    @Override
+    public long getCount()
+    {
+        return count.get();
+    }
+    
+    @Override
+    public void reset()
+    {
+        count.set(0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.gamesbykevin.nonograms.metrics;
+
+/**
+ * The attributes of a counter shown through JMX
+ * @author GOD
+ */
+public interface CounterMXBean
+{
+    long getCount();
+    
+    void reset();
+}
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.gamesbykevin.nonograms.metrics;
+
+/**
+ * Emits the Flight Recorder events of the game, so a recording shows where the startup time and frame hitches go.<br>
+ * The events are only loaded when the Flight Recorder is available in this JVM, otherwise every method does nothing.
+ * An event is begun before the work and committed after it, and is only created when a recording has its type enabled,
+ * so nothing is allocated when there is no recording. The begin methods return null in that case,
+ * and the commit methods ignore a null event, so the code being measured never refers to the Flight Recorder itself.
+ * The events are in the separate source folder src-jfr, which needs JDK 11 or later. build.xml only compiles it
+ * when the JDK building the game has the Flight Recorder, so the rest of the game still builds for Java 7.
+ * @author GOD
+ */
+public final class Flight
+{
+    //the events, compiled from src-jfr
+    private static final String EVENTS = "com.gamesbykevin.nonograms.metrics.FlightEvents";
+    
+    /**
+     * Emits the events, implemented by FlightEvents
+     */
+    interface Emitter
+    {
+        Object beginLibrary();
+        
+        void commitLibrary(Object event, String phase, int puzzles);
+        
+        Object beginPuzzle();
+        
+        void commitPuzzle(Object event, String source, int cols, int rows);
+        
+        Object beginSolver();
+        
+        void commitSolver(Object event, int cols, int rows, int steps, int moves, boolean solved);
+        
+        Object beginFrame();
+        
+        void commitFrame(Object event, int updates, long update, long render, long present);
+        
+        Object beginResource();
+        
+        void commitResource(Object event, String stage, int resources);
+        
+        void move(int col, int row, int previous, int value);
+    }
+    
+    //emits the events, null if they can't be recorded
+    private static final Emitter EMITTER = load();
+    
+    //is the Flight Recorder available in this JVM, and were the events built
+    public static final boolean AVAILABLE = (EMITTER != null);
+    
+    private Flight()
+    {
+        //everything is static
+    }
+    
+    /**
+     * Load the events, only once the Flight Recorder is known to be available
+     * @return The events, null if the Flight Recorder isn't available or the events weren't built
+     */
+    private static Emitter load()
+    {
+        try
+        {
+            if (!(Boolean)Class.forName("jdk.jfr.FlightRecorder").getMethod("isAvailable").invoke(null))
+                return null;
+            
+            return (Emitter)Class.forName(EVENTS).getDeclaredConstructor().newInstance();
+        }
+        catch (Throwable e)
+        {
+            //the events are missing, or were built for a later version of java than this one
+            return null;
+        }
+    }
+    
+    /**
+     * Begin a phase of parsing the puzzle pack
+     * @return The event, null if it isn't recorded
+     */
+    public static Object beginLibrary()
+    {
+        return (AVAILABLE) ? EMITTER.beginLibrary() : null;
+    }
+    
+    /**
+     * Commit a phase of parsing the puzzle pack
+     * @param event The event returned by beginLibrary()
+     * @param phase The name of the phase
+     * @param puzzles The number of puzzles
+     */
+    public static void commitLibrary(final Object event, final String phase, final int puzzles)
+    {
+        if (event != null)
+            EMITTER.commitLibrary(event, phase, puzzles);
+    }
+    
+    /**
+     * Begin creating a puzzle
+     * @return The event, null if it isn't recorded
+     */
+    public static Object beginPuzzle()
+    {
+        return (AVAILABLE) ? EMITTER.beginPuzzle() : null;
+    }
+    
+    /**
+     * Commit creating a puzzle
+     * @param event The event returned by beginPuzzle()
+     * @param source Where the puzzle came from
+     * @param cols The number of columns
+     * @param rows The number of rows
+     */
+    public static void commitPuzzle(final Object event, final String source, final int cols, final int rows)
+    {
+        if (event != null)
+            EMITTER.commitPuzzle(event, source, cols, rows);
+    }
+    
+    /**
+     * Begin a run of the solver
+     * @return The event, null if it isn't recorded
+     */
+    public static Object beginSolver()
+    {
+        return (AVAILABLE) ? EMITTER.beginSolver() : null;
+    }
+    
+    /**
+     * Commit a run of the solver
+     * @param event The event returned by beginSolver()
+     * @param cols The number of columns
+     * @param rows The number of rows
+     * @param steps The number of times a line was solved
+     * @param moves The number of cells known
+     * @param solved Is every cell known
+     */
+    public static void commitSolver(final Object event, final int cols, final int rows, final int steps, final int moves, final boolean solved)
+    {
+        if (event != null)
+            EMITTER.commitSolver(event, cols, rows, steps, moves, solved);
+    }
+    
+    /**
+     * Begin a pass of the game loop
+     * @return The event, null if it isn't recorded
+     */
+    public static Object beginFrame()
+    {
+        return (AVAILABLE) ? EMITTER.beginFrame() : null;
+    }
+    
+    /**
+     * Commit a pass of the game loop
+     * @param event The event returned by beginFrame()
+     * @param updates The number of updates performed
+     * @param update The time spent updating (nanoseconds)
+     * @param render The time spent rendering (nanoseconds)
+     * @param present The time spent drawing the frame to the screen (nanoseconds)
+     */
+    public static void commitFrame(final Object event, final int updates, final long update, final long render, final long present)
+    {
+        if (event != null)
+            EMITTER.commitFrame(event, updates, update, render, present);
+    }
+    
+    /**
+     * Begin a stage of loading the resources
+     * @return The event, null if it isn't recorded
+     */
+    public static Object beginResource()
+    {
+        return (AVAILABLE) ? EMITTER.beginResource() : null;
+    }
+    
+    /**
+     * Commit a stage of loading the resources
+     * @param event The event returned by beginResource()
+     * @param stage The name of the stage
+     * @param resources The number of resources loaded in the stage
+     */
+    public static void commitResource(final Object event, final String stage, final int resources)
+    {
+        if (event != null)
+            EMITTER.commitResource(event, stage, resources);
+    }
+    
+    /**
+     * Record a move of the player
+     * @param col Column
+     * @param row Row
+     * @param previous The value before the move
+     * @param value The value after the move
+     */
+    public static void move(final int col, final int row, final int previous, final int value)
+    {
+        if (AVAILABLE)
+            EMITTER.move(col, row, previous, value);
+    }
+}
\ No newline at end of file
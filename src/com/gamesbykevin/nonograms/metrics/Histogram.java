@@ -0,0 +1,206 @@
+package com.gamesbykevin.nonograms.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the values recorded in buckets of increasing size, so the percentiles of latencies are known without keeping every value.<br>
+ * Like an HDR histogram, every doubling of the value has the same number of buckets,
+ * so a percentile is within about 6% of the real value whether the value is a microsecond or a second.
+ * Recording is a few atomic increments and never allocates, and does nothing when the metrics are disabled.
+ * @author GOD
+ */
+public final class Histogram implements HistogramMXBean
+{
+    //the bits of precision of each doubling, 16 buckets each
+    private static final int PRECISION = 4;
+    private static final int SUB_BUCKETS = 1 << PRECISION;
+    
+    //enough buckets for any positive long
+    private static final int BUCKETS = (64 - PRECISION + 1) * SUB_BUCKETS;
+    
+    //the name of the histogram
+    private final String name;
+    
+    //the number of values in each bucket
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    
+    //the number of values, their total, and the largest
+    private final AtomicLong count = new AtomicLong(), total = new AtomicLong(), max = new AtomicLong();
+    
+    /**
+     * Create the histogram
+     * @param name The name of the histogram
+     */
+    Histogram(final String name)
+    {
+        this.name = name;
+    }
+    
+    public String getName()
+    {
+        return this.name;
+    }
+    
+    /**
+     * Record the time since the start
+     * @param start The time returned by Metrics.start()
+     */
+    public void stop(final long start)
+    {
+        if (Metrics.ENABLED)
+            record(System.nanoTime() - start);
+    }
+    
+    /**
+     * Record a value
+     * @param value The value, a negative value is recorded as 0
+     */
+    public void record(final long value)
+    {
+        if (!Metrics.ENABLED)
+            return;
+        
+        final long positive = Math.max(value, 0);
+        
+        buckets.incrementAndGet(getBucket(positive));
+        count.incrementAndGet();
+        total.addAndGet(positive);
+        
+        long current;
+        
+        while (positive > (current = max.get()) && !max.compareAndSet(current, positive))
+        {
+            //another thread recorded a larger value, try again
+        }
+    }
+    
+    @Override
+    public long getCount()
+    {
+        return count.get();
+    }
+    
+    @Override
+    public long getMax()
+    {
+        return max.get();
+    }
+    
+    @Override
+    public double getMean()
+    {
+        final long values = count.get();
+        
+        return (values == 0) ? 0 : total.get() / (double)values;
+    }
+    
+    @Override
+    public long get50thPercentile()
+    {
+        return getPercentile(50);
+    }
+    
+    @Override
+    public long get90thPercentile()
+    {
+        return getPercentile(90);
+    }
+    
+    @Override
+    public long get99thPercentile()
+    {
+        return getPercentile(99);
+    }
+    
+    @Override
+    public long get999thPercentile()
+    {
+        return getPercentile(99.9);
+    }
+    
+    /**
+     * Get the value below which the percentage of values fall
+     * @param percentile The percentage (0 - 100)
+     * @return The middle of the bucket holding the value, never more than the largest value
+     */
+    public long getPercentile(final double percentile)
+    {
+        final long values = count.get();
+        
+        if (values == 0)
+            return 0;
+        
+        //the number of values at or below the percentile
+        final long target = Math.max(1, (long)Math.ceil(values * (percentile / 100.0)));
+        
+        long seen = 0;
+        
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            seen += buckets.get(bucket);
+            
+            if (seen >= target)
+                return Math.min(getLowest(bucket) + (getWidth(bucket) / 2), max.get());
+        }
+        
+        return max.get();
+    }
+    
+    @Override
+    public void reset()
+    {
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            buckets.set(bucket, 0);
+        }
+        
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+    
+    /**
+     * Get the bucket of a value
+     * @param value The value, not negative
+     * @return The bucket
+     */
+    private static int getBucket(final long value)
+    {
+        if (value < SUB_BUCKETS)
+            return (int)value;
+        
+        //the position of the highest bit, the bits below it pick the bucket within the doubling
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        
+        return ((magnitude - PRECISION + 1) * SUB_BUCKETS) + (int)((value >>> (magnitude - PRECISION)) & (SUB_BUCKETS - 1));
+    }
+    
+    /**
+     * Get the lowest value of a bucket
+     * @param bucket The bucket
+     * @return The value
+     */
+    private static long getLowest(final int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        
+        final int magnitude = (bucket / SUB_BUCKETS) + PRECISION - 1;
+        
+        return ((long)SUB_BUCKETS + (bucket % SUB_BUCKETS)) << (magnitude - PRECISION);
+    }
+    
+    /**
+     * Get the number of values in a bucket
+     * @param bucket The bucket
+     * @return The width
+     */
+    private static long getWidth(final int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return 1;
+        
+        return 1L << ((bucket / SUB_BUCKETS) - 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.gamesbykevin.nonograms.metrics;
+
+/**
+ * The attributes of a histogram shown through JMX, times are in nanoseconds
+ * @author GOD
+ */
+public interface HistogramMXBean
+{
+    long getCount();
+    
+    long getMax();
+    
+    double getMean();
+    
+    long get50thPercentile();
+    
+    long get90thPercentile();
+    
+    long get99thPercentile();
+    
+    long get999thPercentile();
+    
+    void reset();
+}
\ No newline at end of file
@@ -0,0 +1,258 @@
+package com.gamesbykevin.nonograms.metrics;
+
+import com.gamesbykevin.nonograms.shared.Shared;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Every metric of the game, with the time taken by the game loop and its subsystems.<br>
+ * The metrics are only enabled with -Dnonograms.metrics=true or when debugging. The flag is a constant,
+ * so when it is off the JIT removes the timing from every call site and a disabled metric costs nothing.
+ * When enabled every metric is registered with the platform MBean server, under com.gamesbykevin.nonograms,
+ * and a report of every metric can be written to a file at any time, from the code or through JMX.
+ * @author GOD
+ */
+public final class Metrics
+{
+    //are the metrics recorded
+    public static final boolean ENABLED = Shared.DEBUG || Boolean.getBoolean("nonograms.metrics");
+    
+    //the domain of the metrics in JMX
+    private static final String DOMAIN = "com.gamesbykevin.nonograms";
+    
+    //every histogram and counter, in the order they were created
+    private static final List<Histogram> HISTOGRAMS = new ArrayList<>();
+    private static final List<Counter> COUNTERS = new ArrayList<>();
+    
+    //the time of each part of the game loop
+    public static final Histogram ENGINE_UPDATE = histogram("Engine.update");
+    public static final Histogram MANAGER_UPDATE = histogram("Manager.update");
+    public static final Histogram MANAGER_RENDER = histogram("Manager.render");
+    public static final Histogram DRAW_SCREEN = histogram("Main.drawScreen");
+    
+    //the time to parse the puzzles, and to solve a puzzle
+    public static final Histogram LIBRARY_LOAD = histogram("Library.load");
+    public static final Histogram SOLVER_SOLVE = histogram("Solver.solve");
+    
+    //the time the game thread spends sending an audio command, and the time the audio worker spends performing it
+    public static final Histogram AUDIO_SEND = histogram("Audio.send");
+    public static final Histogram AUDIO_PERFORM = histogram("Audio.perform");
+    
+    //the number of times the game fell so far behind that updates were dropped
+    public static final Counter UPDATES_DROPPED = counter("Main.updatesDropped");
+    
+    //the number of sounds not played because the audio queue was full
+    public static final Counter AUDIO_DROPPED = counter("Audio.dropped");
+    
+    /**
+     * The operations on every metric through JMX
+     */
+    public interface MetricsMXBean
+    {
+        /**
+         * Get the report of every metric
+         * @return The report
+         */
+        String getReport();
+        
+        /**
+         * Write the report of every metric
+         * @param file The location of the file
+         * @throws IOException if the file can't be written
+         */
+        void dump(String file) throws IOException;
+        
+        /**
+         * Reset every metric
+         */
+        void reset();
+    }
+    
+    static
+    {
+        if (ENABLED)
+            register();
+    }
+    
+    private Metrics()
+    {
+        //everything is static
+    }
+    
+    /**
+     * Get the time to start measuring from
+     * @return The current time (nanoseconds), 0 if the metrics are disabled
+     */
+    public static long start()
+    {
+        return (ENABLED) ? System.nanoTime() : 0;
+    }
+    
+    /**
+     * Get every histogram
+     * @return The histograms
+     */
+    public static List<Histogram> getHistograms()
+    {
+        return Collections.unmodifiableList(HISTOGRAMS);
+    }
+    
+    /**
+     * Get every counter
+     * @return The counters
+     */
+    public static List<Counter> getCounters()
+    {
+        return Collections.unmodifiableList(COUNTERS);
+    }
+    
+    /**
+     * Write the report of every metric, times are in microseconds
+     * @return The report
+     */
+    public static String getReport()
+    {
+        final StringBuilder builder = new StringBuilder(1024);
+        
+        builder.append(String.format("%-20s %10s %10s %10s %10s %10s %10s %10s%n", "histogram", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        
+        for (Histogram histogram : HISTOGRAMS)
+        {
+            builder.append(String.format("%-20s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                histogram.getName(),
+                histogram.getCount(),
+                histogram.getMean() / TimeUnit.MICROSECONDS.toNanos(1),
+                toMicros(histogram.get50thPercentile()),
+                toMicros(histogram.get90thPercentile()),
+                toMicros(histogram.get99thPercentile()),
+                toMicros(histogram.get999thPercentile()),
+                toMicros(histogram.getMax())));
+        }
+        
+        builder.append(String.format("%n%-20s %10s%n", "counter", "count"));
+        
+        for (Counter counter : COUNTERS)
+        {
+            builder.append(String.format("%-20s %10d%n", counter.getName(), counter.getCount()));
+        }
+        
+        return builder.toString();
+    }
+    
+    /**
+     * Write the report of every metric to a file
+     * @param file The file, it is replaced if it exists
+     * @throws IOException if the file can't be written
+     */
+    public static void dump(final File file) throws IOException
+    {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))
+        {
+            writer.write(getReport());
+        }
+    }
+    
+    /**
+     * Reset every metric
+     */
+    public static void reset()
+    {
+        for (Histogram histogram : HISTOGRAMS)
+        {
+            histogram.reset();
+        }
+        
+        for (Counter counter : COUNTERS)
+        {
+            counter.reset();
+        }
+    }
+    
+    private static Histogram histogram(final String name)
+    {
+        final Histogram histogram = new Histogram(name);
+        
+        HISTOGRAMS.add(histogram);
+        
+        return histogram;
+    }
+    
+    private static Counter counter(final String name)
+    {
+        final Counter counter = new Counter(name);
+        
+        COUNTERS.add(counter);
+        
+        return counter;
+    }
+    
+    private static double toMicros(final long nanos)
+    {
+        return nanos / (double)TimeUnit.MICROSECONDS.toNanos(1);
+    }
+    
+    /**
+     * Register every metric with the platform MBean server
+     */
+    private static void register()
+    {
+        try
+        {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            
+            for (Histogram histogram : HISTOGRAMS)
+            {
+                server.registerMBean(histogram, new ObjectName(DOMAIN + ":type=Histogram,name=" + histogram.getName()));
+            }
+            
+            for (Counter counter : COUNTERS)
+            {
+                server.registerMBean(counter, new ObjectName(DOMAIN + ":type=Counter,name=" + counter.getName()));
+            }
+            
+            server.registerMBean(new Control(), new ObjectName(DOMAIN + ":type=Metrics"));
+        }
+        catch (Exception e)
+        {
+            //the metrics are still recorded, and can still be dumped, without JMX
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Every metric through JMX
+     */
+    private static final class Control implements MetricsMXBean
+    {
+        @Override
+        public String getReport()
+        {
+            return Metrics.getReport();
+        }
+        
+        @Override
+        public void dump(final String file) throws IOException
+        {
+            Metrics.dump(new File(file));
+        }
+        
+        @Override
+        public void reset()
+        {
+            Metrics.reset();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,326 @@
+package com.gamesbykevin.nonograms.player;
+
+import com.gamesbykevin.nonograms.engine.Engine;
+import com.gamesbykevin.nonograms.puzzles.Puzzle;
+import com.gamesbykevin.nonograms.puzzles.Puzzles;
+import com.gamesbykevin.nonograms.puzzles.Solver;
+import com.gamesbykevin.nonograms.resources.GameAudio.Keys;
+
+import java.awt.Image;
+import java.util.Random;
+
+/**
+ * A computer player that solves each puzzle from the hints with the line solver.<br>
+ * The moves are planned when the puzzle starts, then one move is made each time the think time passes.
+ * A mistake can be made at random, which is corrected with the following move.
+ * @author GOD
+ */
+public final class Computer extends Player
+{
+    /**
+     * The order the planned moves are made
+     */
+    public enum Policy
+    {
+        //in the order the solver found them, line by line
+        Ordered,
+        
+        //in a random order
+        Random,
+        
+        //in the order the solver found them, but only filling locations and never marking them
+        FillOnly,
+    }
+    
+    //the order the moves are made
+    private final Policy policy;
+    
+    //the game time (nanoseconds) between each move
+    private final long thinkTime;
+    
+    //the chance of a mistake each move (0.0 - 1.0)
+    private final double errorRate;
+    
+    //the planned moves, the location index multiplied by 4 plus the value
+    private int[] moves = new int[0];
+    
+    //the number of planned moves, and the next move to make
+    private int count = 0, next = 0;
+    
+    //the puzzle the moves were planned for
+    private Puzzle planned;
+    
+    //the game time remaining until the next move
+    private long delay = 0;
+    
+    //the location of the mistake to correct, -1 if there is none
+    private int mistake = -1;
+    
+    /**
+     * Create the computer player
+     * @param image The image of the board
+     * @param backgroundStatImage The background image of the stats
+     * @param policy The order the moves are made
+     * @param thinkTime The game time (nanoseconds) between each move
+     * @param errorRate The chance of a mistake each move (0.0 - 1.0)
+     */
+    public Computer(final Image image, final Image backgroundStatImage, final Policy policy, final long thinkTime, final double errorRate)
+    {
+        super(image, backgroundStatImage);
+        
+        this.policy = policy;
+        this.thinkTime = thinkTime;
+        this.errorRate = errorRate;
+    }
+    
+    @Override
+    public void dispose()
+    {
+        super.dispose();
+        
+        moves = null;
+        planned = null;
+    }
+    
+    @Override
+    public String getName()
+    {
+        return "Computer (" + policy + ")";
+    }
+    
+    @Override
+    public void update(final Engine engine) throws Exception
+    {
+        //if the puzzle has been solved, wait then continue as the user would with the space bar
+        if (getPuzzle().hasSolved())
+        {
+            delay -= engine.getElapsed();
+            
+            if (delay <= 0)
+            {
+                //stop all audio
+                engine.getResources().stopAllSound();
+                
+                //setup next level
+                super.setupNextLevel(engine);
+                
+                //only resume playing main theme, if puzzles still exist
+                if (engine.getManager().getPuzzles().hasPuzzles())
+                    engine.getResources().playGameAudio(Keys.Theme, true);
+            }
+            
+            return;
+        }
+        
+        //plan the moves when the puzzle changes
+        if (planned != engine.getManager().getPuzzles().getPuzzle())
+            plan(engine);
+        
+        delay -= engine.getElapsed();
+        
+        //make a move once the think time has passed
+        if (delay <= 0)
+        {
+            delay += thinkTime;
+            
+            makeMove(engine);
+        }
+        
+        //update
+        super.update(engine);
+    }
+    
+    /**
+     * Plan every move needed to solve the current puzzle
+     * @param engine Object containing all game elements
+     */
+    private void plan(final Engine engine)
+    {
+        final Puzzle puzzle = engine.getManager().getPuzzles().getPuzzle();
+        final Solver solver = new Solver(puzzle);
+        
+        //the locations already on the board, such as a hint, are known
+        for (int row = 0; row < getPuzzle().getRows(); row++)
+        {
+            for (int col = 0; col < getPuzzle().getCols(); col++)
+            {
+                switch (getPuzzle().getKeyValue(col, row))
+                {
+                    case Puzzles.KEY_FILL:
+                        solver.setKnown(col, row, Solver.FILLED);
+                        break;
+                    
+                    case Puzzles.KEY_MARK:
+                        solver.setKnown(col, row, Solver.EMPTY);
+                        break;
+                }
+            }
+        }
+        
+        solver.solve();
+        
+        if (moves.length < getPuzzle().getCols() * getPuzzle().getRows())
+            moves = new int[getPuzzle().getCols() * getPuzzle().getRows()];
+        
+        count = 0;
+        
+        for (int i = 0; i < solver.getMoves(); i++)
+        {
+            final int cell = solver.getMove(i);
+            
+            addMove(cell, solver.getState(cell % getPuzzle().getCols(), cell / getPuzzle().getCols()) == Solver.FILLED);
+        }
+        
+        //the locations the hints can't solve are guessed, and the guess is always correct
+        for (int row = 0; row < getPuzzle().getRows(); row++)
+        {
+            for (int col = 0; col < getPuzzle().getCols(); col++)
+            {
+                if (solver.getState(col, row) == Solver.UNKNOWN)
+                    addMove((row * getPuzzle().getCols()) + col, puzzle.getKeyValue(col, row) == Puzzles.KEY_FILL);
+            }
+        }
+        
+        //shuffle the moves
+        if (policy == Policy.Random)
+        {
+            final Random random = engine.getRandom();
+            
+            for (int i = count - 1; i > 0; i--)
+            {
+                final int j = random.nextInt(i + 1);
+                final int tmp = moves[i];
+                moves[i] = moves[j];
+                moves[j] = tmp;
+            }
+        }
+        
+        this.planned = puzzle;
+        this.next = 0;
+        this.delay = thinkTime;
+        this.mistake = -1;
+    }
+    
+    /**
+     * Add a planned move
+     * @param cell The index of the location
+     * @param fill Is the location filled, otherwise it is marked
+     */
+    private void addMove(final int cell, final boolean fill)
+    {
+        //this policy never marks a location
+        if (!fill && policy == Policy.FillOnly)
+            return;
+        
+        moves[count++] = (cell * 4) + ((fill) ? Puzzles.KEY_FILL : Puzzles.KEY_MARK);
+    }
+    
+    /**
+     * Make the next move, correct a mistake or make a mistake
+     * @param engine Object containing all game elements
+     * @throws Exception
+     */
+    private void makeMove(final Engine engine) throws Exception
+    {
+        final int cols = getPuzzle().getCols();
+        
+        final int cell;
+        final int value;
+        
+        if (mistake >= 0)
+        {
+            //correct the previous mistake
+            cell = mistake;
+            value = Puzzles.KEY_EMPTY;
+            mistake = -1;
+        }
+        else if (errorRate > 0 && engine.getRandom().nextDouble() < errorRate && (mistake = pickMistake(engine)) >= 0)
+        {
+            //fill a location that should be empty
+            cell = mistake;
+            value = Puzzles.KEY_FILL;
+        }
+        else
+        {
+            //skip the moves already on the board
+            while (next < count && getPuzzle().getKeyValue((moves[next] / 4) % cols, (moves[next] / 4) / cols) == moves[next] % 4)
+            {
+                next++;
+            }
+            
+            //nothing left to do
+            if (next >= count)
+                return;
+            
+            cell = moves[next] / 4;
+            value = moves[next] % 4;
+            next++;
+        }
+        
+        final int col = cell % cols;
+        final int row = cell / cols;
+        
+        //set the current location of the player
+        super.setHighlightCol(col);
+        super.setHighlightRow(row);
+        
+        super.move(col, row, value);
+        
+        switch (value)
+        {
+            case Puzzles.KEY_FILL:
+                //play sound effect
+                engine.getResources().playGameAudio(Keys.Fill);
+                
+                //if time mode is enabled a bad move will cost time
+                super.applyPenalty(engine, col, row);
+                break;
+            
+            case Puzzles.KEY_MARK:
+                //play sound effect
+                engine.getResources().playGameAudio(Keys.Mark);
+                break;
+            
+            case Puzzles.KEY_EMPTY:
+            default:
+                //play sound effect
+                engine.getResources().playGameAudio(Keys.UnFill);
+                break;
+        }
+        
+        //append the move to the saved game
+        engine.getManager().getSaveGame().record(engine.getManager(), col, row);
+        
+        //check if the board has been solved
+        super.checkComplete(engine);
+        
+        //if the puzzle has been solved
+        if (getPuzzle().hasSolved())
+        {
+            //stop all sound
+            engine.getResources().stopAllSound();
+            
+            //play victory sound
+            engine.getResources().playGameAudio(Keys.Solved, true);
+            
+            //wait before the next level
+            delay = thinkTime;
+        }
+    }
+    
+    /**
+     * Pick a random empty location that should stay empty
+     * @param engine Object containing all game elements
+     * @return The index of the location, -1 if the location picked can't be filled by mistake
+     */
+    private int pickMistake(final Engine engine)
+    {
+        final int col = engine.getRandom().nextInt(getPuzzle().getCols());
+        final int row = engine.getRandom().nextInt(getPuzzle().getRows());
+        
+        if (getPuzzle().getKeyValue(col, row) != Puzzles.KEY_EMPTY || engine.getManager().getPuzzles().getPuzzle().getKeyValue(col, row) == Puzzles.KEY_FILL)
+            return -1;
+        
+        return (row * getPuzzle().getCols()) + col;
+    }
+}
\ No newline at end of file
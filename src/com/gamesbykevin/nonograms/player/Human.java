@@ -1,6 +1,5 @@
 package com.gamesbykevin.nonograms.player;
 
-import com.gamesbykevin.framework.util.Timers;
 import com.gamesbykevin.nonograms.engine.Engine;
 import com.gamesbykevin.nonograms.puzzles.Puzzles;
 import com.gamesbykevin.nonograms.resources.GameAudio.Keys;
@@ -29,7 +28,7 @@ public final class Human extends Player
     public void update(final Engine engine) throws Exception
     {
         //don't continue if the puzzle has been solved
-        if (engine.getManager().getPuzzles().getPuzzle().hasSolved())
+        if (getPuzzle().hasSolved())
         {
             //if space bar was pressed
             if (engine.getKeyboard().hasKeyPressed(KeyEvent.VK_SPACE))
@@ -98,14 +97,14 @@ public final class Human extends Player
                         switch (getPuzzle().getKeyValue(col, row))
                         {
                             case Puzzles.KEY_EMPTY:
-                                getPuzzle().setKeyValue(col, row, Puzzles.KEY_MARK);
+                                super.move(col, row, Puzzles.KEY_MARK);
                                 
                                 //play sound effect
                                 engine.getResources().playGameAudio(Keys.Mark);
                                 break;
                                 
                             case Puzzles.KEY_MARK:
-                                getPuzzle().setKeyValue(col, row, Puzzles.KEY_EMPTY);
+                                super.move(col, row, Puzzles.KEY_EMPTY);
                                 
                                 //play sound effect
                                 engine.getResources().playGameAudio(Keys.UnMark);
@@ -123,14 +122,14 @@ public final class Human extends Player
                         switch (getPuzzle().getKeyValue(col, row))
                         {
                             case Puzzles.KEY_EMPTY:
-                                getPuzzle().setKeyValue(col, row, Puzzles.KEY_FILL);
+                                super.move(col, row, Puzzles.KEY_FILL);
                                 
                                 //play sound effect
                                 engine.getResources().playGameAudio(Keys.Fill);
                                 break;
                                 
                             case Puzzles.KEY_FILL:
-                                getPuzzle().setKeyValue(col, row, Puzzles.KEY_EMPTY);
+                                super.move(col, row, Puzzles.KEY_EMPTY);
                                 
                                 //play sound effect
                                 engine.getResources().playGameAudio(Keys.UnFill);
@@ -144,44 +143,53 @@ public final class Human extends Player
                                 break;
                         }
                         
-                        //if time mode is enabled
-                        if (getStats().hasTimed())
-                        {
-                            //if the values are not equal
-                            if (engine.getManager().getPuzzles().getPuzzle().getKeyValue(col, row) != getPuzzle().getKeyValue(col, row))
-                            {
-                                //if player just filled the block, it was a bad move
-                                if (getPuzzle().getKeyValue(col, row) == Puzzles.KEY_FILL)
-                                {
-                                    //get the time remaining
-                                    final long remaining = getStats().getTimer().getRemaining();
-                                    
-                                    //deduct 1 minute from timer
-                                    getStats().getTimer().setRemaining(remaining - Timers.NANO_SECONDS_PER_MINUTE);
-                                }
-                            }
-                        }
+                        //if time mode is enabled a bad move will cost time
+                        super.applyPenalty(engine, col, row);
                     }
+                    
+                    //append the move to the saved game
+                    engine.getManager().getSaveGame().record(engine.getManager(), col, row);
                 }
             }
             
             //check if the board has been solved
-            super.checkComplete(engine);
+            checkSolved(engine);
+        }
+        else if (engine.getKeyboard().hasKeyPressed(KeyEvent.VK_Z) || engine.getKeyboard().hasKeyPressed(KeyEvent.VK_Y))
+        {
+            //undo with 'Z', redo with 'Y'
+            final int cell = engine.getKeyboard().hasKeyPressed(KeyEvent.VK_Z) ? super.undo() : super.redo();
             
-            //if the puzzle has been solved
-            if (getPuzzle().hasSolved())
+            //reset input
+            engine.getKeyboard().reset();
+            
+            if (cell >= 0)
             {
-                //update misc message
-                getStats().setMiscDesc("Hit 'Space Bar'");
+                final int col = cell % getPuzzle().getCols();
+                final int row = cell / getPuzzle().getCols();
                 
-                //render new image
-                getStats().render();
+                //play the sound effect of the restored value
+                switch (getPuzzle().getKeyValue(col, row))
+                {
+                    case Puzzles.KEY_FILL:
+                        engine.getResources().playGameAudio(Keys.Fill);
+                        break;
+                    
+                    case Puzzles.KEY_MARK:
+                        engine.getResources().playGameAudio(Keys.Mark);
+                        break;
+                    
+                    case Puzzles.KEY_EMPTY:
+                    default:
+                        engine.getResources().playGameAudio(Keys.UnFill);
+                        break;
+                }
                 
-                //stop all sound
-                engine.getResources().stopAllSound();
+                //append the move to the saved game
+                engine.getManager().getSaveGame().record(engine.getManager(), col, row);
                 
-                //play victory sound
-                engine.getResources().playGameAudio(Keys.Solved, true);
+                //check if the board has been solved
+                checkSolved(engine);
             }
         }
         
@@ -191,4 +199,31 @@ public final class Human extends Player
         //reset mouse events
         engine.getMouse().reset();
     }
+    
+    /**
+     * Check if the board has been solved, and if so prepare for the next level
+     * @param engine Object containing all game elements
+     * @throws Exception 
+     */
+    private void checkSolved(final Engine engine) throws Exception
+    {
+        //check if the board has been solved
+        super.checkComplete(engine);
+        
+        //if the puzzle has been solved
+        if (getPuzzle().hasSolved())
+        {
+            //update misc message
+            getStats().setMiscDesc("Hit 'Space Bar'");
+            
+            //render new image
+            getStats().render();
+            
+            //stop all sound
+            engine.getResources().stopAllSound();
+            
+            //play victory sound
+            engine.getResources().playGameAudio(Keys.Solved, true);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,245 @@
+package com.gamesbykevin.nonograms.player;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+/**
+ * The history of moves made on a board, used to undo and redo moves.<br>
+ * Each move is packed into a single long (cell index, old value, new value, time since the previous move)
+ * and stored in a growable array, so recording, undoing and redoing a move never allocates an object.<br>
+ * The history is saved with the game, so moves can still be undone after the game is resumed.
+ * @author GOD
+ */
+public final class MoveLog implements Disposable
+{
+    //the number of bits used by each part of a move
+    private static final int CELL_BITS = 16;
+    private static final int VALUE_BITS = 2;
+    private static final int DELTA_BITS = 64 - CELL_BITS - (VALUE_BITS * 2);
+    
+    //where each part of a move starts
+    private static final int OLD_SHIFT = CELL_BITS;
+    private static final int NEW_SHIFT = OLD_SHIFT + VALUE_BITS;
+    private static final int DELTA_SHIFT = NEW_SHIFT + VALUE_BITS;
+    
+    //the masks of each part of a move
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+    private static final long DELTA_MASK = (1L << DELTA_BITS) - 1;
+    
+    //the starting capacity of the log
+    private static final int DEFAULT_CAPACITY = 64;
+    
+    //the packed moves
+    private long[] moves;
+    
+    //the number of moves recorded, including the moves that were undone
+    private int size = 0;
+    
+    //the number of moves currently applied, moves after this can be redone
+    private int position = 0;
+    
+    //the time of the previous move (milliseconds)
+    private long previous = 0;
+    
+    public MoveLog()
+    {
+        this.moves = new long[DEFAULT_CAPACITY];
+    }
+    
+    @Override
+    public void dispose()
+    {
+        moves = null;
+    }
+    
+    /**
+     * Remove every move
+     */
+    public void clear()
+    {
+        size = 0;
+        position = 0;
+        previous = 0;
+    }
+    
+    /**
+     * Record a move, any moves that were undone can no longer be redone
+     * @param cell The index of the location on the board (row * columns + column)
+     * @param oldValue The value before the move
+     * @param newValue The value after the move
+     * @param time The time of the move (milliseconds)
+     */
+    public void record(final int cell, final int oldValue, final int newValue, final long time)
+    {
+        //grow the log if it is full
+        grow(position + 1);
+        
+        final long delta = Math.min(Math.max(time - previous, 0), DELTA_MASK);
+        
+        moves[position] = (cell & CELL_MASK) | ((oldValue & VALUE_MASK) << OLD_SHIFT) | ((newValue & VALUE_MASK) << NEW_SHIFT) | (delta << DELTA_SHIFT);
+        
+        previous = time;
+        position++;
+        size = position;
+    }
+    
+    /**
+     * Grow the log so it can hold the number of moves
+     * @param capacity The number of moves needed
+     */
+    private void grow(final int capacity)
+    {
+        if (capacity <= moves.length)
+            return;
+        
+        final long[] tmp = new long[Math.max(moves.length * 2, capacity)];
+        System.arraycopy(moves, 0, tmp, 0, moves.length);
+        moves = tmp;
+    }
+    
+    /**
+     * Restore a move of a saved history
+     * @param index The index of the move
+     * @param move The packed move
+     */
+    public void set(final int index, final long move)
+    {
+        grow(index + 1);
+        
+        moves[index] = move;
+    }
+    
+    /**
+     * Restore the position of a saved history, the moves need to be restored with set()
+     * @param length The number of moves recorded, including the moves that were undone
+     * @param position The number of moves currently applied
+     * @param previous The time of the previous move (milliseconds)
+     */
+    public void restore(final int length, final int position, final long previous)
+    {
+        grow(length);
+        
+        this.size = length;
+        this.position = position;
+        this.previous = previous;
+    }
+    
+    /**
+     * Can a move be undone?
+     * @return true if at least one move is applied, false otherwise
+     */
+    public boolean canUndo()
+    {
+        return (position > 0);
+    }
+    
+    /**
+     * Can a move be redone?
+     * @return true if at least one move was undone, false otherwise
+     */
+    public boolean canRedo()
+    {
+        return (position < size);
+    }
+    
+    /**
+     * Undo the last move applied.<br>
+     * The caller sets the board location to the old value of the returned move.
+     * @return The packed move that was undone
+     */
+    public long undo()
+    {
+        position--;
+        
+        return moves[position];
+    }
+    
+    /**
+     * Redo the last move undone.<br>
+     * The caller sets the board location to the new value of the returned move.
+     * @return The packed move that was redone
+     */
+    public long redo()
+    {
+        position++;
+        
+        return moves[position - 1];
+    }
+    
+    /**
+     * Get the number of moves currently applied
+     * @return The number of moves that can be undone
+     */
+    public int size()
+    {
+        return this.position;
+    }
+    
+    /**
+     * Get the number of moves recorded
+     * @return The number of moves, including the moves that were undone
+     */
+    public int getLength()
+    {
+        return this.size;
+    }
+    
+    /**
+     * Get the time of the previous move
+     * @return The time (milliseconds)
+     */
+    public long getPrevious()
+    {
+        return this.previous;
+    }
+    
+    /**
+     * Get the packed move, so the history can be replayed or saved
+     * @param index The index of the move, from 0 to getLength() - 1
+     * @return The packed move
+     */
+    public long get(final int index)
+    {
+        return moves[index];
+    }
+    
+    /**
+     * Get the location of the move
+     * @param move The packed move
+     * @return The index of the location on the board
+     */
+    public static int getCell(final long move)
+    {
+        return (int)(move & CELL_MASK);
+    }
+    
+    /**
+     * Get the value before the move
+     * @param move The packed move
+     * @return The old value of the location
+     */
+    public static int getOldValue(final long move)
+    {
+        return (int)((move >>> OLD_SHIFT) & VALUE_MASK);
+    }
+    
+    /**
+     * Get the value after the move
+     * @param move The packed move
+     * @return The new value of the location
+     */
+    public static int getNewValue(final long move)
+    {
+        return (int)((move >>> NEW_SHIFT) & VALUE_MASK);
+    }
+    
+    /**
+     * Get the time between this move and the previous move
+     * @param move The packed move
+     * @return The time delta (milliseconds)
+     */
+    public static long getDelta(final long move)
+    {
+        return (move >>> DELTA_SHIFT) & DELTA_MASK;
+    }
+}
\ No newline at end of file
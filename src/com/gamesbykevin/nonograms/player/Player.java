@@ -3,8 +3,10 @@ package com.gamesbykevin.nonograms.player;
 
 import com.gamesbykevin.framework.base.Sprite;
 import com.gamesbykevin.framework.resources.Disposable;
+import com.gamesbykevin.framework.util.Timers;
 
 import com.gamesbykevin.nonograms.engine.Engine;
+import com.gamesbykevin.nonograms.metrics.Flight;
 import com.gamesbykevin.nonograms.player.stat.Stats;
 import com.gamesbykevin.nonograms.puzzles.Puzzle;
 import com.gamesbykevin.nonograms.puzzles.Puzzles;
@@ -13,6 +15,7 @@ import com.gamesbykevin.nonograms.shared.IElement;
 import java.awt.Graphics;
 import java.awt.Image;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class will represent a player attempting to solve a puzzle
@@ -26,6 +29,9 @@ public abstract class Player extends Sprite implements IElement, Disposable
     //the game stats
     private Stats stats;
     
+    //the moves made on the board
+    private MoveLog moveLog;
+    
     //the location we will highlight to make the puzzle more friendly for the user
     private int highlightCol = 0, highlightRow = 0;
     
@@ -41,6 +47,9 @@ public abstract class Player extends Sprite implements IElement, Disposable
         
         //create stat object
         this.stats = new Stats(backgroundStatImage);
+        
+        //create the move history
+        this.moveLog = new MoveLog();
     }
     
     public void setHintEnabled(final boolean hintEnabled)
@@ -133,6 +142,12 @@ public abstract class Player extends Sprite implements IElement, Disposable
             stats.dispose();
             stats = null;
         }
+        
+        if (moveLog != null)
+        {
+            moveLog.dispose();
+            moveLog = null;
+        }
     }
     
     public Puzzle getPuzzle()
@@ -145,13 +160,117 @@ public abstract class Player extends Sprite implements IElement, Disposable
         return this.stats;
     }
     
+    /**
+     * Get the name of the player in the leaderboard
+     * @return The name of the user
+     */
+    public String getName()
+    {
+        return System.getProperty("user.name");
+    }
+    
+    /**
+     * Get the moves made on the board
+     * @return The move history of the current puzzle
+     */
+    public MoveLog getMoveLog()
+    {
+        return this.moveLog;
+    }
+    
+    /**
+     * Change the board location and record the move so it can be undone
+     * @param col Column
+     * @param row Row
+     * @param value The new value of the location
+     */
+    protected void move(final int col, final int row, final int value)
+    {
+        final int previous = getPuzzle().getKeyValue(col, row);
+        
+        getMoveLog().record((row * getPuzzle().getCols()) + col, previous, value, TimeUnit.NANOSECONDS.toMillis(getStats().getTimer().getPassed()));
+        getPuzzle().setKeyValue(col, row, value);
+        
+        Flight.move(col, row, previous, value);
+    }
+    
+    /**
+     * Undo the last move made on the board
+     * @return The index of the location changed, -1 if there was nothing to undo
+     */
+    protected int undo()
+    {
+        if (!getMoveLog().canUndo())
+            return -1;
+        
+        final long move = getMoveLog().undo();
+        final int cell = MoveLog.getCell(move);
+        
+        //restore the previous value
+        getPuzzle().setKeyValue(cell % getPuzzle().getCols(), cell / getPuzzle().getCols(), MoveLog.getOldValue(move));
+        
+        return cell;
+    }
+    
+    /**
+     * Redo the last move that was undone
+     * @return The index of the location changed, -1 if there was nothing to redo
+     */
+    protected int redo()
+    {
+        if (!getMoveLog().canRedo())
+            return -1;
+        
+        final long move = getMoveLog().redo();
+        final int cell = MoveLog.getCell(move);
+        
+        //apply the value again
+        getPuzzle().setKeyValue(cell % getPuzzle().getCols(), cell / getPuzzle().getCols(), MoveLog.getNewValue(move));
+        
+        return cell;
+    }
+    
+    /**
+     * If time mode is enabled and the location was just filled when it should be empty, deduct 1 minute from the timer
+     * @param engine Object containing all game elements
+     * @param col Column
+     * @param row Row
+     */
+    protected void applyPenalty(final Engine engine, final int col, final int row)
+    {
+        //if time mode is enabled
+        if (getStats().hasTimed())
+        {
+            //if the values are not equal
+            if (engine.getManager().getPuzzles().getPuzzle().getKeyValue(col, row) != getPuzzle().getKeyValue(col, row))
+            {
+                //if player just filled the block, it was a bad move
+                if (getPuzzle().getKeyValue(col, row) == Puzzles.KEY_FILL)
+                {
+                    //get the time remaining
+                    final long remaining = getStats().getTimer().getRemaining();
+                    
+                    //deduct 1 minute from timer
+                    getStats().getTimer().setRemaining(remaining - Timers.NANO_SECONDS_PER_MINUTE);
+                }
+            }
+        }
+    }
+    
     /**
      * Create a new puzzle board
      * @param puzzle The puzzle we want to copy for this player
      */
     public void create(final Puzzle puzzle)
     {
+        final Object event = Flight.beginPuzzle();
+        
         board = new Puzzle(puzzle);
+        
+        Flight.commitPuzzle(event, "board", board.getCols(), board.getRows());
+        
+        //the history belongs to the previous board
+        getMoveLog().clear();
     }
     
     @Override
@@ -198,6 +317,9 @@ public abstract class Player extends Sprite implements IElement, Disposable
 
         //reset player board
         getPuzzle().reset();
+        
+        //the history belongs to the previous puzzle
+        getMoveLog().clear();
 
         //remove this puzzle
         engine.getManager().getPuzzles().removeCurrent();
@@ -211,6 +333,9 @@ public abstract class Player extends Sprite implements IElement, Disposable
         
         //start highlighting again
         setHighlight(true);
+        
+        //save the new level so it can be resumed
+        engine.getManager().getSaveGame().snapshot(engine.getManager());
     }
     
     /**
@@ -265,12 +390,26 @@ public abstract class Player extends Sprite implements IElement, Disposable
         
         if (current.hasMatch(getPuzzle()))
         {
-            //mark the current puzzle as solved
-            current.markSolved();
-            
-            //mark ours solved as well
+            //mark ours solved, the current puzzle belongs to the library and is not modified
             getPuzzle().markSolved();
             
+            //remember the puzzle was solved so it isn't played again
+            engine.getManager().getPuzzles().markSolved();
+            
+            //store the progress now in case the game is closed
+            engine.saveProgress();
+            
+            //the times are kept by the hash of the solution, so they follow the puzzle if the pack changes
+            final Puzzles.Difficulty difficulty = engine.getManager().getPuzzles().getDifficulty();
+            final int hash = engine.getLibrary().getHash(difficulty, engine.getManager().getPuzzles().getId());
+            
+            //record how long it took
+            if (engine.getLeaderboard().record(difficulty, hash, getName(), getStats().getTimer().getPassed()))
+            {
+                //store the new best time now in case the game is closed, without waiting for the file to be written
+                engine.saveLeaderboard();
+            }
+            
             //remove all existing marks to display the full picture
             getPuzzle().remove(Puzzles.KEY_MARK);
             
@@ -0,0 +1,419 @@
+package com.gamesbykevin.nonograms.player.stat;
+
+import com.gamesbykevin.nonograms.puzzles.Puzzles.Difficulty;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The fastest solve time of each player for each puzzle.<br>
+ * Each puzzle has a concurrent skip list of the best time of every player, so many sessions can record at once
+ * and the top times are read in order without locking. The rank of a player is found with a histogram of the times,
+ * so only the times close to theirs are counted. Only the updates of the same player are serialized, with striped locks.
+ * A snapshot is written to a temporary file then renamed, and can be taken while times are still being recorded.
+ * @author GOD
+ */
+public final class Leaderboard
+{
+    //the default location of the leaderboard
+    public static final File DEFAULT_FILE = new File(new File(System.getProperty("user.home"), ".nonograms"), "leaderboard.dat");
+    
+    //identifies our file and the layout of it
+    private static final int MAGIC = 0x4e4c4252;
+    private static final int VERSION = 1;
+    
+    //the number of locks the players are spread over
+    private static final int STRIPES = 64;
+    
+    //the histogram of each puzzle has 4 buckets for each doubling of the time, starting at this unit
+    private static final int BUCKETS = 64;
+    private static final long BUCKET_UNIT = 100000000L;
+    
+    /**
+     * The best time of a player for a puzzle
+     */
+    public static final class Entry implements Comparable<Entry>
+    {
+        //the name of the player
+        private final String player;
+        
+        //the time taken to solve the puzzle (nanoseconds)
+        private final long time;
+        
+        //when the puzzle was solved (milliseconds since 1970)
+        private final long date;
+        
+        //the order the entry was recorded in, so equal times are ranked first come first served
+        private final long sequence;
+        
+        private Entry(final String player, final long time, final long date, final long sequence)
+        {
+            this.player = player;
+            this.time = time;
+            this.date = date;
+            this.sequence = sequence;
+        }
+        
+        public String getPlayer()
+        {
+            return this.player;
+        }
+        
+        public long getTime()
+        {
+            return this.time;
+        }
+        
+        public long getDate()
+        {
+            return this.date;
+        }
+        
+        @Override
+        public int compareTo(final Entry entry)
+        {
+            if (time != entry.time)
+                return (time < entry.time) ? -1 : 1;
+            
+            return (sequence < entry.sequence) ? -1 : (sequence == entry.sequence) ? 0 : 1;
+        }
+    }
+    
+    /**
+     * The times of a single puzzle
+     */
+    private static final class Board
+    {
+        //the best time of every player, fastest first
+        private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+        
+        //the best time of each player
+        private final ConcurrentHashMap<String, Entry> best = new ConcurrentHashMap<>();
+        
+        //the number of times in each bucket
+        private final AtomicIntegerArray buckets = new AtomicIntegerArray(BUCKETS);
+    }
+    
+    //the times of each puzzle, by difficulty and hash
+    private final ConcurrentHashMap<Long, Board> boards = new ConcurrentHashMap<>();
+    
+    //the locks the players are spread over
+    private final Object[] stripes;
+    
+    //the order of the next entry
+    private final AtomicLong sequence = new AtomicLong();
+    
+    //where the leaderboard is stored
+    private final File file;
+    
+    //has the file been loaded, so a snapshot won't replace it with less
+    private volatile boolean loaded;
+    
+    /**
+     * Create the leaderboard with no times
+     * @param file Where the leaderboard is stored, null if it is only kept in memory
+     */
+    public Leaderboard(final File file)
+    {
+        this.file = file;
+        this.loaded = (file == null);
+        this.stripes = new Object[STRIPES];
+        
+        for (int i = 0; i < stripes.length; i++)
+        {
+            stripes[i] = new Object();
+        }
+    }
+    
+    /**
+     * Record the time a player solved a puzzle, only the best time of each player is kept
+     * @param difficulty The difficulty of the puzzle
+     * @param hash The hash of the solution of the puzzle, from Library.getHash()
+     * @param player The name of the player
+     * @param time The time taken to solve the puzzle (nanoseconds)
+     * @return true if this is the best time of the player, false otherwise
+     */
+    public boolean record(final Difficulty difficulty, final int hash, final String player, final long time)
+    {
+        return record(difficulty, hash, player, time, System.currentTimeMillis());
+    }
+    
+    private boolean record(final Difficulty difficulty, final int hash, final String player, final long time, final long date)
+    {
+        final Long key = getKey(difficulty, hash);
+        
+        Board board = boards.get(key);
+        
+        if (board == null)
+        {
+            final Board created = new Board();
+            
+            board = boards.putIfAbsent(key, created);
+            
+            if (board == null)
+                board = created;
+        }
+        
+        synchronized (stripes[((key.hashCode() * 31) + player.hashCode()) & (STRIPES - 1)])
+        {
+            final Entry previous = board.best.get(player);
+            
+            if (previous != null && previous.time <= time)
+                return false;
+            
+            final Entry entry = new Entry(player, time, date, sequence.incrementAndGet());
+            
+            board.entries.add(entry);
+            board.buckets.incrementAndGet(getBucket(time));
+            board.best.put(player, entry);
+            
+            if (previous != null)
+            {
+                board.entries.remove(previous);
+                board.buckets.decrementAndGet(getBucket(previous.time));
+            }
+            
+            return true;
+        }
+    }
+    
+    /**
+     * Get the fastest times of a puzzle
+     * @param difficulty The difficulty of the puzzle
+     * @param hash The hash of the solution of the puzzle, from Library.getHash()
+     * @param count The most times to get
+     * @return The fastest times, fastest first
+     */
+    public List<Entry> getTop(final Difficulty difficulty, final int hash, final int count)
+    {
+        final List<Entry> top = new ArrayList<>(Math.min(count, 64));
+        final Board board = boards.get(getKey(difficulty, hash));
+        
+        if (board == null)
+            return top;
+        
+        final Iterator<Entry> iterator = board.entries.iterator();
+        
+        while (top.size() < count && iterator.hasNext())
+        {
+            top.add(iterator.next());
+        }
+        
+        return top;
+    }
+    
+    /**
+     * Get the best time of a player
+     * @param difficulty The difficulty of the puzzle
+     * @param hash The hash of the solution of the puzzle, from Library.getHash()
+     * @param player The name of the player
+     * @return The best time, null if the player hasn't solved the puzzle
+     */
+    public Entry getBest(final Difficulty difficulty, final int hash, final String player)
+    {
+        final Board board = boards.get(getKey(difficulty, hash));
+        
+        return (board == null) ? null : board.best.get(player);
+    }
+    
+    /**
+     * Get the rank of a player, the fastest player is rank 1
+     * @param difficulty The difficulty of the puzzle
+     * @param hash The hash of the solution of the puzzle, from Library.getHash()
+     * @param player The name of the player
+     * @return The rank, 0 if the player hasn't solved the puzzle
+     */
+    public int getRank(final Difficulty difficulty, final int hash, final String player)
+    {
+        final Board board = boards.get(getKey(difficulty, hash));
+        
+        if (board == null)
+            return 0;
+        
+        final Entry entry = board.best.get(player);
+        
+        if (entry == null)
+            return 0;
+        
+        final int bucket = getBucket(entry.time);
+        
+        //every time in a lower bucket is faster
+        int rank = 1;
+        
+        for (int i = 0; i < bucket; i++)
+        {
+            rank += board.buckets.get(i);
+        }
+        
+        //only the times in the same bucket need to be counted
+        final Entry start = new Entry(null, getBucketStart(bucket), 0, Long.MIN_VALUE);
+        
+        return rank + board.entries.subSet(start, true, entry, false).size();
+    }
+    
+    /**
+     * Get the number of players that solved a puzzle
+     * @param difficulty The difficulty of the puzzle
+     * @param hash The hash of the solution of the puzzle, from Library.getHash()
+     * @return The number of times
+     */
+    public int size(final Difficulty difficulty, final int hash)
+    {
+        final Board board = boards.get(getKey(difficulty, hash));
+        
+        return (board == null) ? 0 : board.best.size();
+    }
+    
+    /**
+     * Load the leaderboard from the file, if it exists.<br>
+     * The times are merged with any already recorded, so this can run while play continues.
+     * @throws Exception if the file can't be read or is not a leaderboard file
+     */
+    public void load() throws Exception
+    {
+        try
+        {
+            if (file == null || !file.isFile())
+                return;
+            
+            try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+            {
+                if (stream.readInt() != MAGIC)
+                    throw new Exception("Not a leaderboard file - " + file);
+                
+                final int version = stream.readInt();
+                
+                if (version != VERSION)
+                    throw new Exception("Unknown leaderboard version " + version + " - " + file);
+                
+                final int count = stream.readInt();
+                
+                for (int i = 0; i < count; i++)
+                {
+                    final int ordinal = stream.readInt();
+                    final int hash = stream.readInt();
+                    final int entries = stream.readInt();
+                    
+                    for (int j = 0; j < entries; j++)
+                    {
+                        final String player = stream.readUTF();
+                        final long time = stream.readLong();
+                        final long date = stream.readLong();
+                        
+                        if (ordinal >= 0 && ordinal < Difficulty.values().length)
+                            record(Difficulty.values()[ordinal], hash, player, time, date);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            //even if the file can't be read, the times recorded from now on can be saved
+            loaded = true;
+        }
+    }
+    
+    /**
+     * Write a snapshot of the leaderboard to the file.<br>
+     * Times recorded while the snapshot is taken may or may not be included, nothing waits for it to finish.
+     * Nothing is written until the file has been loaded.
+     * @throws Exception if the file can't be written
+     */
+    public synchronized void save() throws Exception
+    {
+        if (file == null || !loaded)
+            return;
+        
+        if (file.getParentFile() != null && !file.getParentFile().isDirectory() && !file.getParentFile().mkdirs())
+            throw new Exception("Unable to create directory - " + file.getParentFile());
+        
+        final File temp = new File(file.getPath() + ".tmp");
+        
+        //copy the boards first, since the number of boards is written before them
+        final List<Map.Entry<Long, Board>> snapshot = new ArrayList<>(boards.entrySet());
+        
+        try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+        {
+            stream.writeInt(MAGIC);
+            stream.writeInt(VERSION);
+            stream.writeInt(snapshot.size());
+            
+            for (Map.Entry<Long, Board> board : snapshot)
+            {
+                final List<Entry> entries = new ArrayList<>(board.getValue().entries);
+                
+                stream.writeInt((int)(board.getKey() >>> 32));
+                stream.writeInt((int)(long)board.getKey());
+                stream.writeInt(entries.size());
+                
+                for (Entry entry : entries)
+                {
+                    stream.writeUTF(entry.player);
+                    stream.writeLong(entry.time);
+                    stream.writeLong(entry.date);
+                }
+            }
+        }
+        
+        //replace the previous leaderboard in one step
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Get the key of a puzzle
+     * @param difficulty The difficulty of the puzzle
+     * @param hash The hash of the solution of the puzzle, from Library.getHash()
+     * @return The difficulty in the high 32 bits and the hash in the low 32 bits
+     */
+    private static Long getKey(final Difficulty difficulty, final int hash)
+    {
+        return ((long)difficulty.ordinal() << 32) | (hash & 0xFFFFFFFFL);
+    }
+    
+    /**
+     * Get the bucket of the histogram for the time, there are 4 buckets for each doubling of the time
+     * @param time The time (nanoseconds)
+     * @return The bucket
+     */
+    private static int getBucket(final long time)
+    {
+        final long units = Math.max(time, 0) / BUCKET_UNIT;
+        
+        if (units < 4)
+            return (int)units;
+        
+        final int octave = 63 - Long.numberOfLeadingZeros(units);
+        
+        return Math.min((octave * 4) + (int)((units >>> (octave - 2)) & 3) - 4, BUCKETS - 1);
+    }
+    
+    /**
+     * Get the fastest time in a bucket of the histogram
+     * @param bucket The bucket
+     * @return The time (nanoseconds)
+     */
+    private static long getBucketStart(final int bucket)
+    {
+        if (bucket < 4)
+            return bucket * BUCKET_UNIT;
+        
+        final int octave = (bucket + 4) / 4;
+        
+        return ((4L + ((bucket + 4) % 4)) << (octave - 2)) * BUCKET_UNIT;
+    }
+}
\ No newline at end of file
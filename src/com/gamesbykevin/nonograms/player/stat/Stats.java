@@ -6,10 +6,14 @@ import com.gamesbykevin.framework.util.Timers;
 
 import com.gamesbykevin.nonograms.engine.Engine;
 import com.gamesbykevin.nonograms.shared.IElement;
+import java.awt.AlphaComposite;
 import java.awt.Color;
 
+import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.image.BufferedImage;
 
 /**
  * This class will contain the player's stats
@@ -46,9 +50,6 @@ public final class Stats extends CustomImage implements IElement
     //the timer
     private Timer timer;
     
-    //keep track of previous update
-    private long previous = System.nanoTime() - Timers.NANO_SECONDS_PER_SECOND;
-    
     //did we yet assign a font
     private boolean assignedFont = false;
     
@@ -58,6 +59,38 @@ public final class Stats extends CustomImage implements IElement
     //is this timed mode
     private boolean timed = false;
     
+    //the second displayed by the timer, so we know when the display changes
+    private long second = -1;
+    
+    //the labels for the timer and level
+    private static final String TIMER_DESC = "Time : ";
+    private static final String LEVEL_DESC = "Level: ";
+    
+    //the characters the timer can display, the last one is the separator
+    private static final char[] GLYPHS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', ':'};
+    
+    //image containing each glyph, so the timer can be drawn without creating any text
+    private BufferedImage glyphs;
+    
+    //the dimensions of each glyph in the image
+    private int glyphWidth = 0, glyphHeight = 0, glyphAscent = 0;
+    
+    //the x-coordinate where the timer characters start
+    private int timeX;
+    
+    //the characters of the current time and the characters currently displayed (HH:MM:SS)
+    private final char[] time = new char[8];
+    private final char[] displayed = new char[8];
+    
+    //image containing the parts that rarely change (background, labels, level, misc description)
+    private BufferedImage staticImage;
+    
+    //graphics object for the static image
+    private Graphics2D staticGraphics;
+    
+    //have the static parts changed
+    private boolean changed = true;
+    
     public Stats(final Image image)
     {
         //set dimensions
@@ -77,6 +110,24 @@ public final class Stats extends CustomImage implements IElement
         if (timer != null)
             timer = null;
         
+        if (staticGraphics != null)
+        {
+            staticGraphics.dispose();
+            staticGraphics = null;
+        }
+        
+        if (staticImage != null)
+        {
+            staticImage.flush();
+            staticImage = null;
+        }
+        
+        if (glyphs != null)
+        {
+            glyphs.flush();
+            glyphs = null;
+        }
+        
         super.dispose();
     }
     
@@ -87,6 +138,7 @@ public final class Stats extends CustomImage implements IElement
     public void setTimed(final boolean timed)
     {
         this.timed = timed;
+        this.changed = true;
     }
     
     /**
@@ -105,6 +157,26 @@ public final class Stats extends CustomImage implements IElement
     public void setMiscDesc(final String miscDesc)
     {
         this.miscDesc = miscDesc;
+        this.changed = true;
+    }
+    
+    /**
+     * Get the current level
+     * @return The number of the level being played
+     */
+    public int getLevel()
+    {
+        return this.level;
+    }
+    
+    /**
+     * Set the current level
+     * @param level The number of the level being played
+     */
+    public void setLevel(final int level)
+    {
+        this.level = level;
+        this.changed = true;
     }
     
     /**
@@ -113,6 +185,7 @@ public final class Stats extends CustomImage implements IElement
     public void nextLevel()
     {
         this.level++;
+        this.changed = true;
     }
     
     /**
@@ -146,7 +219,17 @@ public final class Stats extends CustomImage implements IElement
     public void update(final Engine engine) throws Exception
     {
         //update timer
-        getTimer().update(engine.getMain().getTime());
+        getTimer().update(engine.getElapsed());
+        
+        //the current second displayed by the timer
+        final long current = (hasTimed() ? getTimer().getRemaining() : getTimer().getPassed()) / Timers.NANO_SECONDS_PER_SECOND;
+        
+        //if the displayed time changed the screen needs to be rendered
+        if (current != second)
+        {
+            second = current;
+            engine.getMain().setDirty();
+        }
     }
     
     @Override
@@ -163,19 +246,27 @@ public final class Stats extends CustomImage implements IElement
             
             //set font color as well
             super.getGraphics2D().setColor(Color.BLACK);
+            
+            //now that we have a font we can create the glyphs
+            createGlyphs();
         }
         
-        //the current time in nano-seconds
-        final long current = System.nanoTime();
-        
-        //determine if another image needs to be rendered
-        if (current - previous >= Timers.NANO_SECONDS_PER_SECOND)
+        if (changed)
         {
-            //render a new image
+            //the static parts have changed so everything needs to be rendered
             render();
+        }
+        else
+        {
+            //update the timer text
+            setTime();
             
-            //store the new time
-            previous = current;
+            //only draw the characters that have changed
+            for (int index = 0; index < time.length; index++)
+            {
+                if (time[index] != displayed[index])
+                    renderGlyph(index);
+            }
         }
         
         //draw buffered image
@@ -185,28 +276,147 @@ public final class Stats extends CustomImage implements IElement
     @Override
     public void render()
     {
+        //we can't render until the font has been assigned
+        if (!assignedFont)
+            return;
+        
+        //render the static parts to their own image if they have changed
+        if (changed)
+            renderStatic();
+        
         //clear image
         super.clear();
         
-        //draw background
-        super.getGraphics2D().drawImage(getImage(), 0, 0, null);
+        //draw static parts
+        super.getGraphics2D().drawImage(staticImage, 0, 0, null);
+        
+        //update the timer text
+        setTime();
         
-        if (hasTimed())
+        //draw every character of the timer
+        for (int index = 0; index < time.length; index++)
         {
-            //draw time remaining
-            super.getGraphics2D().drawString("Time : " + getTimer().getDescRemaining(Timers.FORMAT_8), TIMER_X, TIMER_Y);
+            renderGlyph(index);
         }
-        else
+    }
+    
+    /**
+     * Create the image containing each character the timer can display
+     */
+    private void createGlyphs()
+    {
+        final FontMetrics metrics = super.getGraphics2D().getFontMetrics();
+        
+        //each glyph will have the same width so the timer does not shift as the digits change
+        for (int i = 0; i < GLYPHS.length; i++)
+        {
+            glyphWidth = Math.max(glyphWidth, metrics.charWidth(GLYPHS[i]));
+        }
+        
+        glyphHeight = metrics.getHeight();
+        glyphAscent = metrics.getAscent();
+        
+        //the timer characters will start after the label
+        timeX = TIMER_X + metrics.stringWidth(TIMER_DESC);
+        
+        //create image for all glyphs
+        glyphs = new BufferedImage(glyphWidth * GLYPHS.length, glyphHeight, BufferedImage.TYPE_INT_ARGB);
+        
+        final Graphics2D graphics2D = glyphs.createGraphics();
+        graphics2D.setFont(metrics.getFont());
+        graphics2D.setColor(Color.BLACK);
+        
+        //draw each glyph centered in its cell
+        for (int i = 0; i < GLYPHS.length; i++)
         {
-            //draw time passed
-            super.getGraphics2D().drawString("Time : " + getTimer().getDescPassed(Timers.FORMAT_8), TIMER_X, TIMER_Y);
+            graphics2D.drawChars(GLYPHS, i, 1, (i * glyphWidth) + ((glyphWidth - metrics.charWidth(GLYPHS[i])) / 2), glyphAscent);
         }
         
+        graphics2D.dispose();
+        
+        //create the image for the static parts
+        staticImage = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        staticGraphics = staticImage.createGraphics();
+        staticGraphics.setFont(metrics.getFont());
+        staticGraphics.setColor(Color.BLACK);
+    }
+    
+    /**
+     * Render the parts of the stats that rarely change (background, labels, level, misc description)
+     */
+    private void renderStatic()
+    {
+        //clear image
+        staticGraphics.setComposite(AlphaComposite.Clear);
+        staticGraphics.fillRect(0, 0, WIDTH, HEIGHT);
+        staticGraphics.setComposite(AlphaComposite.SrcOver);
+        
+        //draw background
+        staticGraphics.drawImage(getImage(), 0, 0, null);
+        
+        //draw timer label
+        staticGraphics.drawString(TIMER_DESC, TIMER_X, TIMER_Y);
+        
         //draw level desc
-        super.getGraphics2D().drawString("Level: " + level, LEVEL_DESC_X, LEVEL_DESC_Y);
+        staticGraphics.drawString(LEVEL_DESC + level, LEVEL_DESC_X, LEVEL_DESC_Y);
         
         //if a misc desc exists
         if (this.miscDesc != null)
-            getGraphics2D().drawString(this.miscDesc, MISC_X, MISC_Y);
+            staticGraphics.drawString(this.miscDesc, MISC_X, MISC_Y);
+        
+        //the static parts are now current
+        changed = false;
+    }
+    
+    /**
+     * Draw a single character of the timer, restoring the static background beneath it first
+     * @param index The position of the character in the timer text
+     */
+    private void renderGlyph(final int index)
+    {
+        //destination coordinates
+        final int x = timeX + (index * glyphWidth);
+        final int y = TIMER_Y - glyphAscent;
+        
+        //source coordinate of the glyph
+        final int glyphX = ((time[index] == ':') ? GLYPHS.length - 1 : time[index] - '0') * glyphWidth;
+        
+        //restore the background where the previous character was
+        super.getGraphics2D().setComposite(AlphaComposite.Src);
+        super.getGraphics2D().drawImage(staticImage, x, y, x + glyphWidth, y + glyphHeight, x, y, x + glyphWidth, y + glyphHeight, null);
+        super.getGraphics2D().setComposite(AlphaComposite.SrcOver);
+        
+        //draw the glyph
+        super.getGraphics2D().drawImage(glyphs, x, y, x + glyphWidth, y + glyphHeight, glyphX, 0, glyphX + glyphWidth, glyphHeight, null);
+        
+        //this character is now displayed
+        displayed[index] = time[index];
+    }
+    
+    /**
+     * Write the current time of the timer to our character buffer (HH:MM:SS)
+     */
+    private void setTime()
+    {
+        //time remaining for timed mode, otherwise the time passed
+        long seconds = (hasTimed() ? getTimer().getRemaining() : getTimer().getPassed()) / Timers.NANO_SECONDS_PER_SECOND;
+        
+        //the time can't be negative
+        if (seconds < 0)
+            seconds = 0;
+        
+        //we can only display 2 digits for the hours
+        final long hours = Math.min(seconds / 3600, 99);
+        final long minutes = (seconds / 60) % 60;
+        seconds = seconds % 60;
+        
+        time[0] = (char)('0' + (hours / 10));
+        time[1] = (char)('0' + (hours % 10));
+        time[2] = ':';
+        time[3] = (char)('0' + (minutes / 10));
+        time[4] = (char)('0' + (minutes % 10));
+        time[5] = ':';
+        time[6] = (char)('0' + (seconds / 10));
+        time[7] = (char)('0' + (seconds % 10));
     }
 }
\ No newline at end of file
@@ -0,0 +1,550 @@
+package com.gamesbykevin.nonograms.puzzles;
+
+import com.gamesbykevin.framework.resources.Disposable;
+import com.gamesbykevin.framework.resources.Text;
+
+import com.gamesbykevin.nonograms.metrics.Flight;
+import com.gamesbykevin.nonograms.metrics.Metrics;
+import com.gamesbykevin.nonograms.puzzles.Puzzles.Difficulty;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The library of every puzzle parsed from our text file.<br>
+ * The library is parsed once and shared by every game, so the puzzles in it must never be modified.
+ * Each puzzle is identified by its index within the list of its difficulty while the game runs,
+ * and by a hash of its solution in anything saved, so saved times and progress follow the puzzle if the pack changes.
+ * @author GOD
+ */
+public final class Library implements Disposable
+{
+    //the characters that mean the current puzzle is finished in our text file
+    private static final String PUZZLE_FINISH = "==========";
+    
+    //the fill text in the text file
+    private static final String PUZZLE_FILL = "#";
+    
+    //the location of our text file, the same as the id Puzzles in gameText.xml
+    public static final String LOCATION = "resources/text/puzzles.txt";
+    
+    //our list of puzzles for each difficulty
+    private EnumMap<Difficulty, List<Puzzle>> puzzles;
+    
+    //the filled locations of each puzzle as a bitmap, row by row
+    private EnumMap<Difficulty, long[][]> solutions;
+    
+    //the hash of the solution of each puzzle
+    private EnumMap<Difficulty, int[]> hashes;
+    
+    //the id of each puzzle by the hash of its solution
+    private EnumMap<Difficulty, Map<Integer, Integer>> ids;
+    
+    /**
+     * Parse the library
+     * @param text Object containing text file with puzzle solutions
+     */
+    public Library(final Text text)
+    {
+        this(text.getLines());
+    }
+    
+    /**
+     * Parse the library
+     * @param lines The lines of the text file with puzzle solutions
+     */
+    public Library(final List<String> lines)
+    {
+        final long start = Metrics.start();
+        
+        Object event = Flight.beginLibrary();
+        
+        this.puzzles = new EnumMap<>(Difficulty.class);
+        
+        //create array list containing the puzzles for each difficulty
+        for (int i = 0; i < Difficulty.values().length; i++)
+        {
+            puzzles.put(Difficulty.values()[i], new ArrayList<Puzzle>());
+        }
+        
+        //load from text file
+        load(lines);
+        
+        //now that every puzzle is added, nothing else can be
+        for (int i = 0; i < Difficulty.values().length; i++)
+        {
+            puzzles.put(Difficulty.values()[i], Collections.unmodifiableList(puzzles.get(Difficulty.values()[i])));
+        }
+        
+        Flight.commitLibrary(event, "parse", getTotal());
+        
+        event = Flight.beginLibrary();
+        
+        this.solutions = new EnumMap<>(Difficulty.class);
+        this.hashes = new EnumMap<>(Difficulty.class);
+        this.ids = new EnumMap<>(Difficulty.class);
+        
+        //store each solution as a bitmap so a board can be compared a word at a time
+        for (Difficulty difficulty : Difficulty.values())
+        {
+            final long[][] bitmaps = new long[size(difficulty)][];
+            
+            for (int id = 0; id < bitmaps.length; id++)
+            {
+                final Puzzle puzzle = getPuzzle(difficulty, id);
+                
+                bitmaps[id] = new long[((puzzle.getCols() * puzzle.getRows()) + 63) / 64];
+                
+                for (int row = 0; row < puzzle.getRows(); row++)
+                {
+                    for (int col = 0; col < puzzle.getCols(); col++)
+                    {
+                        final int cell = (row * puzzle.getCols()) + col;
+                        
+                        if (puzzle.getKeyValue(col, row) == Puzzles.KEY_FILL)
+                            bitmaps[id][cell >>> 6] |= (1L << (cell & 63));
+                    }
+                }
+            }
+            
+            solutions.put(difficulty, bitmaps);
+            
+            final int[] hash = new int[bitmaps.length];
+            final Map<Integer, Integer> id = new HashMap<>(bitmaps.length * 2);
+            
+            for (int i = 0; i < bitmaps.length; i++)
+            {
+                hash[i] = hash(getPuzzle(difficulty, i), bitmaps[i]);
+                
+                //in the unlikely case two solutions have the same hash the first puzzle keeps it
+                if (!id.containsKey(hash[i]))
+                    id.put(hash[i], i);
+            }
+            
+            hashes.put(difficulty, hash);
+            ids.put(difficulty, id);
+        }
+        
+        Flight.commitLibrary(event, "solutions", getTotal());
+        
+        Metrics.LIBRARY_LOAD.stop(start);
+    }
+    
+    /**
+     * Read and parse the library without the game resources, so it can be used without a display
+     * @param source The class the location of the text file is relative to
+     * @return The library
+     * @throws Exception if the text file can't be found or read
+     */
+    public static Library read(final Class<?> source) throws Exception
+    {
+        return new Library(readLines(source));
+    }
+    
+    /**
+     * Read and parse the library without the game resources, for a caller that isn't in the root directory
+     * @return The library
+     * @throws Exception if the text file can't be found or read
+     */
+    public static Library read() throws Exception
+    {
+        //the location is relative to the root of the class path
+        return new Library(readLines(Library.class.getResourceAsStream("/" + LOCATION)));
+    }
+    
+    /**
+     * Read the lines of the text file with puzzle solutions without the game resources
+     * @param source The class the location of the text file is relative to
+     * @return The lines
+     * @throws Exception if the text file can't be found or read
+     */
+    public static List<String> readLines(final Class<?> source) throws Exception
+    {
+        return readLines(source.getResourceAsStream(LOCATION));
+    }
+    
+    /**
+     * Read the lines of the text file with puzzle solutions
+     * @param stream The text file, null if it wasn't found
+     * @return The lines
+     * @throws Exception if the text file wasn't found or can't be read
+     */
+    private static List<String> readLines(final InputStream stream) throws Exception
+    {
+        if (stream == null)
+            throw new Exception("Puzzles not found - " + LOCATION);
+        
+        final List<String> lines = new ArrayList<>();
+        
+        final Object event = Flight.beginLibrary();
+        
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)))
+        {
+            String line;
+            
+            while ((line = reader.readLine()) != null)
+            {
+                lines.add(line);
+            }
+        }
+        
+        //no puzzles are created yet, only the lines are read
+        Flight.commitLibrary(event, "read", 0);
+        
+        return lines;
+    }
+    
+    /**
+     * Get the puzzles
+     * @param difficulty The specified difficulty
+     * @return An unmodifiable list of puzzles for the specified difficulty
+     */
+    public List<Puzzle> getPuzzles(final Difficulty difficulty)
+    {
+        return puzzles.get(difficulty);
+    }
+    
+    /**
+     * Get the puzzle
+     * @param difficulty The specified difficulty
+     * @param id The index of the puzzle within the difficulty
+     * @return The puzzle solution
+     */
+    public Puzzle getPuzzle(final Difficulty difficulty, final int id)
+    {
+        return getPuzzles(difficulty).get(id);
+    }
+    
+    /**
+     * Get the solution of the puzzle as a bitmap.<br>
+     * Each location is a bit, row by row, and the bit is set if the location is filled.
+     * @param difficulty The specified difficulty
+     * @param id The index of the puzzle within the difficulty
+     * @return The bitmap of the filled locations, which must not be modified
+     */
+    public long[] getSolution(final Difficulty difficulty, final int id)
+    {
+        return solutions.get(difficulty)[id];
+    }
+    
+    /**
+     * Get the hash of the solution of the puzzle, which stays the same if puzzles are added, removed or moved in the pack
+     * @param difficulty The specified difficulty
+     * @param id The index of the puzzle within the difficulty
+     * @return The CRC32 of the dimensions and the filled locations
+     */
+    public int getHash(final Difficulty difficulty, final int id)
+    {
+        return hashes.get(difficulty)[id];
+    }
+    
+    /**
+     * Find the puzzle with the hash
+     * @param difficulty The specified difficulty
+     * @param hash The hash of the solution of the puzzle
+     * @return The index of the puzzle within the difficulty, -1 if no puzzle has the hash
+     */
+    public int getId(final Difficulty difficulty, final int hash)
+    {
+        final Integer id = ids.get(difficulty).get(hash);
+        
+        return (id == null) ? -1 : id;
+    }
+    
+    /**
+     * Calculate the hash of a solution
+     * @param puzzle The puzzle
+     * @param bitmap The filled locations of the puzzle
+     * @return The CRC32 of the dimensions and the filled locations
+     */
+    private static int hash(final Puzzle puzzle, final long[] bitmap)
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(8 + (bitmap.length * 8));
+        
+        buffer.putInt(puzzle.getCols());
+        buffer.putInt(puzzle.getRows());
+        
+        for (long word : bitmap)
+        {
+            buffer.putLong(word);
+        }
+        
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array());
+        
+        return (int)crc.getValue();
+    }
+    
+    /**
+     * Get the number of puzzles
+     * @param difficulty The specified difficulty
+     * @return The number of puzzles for the specified difficulty
+     */
+    public int size(final Difficulty difficulty)
+    {
+        return getPuzzles(difficulty).size();
+    }
+    
+    /**
+     * Get the number of puzzles of every difficulty
+     * @return The total number of puzzles
+     */
+    private int getTotal()
+    {
+        int total = 0;
+        
+        for (Difficulty difficulty : Difficulty.values())
+        {
+            total += size(difficulty);
+        }
+        
+        return total;
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (puzzles != null)
+        {
+            for (List<Puzzle> list : puzzles.values())
+            {
+                for (Puzzle puzzle : list)
+                {
+                    puzzle.dispose();
+                }
+            }
+            
+            puzzles.clear();
+            puzzles = null;
+        }
+        
+        if (solutions != null)
+        {
+            solutions.clear();
+            solutions = null;
+        }
+        
+        if (hashes != null)
+        {
+            hashes.clear();
+            hashes = null;
+        }
+        
+        if (ids != null)
+        {
+            ids.clear();
+            ids = null;
+        }
+    }
+    
+    /**
+     * Load the puzzles
+     * @param lines The lines of the text file with puzzle solutions
+     */
+    private void load(final List<String> lines)
+    {
+        //the starting line
+        int start = 0;
+        
+        for (int i = 0; i < lines.size(); i++)
+        {
+            //get the current line
+            final String line = lines.get(i);
+            
+            //if this line means we are done with the current puzzle
+            if (line.equals(PUZZLE_FINISH))
+            {
+                //create a puzzle within this location
+                create(start, i, lines);
+                
+                //now the next start will be after this current line
+                start = i + 1;
+            }
+        }
+    }
+    
+    /**
+     * Create a puzzle.
+     * @param start The starting line
+     * @param end The last line
+     * @param lines The lines of the text file with puzzle solutions
+     */
+    private void create(final int start, final int end, final List<String> lines)
+    {
+        final Object event = Flight.beginPuzzle();
+        
+        //the puzzle we are to add
+        final Puzzle puzzle;
+        
+        //the number of rows in this puzzle
+        int rows = end - (start + 1);
+        
+        //the number of columns
+        int cols = 0;
+        
+        //look at the lines
+        for (int i = start + 1; i < end; i++)
+        {
+            //get the current line
+            final String line = lines.get(i);
+            
+            //if the line is longer than our cols
+            if (line.length() > cols)
+                cols = line.length();
+        }
+        
+        //make sure we meet the minimum requirements
+        if (cols < Puzzles.DIMENSIONS_VERY_EASY)
+            cols = Puzzles.DIMENSIONS_VERY_EASY;
+        if (rows < Puzzles.DIMENSIONS_VERY_EASY)
+            rows = Puzzles.DIMENSIONS_VERY_EASY;
+        
+        //first check if there is a mismatch
+        if (cols != rows)
+        {
+            //check for any puzzles close to the same dimensions
+            for (int extra = 1; extra <= 2; extra++)
+            {
+                //if dimensions are close enough, make them  match
+                if (cols - extra == rows || cols + extra == rows)
+                {
+                    if (cols == Puzzles.DIMENSIONS_HARD || rows == Puzzles.DIMENSIONS_HARD)
+                    {
+                        cols = Puzzles.DIMENSIONS_HARD;
+                        rows = Puzzles.DIMENSIONS_HARD;
+                    }
+                    else if (cols == Puzzles.DIMENSIONS_MEDIUM || rows == Puzzles.DIMENSIONS_MEDIUM)
+                    {
+                        cols = Puzzles.DIMENSIONS_MEDIUM;
+                        rows = Puzzles.DIMENSIONS_MEDIUM;
+                    }
+                    else if (cols == Puzzles.DIMENSIONS_EASY || rows == Puzzles.DIMENSIONS_EASY)
+                    {
+                        cols = Puzzles.DIMENSIONS_EASY;
+                        rows = Puzzles.DIMENSIONS_EASY;
+                    }
+                    else if (cols == Puzzles.DIMENSIONS_VERY_EASY || rows == Puzzles.DIMENSIONS_VERY_EASY)
+                    {
+                        cols = Puzzles.DIMENSIONS_VERY_EASY;
+                        rows = Puzzles.DIMENSIONS_VERY_EASY;
+                    }
+                }
+                
+                //exit loop
+                break;
+            }
+        }
+        
+        //create a new puzzle of specified size
+        puzzle = new Puzzle(cols, rows, lines.get(start));
+        
+        //now assign the appropriate values
+        for (int i = start + 1; i < end; i++)
+        {
+            //get the current line
+            final String line = lines.get(i);
+            
+            //the current row
+            final int row = i - (start + 1);
+            
+            //now check every column in that line
+            for (int col = 0; col < cols; col++)
+            {
+                //make sure in bounds
+                if (col >= puzzle.getCols() || row >= puzzle.getRows())
+                    continue;
+                
+                //default empty value
+                puzzle.setKeyValue(col, row, Puzzles.KEY_EMPTY);
+                
+                //if the column is greater than the current line length
+                if (col < line.length())
+                {
+                    //if the current location contains a fill character '#'
+                    if (line.substring(col, col + 1).equals(PUZZLE_FILL))
+                        puzzle.setKeyValue(col, row, Puzzles.KEY_FILL);
+                }
+            }
+        }
+        
+        //calculate the hints
+        puzzle.calculateHint();
+        
+        Flight.commitPuzzle(event, "pack", puzzle.getCols(), puzzle.getRows());
+        
+        //finally add to proper list
+        add(puzzle);
+    }
+    
+    /**
+     * Add puzzle to our list.<BR>
+     * If the puzzle dimensions do not match (columns, rows) it will not be added.
+     * Here we add the puzzle to a specific list depending on the puzzle size (columns) for each difficulty
+     * @param puzzle The puzzle we want to add
+     */
+    private void add(final Puzzle puzzle)
+    {
+        //if dimensions do not match, do not add
+        if (puzzle.getCols() != puzzle.getRows())
+            return;
+        
+        //the list for a specified difficulty
+        List<Puzzle> list = null;
+        
+        if (puzzle.getCols() == Puzzles.DIMENSIONS_VERY_EASY)
+        {
+            list = puzzles.get(Difficulty.VeryEasy);
+        }
+        else if (puzzle.getCols() <= Puzzles.DIMENSIONS_EASY)
+        {
+            list = puzzles.get(Difficulty.Easy);
+        }
+        else if (puzzle.getCols() <= Puzzles.DIMENSIONS_MEDIUM)
+        {
+            list = puzzles.get(Difficulty.Medium);
+        }
+        else if (puzzle.getCols() <= Puzzles.DIMENSIONS_HARD)
+        {
+            list = puzzles.get(Difficulty.Hard);
+        }
+        
+        //make sure the list exists
+        if (list != null)
+        {
+            //does any other puzzle match the current one we are adding
+            boolean match = false;
+            
+            //make sure the puzzle hasn't already been added first
+            for (int i = 0; i < list.size(); i++)
+            {
+                //get the current puzzle
+                final Puzzle tmp = list.get(i);
+                
+                //only check if the dimensions match
+                if (tmp.getCols() != puzzle.getCols() || tmp.getRows() != puzzle.getRows())
+                    continue;
+                
+                //if the puzzle matches
+                if (tmp.hasMatch(puzzle))
+                {
+                    match = true;
+                    break;
+                }
+            }
+            
+            //if no match was found add to the list
+            if (!match)
+                list.add(puzzle);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,216 @@
+package com.gamesbykevin.nonograms.puzzles;
+
+import com.gamesbykevin.nonograms.puzzles.Puzzles.Difficulty;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+
+/**
+ * The puzzles the player has solved, stored on disk so they aren't played again.<br>
+ * For each difficulty a bitmap is kept where each bit is the id of a puzzle in the Library.
+ * The file stores the hash of the solution of each puzzle solved rather than its id,
+ * so the progress follows the puzzle if puzzles are added, removed or moved in the pack.
+ * The file is written to a temporary file first then renamed, so it is never left partially written.
+ * The progress can be saved on another thread while puzzles are solved, so writing and solving are synchronized.
+ * @author GOD
+ */
+public final class Progress
+{
+    //the default location of the progress file
+    public static final File DEFAULT_FILE = new File(new File(System.getProperty("user.home"), ".nonograms"), "progress.dat");
+    
+    //identifies our file and the layout of it
+    private static final int MAGIC = 0x4e4f4e4f;
+    private static final int VERSION = 1;
+    
+    //the solved bitmap for each difficulty
+    private final EnumMap<Difficulty, long[]> solved;
+    
+    //the number of puzzles for each difficulty
+    private final EnumMap<Difficulty, Integer> sizes;
+    
+    //where the progress is stored
+    private final File file;
+    
+    //the library of puzzles, to find the puzzle of each hash
+    private final Library library;
+    
+    /**
+     * Create the progress with nothing solved
+     * @param library The library of puzzles
+     * @param file Where the progress is stored, null if it is only kept in memory
+     */
+    public Progress(final Library library, final File file)
+    {
+        this.file = file;
+        this.library = library;
+        this.solved = new EnumMap<>(Difficulty.class);
+        this.sizes = new EnumMap<>(Difficulty.class);
+        
+        for (Difficulty difficulty : Difficulty.values())
+        {
+            sizes.put(difficulty, library.size(difficulty));
+            solved.put(difficulty, new long[(library.size(difficulty) + 63) / 64]);
+        }
+    }
+    
+    /**
+     * Load the progress from the file, if it exists.<br>
+     * Only the puzzles that are still in the library are kept.
+     * @throws Exception if the file can't be read or is not a progress file
+     */
+    public void load() throws Exception
+    {
+        if (file == null || !file.isFile())
+            return;
+        
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            read(stream);
+        }
+    }
+    
+    /**
+     * Read the progress written with write()
+     * @param stream Where the progress is read from
+     * @throws Exception if the progress can't be read
+     */
+    public void read(final DataInput stream) throws Exception
+    {
+        if (stream.readInt() != MAGIC)
+            throw new Exception("Not a progress file - " + file);
+        
+        final int version = stream.readInt();
+        
+        if (version != VERSION)
+            throw new Exception("Unknown progress version " + version + " - " + file);
+        
+        final int difficulties = stream.readInt();
+        
+        for (int i = 0; i < difficulties; i++)
+        {
+            final Difficulty difficulty = Difficulty.values()[stream.readInt()];
+            
+            final int count = stream.readInt();
+            
+            for (int j = 0; j < count; j++)
+            {
+                final int id = library.getId(difficulty, stream.readInt());
+                
+                //the puzzle may have been removed from the pack
+                if (id >= 0)
+                    setSolved(difficulty, id);
+            }
+        }
+    }
+    
+    /**
+     * Write the progress to the file
+     * @throws Exception if the file can't be written
+     */
+    public void save() throws Exception
+    {
+        if (file == null)
+            return;
+        
+        if (file.getParentFile() != null && !file.getParentFile().isDirectory() && !file.getParentFile().mkdirs())
+            throw new Exception("Unable to create directory - " + file.getParentFile());
+        
+        final File temp = new File(file.getPath() + ".tmp");
+        
+        try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+        {
+            write(stream);
+        }
+        
+        //replace the previous progress in one step
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Write the progress, in the same layout as the file.<br>
+     * For each difficulty the number of puzzles solved is written, then the hash of each.
+     * @param stream Where the progress is written
+     * @throws Exception if the progress can't be written
+     */
+    public synchronized void write(final DataOutput stream) throws Exception
+    {
+        stream.writeInt(MAGIC);
+        stream.writeInt(VERSION);
+        stream.writeInt(Difficulty.values().length);
+        
+        for (Difficulty difficulty : Difficulty.values())
+        {
+            stream.writeInt(difficulty.ordinal());
+            stream.writeInt(getSolvedCount(difficulty));
+            
+            for (int id = 0; id < sizes.get(difficulty); id++)
+            {
+                if (isSolved(difficulty, id))
+                    stream.writeInt(library.getHash(difficulty, id));
+            }
+        }
+    }
+    
+    /**
+     * Has the puzzle been solved?
+     * @param difficulty The difficulty of the puzzle
+     * @param id The id of the puzzle in the library
+     * @return true=yes, false=no
+     */
+    public boolean isSolved(final Difficulty difficulty, final int id)
+    {
+        return ((solved.get(difficulty)[id >>> 6] >>> (id & 63)) & 1L) != 0;
+    }
+    
+    /**
+     * Mark the puzzle as solved
+     * @param difficulty The difficulty of the puzzle
+     * @param id The id of the puzzle in the library
+     */
+    public synchronized void setSolved(final Difficulty difficulty, final int id)
+    {
+        solved.get(difficulty)[id >>> 6] |= (1L << (id & 63));
+    }
+    
+    /**
+     * Get the number of puzzles solved
+     * @param difficulty The specified difficulty
+     * @return The number of puzzles solved for the difficulty
+     */
+    public int getSolvedCount(final Difficulty difficulty)
+    {
+        int count = 0;
+        
+        for (long word : solved.get(difficulty))
+        {
+            count += Long.bitCount(word);
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Mark every puzzle of the difficulty as not solved
+     * @param difficulty The specified difficulty
+     */
+    public void clear(final Difficulty difficulty)
+    {
+        final long[] words = solved.get(difficulty);
+        
+        for (int i = 0; i < words.length; i++)
+        {
+            words[i] = 0;
+        }
+    }
+}
\ No newline at end of file
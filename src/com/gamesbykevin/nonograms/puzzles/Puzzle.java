@@ -9,6 +9,7 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Image;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
@@ -85,29 +86,6 @@ public final class Puzzle extends Sprite implements Disposable
         super.getSpriteSheet().add(3 * 64, 0 * 64, 64, 64, 0, AnimationKey.HighlightEmpty);
         super.getSpriteSheet().add(5 * 64, 0 * 64, 64, 64, 0, AnimationKey.HighlightFill);
         super.getSpriteSheet().add(5 * 64, 1 * 64, 64, 64, 0, AnimationKey.HighlightMark);
-        
-        //add the numbers as well
-        super.getSpriteSheet().add(4 * 64, 2 * 64, 64, 64, 0, AnimationKey.Desc0);
-        super.getSpriteSheet().add(0 * 64, 1 * 64, 64, 64, 0, AnimationKey.Desc1);
-        super.getSpriteSheet().add(1 * 64, 1 * 64, 64, 64, 0, AnimationKey.Desc2);
-        super.getSpriteSheet().add(2 * 64, 1 * 64, 64, 64, 0, AnimationKey.Desc3);
-        super.getSpriteSheet().add(3 * 64, 1 * 64, 64, 64, 0, AnimationKey.Desc4);
-        super.getSpriteSheet().add(4 * 64, 1 * 64, 64, 64, 0, AnimationKey.Desc5);
-        super.getSpriteSheet().add(0 * 64, 2 * 64, 64, 64, 0, AnimationKey.Desc6);
-        super.getSpriteSheet().add(1 * 64, 2 * 64, 64, 64, 0, AnimationKey.Desc7);
-        super.getSpriteSheet().add(2 * 64, 2 * 64, 64, 64, 0, AnimationKey.Desc8);
-        super.getSpriteSheet().add(3 * 64, 2 * 64, 64, 64, 0, AnimationKey.Desc9);
-        super.getSpriteSheet().add(4 * 64, 0 * 64, 64, 64, 0, AnimationKey.Desc10);
-        super.getSpriteSheet().add(0 * 64, 3 * 64, 64, 64, 0, AnimationKey.Desc11);
-        super.getSpriteSheet().add(1 * 64, 3 * 64, 64, 64, 0, AnimationKey.Desc12);
-        super.getSpriteSheet().add(2 * 64, 3 * 64, 64, 64, 0, AnimationKey.Desc13);
-        super.getSpriteSheet().add(3 * 64, 3 * 64, 64, 64, 0, AnimationKey.Desc14);
-        super.getSpriteSheet().add(4 * 64, 3 * 64, 64, 64, 0, AnimationKey.Desc15);
-        super.getSpriteSheet().add(0 * 64, 4 * 64, 64, 64, 0, AnimationKey.Desc16);
-        super.getSpriteSheet().add(1 * 64, 4 * 64, 64, 64, 0, AnimationKey.Desc17);
-        super.getSpriteSheet().add(2 * 64, 4 * 64, 64, 64, 0, AnimationKey.Desc18);
-        super.getSpriteSheet().add(3 * 64, 4 * 64, 64, 64, 0, AnimationKey.Desc19);
-        super.getSpriteSheet().add(4 * 64, 4 * 64, 64, 64, 0, AnimationKey.Desc20);
     }
     
     /**
@@ -203,7 +181,7 @@ public final class Puzzle extends Sprite implements Disposable
             }
             
             //store the list for this column
-            this.rowHint.put(row, tmp);
+            this.rowHint.put(row, Collections.unmodifiableList(tmp));
         }
     }
     
@@ -260,10 +238,30 @@ public final class Puzzle extends Sprite implements Disposable
             }
             
             //store the list for this column
-            this.columnHint.put(col, tmp);
+            this.columnHint.put(col, Collections.unmodifiableList(tmp));
         }
     }
     
+    /**
+     * Get the hint of a row, the hint needs to be calculated first
+     * @param row Row
+     * @return The size of each group of filled blocks in order, a single 0 if there are none, the list can't be modified
+     */
+    public List<Integer> getRowHint(final int row)
+    {
+        return this.rowHint.get(row);
+    }
+    
+    /**
+     * Get the hint of a column, the hint needs to be calculated first
+     * @param col Column
+     * @return The size of each group of filled blocks in order, a single 0 if there are none, the list can't be modified
+     */
+    public List<Integer> getColumnHint(final int col)
+    {
+        return this.columnHint.get(col);
+    }
+    
     /**
      * Does the specified puzzle match with this one
      * @param puzzle The puzzle we want to check
@@ -472,197 +470,4 @@ public final class Puzzle extends Sprite implements Disposable
             }
         }
     }
-    
-    /**
-     * Draw the puzzle hints
-     * @param graphics Object used to render graphics
-     * @param image Image containing animations
-     * @param startX Start x-coordinate
-     * @param startY Start y-coordinate
-     */
-    public void renderHints(final Graphics graphics, final Image image, final int startX, final int startY) throws Exception
-    {
-        //if we have not yet solved
-        if (!hasSolved())
-        {
-            //set the dimensions
-            super.setDimensions(getCellDimensions() * .65, getCellDimensions() * .65);
-            
-            //draw the column hints
-            renderColumnHint(graphics, image, startX, startY);
-
-            //set the dimensions
-            super.setDimensions(getCellDimensions() * .75, getCellDimensions() * .75);
-            
-            //draw the row hints
-            renderRowHint(graphics, image, startX, startY);
-        }
-    }
-    
-    /**
-     * Assign the animation
-     * @param key The key we use to determine the animation
-     * @throws exception if the key does not have an associated animation
-     */
-    private void assignAnimation(final int key) throws Exception
-    {
-        switch (key)
-        {
-            case 0:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc0);
-                break;
-            
-            case 1:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc1);
-                break;
-            
-            case 2:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc2);
-                break;
-            
-            case 3:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc3);
-                break;
-            
-            case 4:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc4);
-                break;
-            
-            case 5:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc5);
-                break;
-            
-            case 6:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc6);
-                break;
-            
-            case 7:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc7);
-                break;
-                
-            case 8:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc8);
-                break;
-            
-            case 9:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc9);
-                break;
-            
-            case 10:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc10);
-                break;
-            
-            case 11:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc11);
-                break;
-            
-            case 12:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc12);
-                break;
-            
-            case 13:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc13);
-                break;
-            
-            case 14:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc14);
-                break;
-            
-            case 15:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc15);
-                break;
-            
-            case 16:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc16);
-                break;
-            
-            case 17:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc17);
-                break;
-            
-            case 18:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc18);
-                break;
-            
-            case 19:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc19);
-                break;
-            
-            case 20:
-                super.getSpriteSheet().setCurrent(AnimationKey.Desc20);
-                break;
-                
-            default:
-                throw new Exception("Key not found here - " + key);
-        }
-    }
-    
-    private void renderColumnHint(final Graphics graphics, final Image image, final int startX, final int startY) throws Exception
-    {
-        //draw column hint
-        for (int col = 0; col < getCols(); col++)
-        {
-            //get x-coordinate
-            final int x = (int)(Puzzles.getX(startX, getCellDimensions(), col) + (getCellDimensions() / 2) - (getWidth() / 2));
-            
-            //get list for this column
-            List<Integer> tmp = this.columnHint.get(col);
-            
-            for (int i = 0; i < tmp.size(); i++)
-            {
-                final int y = (int)(Puzzles.getY(startY, (int)getWidth(), 0) - ((tmp.size() - i) * getWidth()));
-                
-                //set coordinates
-                super.setX(x);
-                super.setY(y);
-
-                //assign temporary animation
-                assignAnimation(tmp.get(i));
-
-                try
-                {
-                    //draw animation
-                    super.draw(graphics, image);
-                }
-                catch (Exception e)
-                {
-                    e.printStackTrace();
-                }
-            }
-        }
-    }
-    
-    private void renderRowHint(final Graphics graphics, final Image image, final int startX, final int startY) throws Exception
-    {
-        //draw row hint
-        for (int row = 0; row < getRows(); row++)
-        {
-            final int y = (int)(Puzzles.getY(startY, getCellDimensions(), row) + (getCellDimensions() / 2) - (getWidth() / 2));
-            
-            //get list for this row
-            List<Integer> tmp = this.rowHint.get(row);
-            
-            for (int i = 0; i < tmp.size(); i++)
-            {
-                final int x = Puzzles.getX(startX, (int)getWidth(), 0) - ((tmp.size() - i) * (int)getWidth());
-                
-                //set coordinates
-                super.setX(x);
-                super.setY(y);
-
-                //assign temporary animation
-                assignAnimation(tmp.get(i));
-
-                try
-                {
-                    //draw animation
-                    super.draw(graphics, image);
-                }
-                catch (Exception e)
-                {
-                    e.printStackTrace();
-                }
-            }
-        }
-    }
 }
\ No newline at end of file
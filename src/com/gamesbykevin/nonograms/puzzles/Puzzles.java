@@ -1,22 +1,22 @@
 package com.gamesbykevin.nonograms.puzzles;
 
 import com.gamesbykevin.framework.base.Sprite;
-import com.gamesbykevin.framework.resources.Text;
 
 import com.gamesbykevin.nonograms.engine.Engine;
+import com.gamesbykevin.nonograms.puzzles.Puzzle.AnimationKey;
 import com.gamesbykevin.nonograms.resources.GameAudio;
-import com.gamesbykevin.nonograms.resources.GameText.Keys;
 import com.gamesbykevin.nonograms.shared.IElement;
 
 import java.awt.Graphics;
 import java.awt.Image;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 
 /**
- * This class will contain all of the puzzles in the game
+ * This class will contain the puzzles remaining in the current game.<br>
+ * The puzzles are shared from the Library, which is only parsed once.
+ * The ids of the puzzles not yet solved are kept in an indexed free-list so picking and removing a puzzle is O(1).
+ * The hints are drawn with the sprite of this game, so drawing never changes a puzzle of the library.
  * @author GOD
  */
 public final class Puzzles extends Sprite implements IElement
@@ -29,8 +29,26 @@ public final class Puzzles extends Sprite implements IElement
         Medium, Hard, VeryEasy, Easy, 
     }
     
-    //our list of puzzles for each difficulty
-    private HashMap<Difficulty, List<Puzzle>> puzzles;
+    //the library of every puzzle
+    private final Library library;
+    
+    //the puzzles the player has solved
+    private final Progress progress;
+    
+    //the ids of the puzzles remaining, only the first (count) are used
+    private int[] remaining;
+    
+    //the position of each puzzle id in the remaining array
+    private int[] positions;
+    
+    //the number of puzzles remaining
+    private int count = 0;
+    
+    //has the first puzzle been setup
+    private boolean started = false;
+    
+    //has the current puzzle been solved, the hints are no longer drawn
+    private boolean solved = false;
     
     //the dimension requirements for each difficulty
     public static final int DIMENSIONS_VERY_EASY = 5;
@@ -38,18 +56,12 @@ public final class Puzzles extends Sprite implements IElement
     public static final int DIMENSIONS_MEDIUM = 15;
     public static final int DIMENSIONS_HARD = 20;
     
-    //the characters that mean the current puzzle is finished in our text file
-    private static final String PUZZLE_FINISH = "==========";
-    
-    //the fill text in the text file
-    private static final String PUZZLE_FILL = "#";
-    
     //the different key options for the puzzle
     public static final int KEY_FILL = 0;
     public static final int KEY_EMPTY = 1;
     public static final int KEY_MARK = 2;
     
-    //the current puzzle we are playing
+    //the id of the current puzzle we are playing
     private int current = 0;
     
     //the level of difficutly of puzzles we want to play
@@ -59,22 +71,79 @@ public final class Puzzles extends Sprite implements IElement
     public static final int START_X = 200;
     public static final int START_Y = 150;
     
-    public Puzzles(final Image image)
+    public Puzzles(final Image image, final Library library, final Progress progress)
     {
         //store the image
         super.setImage(image);
         
-        //create new puzzle list
-        this.puzzles = new HashMap<>();
+        this.library = library;
+        this.progress = progress;
+        
+        //no puzzles are remaining until the difficulty is set
+        this.remaining = new int[0];
+        this.positions = new int[0];
+        
+        //create the spritesheet for the hints
+        super.createSpriteSheet();
+        
+        //add the numbers
+        super.getSpriteSheet().add(4 * 64, 2 * 64, 64, 64, 0, AnimationKey.Desc0);
+        super.getSpriteSheet().add(0 * 64, 1 * 64, 64, 64, 0, AnimationKey.Desc1);
+        super.getSpriteSheet().add(1 * 64, 1 * 64, 64, 64, 0, AnimationKey.Desc2);
+        super.getSpriteSheet().add(2 * 64, 1 * 64, 64, 64, 0, AnimationKey.Desc3);
+        super.getSpriteSheet().add(3 * 64, 1 * 64, 64, 64, 0, AnimationKey.Desc4);
+        super.getSpriteSheet().add(4 * 64, 1 * 64, 64, 64, 0, AnimationKey.Desc5);
+        super.getSpriteSheet().add(0 * 64, 2 * 64, 64, 64, 0, AnimationKey.Desc6);
+        super.getSpriteSheet().add(1 * 64, 2 * 64, 64, 64, 0, AnimationKey.Desc7);
+        super.getSpriteSheet().add(2 * 64, 2 * 64, 64, 64, 0, AnimationKey.Desc8);
+        super.getSpriteSheet().add(3 * 64, 2 * 64, 64, 64, 0, AnimationKey.Desc9);
+        super.getSpriteSheet().add(4 * 64, 0 * 64, 64, 64, 0, AnimationKey.Desc10);
+        super.getSpriteSheet().add(0 * 64, 3 * 64, 64, 64, 0, AnimationKey.Desc11);
+        super.getSpriteSheet().add(1 * 64, 3 * 64, 64, 64, 0, AnimationKey.Desc12);
+        super.getSpriteSheet().add(2 * 64, 3 * 64, 64, 64, 0, AnimationKey.Desc13);
+        super.getSpriteSheet().add(3 * 64, 3 * 64, 64, 64, 0, AnimationKey.Desc14);
+        super.getSpriteSheet().add(4 * 64, 3 * 64, 64, 64, 0, AnimationKey.Desc15);
+        super.getSpriteSheet().add(0 * 64, 4 * 64, 64, 64, 0, AnimationKey.Desc16);
+        super.getSpriteSheet().add(1 * 64, 4 * 64, 64, 64, 0, AnimationKey.Desc17);
+        super.getSpriteSheet().add(2 * 64, 4 * 64, 64, 64, 0, AnimationKey.Desc18);
+        super.getSpriteSheet().add(3 * 64, 4 * 64, 64, 64, 0, AnimationKey.Desc19);
+        super.getSpriteSheet().add(4 * 64, 4 * 64, 64, 64, 0, AnimationKey.Desc20);
     }
     
     /**
-     * Set the difficulty
+     * Set the difficulty.<br>
+     * Every puzzle of the difficulty that has not been solved will be remaining.
+     * If every puzzle has been solved the progress is cleared so they can all be played again.
      * @param difficulty The difficulty of the puzzles we want to play
      */
     public void setDifficulty(final Difficulty difficulty)
     {
         this.difficulty = difficulty;
+        
+        final int size = library.size(difficulty);
+        
+        //if everything has been solved, start over
+        if (progress.getSolvedCount(difficulty) >= size)
+            progress.clear(difficulty);
+        
+        this.remaining = new int[size];
+        this.positions = new int[size];
+        this.count = 0;
+        
+        for (int id = 0; id < size; id++)
+        {
+            if (progress.isSolved(difficulty, id))
+            {
+                //solved puzzles are not in the list
+                positions[id] = -1;
+            }
+            else
+            {
+                positions[id] = count;
+                remaining[count] = id;
+                count++;
+            }
+        }
     }
     
     /**
@@ -87,31 +156,21 @@ public final class Puzzles extends Sprite implements IElement
     }
     
     /**
-     * Get the puzzle list
-     * @return A list of puzzles for the specified difficulty
-     */
-    private List<Puzzle> getPuzzleList()
-    {
-        return getPuzzleList(getDifficulty());
-    }
-    
-    /**
-     * Get the puzzle list
-     * @param difficulty The specified difficulty
-     * @return A list of puzzles for the specified difficulty
+     * Get the current Puzzle
+     * @return The current Puzzle in play for the current difficulty
      */
-    private List<Puzzle> getPuzzleList(final Difficulty difficulty)
+    public Puzzle getPuzzle()
     {
-        return puzzles.get(difficulty);
+        return library.getPuzzle(getDifficulty(), current);
     }
     
     /**
-     * Get the current Puzzle
-     * @return The current Puzzle in play for the current difficulty
+     * Get the id of the current puzzle
+     * @return The index of the current puzzle in the library for the current difficulty
      */
-    public Puzzle getPuzzle()
+    public int getId()
     {
-        return getPuzzleList().get(current);
+        return this.current;
     }
     
     /**
@@ -161,219 +220,9 @@ public final class Puzzles extends Sprite implements IElement
     @Override
     public void dispose()
     {
-        if (puzzles != null)
-        {
-            for (Difficulty diff : puzzles.keySet())
-            {
-                for (int i=0; i < puzzles.get(diff).size(); i++)
-                {
-                    puzzles.get(diff).get(i).dispose();
-                    puzzles.get(diff).set(i, null);
-                }
-                
-                puzzles.get(diff).clear();
-            }
-            
-            puzzles.clear();
-            puzzles = null;
-        }
-    }
-    
-    /**
-     * Load the puzzles
-     * @param text Object containing text file with puzzle solutions
-     */
-    private void load(final Text text)
-    {
-        //the starting line
-        int start = 0;
-        
-        for (int i = 0; i < text.getLines().size(); i++)
-        {
-            //get the current line
-            final String line = text.getLine(i);
-            
-            //if this line means we are done with the current puzzle
-            if (line.equals(PUZZLE_FINISH))
-            {
-                //create a puzzle within this location
-                create(start, i, text);
-                
-                //now the next start will be after this current line
-                start = i + 1;
-            }
-        }
-    }
-    
-    /**
-     * Create a puzzle.
-     * @param start The starting line
-     * @param end The last line
-     * @param text Object containing text file with puzzle solutions
-     */
-    private void create(final int start, final int end, final Text text)
-    {
-        //the puzzle we are to add
-        final Puzzle puzzle;
-        
-        //the number of rows in this puzzle
-        int rows = end - (start + 1);
-        
-        //the number of columns
-        int cols = 0;
-        
-        //look at the lines
-        for (int i = start + 1; i < end; i++)
-        {
-            //get the current line
-            final String line = text.getLine(i);
-            
-            //if the line is longer than our cols
-            if (line.length() > cols)
-                cols = line.length();
-        }
-        
-        //make sure we meet the minimum requirements
-        if (cols < DIMENSIONS_VERY_EASY)
-            cols = DIMENSIONS_VERY_EASY;
-        if (rows < DIMENSIONS_VERY_EASY)
-            rows = DIMENSIONS_VERY_EASY;
-        
-        //first check if there is a mismatch
-        if (cols != rows)
-        {
-            //check for any puzzles close to the same dimensions
-            for (int extra = 1; extra <= 2; extra++)
-            {
-                //if dimensions are close enough, make them  match
-                if (cols - extra == rows || cols + extra == rows)
-                {
-                    if (cols == DIMENSIONS_HARD || rows == DIMENSIONS_HARD)
-                    {
-                        cols = DIMENSIONS_HARD;
-                        rows = DIMENSIONS_HARD;
-                    }
-                    else if (cols == DIMENSIONS_MEDIUM || rows == DIMENSIONS_MEDIUM)
-                    {
-                        cols = DIMENSIONS_MEDIUM;
-                        rows = DIMENSIONS_MEDIUM;
-                    }
-                    else if (cols == DIMENSIONS_EASY || rows == DIMENSIONS_EASY)
-                    {
-                        cols = DIMENSIONS_EASY;
-                        rows = DIMENSIONS_EASY;
-                    }
-                    else if (cols == DIMENSIONS_VERY_EASY || rows == DIMENSIONS_VERY_EASY)
-                    {
-                        cols = DIMENSIONS_VERY_EASY;
-                        rows = DIMENSIONS_VERY_EASY;
-                    }
-                }
-                
-                //exit loop
-                break;
-            }
-        }
-        
-        //create a new puzzle of specified size
-        puzzle = new Puzzle(cols, rows, text.getLine(start));
-        
-        //now assign the appropriate values
-        for (int i = start + 1; i < end; i++)
-        {
-            //get the current line
-            final String line = text.getLine(i);
-            
-            //the current row
-            final int row = i - (start + 1);
-            
-            //now check every column in that line
-            for (int col = 0; col < cols; col++)
-            {
-                //make sure in bounds
-                if (col >= puzzle.getCols() || row >= puzzle.getRows())
-                    continue;
-                
-                //default empty value
-                puzzle.setKeyValue(col, row, KEY_EMPTY);
-                
-                //if the column is greater than the current line length
-                if (col < line.length())
-                {
-                    //if the current location contains a fill character '#'
-                    if (line.substring(col, col + 1).equals(PUZZLE_FILL))
-                        puzzle.setKeyValue(col, row, KEY_FILL);
-                }
-            }
-        }
-        
-        //calculate the hints
-        puzzle.calculateHint();
-
-        //finally add to proper list
-        add(puzzle);
-    }
-    
-    /**
-     * Add puzzle to our list.<BR>
-     * If the puzzle dimensions do not match (columns, rows) it will not be added.
-     * Here we add the puzzle to a specific list depending on the puzzle size (columns) for each difficulty
-     * @param puzzle The puzzle we want to add
-     */
-    private void add(final Puzzle puzzle)
-    {
-        //if dimensions do not match, do not add
-        if (puzzle.getCols() != puzzle.getRows())
-            return;
-        
-        //the list for a specified difficulty
-        List<Puzzle> list = null;
-                
-        if (puzzle.getCols() == DIMENSIONS_VERY_EASY)
-        {
-            list = getPuzzleList(Difficulty.VeryEasy);
-        }
-        else if (puzzle.getCols() <= DIMENSIONS_EASY)
-        {
-            list = getPuzzleList(Difficulty.Easy);
-        }
-        else if (puzzle.getCols() <= DIMENSIONS_MEDIUM)
-        {
-            list = getPuzzleList(Difficulty.Medium);
-        }
-        else if (puzzle.getCols() <= DIMENSIONS_HARD)
-        {
-            list = getPuzzleList(Difficulty.Hard);
-        }
-        
-        //make sure the list exists
-        if (list != null)
-        {
-            //does any other puzzle match the current one we are adding
-            boolean match = false;
-            
-            //make sure the puzzle hasn't already been added first
-            for (int i = 0; i < list.size(); i++)
-            {
-                //get the current puzzle
-                final Puzzle tmp = list.get(i);
-                
-                //only check if the dimensions match
-                if (tmp.getCols() != puzzle.getCols() || tmp.getRows() != puzzle.getRows())
-                    continue;
-                
-                //if the puzzle matches
-                if (tmp.hasMatch(puzzle))
-                {
-                    match = true;
-                    break;
-                }
-            }
-            
-            //if no match was found add to the list
-            if (!match)
-                list.add(puzzle);
-        }
+        //the puzzles belong to the library, so only remove our lists
+        remaining = null;
+        positions = null;
     }
     
     public static int getX(final int startX, final int width, final int column)
@@ -389,23 +238,16 @@ public final class Puzzles extends Sprite implements IElement
     @Override
     public void update(final Engine engine)
     {
-        //if the puzzles list is empty
-        if (puzzles.isEmpty())
+        //if the first puzzle hasn't been setup
+        if (!started)
         {
-            //create array list containing the puzzles for each difficulty
-            for (int i = 0; i < Difficulty.values().length; i++)
-            {
-                puzzles.put(Difficulty.values()[i], new ArrayList<Puzzle>());
-            }
-            
-            //load from text file
-            load(engine.getResources().getGameText(Keys.Puzzles));
+            started = true;
             
             //set the random level
             setRandomLevel(engine.getRandom());
             
-            //create the human puzzle
-            engine.getManager().getHuman().create(getPuzzle());
+            //create the player puzzle
+            engine.getManager().getPlayer().create(getPuzzle());
             
             //stop all sound
             engine.getResources().stopAllSound();
@@ -414,8 +256,11 @@ public final class Puzzles extends Sprite implements IElement
             engine.getResources().playGameAudio(GameAudio.Keys.Theme, true);
             
             //if hints are enabled, apply them
-            if (engine.getManager().getHuman().hasHintEnabled())
-                engine.getManager().getHuman().applyHint(getPuzzle(), engine.getRandom());
+            if (engine.getManager().getPlayer().hasHintEnabled())
+                engine.getManager().getPlayer().applyHint(getPuzzle(), engine.getRandom());
+            
+            //save the new game so it can be resumed
+            engine.getManager().getSaveGame().snapshot(engine.getManager());
         }
     }
 
@@ -425,15 +270,58 @@ public final class Puzzles extends Sprite implements IElement
      */
     public boolean hasPuzzles()
     {
-        return (!getPuzzleList().isEmpty());
+        return (count > 0);
     }
     
     /**
      * Remove the current puzzle from the list of the current assigned difficulty.<br>
+     * The last remaining puzzle is moved to the position of the current puzzle.
      */
     public void removeCurrent()
     {
-        getPuzzleList().remove(current);
+        final int position = positions[current];
+        
+        //the puzzle has already been removed
+        if (position < 0)
+            return;
+        
+        //move the last remaining puzzle into this position
+        final int last = remaining[count - 1];
+        remaining[position] = last;
+        positions[last] = position;
+        
+        positions[current] = -1;
+        count--;
+    }
+    
+    /**
+     * Continue playing a saved puzzle instead of picking a random one.<br>
+     * The player board and audio are expected to be setup by the caller.
+     * @param id The id of the puzzle in the library for the current difficulty
+     * @return true if the puzzle is remaining and can be resumed, false otherwise
+     */
+    public boolean resume(final int id)
+    {
+        //the puzzle doesn't exist or has already been solved
+        if (id < 0 || id >= positions.length || positions[id] < 0)
+            return false;
+        
+        this.current = id;
+        this.started = true;
+        this.solved = false;
+        
+        return true;
+    }
+    
+    /**
+     * Record the current puzzle as solved, so it isn't played again.<br>
+     * The progress is not stored here, Engine.saveProgress() stores it in the background.
+     */
+    public void markSolved()
+    {
+        this.solved = true;
+        
+        progress.setSolved(getDifficulty(), current);
     }
     
     /**
@@ -448,16 +336,205 @@ public final class Puzzles extends Sprite implements IElement
             return;
         
         //pick random puzzle of assigned difficulty
-        this.current = random.nextInt(getPuzzleList().size());
+        this.current = remaining[random.nextInt(count)];
+        this.solved = false;
     }
     
     @Override
     public void render(final Graphics graphics) throws Exception
     {
-        if (!puzzles.isEmpty())
+        //draw puzzle hints until it is solved
+        if (started && !solved)
+            renderHints(graphics, getPuzzle(), START_X, START_Y);
+    }
+    
+    /**
+     * Draw the hints of the puzzle.<br>
+     * The puzzle may be shared by the library, so only the position and animation of this sprite are changed.
+     * @param graphics Object used to render graphics
+     * @param puzzle The puzzle
+     * @param startX Start x-coordinate
+     * @param startY Start y-coordinate
+     */
+    public void renderHints(final Graphics graphics, final Puzzle puzzle, final int startX, final int startY) throws Exception
+    {
+        //set the dimensions
+        super.setDimensions(puzzle.getCellDimensions() * .65, puzzle.getCellDimensions() * .65);
+        
+        //draw the column hints
+        renderColumnHint(graphics, puzzle, startX, startY);
+        
+        //set the dimensions
+        super.setDimensions(puzzle.getCellDimensions() * .75, puzzle.getCellDimensions() * .75);
+        
+        //draw the row hints
+        renderRowHint(graphics, puzzle, startX, startY);
+    }
+    
+    /**
+     * Assign the animation
+     * @param key The key we use to determine the animation
+     * @throws exception if the key does not have an associated animation
+     */
+    private void assignAnimation(final int key) throws Exception
+    {
+        switch (key)
         {
-            //draw puzzle hints
-            getPuzzle().renderHints(graphics, getImage(), START_X, START_Y);
+            case 0:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc0);
+                break;
+            
+            case 1:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc1);
+                break;
+            
+            case 2:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc2);
+                break;
+            
+            case 3:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc3);
+                break;
+            
+            case 4:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc4);
+                break;
+            
+            case 5:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc5);
+                break;
+            
+            case 6:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc6);
+                break;
+            
+            case 7:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc7);
+                break;
+            
+            case 8:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc8);
+                break;
+            
+            case 9:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc9);
+                break;
+            
+            case 10:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc10);
+                break;
+            
+            case 11:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc11);
+                break;
+            
+            case 12:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc12);
+                break;
+            
+            case 13:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc13);
+                break;
+            
+            case 14:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc14);
+                break;
+            
+            case 15:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc15);
+                break;
+            
+            case 16:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc16);
+                break;
+            
+            case 17:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc17);
+                break;
+            
+            case 18:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc18);
+                break;
+            
+            case 19:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc19);
+                break;
+            
+            case 20:
+                super.getSpriteSheet().setCurrent(AnimationKey.Desc20);
+                break;
+            
+            default:
+                throw new Exception("Key not found here - " + key);
+        }
+    }
+    
+    private void renderColumnHint(final Graphics graphics, final Puzzle puzzle, final int startX, final int startY) throws Exception
+    {
+        //draw column hint
+        for (int col = 0; col < puzzle.getCols(); col++)
+        {
+            //get x-coordinate
+            final int x = (int)(Puzzles.getX(startX, puzzle.getCellDimensions(), col) + (puzzle.getCellDimensions() / 2) - (getWidth() / 2));
+            
+            //get list for this column
+            final List<Integer> tmp = puzzle.getColumnHint(col);
+            
+            for (int i = 0; i < tmp.size(); i++)
+            {
+                final int y = (int)(Puzzles.getY(startY, (int)getWidth(), 0) - ((tmp.size() - i) * getWidth()));
+                
+                //set coordinates
+                super.setX(x);
+                super.setY(y);
+                
+                //assign temporary animation
+                assignAnimation(tmp.get(i));
+                
+                try
+                {
+                    //draw animation
+                    super.draw(graphics, getImage());
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+    
+    private void renderRowHint(final Graphics graphics, final Puzzle puzzle, final int startX, final int startY) throws Exception
+    {
+        //draw row hint
+        for (int row = 0; row < puzzle.getRows(); row++)
+        {
+            final int y = (int)(Puzzles.getY(startY, puzzle.getCellDimensions(), row) + (puzzle.getCellDimensions() / 2) - (getWidth() / 2));
+            
+            //get list for this row
+            final List<Integer> tmp = puzzle.getRowHint(row);
+            
+            for (int i = 0; i < tmp.size(); i++)
+            {
+                final int x = Puzzles.getX(startX, (int)getWidth(), 0) - ((tmp.size() - i) * (int)getWidth());
+                
+                //set coordinates
+                super.setX(x);
+                super.setY(y);
+                
+                //assign temporary animation
+                assignAnimation(tmp.get(i));
+                
+                try
+                {
+                    //draw animation
+                    super.draw(graphics, getImage());
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+            }
         }
     }
 }
\ No newline at end of file
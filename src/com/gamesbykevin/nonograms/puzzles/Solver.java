@@ -0,0 +1,410 @@
+package com.gamesbykevin.nonograms.puzzles;
+
+import com.gamesbykevin.nonograms.metrics.Flight;
+import com.gamesbykevin.nonograms.metrics.Metrics;
+
+import java.util.List;
+
+/**
+ * Solves a puzzle from the hints alone, one row or column at a time.<br>
+ * For each line every placement of the groups that agrees with the cells already known is considered,
+ * and a cell is known once it is filled, or empty, in all of them.
+ * When a cell becomes known the line crossing it is solved again, until nothing changes.
+ * Each cell is recorded in the order it became known, so the solution can be played one move at a time.
+ * @author GOD
+ */
+public final class Solver
+{
+    //the different states of each cell
+    public static final byte UNKNOWN = 0;
+    public static final byte FILLED = 1;
+    public static final byte EMPTY = 2;
+    
+    //the size of the puzzle
+    private final int cols, rows;
+    
+    //the hint of each row and column
+    private final int[][] rowHints, columnHints;
+    
+    //the state of each cell, row by row
+    private final byte[] cells;
+    
+    //the cells in the order they became known
+    private final int[] order;
+    
+    //the number of cells known
+    private int known = 0;
+    
+    //the lines that need to be solved, rows first then columns
+    private final boolean[] pending;
+    
+    //the number of lines solved
+    private int steps = 0;
+    
+    //work space for a single line, re-used for every line
+    private final byte[] line;
+    private final boolean[] canFill, canEmpty;
+    private boolean[] possible, reached;
+    
+    /**
+     * Create the solver
+     * @param puzzle The puzzle containing the hints, the cells of the puzzle are not used
+     */
+    public Solver(final Puzzle puzzle)
+    {
+        this.cols = puzzle.getCols();
+        this.rows = puzzle.getRows();
+        
+        this.rowHints = new int[rows][];
+        this.columnHints = new int[cols][];
+        
+        for (int row = 0; row < rows; row++)
+        {
+            rowHints[row] = getHint(puzzle.getRowHint(row));
+        }
+        
+        for (int col = 0; col < cols; col++)
+        {
+            columnHints[col] = getHint(puzzle.getColumnHint(col));
+        }
+        
+        this.cells = new byte[cols * rows];
+        this.order = new int[cols * rows];
+        this.pending = new boolean[rows + cols];
+        
+        final int length = Math.max(cols, rows);
+        
+        this.line = new byte[length];
+        this.canFill = new boolean[length];
+        this.canEmpty = new boolean[length];
+        this.possible = new boolean[0];
+        this.reached = new boolean[0];
+    }
+    
+    /**
+     * Convert the hint to an array, a hint of 0 has no groups
+     * @param hint The hint of a row or column
+     * @return The size of each group
+     */
+    private static int[] getHint(final List<Integer> hint)
+    {
+        if (hint.size() == 1 && hint.get(0) == 0)
+            return new int[0];
+        
+        final int[] groups = new int[hint.size()];
+        
+        for (int i = 0; i < groups.length; i++)
+        {
+            groups[i] = hint.get(i);
+        }
+        
+        return groups;
+    }
+    
+    /**
+     * Set the state of a cell that is already known, such as a revealed hint.<br>
+     * This needs to be called before solve() and is not recorded as a move.
+     * @param col Column
+     * @param row Row
+     * @param state FILLED or EMPTY
+     */
+    public void setKnown(final int col, final int row, final byte state)
+    {
+        cells[(row * cols) + col] = state;
+    }
+    
+    /**
+     * Solve as much of the puzzle as the hints allow
+     * @return true if every cell is known, false if the puzzle can't be solved one line at a time
+     */
+    public boolean solve()
+    {
+        final long start = Metrics.start();
+        
+        final Object event = Flight.beginSolver();
+        
+        final boolean solved = solveLines();
+        
+        Flight.commitSolver(event, cols, rows, getSteps(), getMoves(), solved);
+        
+        Metrics.SOLVER_SOLVE.stop(start);
+        
+        return solved;
+    }
+    
+    /**
+     * Solve each line again until none of them change
+     * @return true if every cell is known, false otherwise
+     */
+    private boolean solveLines()
+    {
+        for (int i = 0; i < pending.length; i++)
+        {
+            pending[i] = true;
+        }
+        
+        boolean changed = true;
+        
+        while (changed)
+        {
+            changed = false;
+            
+            for (int i = 0; i < pending.length; i++)
+            {
+                if (!pending[i])
+                    continue;
+                
+                pending[i] = false;
+                
+                //if the line doesn't agree with its hint the puzzle can't be solved
+                if (!solveLine(i))
+                    return false;
+                
+                changed = true;
+            }
+        }
+        
+        return isSolved();
+    }
+    
+    /**
+     * Solve a single row or column, any new cells known will flag the crossing lines
+     * @param index The row, or the column plus the number of rows
+     * @return false if no placement of the groups agrees with the line, true otherwise
+     */
+    private boolean solveLine(final int index)
+    {
+        steps++;
+        
+        final boolean column = (index >= rows);
+        final int position = (column) ? index - rows : index;
+        final int length = (column) ? rows : cols;
+        final int[] hint = (column) ? columnHints[position] : rowHints[position];
+        
+        //copy the line
+        for (int i = 0; i < length; i++)
+        {
+            line[i] = cells[getCell(column, position, i)];
+        }
+        
+        if (!place(length, hint))
+            return false;
+        
+        for (int i = 0; i < length; i++)
+        {
+            if (line[i] != UNKNOWN)
+                continue;
+            
+            final byte state;
+            
+            if (canFill[i] && !canEmpty[i])
+            {
+                state = FILLED;
+            }
+            else if (canEmpty[i] && !canFill[i])
+            {
+                state = EMPTY;
+            }
+            else
+            {
+                continue;
+            }
+            
+            final int cell = getCell(column, position, i);
+            
+            cells[cell] = state;
+            order[known++] = cell;
+            
+            //the crossing line has changed
+            pending[(column) ? i : rows + i] = true;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Find which cells can be filled and which can be empty in any placement of the groups that agrees with the line
+     * @param length The length of the line
+     * @param hint The size of each group
+     * @return false if no placement agrees with the line, true otherwise
+     */
+    private boolean place(final int length, final int[] hint)
+    {
+        final int groups = hint.length;
+        final int width = groups + 1;
+        
+        if (possible.length < (length + 1) * width)
+        {
+            possible = new boolean[(length + 1) * width];
+            reached = new boolean[(length + 1) * width];
+        }
+        
+        //can the cells from i to the end hold the groups from j to the end
+        for (int j = 0; j <= groups; j++)
+        {
+            possible[(length * width) + j] = (j == groups);
+        }
+        
+        for (int i = length - 1; i >= 0; i--)
+        {
+            for (int j = 0; j <= groups; j++)
+            {
+                possible[(i * width) + j] = (line[i] != FILLED && possible[((i + 1) * width) + j]) || (j < groups && fits(i, hint[j], length) && possible[(getNext(i, hint[j], length) * width) + j + 1]);
+            }
+        }
+        
+        if (!possible[0])
+            return false;
+        
+        for (int i = 0; i < length; i++)
+        {
+            canFill[i] = false;
+            canEmpty[i] = false;
+        }
+        
+        for (int i = 0; i < (length + 1) * width; i++)
+        {
+            reached[i] = false;
+        }
+        
+        reached[0] = true;
+        
+        //walk every placement from the start, only following the ones that can be completed
+        for (int i = 0; i < length; i++)
+        {
+            for (int j = 0; j <= groups; j++)
+            {
+                if (!reached[(i * width) + j])
+                    continue;
+                
+                //leave this cell empty
+                if (line[i] != FILLED && possible[((i + 1) * width) + j])
+                {
+                    canEmpty[i] = true;
+                    reached[((i + 1) * width) + j] = true;
+                }
+                
+                //start the next group at this cell
+                if (j < groups && fits(i, hint[j], length))
+                {
+                    final int next = getNext(i, hint[j], length);
+                    
+                    if (possible[(next * width) + j + 1])
+                    {
+                        for (int k = i; k < i + hint[j]; k++)
+                        {
+                            canFill[k] = true;
+                        }
+                        
+                        //the cell after the group is empty
+                        if (i + hint[j] < length)
+                            canEmpty[i + hint[j]] = true;
+                        
+                        reached[(next * width) + j + 1] = true;
+                    }
+                }
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Can a group start at this cell?
+     * @param start The first cell of the group
+     * @param size The size of the group
+     * @param length The length of the line
+     * @return true if the group is within the line, covers no empty cell and isn't followed by a filled cell
+     */
+    private boolean fits(final int start, final int size, final int length)
+    {
+        if (start + size > length)
+            return false;
+        
+        for (int i = start; i < start + size; i++)
+        {
+            if (line[i] == EMPTY)
+                return false;
+        }
+        
+        return (start + size == length || line[start + size] != FILLED);
+    }
+    
+    /**
+     * Get the cell after a group and the empty cell following it
+     * @param start The first cell of the group
+     * @param size The size of the group
+     * @param length The length of the line
+     * @return The next cell a group can start at
+     */
+    private static int getNext(final int start, final int size, final int length)
+    {
+        return Math.min(start + size + 1, length);
+    }
+    
+    /**
+     * Get the index of a cell in a line
+     * @param column Is the line a column
+     * @param position The row or column
+     * @param i The cell in the line
+     * @return The index of the cell
+     */
+    private int getCell(final boolean column, final int position, final int i)
+    {
+        return (column) ? (i * cols) + position : (position * cols) + i;
+    }
+    
+    /**
+     * Is every cell known?
+     * @return true=yes, false=no
+     */
+    public boolean isSolved()
+    {
+        for (byte cell : cells)
+        {
+            if (cell == UNKNOWN)
+                return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Get the state of a cell
+     * @param col Column
+     * @param row Row
+     * @return UNKNOWN, FILLED or EMPTY
+     */
+    public byte getState(final int col, final int row)
+    {
+        return cells[(row * cols) + col];
+    }
+    
+    /**
+     * Get the number of cells that became known by solving
+     * @return The number of moves
+     */
+    public int getMoves()
+    {
+        return this.known;
+    }
+    
+    /**
+     * Get a cell in the order it became known
+     * @param index The move
+     * @return The index of the cell, row by row
+     */
+    public int getMove(final int index)
+    {
+        return order[index];
+    }
+    
+    /**
+     * Get the number of lines solved
+     * @return The number of lines solved
+     */
+    public int getSteps()
+    {
+        return this.steps;
+    }
+}
\ No newline at end of file
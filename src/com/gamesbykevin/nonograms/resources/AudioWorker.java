@@ -0,0 +1,280 @@
+package com.gamesbykevin.nonograms.resources;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import com.gamesbykevin.nonograms.metrics.Metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Performs all audio control on its own thread so the game loop never waits on the audio device.<br>
+ * Commands are sent over a lock-free queue with a single producer (the game thread) and a single consumer (this worker).
+ * @author GOD
+ */
+public final class AudioWorker implements Disposable, Runnable
+{
+    //the types of commands
+    private static final int PLAY = 0, STOP = 1, STOP_ALL = 2, ENABLE = 3;
+    
+    //the size of the queue, must be a power of 2
+    private static final int QUEUE_SIZE = 256;
+    
+    //how long the worker waits (nano-seconds) for a command when the queue is empty
+    private static final long IDLE_WAIT = 100000000L;
+    
+    //the type of each command
+    private final int[] types = new int[QUEUE_SIZE];
+    
+    //the audio key of each command
+    private final Object[] keys = new Object[QUEUE_SIZE];
+    
+    //the loop or enabled flag of each command
+    private final boolean[] flags = new boolean[QUEUE_SIZE];
+    
+    //the positions we read from and write to the queue
+    private final AtomicInteger head = new AtomicInteger(), tail = new AtomicInteger();
+    
+    //the audio the commands are performed on
+    private GameAudio audio;
+    
+    //is the worker waiting for a command
+    private volatile boolean waiting = false;
+    
+    //is the worker running
+    private volatile boolean running = false;
+    
+    //the worker thread
+    private Thread thread;
+    
+    //the longest time (nano-seconds) spent sending a command and performing a command
+    private volatile long worstSend = 0, worstPerform = 0;
+    
+    /**
+     * Create the worker
+     * @param audio The audio the commands are performed on
+     */
+    public AudioWorker(final GameAudio audio)
+    {
+        this.audio = audio;
+    }
+    
+    /**
+     * Start the worker thread, any commands sent before now will be performed
+     */
+    public void start()
+    {
+        if (thread != null)
+            return;
+        
+        running = true;
+        
+        thread = new Thread(this, "Audio Worker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    @Override
+    public void dispose()
+    {
+        running = false;
+        
+        if (thread != null)
+        {
+            LockSupport.unpark(thread);
+            
+            try
+            {
+                //wait for the worker to finish
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+            
+            thread = null;
+        }
+        
+        for (int i = 0; i < QUEUE_SIZE; i++)
+        {
+            keys[i] = null;
+        }
+        
+        audio = null;
+    }
+    
+    /**
+     * Play the audio
+     * @param key The unique key of the audio
+     * @param loop Does the audio loop
+     */
+    public void play(final Object key, final boolean loop)
+    {
+        send(PLAY, key, loop);
+    }
+    
+    /**
+     * Stop the audio
+     * @param key The unique key of the audio
+     */
+    public void stop(final Object key)
+    {
+        send(STOP, key, false);
+    }
+    
+    /**
+     * Stop all audio
+     */
+    public void stopAll()
+    {
+        send(STOP_ALL, null, false);
+    }
+    
+    /**
+     * Set the audio enabled
+     * @param enabled true=yes, false=no
+     */
+    public void setEnabled(final boolean enabled)
+    {
+        send(ENABLE, null, enabled);
+    }
+    
+    /**
+     * Add the command to our queue.<br>
+     * If the queue is full a play command is dropped, any other command waits for room so it is never lost.
+     * @param type The type of command
+     * @param key The audio key, if any
+     * @param flag The loop or enabled flag
+     */
+    private void send(final int type, final Object key, final boolean flag)
+    {
+        final long before = System.nanoTime();
+        
+        final int position = tail.get();
+        
+        while (position - head.get() >= QUEUE_SIZE)
+        {
+            if (type == PLAY || !running)
+            {
+                if (type == PLAY)
+                    Metrics.AUDIO_DROPPED.increment();
+                
+                return;
+            }
+            
+            Thread.yield();
+        }
+        
+        types[position & (QUEUE_SIZE - 1)] = type;
+        keys[position & (QUEUE_SIZE - 1)] = key;
+        flags[position & (QUEUE_SIZE - 1)] = flag;
+        
+        //publish the command
+        tail.set(position + 1);
+        
+        //wake the worker if it is waiting
+        if (waiting && thread != null)
+            LockSupport.unpark(thread);
+        
+        //track the time the game thread spent on audio
+        final long time = System.nanoTime() - before;
+        
+        if (time > worstSend)
+            worstSend = time;
+        
+        Metrics.AUDIO_SEND.record(time);
+    }
+    
+    /**
+     * Get the longest time the game thread spent sending a command since the last time this was called
+     * @return The worst time in nano-seconds
+     */
+    public long getWorstSendTime()
+    {
+        final long worst = worstSend;
+        
+        //reset the measurement
+        worstSend = 0;
+        
+        return worst;
+    }
+    
+    /**
+     * Get the longest time the worker spent performing a command since the last time this was called.<br>
+     * This is the time the game thread would have spent if the command was performed there.
+     * @return The worst time in nano-seconds
+     */
+    public long getWorstPerformTime()
+    {
+        final long worst = worstPerform;
+        
+        //reset the measurement
+        worstPerform = 0;
+        
+        return worst;
+    }
+    
+    @Override
+    public void run()
+    {
+        while (running)
+        {
+            final int position = head.get();
+            
+            //if there are no commands wait for one
+            if (position == tail.get())
+            {
+                waiting = true;
+                
+                //check again in case a command was sent before we were waiting
+                if (position == tail.get())
+                    LockSupport.parkNanos(this, IDLE_WAIT);
+                
+                waiting = false;
+                continue;
+            }
+            
+            final int index = position & (QUEUE_SIZE - 1);
+            final long before = System.nanoTime();
+            
+            try
+            {
+                switch (types[index])
+                {
+                    case PLAY:
+                        audio.play(keys[index], flags[index]);
+                        break;
+                    
+                    case STOP:
+                        audio.stop(keys[index]);
+                        break;
+                    
+                    case STOP_ALL:
+                        audio.stopAll();
+                        break;
+                    
+                    case ENABLE:
+                        audio.setEnabled(flags[index]);
+                        break;
+                }
+            }
+            catch (Exception e)
+            {
+                //a failed command should not stop the rest of the audio
+                e.printStackTrace();
+            }
+            
+            final long time = System.nanoTime() - before;
+            
+            if (time > worstPerform)
+                worstPerform = time;
+            
+            Metrics.AUDIO_PERFORM.record(time);
+            
+            //release the key and free the slot
+            keys[index] = null;
+            head.lazySet(position + 1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.gamesbykevin.nonograms.resources;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+
+/**
+ * This class will convert loaded images to the format of the display.<br>
+ * Images in the same format as the display can be drawn through the accelerated pipeline.
+ * @author GOD
+ */
+public final class CompatibleImages implements Disposable
+{
+    //the configuration of the display the images will be drawn to
+    private GraphicsConfiguration configuration;
+    
+    //the time (nano-seconds) it took to convert each image
+    private HashMap<Object, Long> times;
+    
+    //the memory (bytes) used by each converted image
+    private HashMap<Object, Long> sizes;
+    
+    public CompatibleImages()
+    {
+        //we can only convert if there is a display
+        if (!GraphicsEnvironment.isHeadless())
+            this.configuration = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        
+        this.times = new HashMap<>();
+        this.sizes = new HashMap<>();
+    }
+    
+    @Override
+    public void dispose()
+    {
+        configuration = null;
+        
+        if (times != null)
+        {
+            times.clear();
+            times = null;
+        }
+        
+        if (sizes != null)
+        {
+            sizes.clear();
+            sizes = null;
+        }
+    }
+    
+    /**
+     * Convert the image to the format of the display, respecting the transparency of the original
+     * @param key The unique key of the image, used to record the conversion
+     * @param image The image we want to convert
+     * @return The compatible image, or the original image if it can't or doesn't need to be converted
+     */
+    public synchronized Image convert(final Object key, final Image image)
+    {
+        //we can't convert without a display or an image
+        if (configuration == null || image == null)
+            return image;
+        
+        final int width = image.getWidth(null);
+        final int height = image.getHeight(null);
+        
+        //the image hasn't finished loading
+        if (width < 1 || height < 1)
+            return image;
+        
+        //keep the transparency of the original image
+        final int transparency = (image instanceof Transparency) ? ((Transparency)image).getTransparency() : Transparency.TRANSLUCENT;
+        
+        //if the image is already compatible there is nothing to do
+        if (image instanceof BufferedImage && ((BufferedImage)image).getColorModel().equals(configuration.getColorModel(transparency)))
+            return image;
+        
+        final long before = System.nanoTime();
+        
+        //create the compatible image and draw the original to it
+        final BufferedImage compatible = configuration.createCompatibleImage(width, height, transparency);
+        final Graphics2D graphics = compatible.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        
+        //record the conversion
+        times.put(key, System.nanoTime() - before);
+        sizes.put(key, (long)width * height * compatible.getColorModel().getPixelSize() / 8);
+        
+        //the original is no longer needed
+        image.flush();
+        
+        return compatible;
+    }
+    
+    /**
+     * Get the time it took to convert the image
+     * @param key The unique key of the image
+     * @return The time in nano-seconds, 0 if the image was not converted
+     */
+    public synchronized long getTime(final Object key)
+    {
+        return (times.get(key) != null) ? times.get(key) : 0;
+    }
+    
+    /**
+     * Get the memory used by the converted image
+     * @param key The unique key of the image
+     * @return The size in bytes, 0 if the image was not converted
+     */
+    public synchronized long getSize(final Object key)
+    {
+        return (sizes.get(key) != null) ? sizes.get(key) : 0;
+    }
+}
\ No newline at end of file
@@ -1,15 +1,16 @@
 package com.gamesbykevin.nonograms.resources;
 
-import com.gamesbykevin.framework.resources.*;
+import com.gamesbykevin.framework.resources.Disposable;
 
 /**
- * All audio for game
+ * All audio for game.<br>
+ * Short sound effects are mixed from decoded PCM, music tracks are decoded once and streamed from a cache.
  * @author GOD
  */
-public final class GameAudio extends AudioManager
+public final class GameAudio implements Disposable
 {
-    //description for progress bar
-    private static final String DESCRIPTION = "Loading Audio Resources";
+    //the most effects that can play at the same time
+    private static final int SOUND_EFFECT_VOICES = 8;
     
     /**
      * These are the keys used to access the resources and need to match the id in the xml file
@@ -19,14 +20,179 @@ public final class GameAudio extends AudioManager
         Fill, UnFill, Mark, UnMark, Invalid, Solved, Theme, Gameover, Victory
     }
     
-    public GameAudio() throws Exception
+    //the short sound effects
+    private SoundEffects effects;
+    
+    //the music tracks
+    private MusicTracks music;
+    
+    //is the audio enabled
+    private volatile boolean enabled = true;
+    
+    public GameAudio()
     {
-        super(Resources.XML_CONFIG_GAME_AUDIO);
+        //the audio is created when we start loading
+    }
+    
+    /**
+     * Load the next audio resource
+     * @param source Class in root directory of project so we have a relative location so we know how to access resources
+     * @throws Exception if the audio can't be found or decoded
+     */
+    public void update(final Class<?> source) throws Exception
+    {
+        //read the configuration the first time
+        if (effects == null)
+        {
+            effects = new SoundEffects(source, Resources.XML_CONFIG_GAME_AUDIO, SOUND_EFFECT_VOICES);
+            music = new MusicTracks(source, Resources.XML_CONFIG_GAME_AUDIO);
+        }
         
-        //the description that will be displayed for the progress bar
-        super.setProgressDescription(DESCRIPTION);
+        if (!effects.isComplete())
+        {
+            effects.update(source);
+        }
+        else if (!music.isComplete())
+        {
+            music.update(source);
+        }
+    }
+    
+    /**
+     * Has all the audio been loaded?
+     * @return true if yes, false otherwise
+     */
+    public boolean isComplete()
+    {
+        return (effects != null && effects.isComplete() && music.isComplete());
+    }
+    
+    /**
+     * Verify every key exists in the xml file
+     * @param keys The keys to verify
+     * @throws Exception if any key is not a sound effect or music track
+     */
+    public void verifyLocations(final Object[] keys) throws Exception
+    {
+        for (Object key : keys)
+        {
+            if (!effects.contains(key) && !music.contains(key))
+                throw new Exception("Audio not found in xml - " + key);
+        }
+    }
+    
+    /**
+     * Start the threads playing the audio
+     */
+    public void start()
+    {
+        effects.setEnabled(enabled);
+        effects.start();
+        
+        music.setEnabled(enabled);
+        music.start();
+    }
+    
+    /**
+     * Play the audio
+     * @param key The unique key of the audio
+     * @param loop Does the audio loop, sound effects are short so they never loop
+     */
+    public void play(final Object key, final boolean loop)
+    {
+        if (effects.contains(key))
+        {
+            effects.play(key);
+        }
+        else
+        {
+            music.play(key, loop);
+        }
+    }
+    
+    /**
+     * Stop the audio
+     * @param key The unique key of the audio
+     */
+    public void stop(final Object key)
+    {
+        if (effects.contains(key))
+        {
+            effects.stop(key);
+        }
+        else
+        {
+            music.stop(key);
+        }
+    }
+    
+    /**
+     * Stop all audio
+     */
+    public void stopAll()
+    {
+        if (effects != null)
+            effects.stopAll();
+        
+        if (music != null)
+            music.stopAll();
+    }
+    
+    /**
+     * Is the audio enabled?
+     * @return true=yes, false=no
+     */
+    public boolean isEnabled()
+    {
+        return this.enabled;
+    }
+    
+    /**
+     * Set the audio enabled
+     * @param enabled true=yes, false=no
+     */
+    public void setEnabled(final boolean enabled)
+    {
+        this.enabled = enabled;
+        
+        if (effects != null)
+            effects.setEnabled(enabled);
+        
+        if (music != null)
+            music.setEnabled(enabled);
+    }
+    
+    /**
+     * Get the sound effects, which also record the latency of each effect
+     * @return Object used to mix the sound effects
+     */
+    public SoundEffects getSoundEffects()
+    {
+        return this.effects;
+    }
+    
+    /**
+     * Get the music tracks, which also record the time spent decoding
+     * @return Object used to stream the music
+     */
+    public MusicTracks getMusicTracks()
+    {
+        return this.music;
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (effects != null)
+        {
+            effects.dispose();
+            effects = null;
+        }
         
-        if (Keys.values().length < 1)
-            super.increase();
+        if (music != null)
+        {
+            music.dispose();
+            music = null;
+        }
     }
 }
\ No newline at end of file
@@ -13,7 +13,7 @@ public interface IResources extends Disposable
      * 
      * @throws Exception 
      */
-    public void update(final Class source) throws Exception;
+    public void update(final Class<?> source) throws Exception;
     
     /**
      * This method will determine if all resources have been loaded into memory
@@ -0,0 +1,173 @@
+package com.gamesbykevin.nonograms.resources;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import java.awt.Image;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.imageio.ImageIO;
+
+/**
+ * Images that are only decoded the first time they are requested.<br>
+ * Decoded images are held by soft references so they can be evicted when memory is needed and decoded again later.
+ * @author GOD
+ */
+public final class LazyImages implements Disposable
+{
+    //the images are provided in this node name
+    public static final String NODE_NAME = "lazyImage";
+    
+    //class used to locate the resources
+    private final Class<?> source;
+    
+    //the location of each image
+    private LinkedHashMap<String, String> locations;
+    
+    //the decoded images
+    private HashMap<String, SoftReference<Image>> images;
+    
+    //object used to convert the decoded images to the format of the display
+    private final CompatibleImages compatibleImages;
+    
+    //thread used to decode images ahead of time
+    private ExecutorService executor;
+    
+    /**
+     * Create our lazy images
+     * @param source Class in root directory of project so we have a relative location so we know how to access resources
+     * @param xml The location of the xml configuration file
+     * @param compatibleImages Object used to convert the decoded images
+     * @throws Exception if the configuration file can't be read
+     */
+    public LazyImages(final Class<?> source, final String xml, final CompatibleImages compatibleImages) throws Exception
+    {
+        this.source = source;
+        this.compatibleImages = compatibleImages;
+        this.locations = ResourceLocations.load(source, xml, NODE_NAME);
+        this.images = new HashMap<>();
+    }
+    
+    @Override
+    public synchronized void dispose()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+        
+        if (images != null)
+        {
+            for (SoftReference<Image> reference : images.values())
+            {
+                if (reference.get() != null)
+                    reference.get().flush();
+            }
+            
+            images.clear();
+            images = null;
+        }
+        
+        if (locations != null)
+        {
+            locations.clear();
+            locations = null;
+        }
+    }
+    
+    /**
+     * Is the image loaded on demand?
+     * @param key The unique key of the image
+     * @return true if the image is in our configuration, false otherwise
+     */
+    public boolean contains(final Object key)
+    {
+        return locations.containsKey(key.toString());
+    }
+    
+    /**
+     * Get the number of images loaded on demand
+     * @return The number of images in our configuration
+     */
+    public int size()
+    {
+        return locations.size();
+    }
+    
+    /**
+     * Get the image, decoding it if it isn't in memory
+     * @param key The unique key of the image
+     * @return The image, or null if the key is not in our configuration
+     * @throws Exception if the image can't be decoded
+     */
+    public synchronized Image get(final Object key) throws Exception
+    {
+        final String id = key.toString();
+        
+        //if this image isn't loaded on demand
+        if (!locations.containsKey(id))
+            return null;
+        
+        //if the image is still in memory return it
+        if (images.get(id) != null && images.get(id).get() != null)
+            return images.get(id).get();
+        
+        final URL url = source.getResource(locations.get(id));
+        
+        if (url == null)
+            throw new Exception("Image not found - " + locations.get(id));
+        
+        //decode the image and convert to the format of the display
+        final Image image = compatibleImages.convert(key, ImageIO.read(url));
+        
+        //keep a soft reference so it can be evicted when needed
+        images.put(id, new SoftReference<>(image));
+        
+        return image;
+    }
+    
+    /**
+     * Decode the image on a separate thread so it is ready when requested
+     * @param key The unique key of the image
+     */
+    public synchronized void prefetch(final Object key)
+    {
+        if (executor == null)
+        {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(final Runnable runnable)
+                {
+                    final Thread thread = new Thread(runnable, "Image Prefetch");
+                    
+                    //don't prevent the application from exiting
+                    thread.setDaemon(true);
+                    
+                    return thread;
+                }
+            });
+        }
+        
+        executor.submit(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    get(key);
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,532 @@
+package com.gamesbykevin.nonograms.resources;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.SampleBuffer;
+
+/**
+ * Music tracks that are decoded once and streamed from a cache.<br>
+ * Each mp3 is decoded to PCM in a cache directory, named by the hash of the mp3 so a changed track is decoded again.
+ * A dedicated thread streams the PCM to the line in small chunks, so looping and restarting a track costs no decoding.
+ * @author GOD
+ */
+public final class MusicTracks implements Disposable, Runnable
+{
+    //the music tracks are provided in this node name
+    public static final String NODE_NAME = "music";
+    
+    //the directory where the decoded tracks are stored
+    private static final File CACHE_DIR = new File(System.getProperty("java.io.tmpdir"), "nonograms-audio");
+    
+    //the extension of the decoded tracks, change the version if the file layout changes
+    private static final String CACHE_EXTENSION = ".pcm1";
+    
+    //the size of the header (sample rate and channels) at the start of each decoded track
+    private static final int HEADER_SIZE = 8;
+    
+    //the number of bytes streamed at a time
+    private static final int CHUNK_SIZE = 4096;
+    
+    //the size of the line buffer in chunks
+    private static final int LINE_CHUNKS = 8;
+    
+    //how long the music thread waits (nano-seconds) for a request when nothing is playing
+    private static final long IDLE_WAIT = 100000000L;
+    
+    //the location of each track
+    private LinkedHashMap<String, String> locations;
+    
+    //the unique id of each track and the index of its decoded file
+    private HashMap<String, Integer> indexes;
+    
+    //the decoded file of each track
+    private File[] files;
+    
+    //the number of tracks decoded
+    private int loaded = 0;
+    
+    //the track requested to play, -1 for none
+    private int track = -1;
+    
+    //does the requested track loop
+    private boolean loop = false;
+    
+    //increased for every request so the music thread knows to restart
+    private int request = 0;
+    
+    //is music enabled
+    private volatile boolean enabled = true;
+    
+    //is the music thread running
+    private volatile boolean running = false;
+    
+    //the music thread
+    private Thread thread;
+    
+    //the time (nano-seconds) spent decoding, which will be 0 if every track was in the cache
+    private long decodeTime = 0;
+    
+    /**
+     * Create our music tracks
+     * @param source Class in root directory of project so we have a relative location so we know how to access resources
+     * @param xml The location of the xml configuration file
+     * @throws Exception if the configuration file can't be read
+     */
+    public MusicTracks(final Class<?> source, final String xml) throws Exception
+    {
+        this.locations = ResourceLocations.load(source, xml, NODE_NAME);
+        this.indexes = new HashMap<>();
+        
+        //assign each track an index in the order they appear
+        for (String key : locations.keySet())
+        {
+            indexes.put(key, indexes.size());
+        }
+        
+        this.files = new File[locations.size()];
+    }
+    
+    /**
+     * Decode the next track, unless it is already in the cache
+     * @param source Class in root directory of project so we have a relative location so we know how to access resources
+     * @throws Exception if the track can't be found or decoded
+     */
+    public void update(final Class<?> source) throws Exception
+    {
+        final String location = new ArrayList<>(locations.values()).get(loaded);
+        final byte[] mp3;
+        
+        try (InputStream stream = source.getResourceAsStream(location))
+        {
+            if (stream == null)
+                throw new Exception("Music track not found - " + location);
+            
+            mp3 = readAll(stream);
+        }
+        
+        final File file = new File(CACHE_DIR, getHash(mp3) + CACHE_EXTENSION);
+        
+        //only decode if we don't have the track in our cache
+        if (!file.isFile() || file.length() <= HEADER_SIZE)
+        {
+            final long before = System.nanoTime();
+            
+            decode(mp3, file);
+            
+            decodeTime += (System.nanoTime() - before);
+        }
+        
+        files[loaded] = file;
+        
+        loaded++;
+    }
+    
+    /**
+     * Have all the music tracks been decoded?
+     * @return true if yes, false otherwise
+     */
+    public boolean isComplete()
+    {
+        return (loaded >= files.length);
+    }
+    
+    /**
+     * Get the time spent decoding tracks that were not in the cache
+     * @return The decode time in nano-seconds
+     */
+    public long getDecodeTime()
+    {
+        return this.decodeTime;
+    }
+    
+    /**
+     * Read all bytes from the stream
+     * @param stream The stream to read
+     * @return The bytes of the stream
+     * @throws Exception if the stream can't be read
+     */
+    private static byte[] readAll(final InputStream stream) throws Exception
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[CHUNK_SIZE];
+        
+        for (int read = stream.read(chunk); read >= 0; read = stream.read(chunk))
+        {
+            bytes.write(chunk, 0, read);
+        }
+        
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Get the hash of the content so a changed track won't use an old cache file
+     * @param content The bytes of the track
+     * @return The hex SHA-1 hash
+     * @throws Exception if the hash algorithm is not available
+     */
+    private static String getHash(final byte[] content) throws Exception
+    {
+        final StringBuilder hash = new StringBuilder();
+        
+        for (byte value : MessageDigest.getInstance("SHA-1").digest(content))
+        {
+            hash.append(String.format("%02x", value));
+        }
+        
+        return hash.toString();
+    }
+    
+    /**
+     * Decode the mp3 to 16 bit little endian PCM.<br>
+     * The track is written to a temporary file first then moved, so a partial file is never used.
+     * @param mp3 The bytes of the track
+     * @param file The file to write the decoded track to
+     * @throws Exception if the track can't be decoded or written
+     */
+    private static void decode(final byte[] mp3, final File file) throws Exception
+    {
+        if (!CACHE_DIR.isDirectory() && !CACHE_DIR.mkdirs())
+            throw new Exception("Unable to create cache directory - " + CACHE_DIR);
+        
+        final File temp = File.createTempFile("track", ".tmp", CACHE_DIR);
+        
+        try
+        {
+            final Bitstream bitstream = new Bitstream(new ByteArrayInputStream(mp3));
+            final Decoder decoder = new Decoder();
+            
+            try (RandomAccessFile output = new RandomAccessFile(temp, "rw"))
+            {
+                //leave room for the header, we don't know the format until the first frame is decoded
+                output.seek(HEADER_SIZE);
+                
+                try (BufferedOutputStream stream = new BufferedOutputStream(new FileOutputStream(output.getFD()), CHUNK_SIZE * LINE_CHUNKS))
+                {
+                    int sampleRate = 0, channels = 0;
+                    
+                    for (Header header = bitstream.readFrame(); header != null; header = bitstream.readFrame())
+                    {
+                        final SampleBuffer buffer = (SampleBuffer)decoder.decodeFrame(header, bitstream);
+                        final short[] samples = buffer.getBuffer();
+                        
+                        sampleRate = buffer.getSampleFrequency();
+                        channels = buffer.getChannelCount();
+                        
+                        for (int i = 0; i < buffer.getBufferLength(); i++)
+                        {
+                            //write little endian
+                            stream.write(samples[i] & 0xff);
+                            stream.write((samples[i] >> 8) & 0xff);
+                        }
+                        
+                        bitstream.closeFrame();
+                    }
+                    
+                    stream.flush();
+                    
+                    //now write the header
+                    output.seek(0);
+                    output.writeInt(sampleRate);
+                    output.writeInt(channels);
+                }
+            }
+            finally
+            {
+                bitstream.close();
+            }
+            
+            //replace any existing file with the completed track
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            //remove the temporary file if the track was not completed
+            if (temp.exists())
+                temp.delete();
+        }
+    }
+    
+    /**
+     * Start the music thread
+     */
+    public void start()
+    {
+        if (thread != null)
+            return;
+        
+        running = true;
+        
+        thread = new Thread(this, "Music");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    @Override
+    public void dispose()
+    {
+        running = false;
+        
+        if (thread != null)
+        {
+            LockSupport.unpark(thread);
+            
+            try
+            {
+                //wait for the music thread to finish
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+            
+            thread = null;
+        }
+        
+        if (locations != null)
+        {
+            locations.clear();
+            locations = null;
+        }
+        
+        if (indexes != null)
+        {
+            indexes.clear();
+            indexes = null;
+        }
+        
+        files = null;
+    }
+    
+    /**
+     * Is this one of our music tracks?
+     * @param key The unique key of the audio
+     * @return true if the track exists, false otherwise
+     */
+    public boolean contains(final Object key)
+    {
+        return indexes.containsKey(key.toString());
+    }
+    
+    /**
+     * Get the number of music tracks
+     * @return The number of music tracks
+     */
+    public int size()
+    {
+        return files.length;
+    }
+    
+    /**
+     * Set the music enabled
+     * @param enabled true=yes, false=no
+     */
+    public void setEnabled(final boolean enabled)
+    {
+        this.enabled = enabled;
+        
+        //if disabled stop anything that is currently playing
+        if (!enabled)
+            stopAll();
+    }
+    
+    /**
+     * Play the track, replacing any track currently playing
+     * @param key The unique key of the track
+     * @param loop Does the track loop
+     */
+    public void play(final Object key, final boolean loop)
+    {
+        if (!enabled)
+            return;
+        
+        request(indexes.get(key.toString()), loop);
+    }
+    
+    /**
+     * Stop the track if it is playing
+     * @param key The unique key of the track
+     */
+    public void stop(final Object key)
+    {
+        synchronized (this)
+        {
+            if (track != indexes.get(key.toString()))
+                return;
+        }
+        
+        stopAll();
+    }
+    
+    /**
+     * Stop the current track
+     */
+    public void stopAll()
+    {
+        request(-1, false);
+    }
+    
+    /**
+     * Request the music thread to play the track
+     * @param track The index of the track, -1 to stop
+     * @param loop Does the track loop
+     */
+    private void request(final int track, final boolean loop)
+    {
+        synchronized (this)
+        {
+            this.track = track;
+            this.loop = loop;
+            this.request++;
+        }
+        
+        //wake the music thread if it is waiting
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+    
+    /**
+     * Get the current request number
+     * @return The number of requests made
+     */
+    private synchronized int getRequest()
+    {
+        return this.request;
+    }
+    
+    @Override
+    public void run()
+    {
+        SourceDataLine line = null;
+        
+        final byte[] chunk = new byte[CHUNK_SIZE];
+        
+        //the request we are currently playing
+        int playing = -1;
+        
+        try
+        {
+            while (running)
+            {
+                final int current, index;
+                final boolean looping;
+                
+                synchronized (this)
+                {
+                    current = request;
+                    index = track;
+                    looping = loop;
+                }
+                
+                //if nothing is playing wait for a request
+                if (index < 0)
+                {
+                    //the audio of the stopped track should not be heard
+                    if (line != null && playing != current)
+                        line.flush();
+                    
+                    playing = current;
+                    
+                    //only wait if no new request was made
+                    if (current == getRequest())
+                        LockSupport.parkNanos(this, IDLE_WAIT);
+                    
+                    continue;
+                }
+                
+                try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(files[index]), CHUNK_SIZE)))
+                {
+                    final AudioFormat format = new AudioFormat(stream.readInt(), 16, stream.readInt(), true, false);
+                    
+                    //only open a new line if the format is different
+                    if (line == null || !line.getFormat().matches(format))
+                    {
+                        if (line != null)
+                            line.close();
+                        
+                        line = AudioSystem.getSourceDataLine(format);
+                        line.open(format, CHUNK_SIZE * LINE_CHUNKS);
+                        line.start();
+                    }
+                    
+                    //the audio of the previous track should not be heard, unless we are looping the same request
+                    if (playing != current)
+                        line.flush();
+                    
+                    playing = current;
+                    
+                    final int frameSize = line.getFormat().getFrameSize();
+                    
+                    //the bytes of a partial frame left at the front of the chunk from the previous read
+                    int pending = 0;
+                    
+                    //stream the track until it ends or a new request is made, a loop will open the decoded track again
+                    while (running && current == getRequest())
+                    {
+                        final int read = stream.read(chunk, pending, chunk.length - pending);
+                        
+                        if (read < 0)
+                            break;
+                        
+                        //only whole frames can be written
+                        final int total = pending + read;
+                        final int whole = total - (total % frameSize);
+                        
+                        //write the frames, this will block until the line has room
+                        line.write(chunk, 0, whole);
+                        
+                        //keep the partial frame so the next write starts on a whole frame
+                        pending = total - whole;
+                        System.arraycopy(chunk, whole, chunk, 0, pending);
+                    }
+                }
+                
+                //if the track has finished and is not looping there is nothing left to play
+                synchronized (this)
+                {
+                    if (current == request && !looping)
+                        track = -1;
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            //without a line we can't play any music
+            e.printStackTrace();
+            
+            enabled = false;
+        }
+        finally
+        {
+            if (line != null)
+            {
+                line.stop();
+                line.close();
+            }
+        }
+    }
+}
\ No newline at end of file
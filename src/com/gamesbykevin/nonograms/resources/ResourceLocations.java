@@ -0,0 +1,50 @@
+package com.gamesbykevin.nonograms.resources;
+
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Reads the resource locations from our xml configuration files for resources we manage ourselves
+ * @author GOD
+ */
+public final class ResourceLocations
+{
+    private ResourceLocations()
+    {
+        //utility class
+    }
+    
+    /**
+     * Get the locations of each resource for the specified node name
+     * @param source Class in root directory of project so we have a relative location so we know how to access resources
+     * @param xml The location of the xml configuration file
+     * @param nodeName The name of the nodes containing the locations
+     * @return The location of each resource with the id as the key, in the order they appear in the file
+     * @throws Exception if the configuration file can't be read
+     */
+    public static LinkedHashMap<String, String> load(final Class<?> source, final String xml, final String nodeName) throws Exception
+    {
+        final LinkedHashMap<String, String> locations = new LinkedHashMap<>();
+        
+        try (InputStream stream = source.getResourceAsStream(xml))
+        {
+            if (stream == null)
+                throw new Exception("Configuration file not found - " + xml);
+            
+            //get all the nodes with the resource locations
+            final NodeList nodes = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(stream).getElementsByTagName(nodeName);
+            
+            for (int i = 0; i < nodes.getLength(); i++)
+            {
+                final Element element = (Element)nodes.item(i);
+                
+                locations.put(element.getAttribute("id"), element.getTextContent().trim());
+            }
+        }
+        
+        return locations;
+    }
+}
\ No newline at end of file
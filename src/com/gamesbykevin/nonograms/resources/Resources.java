@@ -2,10 +2,24 @@ package com.gamesbykevin.nonograms.resources;
 
 import com.gamesbykevin.framework.resources.*;
 
+import com.gamesbykevin.nonograms.metrics.Flight;
+import com.gamesbykevin.nonograms.shared.Shared;
+
+import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class will load all resources in the collection and provide a way to access them
@@ -32,11 +46,47 @@ public final class Resources implements IResources
     private GameFont fonts;
     private GameText textFiles;
     
+    //performs the audio commands off of the game thread
+    private AudioWorker audioWorker;
+    
+    //is the audio enabled, kept here so it is current before the worker performs the command
+    private volatile boolean audioEnabled = true;
+    
+    //is the audio muted regardless of the audio setting, when nobody is listening
+    private boolean muted = false;
+    
+    //object used to convert images to the format of the display
+    private CompatibleImages compatibleImages;
+    
+    //images that are only decoded when they are first requested
+    private LazyImages lazyImages;
+    
+    //the most threads we will use to load resources, one for each group
+    private static final int LOADING_THREADS = 4;
+    
+    //the threads loading the resources
+    private ExecutorService executor;
+    
+    //the tasks loading each group of resources
+    private List<Future<?>> tasks;
+    
+    //the number of resources that have been loaded
+    private final AtomicInteger loaded = new AtomicInteger();
+    
+    //the total number of resources to load
+    private int total;
+    
+    //description for progress bar
+    private static final String DESCRIPTION = "Loading ";
+    
     public Resources() throws Exception
     {
         //object to contain audio resources
         this.audio = new GameAudio();
         
+        //object to perform the audio commands
+        this.audioWorker = new AudioWorker(audio);
+        
         //object to contain images resources
         this.images = new GameImages();
         
@@ -45,6 +95,9 @@ public final class Resources implements IResources
         
         //object to contain text resources
         this.textFiles = new GameText();
+        
+        //object to convert the loaded images
+        this.compatibleImages = new CompatibleImages();
     }
     
     /**
@@ -62,58 +115,64 @@ public final class Resources implements IResources
      */
     public void stopAllSound()
     {
-        audio.stopAll();
+        audioWorker.stopAll();
     }
     
     /**
-     * Here we will load the resources one by one and then marking the process finished once done
+     * Here we will load the resources and then mark the process finished once done.<br>
+     * The first call will start loading each group of resources in parallel,
+     * every call after will check if the loading has completed.
      * @param source Class in root directory of project so we have a relative location so we know how to access resources
-     * @throws Exception 
+     * @throws Exception if there was a problem loading any of the resources
      */
     @Override
-    public void update(final Class source) throws Exception
+    public void update(final Class<?> source) throws Exception
     {
-        if (!audio.isComplete())
+        //if we haven't started loading yet
+        if (executor == null)
         {
-            //load 1 resource at a time
-            audio.update(source);
-
+            //start loading each group of resources in parallel
+            startLoading(source);
+            
             //exit method so progress can be drawn
             return;
         }
         
-        if (!images.isComplete())
+        for (Future<?> task : tasks)
         {
-            //load 1 resource at a time
-            images.update(source);
-
-            //exit method so progress can be drawn
-            return;
+            //if any group is still loading exit method so progress can be drawn
+            if (!task.isDone())
+                return;
         }
         
-        if (!fonts.isComplete())
+        for (Future<?> task : tasks)
         {
-            //load 1 resource at a time
-            fonts.update(source);
-
-            //exit method so progress can be drawn
-            return;
+            try
+            {
+                //check if any error occurred while loading
+                task.get();
+            }
+            catch (ExecutionException e)
+            {
+                //throw the actual cause
+                if (e.getCause() instanceof Exception)
+                    throw (Exception)e.getCause();
+                
+                throw e;
+            }
         }
         
-        if (!textFiles.isComplete())
-        {
-            //load 1 resource at a time
-            textFiles.update(source);
-
-            //exit method so progress can be drawn
-            return;
-        }
+        //we no longer need the threads
+        executor.shutdown();
+        tasks.clear();
+        
+        Object event = Flight.beginResource();
         
         //verify all existing keys are contained in the xml file
         audio.verifyLocations(GameAudio.Keys.values());
         
-        //verify all existing keys are contained in the xml file
-        images.verifyLocations(GameImages.Keys.values());
+        //verify all existing keys are contained in the xml file, except for the images we load on demand
+        images.verifyLocations(getEagerImageKeys());
         
         //verify all existing keys are contained in the xml file
         textFiles.verifyLocations(GameText.Keys.values());
@@ -121,17 +180,245 @@ public final class Resources implements IResources
         //verify all existing keys are contained in the xml file
         fonts.verifyLocations(GameFont.Keys.values());
         
+        Flight.commitResource(event, "verify", total);
+        
+        event = Flight.beginResource();
+        
+        //start the threads playing the audio, then start performing any commands sent while loading
+        audio.start();
+        audioWorker.start();
+        
+        Flight.commitResource(event, "start audio", GameAudio.Keys.values().length);
+        
+        //display the time spent decoding music, which will be 0 when every track is cached
+        if (Shared.DEBUG)
+            System.out.println("Decoded music in " + TimeUnit.NANOSECONDS.toMillis(audio.getMusicTracks().getDecodeTime()) + " ms");
+        
         //we are done loading the resources
         this.loading = false;
     }
     
+    /**
+     * Start loading the audio, images, fonts and text on separate threads
+     * @param source Class in root directory of project so we have a relative location so we know how to access resources
+     * @throws Exception if the configuration of the images loaded on demand can't be read
+     */
+    private void startLoading(final Class<?> source) throws Exception
+    {
+        final Object event = Flight.beginResource();
+        
+        //images listed here won't be decoded until they are needed
+        lazyImages = new LazyImages(source, XML_CONFIG_GAME_IMAGE, compatibleImages);
+        
+        Flight.commitResource(event, "lazy images", lazyImages.size());
+        
+        //the total number of resources we will load now
+        total = GameAudio.Keys.values().length + (GameImages.Keys.values().length - lazyImages.size()) + GameFont.Keys.values().length + GameText.Keys.values().length;
+        
+        //don't use more threads than we have groups of resources or cores
+        final int threads = Math.max(1, Math.min(LOADING_THREADS, Runtime.getRuntime().availableProcessors()));
+        
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "Resource Loader");
+                
+                //don't prevent the application from exiting
+                thread.setDaemon(true);
+                
+                return thread;
+            }
+        });
+        
+        tasks = new ArrayList<>();
+        
+        tasks.add(executor.submit(new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                final Object event = Flight.beginResource();
+                
+                while (!audio.isComplete())
+                {
+                    //load 1 resource at a time
+                    audio.update(source);
+                    loaded.incrementAndGet();
+                }
+                
+                Flight.commitResource(event, "audio", GameAudio.Keys.values().length);
+                
+                return null;
+            }
+        }));
+        
+        tasks.add(executor.submit(new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                Object event = Flight.beginResource();
+                
+                while (!images.isComplete())
+                {
+                    //load 1 resource at a time
+                    images.update(source);
+                    loaded.incrementAndGet();
+                }
+                
+                //the images loaded on demand aren't part of this stage
+                Flight.commitResource(event, "images", GameImages.Keys.values().length - lazyImages.size());
+                
+                event = Flight.beginResource();
+                
+                //convert the images to the format of the display
+                convertImages();
+                
+                Flight.commitResource(event, "convert images", GameImages.Keys.values().length - lazyImages.size());
+                
+                return null;
+            }
+        }));
+        
+        tasks.add(executor.submit(new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                final Object event = Flight.beginResource();
+                
+                while (!fonts.isComplete())
+                {
+                    //load 1 resource at a time
+                    fonts.update(source);
+                    loaded.incrementAndGet();
+                }
+                
+                Flight.commitResource(event, "fonts", GameFont.Keys.values().length);
+                
+                return null;
+            }
+        }));
+        
+        tasks.add(executor.submit(new Callable<Void>()
+        {
+            @Override
+            public Void call() throws Exception
+            {
+                final Object event = Flight.beginResource();
+                
+                while (!textFiles.isComplete())
+                {
+                    //load 1 resource at a time
+                    textFiles.update(source);
+                    loaded.incrementAndGet();
+                }
+                
+                Flight.commitResource(event, "text", GameText.Keys.values().length);
+                
+                return null;
+            }
+        }));
+    }
+    
+    /**
+     * Get the progress of all resources being loaded
+     * @return The ratio of resources loaded from 0.0 to 1.0
+     */
+    public double getProgress()
+    {
+        if (!isLoading())
+            return 1.0;
+        
+        //we don't know the total until we have started loading
+        if (total < 1)
+            return 0.0;
+        
+        return Math.min(1.0, (double)loaded.get() / total);
+    }
+    
+    /**
+     * Convert every game image to the format of the display so they can be drawn through the accelerated pipeline
+     */
+    private void convertImages()
+    {
+        for (GameImages.Keys key : getEagerImageKeys())
+        {
+            //if the image doesn't exist it will be reported when the locations are verified
+            if (images.get(key) == null)
+                continue;
+            
+            //replace with the compatible image
+            images.set(key, compatibleImages.convert(key, images.get(key)));
+            
+            //display the time and memory of each conversion if debugging
+            if (Shared.DEBUG)
+                System.out.println("Converted " + key + " in " + TimeUnit.NANOSECONDS.toMillis(compatibleImages.getTime(key)) + " ms, " + (compatibleImages.getSize(key) / 1024) + " KB");
+        }
+    }
+    
+    /**
+     * Get the keys of the images that are loaded with the rest of the resources
+     * @return Every image key except the ones loaded on demand
+     */
+    private GameImages.Keys[] getEagerImageKeys()
+    {
+        final List<GameImages.Keys> keys = new ArrayList<>();
+        
+        for (GameImages.Keys key : GameImages.Keys.values())
+        {
+            if (!lazyImages.contains(key))
+                keys.add(key);
+        }
+        
+        return keys.toArray(new GameImages.Keys[keys.size()]);
+    }
+    
+    /**
+     * Get the sound effects, which also record the latency of each effect
+     * @return Object used to mix the sound effects
+     */
+    public SoundEffects getSoundEffects()
+    {
+        return audio.getSoundEffects();
+    }
+    
+    /**
+     * Get the object performing the audio commands, which also records the worst time spent on audio
+     * @return Object used to perform the audio commands
+     */
+    public AudioWorker getAudioWorker()
+    {
+        return this.audioWorker;
+    }
+    
+    /**
+     * Get the music tracks, which also record the time spent decoding
+     * @return Object used to stream the music
+     */
+    public MusicTracks getMusicTracks()
+    {
+        return audio.getMusicTracks();
+    }
+    
+    /**
+     * Get the object used to convert images, which also records the time and memory of each conversion
+     * @return Object used to convert images to the format of the display
+     */
+    public CompatibleImages getCompatibleImages()
+    {
+        return this.compatibleImages;
+    }
+    
     /**
      * Checks to see if audio is turned on
      * @return 
      */
     public boolean isAudioEnabled()
     {
-        return audio.isEnabled();
+        return this.audioEnabled;
     }
     
     /**
@@ -140,19 +427,49 @@ public final class Resources implements IResources
      */
     public void setAudioEnabled(final boolean enabled)
     {
-        audio.setEnabled(enabled);
+        this.audioEnabled = enabled;
+        
+        audioWorker.setEnabled(enabled && !muted);
     }
     
     /**
-     * Get the specified Image
+     * Mute the audio regardless of the audio setting.<br>
+     * This is used when the game is not played by the user, such as a replay.
+     * @param muted Is the audio muted
+     */
+    public void setMuted(final boolean muted)
+    {
+        this.muted = muted;
+        
+        audioWorker.setEnabled(audioEnabled && !muted);
+    }
+    
+    /**
+     * Get the specified Image.<br>
+     * If the image is loaded on demand and isn't in memory it will be decoded now.
      * @param key
      * @return Image
+     * @throws Exception if the image loaded on demand can't be decoded
      */
-    public Image getGameImage(final Object key)
+    public Image getGameImage(final Object key) throws Exception
     {
+        if (lazyImages != null && lazyImages.contains(key))
+            return lazyImages.get(key);
+        
         return images.get(key);
     }
     
+    /**
+     * Decode the specified image in the background so it is ready when requested.<br>
+     * Nothing will happen if the image is not loaded on demand.
+     * @param key The unique key of the image
+     */
+    public void prefetchGameImage(final Object key)
+    {
+        if (lazyImages != null && lazyImages.contains(key))
+            lazyImages.prefetch(key);
+    }
+    
     /**
      * Get the text file
      * @param key The unique key of the text file we want
@@ -179,7 +496,7 @@ public final class Resources implements IResources
      */
     public void playGameAudio(final Object key, final boolean loop)
     {
-        audio.play(key, loop);
+        audioWorker.play(key, loop);
     }
     
     /**
@@ -188,7 +505,7 @@ public final class Resources implements IResources
      */
     public void stopGameAudio(final Object key)
     {
-        audio.stop(key);
+        audioWorker.stop(key);
     }
     
     /**
@@ -209,6 +526,25 @@ public final class Resources implements IResources
     @Override
     public void dispose()
     {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+        
+        if (tasks != null)
+        {
+            tasks.clear();
+            tasks = null;
+        }
+        
+        //stop performing commands before the audio is disposed
+        if (audioWorker != null)
+        {
+            audioWorker.dispose();
+            audioWorker = null;
+        }
+        
         if (audio != null)
         {
             audio.dispose();
@@ -232,6 +568,18 @@ public final class Resources implements IResources
             fonts.dispose();
             fonts = null;
         }
+        
+        if (lazyImages != null)
+        {
+            lazyImages.dispose();
+            lazyImages = null;
+        }
+        
+        if (compatibleImages != null)
+        {
+            compatibleImages.dispose();
+            compatibleImages = null;
+        }
     }
     
     @Override
@@ -240,40 +588,19 @@ public final class Resources implements IResources
         if (!isLoading())
             return;
         
-        if (audio != null)
-        {
-            if (!audio.isComplete())
-            {
-                audio.render(graphics, screen);
-                return;
-            }
-        }
-        
-        if (images != null)
-        {
-            if (!images.isComplete())
-            {
-                images.render(graphics, screen);
-                return;
-            }
-        }
+        //the dimensions of the progress bar
+        final int width = screen.width / 2;
+        final int height = screen.height / 16;
+        final int x = screen.x + ((screen.width - width) / 2);
+        final int y = screen.y + ((screen.height - height) / 2);
         
-        if (textFiles != null)
-        {
-            if (!textFiles.isComplete())
-            {
-                textFiles.render(graphics, screen);
-                return;
-            }
-        }
+        //draw the description centered above the progress bar
+        final String desc = DESCRIPTION + (int)(getProgress() * 100) + "%";
+        graphics.setColor(Color.WHITE);
+        graphics.drawString(desc, screen.x + ((screen.width - graphics.getFontMetrics().stringWidth(desc)) / 2), y - height);
         
-        if (fonts != null)
-        {
-            if (!fonts.isComplete())
-            {
-                fonts.render(graphics, screen);
-                return;
-            }
-        }
+        //draw the progress bar
+        graphics.fillRect(x, y, (int)(width * getProgress()), height);
+        graphics.drawRect(x, y, width, height);
     }
 }
\ No newline at end of file
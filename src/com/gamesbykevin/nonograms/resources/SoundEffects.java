@@ -0,0 +1,579 @@
+package com.gamesbykevin.nonograms.resources;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Low latency player for short sound effects.<br>
+ * Every effect is decoded to PCM while the resources are loaded, and playing an effect only queues a trigger.
+ * A dedicated audio thread mixes the triggered effects into a single line using a fixed pool of voices,
+ * when every voice is in use the oldest one is stolen.
+ * @author GOD
+ */
+public final class SoundEffects implements Disposable, Runnable
+{
+    //the sound effects are provided in this node name
+    public static final String NODE_NAME = "effect";
+    
+    //every effect is converted to this format so they can be mixed (44.1khz, 16 bit, stereo)
+    private static final AudioFormat FORMAT = new AudioFormat(44100f, 16, 2, true, false);
+    
+    //the number of bytes per frame in our format
+    private static final int FRAME_SIZE = 4;
+    
+    //the number of frames mixed at a time, small so the delay between trigger and sound is small (~6ms)
+    private static final int FRAMES_PER_CHUNK = 256;
+    
+    //the size of the line buffer in chunks
+    private static final int LINE_CHUNKS = 4;
+    
+    //the size of the trigger queue, must be a power of 2
+    private static final int QUEUE_SIZE = 64;
+    
+    //how long the audio thread waits (nano-seconds) for a trigger when nothing is playing
+    private static final long IDLE_WAIT = 100000000L;
+    
+    //the number of recent latencies kept for the percentiles, must be a power of 2
+    private static final int LATENCY_SAMPLES = 1024;
+    
+    //the location of each effect
+    private LinkedHashMap<String, String> locations;
+    
+    //the unique id of each effect and the index of its samples
+    private HashMap<String, Integer> indexes;
+    
+    //the decoded samples of each effect (interleaved stereo)
+    private short[][] samples;
+    
+    //the number of effects decoded
+    private int loaded = 0;
+    
+    //the effect each voice is playing, -1 if the voice is free
+    private final int[] voiceEffect;
+    
+    //the position of each voice in the samples of the effect
+    private final int[] voicePosition;
+    
+    //when each voice was started, so we know which one is the oldest
+    private final long[] voiceStarted;
+    
+    //triggers waiting to be played, a negative value means stop (see STOP_ALL)
+    private final int[] queue = new int[QUEUE_SIZE];
+    
+    //when each trigger was queued (nano-seconds)
+    private final long[] queueTime = new long[QUEUE_SIZE];
+    
+    //the positions we read from and write to the queue (single producer, single consumer)
+    private final AtomicInteger head = new AtomicInteger(), tail = new AtomicInteger();
+    
+    //trigger value to stop every voice
+    private static final int STOP_ALL = Integer.MIN_VALUE;
+    
+    //are sound effects enabled
+    private volatile boolean enabled = true;
+    
+    //is the audio thread running
+    private volatile boolean running = false;
+    
+    //the audio thread
+    private Thread thread;
+    
+    //the line the effects are written to, if null the default line of the system is used
+    private SourceDataLine output;
+    
+    //the time (nano-seconds) between a trigger and its samples being written to the line
+    private volatile long latencyTotal = 0, latencyMax = 0;
+    private volatile int latencyCount = 0;
+    
+    //the most recent latencies (nano-seconds), written by the audio thread
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    
+    /**
+     * Create our sound effects
+     * @param source Class in root directory of project so we have a relative location so we know how to access resources
+     * @param xml The location of the xml configuration file
+     * @param voices The maximum number of effects that can play at the same time
+     * @throws Exception if the configuration file can't be read
+     */
+    public SoundEffects(final Class<?> source, final String xml, final int voices) throws Exception
+    {
+        this.locations = ResourceLocations.load(source, xml, NODE_NAME);
+        
+        //assign each effect an index in the order they appear
+        this.indexes = new HashMap<>();
+        
+        for (String key : locations.keySet())
+        {
+            indexes.put(key, indexes.size());
+        }
+        
+        this.samples = new short[locations.size()][];
+        
+        this.voiceEffect = new int[voices];
+        this.voicePosition = new int[voices];
+        this.voiceStarted = new long[voices];
+        
+        //every voice is free
+        for (int voice = 0; voice < voices; voice++)
+        {
+            voiceEffect[voice] = -1;
+        }
+    }
+    
+    /**
+     * Decode the next sound effect
+     * @param source Class in root directory of project so we have a relative location so we know how to access resources
+     * @throws Exception if the effect can't be found or decoded
+     */
+    public void update(final Class<?> source) throws Exception
+    {
+        final String key = getKey(loaded);
+        final URL url = source.getResource(locations.get(key));
+        
+        if (url == null)
+            throw new Exception("Sound effect not found - " + locations.get(key));
+        
+        samples[loaded] = decode(url);
+        
+        loaded++;
+    }
+    
+    /**
+     * Have all the sound effects been decoded?
+     * @return true if yes, false otherwise
+     */
+    public boolean isComplete()
+    {
+        return (loaded >= samples.length);
+    }
+    
+    /**
+     * Get the key of the effect at the specified index
+     * @param index The index of the effect
+     * @return The unique key of the effect
+     */
+    private String getKey(final int index)
+    {
+        for (Map.Entry<String, Integer> entry : indexes.entrySet())
+        {
+            if (entry.getValue() == index)
+                return entry.getKey();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Decode the effect to PCM in our format
+     * @param url The location of the effect
+     * @return The interleaved samples of the effect
+     * @throws Exception if the effect can't be decoded
+     */
+    private static short[] decode(final URL url) throws Exception
+    {
+        try (AudioInputStream original = AudioSystem.getAudioInputStream(url); AudioInputStream converted = AudioSystem.getAudioInputStream(FORMAT, original))
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[FRAMES_PER_CHUNK * FRAME_SIZE * 16];
+            
+            //read all of the bytes
+            for (int read = converted.read(chunk); read >= 0; read = converted.read(chunk))
+            {
+                bytes.write(chunk, 0, read);
+            }
+            
+            final byte[] pcm = bytes.toByteArray();
+            
+            //convert the little endian bytes to samples
+            final short[] result = new short[pcm.length / 2];
+            
+            for (int i = 0; i < result.length; i++)
+            {
+                result[i] = (short)((pcm[i * 2] & 0xff) | (pcm[(i * 2) + 1] << 8));
+            }
+            
+            return result;
+        }
+    }
+    
+    /**
+     * Start the audio thread
+     */
+    public void start()
+    {
+        start(null);
+    }
+    
+    /**
+     * Start the audio thread writing to the specified line
+     * @param line The line that isn't open yet, if null the default line of the system is used
+     */
+    public void start(final SourceDataLine line)
+    {
+        if (thread != null)
+            return;
+        
+        output = line;
+        running = true;
+        
+        thread = new Thread(this, "Sound Effects");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+    
+    @Override
+    public void dispose()
+    {
+        running = false;
+        
+        if (thread != null)
+        {
+            LockSupport.unpark(thread);
+            
+            try
+            {
+                //wait for the audio thread to finish
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+            
+            thread = null;
+        }
+        
+        //the line was closed by the audio thread
+        output = null;
+        
+        if (locations != null)
+        {
+            locations.clear();
+            locations = null;
+        }
+        
+        if (indexes != null)
+        {
+            indexes.clear();
+            indexes = null;
+        }
+        
+        samples = null;
+    }
+    
+    /**
+     * Is this one of our sound effects?
+     * @param key The unique key of the audio
+     * @return true if the effect exists, false otherwise
+     */
+    public boolean contains(final Object key)
+    {
+        return indexes.containsKey(key.toString());
+    }
+    
+    /**
+     * Get the number of sound effects
+     * @return The number of sound effects loaded
+     */
+    public int size()
+    {
+        return samples.length;
+    }
+    
+    /**
+     * Set the sound effects enabled
+     * @param enabled true=yes, false=no
+     */
+    public void setEnabled(final boolean enabled)
+    {
+        this.enabled = enabled;
+        
+        //if disabled stop anything that is currently playing
+        if (!enabled)
+            stopAll();
+    }
+    
+    /**
+     * Queue the sound effect to be played.<br>
+     * This should only be called from one thread.
+     * @param key The unique key of the effect
+     */
+    public void play(final Object key)
+    {
+        if (!enabled)
+            return;
+        
+        queue(indexes.get(key.toString()));
+    }
+    
+    /**
+     * Stop every voice playing the sound effect.<br>
+     * This should only be called from one thread.
+     * @param key The unique key of the effect
+     */
+    public void stop(final Object key)
+    {
+        queue(-(indexes.get(key.toString()) + 1));
+    }
+    
+    /**
+     * Stop every voice.<br>
+     * This should only be called from one thread.
+     */
+    public void stopAll()
+    {
+        queue(STOP_ALL);
+    }
+    
+    /**
+     * Add the trigger to our queue for the audio thread
+     * @param trigger The index of the effect to play, or a negative value to stop
+     */
+    private void queue(final int trigger)
+    {
+        final int position = tail.get();
+        
+        //if the queue is full the trigger is dropped
+        if (position - head.get() >= QUEUE_SIZE)
+            return;
+        
+        queue[position & (QUEUE_SIZE - 1)] = trigger;
+        queueTime[position & (QUEUE_SIZE - 1)] = System.nanoTime();
+        
+        //publish the trigger
+        tail.lazySet(position + 1);
+        
+        //wake the audio thread if it is waiting
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+    
+    /**
+     * Get the average time between a trigger and its samples being written to the line
+     * @return The average latency in nano-seconds
+     */
+    public long getAverageLatency()
+    {
+        return (latencyCount > 0) ? latencyTotal / latencyCount : 0;
+    }
+    
+    /**
+     * Get the longest time between a trigger and its samples being written to the line
+     * @return The maximum latency in nano-seconds
+     */
+    public long getMaxLatency()
+    {
+        return latencyMax;
+    }
+    
+    /**
+     * Get the percentile of the most recent times between a trigger and its samples being written to the line.<br>
+     * This should be called once the audio thread has stopped, or the latencies may be read while they are recorded.
+     * @param percentile The percentile (0 - 100)
+     * @return The latency in nano-seconds, 0 if nothing has been recorded
+     */
+    public long getLatencyPercentile(final double percentile)
+    {
+        final long[] sorted = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_SAMPLES));
+        
+        if (sorted.length == 0)
+            return 0;
+        
+        Arrays.sort(sorted);
+        
+        //the nearest rank
+        final int rank = (int)Math.ceil((percentile / 100) * sorted.length);
+        
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+    
+    @Override
+    public void run()
+    {
+        SourceDataLine line = null;
+        
+        try
+        {
+            //open the line with a small buffer to keep latency low
+            line = (output != null) ? output : AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, FRAMES_PER_CHUNK * FRAME_SIZE * LINE_CHUNKS);
+            line.start();
+            
+            //the mixed samples before they are clipped
+            final int[] mix = new int[FRAMES_PER_CHUNK * 2];
+            
+            //the bytes written to the line
+            final byte[] buffer = new byte[FRAMES_PER_CHUNK * FRAME_SIZE];
+            
+            while (running)
+            {
+                //the time the oldest trigger in this chunk was queued
+                long triggered = 0;
+                
+                //start any voices that were triggered
+                while (head.get() != tail.get())
+                {
+                    final int position = head.get();
+                    final int trigger = queue[position & (QUEUE_SIZE - 1)];
+                    
+                    if (triggered == 0 && trigger >= 0)
+                        triggered = queueTime[position & (QUEUE_SIZE - 1)];
+                    
+                    head.lazySet(position + 1);
+                    
+                    if (trigger >= 0)
+                    {
+                        startVoice(trigger);
+                    }
+                    else
+                    {
+                        stopVoices(trigger);
+                    }
+                }
+                
+                //if nothing is playing wait for a trigger
+                if (!mix(mix, buffer))
+                {
+                    LockSupport.parkNanos(this, IDLE_WAIT);
+                    continue;
+                }
+                
+                //write the mixed samples, this will block until the line has room
+                line.write(buffer, 0, buffer.length);
+                
+                //record the latency
+                if (triggered != 0)
+                {
+                    final long latency = System.nanoTime() - triggered;
+                    
+                    latencies[latencyCount & (LATENCY_SAMPLES - 1)] = latency;
+                    latencyTotal += latency;
+                    latencyCount++;
+                    
+                    if (latency > latencyMax)
+                        latencyMax = latency;
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            //without a line we can't play any effects
+            e.printStackTrace();
+            
+            enabled = false;
+        }
+        finally
+        {
+            if (line != null)
+            {
+                line.stop();
+                line.close();
+            }
+        }
+    }
+    
+    /**
+     * Start playing the effect with a free voice, if none are free the oldest voice is stolen
+     * @param effect The index of the effect
+     */
+    private void startVoice(final int effect)
+    {
+        int selected = 0;
+        
+        for (int voice = 0; voice < voiceEffect.length; voice++)
+        {
+            //use the first free voice
+            if (voiceEffect[voice] < 0)
+            {
+                selected = voice;
+                break;
+            }
+            
+            //otherwise keep track of the oldest
+            if (voiceStarted[voice] < voiceStarted[selected])
+                selected = voice;
+        }
+        
+        voiceEffect[selected] = effect;
+        voicePosition[selected] = 0;
+        voiceStarted[selected] = System.nanoTime();
+    }
+    
+    /**
+     * Stop the voices
+     * @param trigger STOP_ALL to stop every voice, otherwise the negative index (minus 1) of the effect to stop
+     */
+    private void stopVoices(final int trigger)
+    {
+        for (int voice = 0; voice < voiceEffect.length; voice++)
+        {
+            if (trigger == STOP_ALL || voiceEffect[voice] == -(trigger + 1))
+                voiceEffect[voice] = -1;
+        }
+    }
+    
+    /**
+     * Mix the next chunk of every active voice
+     * @param mix Array used to add the samples of each voice
+     * @param buffer The bytes to write to the line
+     * @return true if any voice was mixed, false if nothing is playing
+     */
+    private boolean mix(final int[] mix, final byte[] buffer)
+    {
+        boolean active = false;
+        
+        for (int i = 0; i < mix.length; i++)
+        {
+            mix[i] = 0;
+        }
+        
+        for (int voice = 0; voice < voiceEffect.length; voice++)
+        {
+            if (voiceEffect[voice] < 0)
+                continue;
+            
+            active = true;
+            
+            final short[] effect = samples[voiceEffect[voice]];
+            final int count = Math.min(mix.length, effect.length - voicePosition[voice]);
+            
+            for (int i = 0; i < count; i++)
+            {
+                mix[i] += effect[voicePosition[voice] + i];
+            }
+            
+            voicePosition[voice] += count;
+            
+            //if the effect has finished the voice is free
+            if (voicePosition[voice] >= effect.length)
+                voiceEffect[voice] = -1;
+        }
+        
+        if (!active)
+            return false;
+        
+        //clip and convert to little endian bytes
+        for (int i = 0; i < mix.length; i++)
+        {
+            final int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+            
+            buffer[i * 2] = (byte)sample;
+            buffer[(i * 2) + 1] = (byte)(sample >> 8);
+        }
+        
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,934 @@
+package com.gamesbykevin.nonograms.server;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import com.gamesbykevin.nonograms.player.stat.Leaderboard;
+import com.gamesbykevin.nonograms.puzzles.Library;
+import com.gamesbykevin.nonograms.puzzles.Puzzle;
+import com.gamesbykevin.nonograms.puzzles.Puzzles.Difficulty;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A HTTP endpoint for the sessions of the session manager, every response is JSON.<br>
+ * <pre>
+ * GET    /puzzles/{difficulty}           the clues of a random puzzle
+ * GET    /puzzles/{difficulty}/{id}      the clues of the puzzle
+ * POST   /sessions?difficulty=&amp;timed=&amp;hint=&amp;seed=&amp;player=   create a session, the options are not required
+ * GET    /sessions/{id}                  the status of the session
+ * POST   /sessions/{id}/moves            apply a batch of packed moves, the body is {"moves":[...]}
+ * POST   /sessions/{id}/hint             correct one location on the board
+ * POST   /sessions/{id}/next             start the next puzzle once the current one is solved
+ * DELETE /sessions/{id}                  remove the session
+ * GET    /leaderboard/{difficulty}/{id}?count=      the fastest times of the puzzle
+ * GET    /leaderboard/{difficulty}/{id}/{player}    the best time and rank of the player
+ * </pre>
+ * Each move is packed in an int as (location index * 4) + value, the location index is row by row and the value is
+ * Puzzles.KEY_FILL, Puzzles.KEY_EMPTY or Puzzles.KEY_MARK. The moves are checked against the solution by the session.
+ * The work for a session runs in the session manager, on the request thread when no other thread is running the session.
+ * Run the JVM with -Dsun.net.httpserver.nodelay=true (see NO_DELAY), otherwise a kept alive connection waits for
+ * the previous packet to be acknowledged before each response is sent. StartApi sets it when it isn't given.
+ * @author GOD
+ */
+public final class ApiServer implements Disposable
+{
+    //the number of times listed by the leaderboard when the count isn't given, and the most it lists
+    private static final int LEADERBOARD_COUNT = 10;
+    private static final int LEADERBOARD_LIMIT = 1000;
+    
+    //how long a request waits for the session to run
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+    
+    //the number of connections waiting to be accepted
+    private static final int BACKLOG = 1024;
+    
+    //the property of the http server that disables Nagle's algorithm, it is read when the first server is created
+    public static final String NO_DELAY = "sun.net.httpserver.nodelay";
+    
+    //the sessions
+    private SessionManager manager;
+    
+    //the http server
+    private HttpServer server;
+    
+    //the threads handling the requests
+    private ExecutorService executor;
+    
+    //the clues of every puzzle, which never change so they are only written once
+    private EnumMap<Difficulty, String[]> clues;
+    
+    /**
+     * Create the endpoint, it doesn't accept requests until it is started
+     * @param manager The sessions
+     * @param address The address to listen on, port 0 picks any free port
+     * @param threads The number of threads handling the requests
+     * @throws IOException if the address can't be used
+     */
+    public ApiServer(final SessionManager manager, final InetSocketAddress address, final int threads) throws IOException
+    {
+        this.manager = manager;
+        
+        //write the clues of every puzzle
+        this.clues = new EnumMap<>(Difficulty.class);
+        
+        for (Difficulty difficulty : Difficulty.values())
+        {
+            final String[] list = new String[manager.getLibrary().size(difficulty)];
+            
+            for (int id = 0; id < list.length; id++)
+            {
+                list[id] = writeClues(manager.getLibrary(), difficulty, id);
+            }
+            
+            clues.put(difficulty, list);
+        }
+        
+        final AtomicInteger count = new AtomicInteger();
+        
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "api-" + count.incrementAndGet());
+                
+                //the requests don't keep the process running
+                thread.setDaemon(true);
+                
+                return thread;
+            }
+        });
+        
+        this.server = HttpServer.create(address, BACKLOG);
+        this.server.setExecutor(executor);
+        
+        this.server.createContext("/puzzles", new Handler()
+        {
+            @Override
+            protected Response getResponse(final HttpExchange exchange) throws IOException
+            {
+                return handlePuzzles(exchange);
+            }
+        });
+        
+        this.server.createContext("/sessions", new Handler()
+        {
+            @Override
+            protected Response getResponse(final HttpExchange exchange) throws IOException
+            {
+                return handleSessions(exchange);
+            }
+        });
+        
+        this.server.createContext("/leaderboard", new Handler()
+        {
+            @Override
+            protected Response getResponse(final HttpExchange exchange) throws IOException
+            {
+                return handleLeaderboard(exchange);
+            }
+        });
+    }
+    
+    /**
+     * Start accepting requests
+     */
+    public void start()
+    {
+        server.start();
+    }
+    
+    /**
+     * Get the port the endpoint is listening on
+     * @return The port
+     */
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (server != null)
+        {
+            server.stop(0);
+            server = null;
+        }
+        
+        if (executor != null)
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+        
+        if (clues != null)
+        {
+            clues.clear();
+            clues = null;
+        }
+        
+        manager = null;
+    }
+    
+    /**
+     * The response to a request
+     */
+    private static final class Response
+    {
+        //the http status code
+        private final int status;
+        
+        //the JSON body
+        private final String body;
+        
+        private Response(final int status, final String body)
+        {
+            this.status = status;
+            this.body = body;
+        }
+        
+        private static Response error(final int status, final String message)
+        {
+            return new Response(status, "{\"error\":\"" + escape(message) + "\"}");
+        }
+    }
+    
+    /**
+     * Answers the requests of a context.<br>
+     * If the response can't be created the failure is answered with 500, so the client isn't left waiting for a response.
+     */
+    private abstract static class Handler implements HttpHandler
+    {
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException
+        {
+            Response response;
+            
+            try
+            {
+                response = getResponse(exchange);
+            }
+            catch (Exception e)
+            {
+                //this is a bug, the client still needs a response
+                e.printStackTrace();
+                response = Response.error(500, String.valueOf(e));
+            }
+            
+            respond(exchange, response);
+        }
+        
+        /**
+         * Create the response to the request
+         * @param exchange The request
+         * @return The response
+         * @throws IOException if the request body can't be read
+         */
+        protected abstract Response getResponse(final HttpExchange exchange) throws IOException;
+    }
+    
+    /**
+     * Send the response and close the exchange
+     * @param exchange The request
+     * @param response The response
+     * @throws IOException if the response can't be sent
+     */
+    private static void respond(final HttpExchange exchange, final Response response) throws IOException
+    {
+        try
+        {
+            //the body needs to be read for the connection to be used again
+            readBody(exchange);
+            
+            final byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+            
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(response.status, bytes.length);
+            
+            try (OutputStream output = exchange.getResponseBody())
+            {
+                output.write(bytes);
+            }
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Read the rest of the request body
+     * @param exchange The request
+     * @return The body
+     * @throws IOException if the body can't be read
+     */
+    private static String readBody(final HttpExchange exchange) throws IOException
+    {
+        final InputStream input = exchange.getRequestBody();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        
+        int read;
+        
+        while ((read = input.read(buffer)) > 0)
+        {
+            bytes.write(buffer, 0, read);
+        }
+        
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * GET /puzzles/{difficulty} and GET /puzzles/{difficulty}/{id}
+     * @param exchange The request
+     * @return The response
+     */
+    private Response handlePuzzles(final HttpExchange exchange)
+    {
+        if (!exchange.getRequestMethod().equals("GET"))
+            return Response.error(405, "Method not allowed");
+        
+        final String[] path = getPath(exchange.getRequestURI());
+        
+        if (path.length < 2 || path.length > 3)
+            return Response.error(404, "Not found");
+        
+        final Difficulty difficulty = getDifficulty(path[1]);
+        
+        if (difficulty == null)
+            return Response.error(404, "Unknown difficulty - " + path[1]);
+        
+        final String[] list = clues.get(difficulty);
+        
+        if (list.length == 0)
+            return Response.error(404, "No puzzles");
+        
+        if (path.length == 2)
+            return new Response(200, list[ThreadLocalRandom.current().nextInt(list.length)]);
+        
+        final int id = parseInt(path[2], -1);
+        
+        if (id < 0 || id >= list.length)
+            return Response.error(404, "Unknown puzzle - " + path[2]);
+        
+        return new Response(200, list[id]);
+    }
+    
+    /**
+     * Every request for /sessions
+     * @param exchange The request
+     * @return The response
+     * @throws IOException if the request body can't be read
+     */
+    private Response handleSessions(final HttpExchange exchange) throws IOException
+    {
+        final String method = exchange.getRequestMethod();
+        final String[] path = getPath(exchange.getRequestURI());
+        
+        //create a session
+        if (path.length == 1)
+        {
+            if (!method.equals("POST"))
+                return Response.error(405, "Method not allowed");
+            
+            return create(exchange.getRequestURI().getRawQuery());
+        }
+        
+        final long id = parseLong(path[1], -1);
+        final Session session = (id < 0) ? null : manager.get(id);
+        
+        if (session == null)
+            return Response.error(404, "Unknown session - " + path[1]);
+        
+        if (path.length == 2)
+        {
+            switch (method)
+            {
+                case "GET":
+                    return call(session, new Callable<Response>()
+                    {
+                        @Override
+                        public Response call()
+                        {
+                            return new Response(200, "{" + writeStatus(session) + "}");
+                        }
+                    });
+                
+                case "DELETE":
+                    manager.remove(id);
+                    return new Response(200, "{\"removed\":" + id + "}");
+                
+                default:
+                    return Response.error(405, "Method not allowed");
+            }
+        }
+        
+        if (path.length != 3)
+            return Response.error(404, "Not found");
+        
+        if (!method.equals("POST"))
+            return Response.error(405, "Method not allowed");
+        
+        switch (path[2])
+        {
+            case "moves":
+                final int[] moves;
+                
+                try
+                {
+                    moves = parseMoves(readBody(exchange));
+                }
+                catch (IllegalArgumentException e)
+                {
+                    return Response.error(400, e.getMessage());
+                }
+                
+                return call(session, new Callable<Response>()
+                {
+                    @Override
+                    public Response call()
+                    {
+                        final int wrong = session.move(moves, moves.length);
+                        
+                        if (wrong < 0)
+                            return Response.error(409, "The puzzle is already solved or the game is finished");
+                        
+                        return new Response(200, "{\"applied\":" + moves.length + ",\"wrongMoves\":" + wrong + "," + writeStatus(session) + "}");
+                    }
+                });
+            
+            case "hint":
+                return call(session, new Callable<Response>()
+                {
+                    @Override
+                    public Response call()
+                    {
+                        final int cell = session.hint();
+                        
+                        return new Response(200, "{\"hint\":" + cell + ((cell < 0) ? "" : ",\"value\":" + session.getKeyValue(cell % session.getPuzzle().getCols(), cell / session.getPuzzle().getCols())) + "," + writeStatus(session) + "}");
+                    }
+                });
+            
+            case "next":
+                return call(session, new Callable<Response>()
+                {
+                    @Override
+                    public Response call()
+                    {
+                        if (!session.nextLevel())
+                            return (session.hasFinished()) ? new Response(200, "{" + writeStatus(session) + "}") : Response.error(409, "The puzzle is not solved");
+                        
+                        return new Response(200, "{" + writeStatus(session) + ",\"clues\":" + clues.get(session.getDifficulty())[session.getPuzzleId()] + "}");
+                    }
+                });
+            
+            default:
+                return Response.error(404, "Not found");
+        }
+    }
+    
+    /**
+     * GET /leaderboard/{difficulty}/{id} and GET /leaderboard/{difficulty}/{id}/{player}
+     * @param exchange The request
+     * @return The response
+     */
+    private Response handleLeaderboard(final HttpExchange exchange)
+    {
+        if (!exchange.getRequestMethod().equals("GET"))
+            return Response.error(405, "Method not allowed");
+        
+        final String[] path = getPath(exchange.getRequestURI());
+        
+        if (path.length < 3 || path.length > 4)
+            return Response.error(404, "Not found");
+        
+        final Difficulty difficulty = getDifficulty(path[1]);
+        
+        if (difficulty == null)
+            return Response.error(404, "Unknown difficulty - " + path[1]);
+        
+        final int id = parseInt(path[2], -1);
+        
+        if (id < 0 || id >= manager.getLibrary().size(difficulty))
+            return Response.error(404, "Unknown puzzle - " + path[2]);
+        
+        final Leaderboard leaderboard = manager.getLeaderboard();
+        final StringBuilder builder = new StringBuilder(256);
+        
+        //the times are kept by the hash of the solution
+        final int hash = manager.getLibrary().getHash(difficulty, id);
+        
+        builder.append("{\"difficulty\":\"").append(difficulty).append('"');
+        builder.append(",\"id\":").append(id);
+        builder.append(",\"players\":").append(leaderboard.size(difficulty, hash));
+        
+        //the best time and rank of a single player
+        if (path.length == 4)
+        {
+            final Leaderboard.Entry entry = leaderboard.getBest(difficulty, hash, path[3]);
+            
+            if (entry == null)
+                return Response.error(404, "No time for the player - " + path[3]);
+            
+            writeEntry(builder.append(",\"rank\":").append(leaderboard.getRank(difficulty, hash, path[3])).append(','), entry);
+            
+            return new Response(200, builder.append('}').toString());
+        }
+        
+        final int count = Math.min(parseInt(getParameter(exchange.getRequestURI().getRawQuery(), "count"), LEADERBOARD_COUNT), LEADERBOARD_LIMIT);
+        
+        builder.append(",\"top\":[");
+        
+        final List<Leaderboard.Entry> top = leaderboard.getTop(difficulty, hash, Math.max(count, 0));
+        
+        for (int i = 0; i < top.size(); i++)
+        {
+            writeEntry(builder.append((i > 0) ? ",{" : "{").append("\"rank\":").append(i + 1).append(','), top.get(i));
+            builder.append('}');
+        }
+        
+        return new Response(200, builder.append("]}").toString());
+    }
+    
+    /**
+     * Write the time of a player
+     * @param builder Where the time is written
+     * @param entry The time
+     */
+    private static void writeEntry(final StringBuilder builder, final Leaderboard.Entry entry)
+    {
+        builder.append("\"player\":\"").append(escape(entry.getPlayer())).append('"');
+        builder.append(",\"time\":").append(TimeUnit.NANOSECONDS.toMillis(entry.getTime()));
+        builder.append(",\"date\":").append(entry.getDate());
+    }
+    
+    /**
+     * POST /sessions?difficulty=&amp;timed=&amp;hint=&amp;seed=&amp;player=
+     * @param query The query of the request, may be null
+     * @return The response
+     */
+    private Response create(final String query)
+    {
+        Difficulty difficulty = Difficulty.Medium;
+        boolean timed = false;
+        boolean hint = false;
+        long seed = System.nanoTime();
+        String player = null;
+        
+        if (query != null)
+        {
+            for (String parameter : query.split("&"))
+            {
+                final int index = parameter.indexOf('=');
+                
+                if (index < 0)
+                    continue;
+                
+                final String value = parameter.substring(index + 1);
+                
+                switch (parameter.substring(0, index))
+                {
+                    case "difficulty":
+                        difficulty = getDifficulty(value);
+                        
+                        if (difficulty == null)
+                            return Response.error(400, "Unknown difficulty - " + value);
+                        break;
+                    
+                    case "timed":
+                        timed = Boolean.parseBoolean(value);
+                        break;
+                    
+                    case "hint":
+                        hint = Boolean.parseBoolean(value);
+                        break;
+                    
+                    case "seed":
+                        try
+                        {
+                            seed = Long.parseLong(value);
+                        }
+                        catch (NumberFormatException e)
+                        {
+                            return Response.error(400, "Bad seed - " + value);
+                        }
+                        break;
+                    
+                    case "player":
+                        player = decode(value);
+                        
+                        if (player == null || player.isEmpty())
+                            return Response.error(400, "Bad player - " + value);
+                        break;
+                }
+            }
+        }
+        
+        if (manager.getLibrary().size(difficulty) == 0)
+            return Response.error(404, "No puzzles");
+        
+        final Session session = manager.create(seed, difficulty, timed, hint, player);
+        
+        return call(session, new Callable<Response>()
+        {
+            @Override
+            public Response call()
+            {
+                return new Response(200, "{" + writeStatus(session) + ",\"clues\":" + clues.get(session.getDifficulty())[session.getPuzzleId()] + "}");
+            }
+        });
+    }
+    
+    /**
+     * Run the task in the session and wait for the response
+     * @param session The session
+     * @param task The task
+     * @return The response of the task, or an error if it failed or took too long
+     */
+    private Response call(final Session session, final Callable<Response> task)
+    {
+        try
+        {
+            return manager.run(session, task).get(TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IllegalArgumentException)
+                return Response.error(400, e.getCause().getMessage());
+            
+            //the session may have been removed while we were waiting, any other failure is a bug
+            if (session.isDisposed() || manager.get(session.getId()) != session)
+                return Response.error(404, "Unknown session - " + session.getId());
+            
+            e.printStackTrace();
+            return Response.error(500, String.valueOf(e.getCause()));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return Response.error(503, "Interrupted");
+        }
+        catch (TimeoutException e)
+        {
+            return Response.error(503, "Timed out");
+        }
+        catch (RuntimeException e)
+        {
+            //the task couldn't be run, this is a bug
+            e.printStackTrace();
+            return Response.error(500, String.valueOf(e));
+        }
+    }
+    
+    /**
+     * Write the status of the session, this needs to run in the session
+     * @param session The session
+     * @return The JSON fields, without the braces
+     */
+    private static String writeStatus(final Session session)
+    {
+        final StringBuilder builder = new StringBuilder(256);
+        
+        builder.append("\"id\":").append(session.getId());
+        builder.append(",\"player\":\"").append(escape(session.getPlayer())).append('"');
+        builder.append(",\"difficulty\":\"").append(session.getDifficulty()).append('"');
+        builder.append(",\"puzzle\":").append(session.getPuzzleId());
+        builder.append(",\"level\":").append(session.getLevel());
+        builder.append(",\"timed\":").append(session.hasTimed());
+        builder.append(",\"time\":").append(TimeUnit.NANOSECONDS.toMillis(session.hasTimed() ? session.getTimer().getRemaining() : session.getTimer().getPassed()));
+        builder.append(",\"remaining\":").append(session.getRemaining());
+        builder.append(",\"solved\":").append(session.hasSolved());
+        builder.append(",\"finished\":").append(session.hasFinished());
+        builder.append(",\"victory\":").append(session.hasVictory());
+        
+        if (!session.hasFinished())
+        {
+            builder.append(",\"wrong\":").append(session.getWrong());
+            builder.append(",\"missing\":").append(session.getMissing());
+        }
+        
+        return builder.toString();
+    }
+    
+    /**
+     * Write the clues of the puzzle
+     * @param library The library of every puzzle
+     * @param difficulty The difficulty of the puzzle
+     * @param id The id of the puzzle
+     * @return The JSON object
+     */
+    private static String writeClues(final Library library, final Difficulty difficulty, final int id)
+    {
+        final Puzzle puzzle = library.getPuzzle(difficulty, id);
+        final StringBuilder builder = new StringBuilder(512);
+        
+        builder.append("{\"difficulty\":\"").append(difficulty).append('"');
+        builder.append(",\"id\":").append(id);
+        builder.append(",\"cols\":").append(puzzle.getCols());
+        builder.append(",\"rows\":").append(puzzle.getRows());
+        
+        builder.append(",\"rowHints\":[");
+        
+        for (int row = 0; row < puzzle.getRows(); row++)
+        {
+            writeHint(builder.append((row > 0) ? "," : ""), puzzle.getRowHint(row));
+        }
+        
+        builder.append("],\"columnHints\":[");
+        
+        for (int col = 0; col < puzzle.getCols(); col++)
+        {
+            writeHint(builder.append((col > 0) ? "," : ""), puzzle.getColumnHint(col));
+        }
+        
+        return builder.append("]}").toString();
+    }
+    
+    /**
+     * Write the hint of a row or column, a hint of 0 has no groups
+     * @param builder Where the hint is written
+     * @param hint The hint
+     */
+    private static void writeHint(final StringBuilder builder, final List<Integer> hint)
+    {
+        builder.append('[');
+        
+        if (hint.size() > 1 || hint.get(0) != 0)
+        {
+            for (int i = 0; i < hint.size(); i++)
+            {
+                builder.append((i > 0) ? "," : "").append(hint.get(i));
+            }
+        }
+        
+        builder.append(']');
+    }
+    
+    /**
+     * Parse the moves from the body, the numbers between the first [ and the last ]
+     * @param body The request body, {"moves":[...]}
+     * @return The packed moves
+     * @throws IllegalArgumentException if the moves can't be parsed
+     */
+    private static int[] parseMoves(final String body)
+    {
+        final int start = body.indexOf('[');
+        final int end = body.lastIndexOf(']');
+        
+        if (start < 0 || end < start)
+            throw new IllegalArgumentException("Expected {\"moves\":[...]}");
+        
+        int[] moves = new int[16];
+        int count = 0;
+        int value = -1;
+        
+        //has whitespace ended the current number
+        boolean ended = false;
+        
+        for (int i = start + 1; i <= end; i++)
+        {
+            final char c = body.charAt(i);
+            
+            if (c >= '0' && c <= '9')
+            {
+                //the numbers must be separated by a comma
+                if (ended)
+                    throw new IllegalArgumentException("Expected a comma");
+                
+                final int digit = c - '0';
+                
+                if (value < 0)
+                {
+                    value = digit;
+                }
+                else
+                {
+                    //check before multiplying so the value can't wrap around
+                    if (value > (Integer.MAX_VALUE - digit) / 10)
+                        throw new IllegalArgumentException("Move too large");
+                    
+                    value = (value * 10) + digit;
+                }
+            }
+            else if (c == ',' || c == ']')
+            {
+                if (value < 0)
+                {
+                    //an empty batch
+                    if (c == ']' && count == 0)
+                        break;
+                    
+                    throw new IllegalArgumentException("Expected a move");
+                }
+                
+                if (count == moves.length)
+                {
+                    final int[] tmp = new int[count * 2];
+                    System.arraycopy(moves, 0, tmp, 0, count);
+                    moves = tmp;
+                }
+                
+                moves[count++] = value;
+                value = -1;
+                ended = false;
+            }
+            else if (Character.isWhitespace(c))
+            {
+                //whitespace after a number ends it
+                if (value >= 0)
+                    ended = true;
+            }
+            else
+            {
+                throw new IllegalArgumentException("Unexpected character - " + c);
+            }
+        }
+        
+        final int[] result = new int[count];
+        System.arraycopy(moves, 0, result, 0, count);
+        
+        return result;
+    }
+    
+    /**
+     * Split the path of the request, ignoring empty parts
+     * @param uri The request
+     * @return The parts of the path
+     */
+    private static String[] getPath(final URI uri)
+    {
+        final String path = uri.getPath();
+        
+        return (path.startsWith("/") ? path.substring(1) : path).split("/+");
+    }
+    
+    /**
+     * Get a parameter of the query
+     * @param query The query of the request, may be null
+     * @param name The name of the parameter
+     * @return The decoded value, null if the parameter isn't there
+     */
+    private static String getParameter(final String query, final String name)
+    {
+        if (query == null)
+            return null;
+        
+        for (String parameter : query.split("&"))
+        {
+            if (parameter.startsWith(name + "="))
+                return decode(parameter.substring(name.length() + 1));
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Decode a value of the query
+     * @param value The value
+     * @return The decoded value, null if it isn't encoded correctly
+     */
+    private static String decode(final String value)
+    {
+        try
+        {
+            return URLDecoder.decode(value, "UTF-8");
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * Escape the text for a JSON string
+     * @param text The text
+     * @return The escaped text, without the quotes
+     */
+    private static String escape(final String text)
+    {
+        final StringBuilder builder = new StringBuilder(text.length() + 8);
+        
+        for (int i = 0; i < text.length(); i++)
+        {
+            final char c = text.charAt(i);
+            
+            if (c == '"' || c == '\\')
+            {
+                builder.append('\\').append(c);
+            }
+            else if (c < ' ')
+            {
+                builder.append(String.format("\\u%04x", (int)c));
+            }
+            else
+            {
+                builder.append(c);
+            }
+        }
+        
+        return builder.toString();
+    }
+    
+    /**
+     * Get the difficulty by name, ignoring case
+     * @param name The name
+     * @return The difficulty, null if there is none with the name
+     */
+    private static Difficulty getDifficulty(final String name)
+    {
+        for (Difficulty difficulty : Difficulty.values())
+        {
+            if (difficulty.name().equalsIgnoreCase(name))
+                return difficulty;
+        }
+        
+        return null;
+    }
+    
+    private static int parseInt(final String value, final int fallback)
+    {
+        try
+        {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e)
+        {
+            return fallback;
+        }
+    }
+    
+    private static long parseLong(final String value, final long fallback)
+    {
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e)
+        {
+            return fallback;
+        }
+    }
+}
\ No newline at end of file
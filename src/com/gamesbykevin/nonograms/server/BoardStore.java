@@ -0,0 +1,439 @@
+package com.gamesbykevin.nonograms.server;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import com.gamesbykevin.nonograms.puzzles.Puzzles;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Keeps the boards of every session packed in large direct buffers, outside of the heap.<br>
+ * Each board is two bitmaps of a bit for each location row by row, the filled locations then the marked locations,
+ * each rounded up to whole words so the filled locations can be compared with the solution in the Library a word at a time.
+ * A 20x20 board is 112 bytes. The boards of the same number of words share a slab, divided into slots,
+ * and the slab grows a chunk at a time. A slot released by one session is kept in a free list and given to the next.
+ * The store is thread safe, allocating and releasing are synchronized on the slab,
+ * while reading and changing a board only touches the bytes of its own slot.
+ * @author GOD
+ */
+public final class BoardStore implements Disposable
+{
+    //the number of slots in each chunk of a slab
+    private static final int CHUNK_SLOTS = 1024;
+    
+    //the handle of a board is the slot in the upper bits and the number of words in the lower bits
+    private static final int WORD_BITS = 8;
+    private static final int MAX_WORDS = (1 << WORD_BITS) - 1;
+    
+    //the slab of each number of words, created when first needed
+    private Slab[] slabs = new Slab[MAX_WORDS + 1];
+    
+    /**
+     * The slots of every board with the same number of words
+     */
+    private static final class Slab
+    {
+        //the bytes of each slot
+        private final int size;
+        
+        //the chunks of slots, replaced when it grows so a board can read it without the lock
+        private volatile ByteBuffer[] chunks = new ByteBuffer[4];
+        
+        //the number of chunks allocated
+        private int count = 0;
+        
+        //the slots released, waiting to be used again
+        private int[] free = new int[64];
+        
+        //the number of slots in the free list
+        private int freed = 0;
+        
+        //the next slot never used
+        private int next = 0;
+        
+        private Slab(final int words)
+        {
+            this.size = words * 2 * 8;
+        }
+    }
+    
+    /**
+     * A view of one board in the store, with the same methods as the board of a Puzzle.<br>
+     * The view is not thread safe, only one thread at a time should use a board.
+     */
+    public static final class Board
+    {
+        //the size of the board
+        private int cols, rows;
+        
+        //the number of words of each bitmap
+        private int words;
+        
+        //the handle of the slot, -1 once released
+        private int handle = -1;
+        
+        //the chunk holding the slot, and where the slot starts in it
+        private ByteBuffer buffer;
+        private int offset;
+        
+        private Board()
+        {
+            //only the store creates a board
+        }
+        
+        public int getCols()
+        {
+            return this.cols;
+        }
+        
+        public int getRows()
+        {
+            return this.rows;
+        }
+        
+        /**
+         * Get the number of words of each bitmap
+         * @return The number of longs needed for a bit for each location
+         */
+        public int getWords()
+        {
+            return this.words;
+        }
+        
+        /**
+         * Get a word of the filled locations
+         * @param word The index of the word
+         * @return The bits of 64 locations, row by row
+         */
+        public long getFills(final int word)
+        {
+            return buffer.getLong(offset + (word * 8));
+        }
+        
+        /**
+         * Get a word of the marked locations
+         * @param word The index of the word
+         * @return The bits of 64 locations, row by row
+         */
+        public long getMarks(final int word)
+        {
+            return buffer.getLong(offset + ((words + word) * 8));
+        }
+        
+        /**
+         * Get the value of a location
+         * @param col Column
+         * @param row Row
+         * @return Puzzles.KEY_FILL, Puzzles.KEY_EMPTY or Puzzles.KEY_MARK
+         */
+        public int getKeyValue(final int col, final int row)
+        {
+            return getKeyValue((row * cols) + col);
+        }
+        
+        /**
+         * Get the value of a location
+         * @param cell The location index, row by row
+         * @return Puzzles.KEY_FILL, Puzzles.KEY_EMPTY or Puzzles.KEY_MARK
+         */
+        public int getKeyValue(final int cell)
+        {
+            if (((getFills(cell >>> 6) >>> (cell & 63)) & 1L) != 0)
+                return Puzzles.KEY_FILL;
+            
+            if (((getMarks(cell >>> 6) >>> (cell & 63)) & 1L) != 0)
+                return Puzzles.KEY_MARK;
+            
+            return Puzzles.KEY_EMPTY;
+        }
+        
+        /**
+         * Set the value of a location
+         * @param col Column
+         * @param row Row
+         * @param value Puzzles.KEY_FILL, Puzzles.KEY_EMPTY or Puzzles.KEY_MARK
+         */
+        public void setKeyValue(final int col, final int row, final int value)
+        {
+            setKeyValue((row * cols) + col, value);
+        }
+        
+        /**
+         * Set the value of a location
+         * @param cell The location index, row by row
+         * @param value Puzzles.KEY_FILL, Puzzles.KEY_EMPTY or Puzzles.KEY_MARK
+         */
+        public void setKeyValue(final int cell, final int value)
+        {
+            final long bit = 1L << (cell & 63);
+            final int fills = offset + ((cell >>> 6) * 8);
+            final int marks = fills + (words * 8);
+            
+            buffer.putLong(fills, (value == Puzzles.KEY_FILL) ? buffer.getLong(fills) | bit : buffer.getLong(fills) & ~bit);
+            buffer.putLong(marks, (value == Puzzles.KEY_MARK) ? buffer.getLong(marks) | bit : buffer.getLong(marks) & ~bit);
+        }
+        
+        /**
+         * Set every location with the value to empty
+         * @param value Puzzles.KEY_FILL or Puzzles.KEY_MARK
+         */
+        public void remove(final int value)
+        {
+            final int start = offset + ((value == Puzzles.KEY_MARK) ? words * 8 : 0);
+            
+            for (int word = 0; word < words; word++)
+            {
+                buffer.putLong(start + (word * 8), 0);
+            }
+        }
+        
+        /**
+         * Set every location to empty
+         */
+        public void reset()
+        {
+            for (int i = 0; i < words * 2; i++)
+            {
+                buffer.putLong(offset + (i * 8), 0);
+            }
+        }
+        
+        /**
+         * Does the board match the solution, every filled location is filled and nothing else is
+         * @param solution The solution from the Library, with the same layout as the filled locations
+         * @return true=yes, false=no
+         */
+        public boolean hasMatch(final long[] solution)
+        {
+            for (int word = 0; word < words; word++)
+            {
+                if (getFills(word) != solution[word])
+                    return false;
+            }
+            
+            return true;
+        }
+    }
+    
+    @Override
+    public void dispose()
+    {
+        //the direct buffers are freed once they are no longer reachable
+        slabs = null;
+    }
+    
+    /**
+     * Get an empty board from the store
+     * @param cols The number of columns
+     * @param rows The number of rows
+     * @return The board
+     */
+    public Board allocate(final int cols, final int rows)
+    {
+        final Board board = new Board();
+        
+        allocate(board, cols, rows);
+        
+        return board;
+    }
+    
+    /**
+     * Empty the board for a new puzzle, it only moves to another slot if the number of words changes
+     * @param board The board
+     * @param cols The number of columns
+     * @param rows The number of rows
+     */
+    public void reset(final Board board, final int cols, final int rows)
+    {
+        if (board.handle >= 0 && board.words == getWords(cols, rows))
+        {
+            board.cols = cols;
+            board.rows = rows;
+            board.reset();
+        }
+        else
+        {
+            release(board);
+            allocate(board, cols, rows);
+        }
+    }
+    
+    /**
+     * Return the slot of the board to the store, the board can't be used afterwards
+     * @param board The board
+     */
+    public void release(final Board board)
+    {
+        if (board.handle < 0)
+            return;
+        
+        final Slab slab = slabs[board.words];
+        
+        synchronized (slab)
+        {
+            if (slab.freed == slab.free.length)
+            {
+                final int[] tmp = new int[slab.freed * 2];
+                System.arraycopy(slab.free, 0, tmp, 0, slab.freed);
+                slab.free = tmp;
+            }
+            
+            slab.free[slab.freed++] = board.handle >>> WORD_BITS;
+        }
+        
+        board.handle = -1;
+        board.buffer = null;
+    }
+    
+    /**
+     * Get the number of boards in use
+     * @return The number of slots allocated and not released
+     */
+    public int size()
+    {
+        int size = 0;
+        
+        for (Slab slab : slabs)
+        {
+            if (slab == null)
+                continue;
+            
+            synchronized (slab)
+            {
+                size += slab.next - slab.freed;
+            }
+        }
+        
+        return size;
+    }
+    
+    /**
+     * Get the memory reserved for boards
+     * @return The bytes of every chunk allocated
+     */
+    public long getCapacity()
+    {
+        long capacity = 0;
+        
+        for (Slab slab : slabs)
+        {
+            if (slab == null)
+                continue;
+            
+            synchronized (slab)
+            {
+                capacity += (long)slab.count * CHUNK_SLOTS * slab.size;
+            }
+        }
+        
+        return capacity;
+    }
+    
+    /**
+     * Get the memory of the boards in use
+     * @return The bytes of every slot allocated and not released
+     */
+    public long getUsed()
+    {
+        long used = 0;
+        
+        for (Slab slab : slabs)
+        {
+            if (slab == null)
+                continue;
+            
+            synchronized (slab)
+            {
+                used += (long)(slab.next - slab.freed) * slab.size;
+            }
+        }
+        
+        return used;
+    }
+    
+    /**
+     * Give the board an empty slot
+     * @param board The board
+     * @param cols The number of columns
+     * @param rows The number of rows
+     */
+    private void allocate(final Board board, final int cols, final int rows)
+    {
+        final int words = getWords(cols, rows);
+        
+        if (words > MAX_WORDS)
+            throw new IllegalArgumentException("Board too large - " + cols + "x" + rows);
+        
+        final Slab slab = getSlab(words);
+        
+        final int slot;
+        
+        synchronized (slab)
+        {
+            if (slab.freed > 0)
+            {
+                //use a released slot again
+                slot = slab.free[--slab.freed];
+            }
+            else
+            {
+                if (slab.next > (Integer.MAX_VALUE >>> WORD_BITS))
+                    throw new IllegalStateException("No slots left for boards of " + words + " words");
+                
+                slot = slab.next++;
+                
+                //add a chunk when the slots run out
+                if (slot / CHUNK_SLOTS == slab.count)
+                {
+                    ByteBuffer[] chunks = slab.chunks;
+                    
+                    if (slab.count == chunks.length)
+                    {
+                        final ByteBuffer[] tmp = new ByteBuffer[chunks.length * 2];
+                        System.arraycopy(chunks, 0, tmp, 0, chunks.length);
+                        chunks = tmp;
+                    }
+                    
+                    chunks[slab.count++] = ByteBuffer.allocateDirect(CHUNK_SLOTS * slab.size).order(ByteOrder.nativeOrder());
+                    
+                    slab.chunks = chunks;
+                }
+            }
+        }
+        
+        board.cols = cols;
+        board.rows = rows;
+        board.words = words;
+        board.handle = (slot << WORD_BITS) | words;
+        board.buffer = slab.chunks[slot / CHUNK_SLOTS];
+        board.offset = (slot % CHUNK_SLOTS) * slab.size;
+        
+        //a slot used again still has the previous board
+        board.reset();
+    }
+    
+    /**
+     * Get the slab for the number of words, creating it if needed
+     * @param words The number of words of each bitmap
+     * @return The slab
+     */
+    private synchronized Slab getSlab(final int words)
+    {
+        if (slabs[words] == null)
+            slabs[words] = new Slab(words);
+        
+        return slabs[words];
+    }
+    
+    /**
+     * Get the number of words of each bitmap of a board
+     * @param cols The number of columns
+     * @param rows The number of rows
+     * @return The number of longs needed for a bit for each location
+     */
+    private static int getWords(final int cols, final int rows)
+    {
+        return ((cols * rows) + 63) / 64;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,680 @@
+package com.gamesbykevin.nonograms.server;
+
+import com.gamesbykevin.framework.resources.Disposable;
+import com.gamesbykevin.framework.util.Timer;
+import com.gamesbykevin.framework.util.Timers;
+
+import com.gamesbykevin.nonograms.manager.Manager;
+import com.gamesbykevin.nonograms.player.stat.Leaderboard;
+import com.gamesbykevin.nonograms.puzzles.Library;
+import com.gamesbykevin.nonograms.puzzles.Puzzle;
+import com.gamesbykevin.nonograms.puzzles.Puzzles;
+import com.gamesbykevin.nonograms.puzzles.Puzzles.Difficulty;
+
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A single game hosted by the session manager, played without a display.<br>
+ * Each session has its own board, timer, remaining puzzles and seed, the puzzles themselves are shared from the Library.
+ * Only the state needed to play is kept, the remaining puzzles are a bitmap and the board is packed in the board store,
+ * so a session that is waiting for input costs well under a kilobyte.
+ * The filled bitmap of the board has the same layout as the solution in the Library, so it is checked a word at a time.
+ * A session is not thread safe, it is only changed by the tasks the session manager runs for it one at a time.
+ * In timed mode the session is its own timeout in the timing wheel, so the time running out is noticed without checking every session.
+ * The time taken to solve each puzzle is recorded in the leaderboard under the name of the player.
+ * @author GOD
+ */
+public final class Session extends TimingWheel.Timeout implements Disposable
+{
+    //the id of the session in the session manager
+    private final long id;
+    
+    //the seed of the random object
+    private final long seed;
+    
+    //object used to make random decisions
+    private Random random;
+    
+    //the library of every puzzle, shared by every session
+    private Library library;
+    
+    //the difficulty of the puzzles played
+    private final Difficulty difficulty;
+    
+    //is this timed mode
+    private final boolean timed;
+    
+    //has hint enabled
+    private final boolean hintEnabled;
+    
+    //the timer, counting down in timed mode and up otherwise
+    private Timer timer;
+    
+    //the deadlines of every timed session
+    private TimingWheel wheel;
+    
+    //the fastest solve times of every player
+    private Leaderboard leaderboard;
+    
+    //the name of the player in the leaderboard
+    private final String player;
+    
+    //the time the current puzzle must be solved by in timed mode (nanoseconds)
+    private long deadline;
+    
+    //the puzzles solved, one bit for each puzzle id of the difficulty
+    private long[] solved;
+    
+    //the number of puzzles remaining
+    private int remaining;
+    
+    //the id of the current puzzle
+    private int current = -1;
+    
+    //has the session been disposed, read by other threads
+    private volatile boolean disposed = false;
+    
+    //the boards of every session
+    private BoardStore store;
+    
+    //the board where the player makes their selections
+    private BoardStore.Board board;
+    
+    //the level number
+    private int level = 1;
+    
+    //has the current puzzle been solved
+    private boolean puzzleSolved = false;
+    
+    //is the game finished, and did we win
+    private boolean finished = false, victory = false;
+    
+    //the time of the previous update
+    private long previous;
+    
+    //the tasks waiting to run for this session
+    final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    
+    //is the session waiting to run, or running, in the pool
+    final AtomicBoolean scheduled = new AtomicBoolean(false);
+    
+    /**
+     * Create the session and start the first puzzle
+     * @param id The id of the session
+     * @param library The library of every puzzle
+     * @param wheel The deadlines of every timed session
+     * @param store The boards of every session
+     * @param leaderboard The fastest solve times of every player
+     * @param player The name of the player in the leaderboard
+     * @param seed The seed of the random object
+     * @param difficulty The difficulty of the puzzles played
+     * @param timed Is this timed mode
+     * @param hintEnabled Is a row and column revealed at the start of each puzzle
+     * @param now The current time (nanoseconds)
+     */
+    Session(final long id, final Library library, final TimingWheel wheel, final BoardStore store, final Leaderboard leaderboard, final String player, final long seed, final Difficulty difficulty, final boolean timed, final boolean hintEnabled, final long now)
+    {
+        this.id = id;
+        this.library = library;
+        this.wheel = wheel;
+        this.store = store;
+        this.leaderboard = leaderboard;
+        this.player = player;
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.difficulty = difficulty;
+        this.timed = timed;
+        this.hintEnabled = hintEnabled;
+        this.previous = now;
+        
+        this.remaining = library.size(difficulty);
+        this.solved = new long[(remaining + 63) / 64];
+        
+        //setup timer
+        final long time = (timed) ? Manager.getTimeLimit(difficulty) : 0;
+        this.timer = new Timer();
+        this.timer.setReset(time);
+        this.timer.setRemaining(time);
+        this.timer.reset();
+        
+        //pick the first puzzle
+        if (remaining > 0)
+        {
+            setRandomLevel();
+        }
+        else
+        {
+            finished = true;
+        }
+    }
+    
+    @Override
+    public void dispose()
+    {
+        disposed = true;
+        
+        if (wheel != null)
+        {
+            wheel.cancel(this);
+            wheel = null;
+        }
+        
+        random = null;
+        library = null;
+        leaderboard = null;
+        timer = null;
+        solved = null;
+        
+        if (board != null)
+        {
+            //the slot of the board can be used by another session
+            store.release(board);
+            board = null;
+        }
+        
+        store = null;
+        
+        tasks.clear();
+    }
+    
+    public long getId()
+    {
+        return this.id;
+    }
+    
+    /**
+     * Has the session been disposed?
+     * @return true if the session was removed or the manager disposed, false otherwise
+     */
+    public boolean isDisposed()
+    {
+        return this.disposed;
+    }
+    
+    public String getPlayer()
+    {
+        return this.player;
+    }
+    
+    public long getSeed()
+    {
+        return this.seed;
+    }
+    
+    public Difficulty getDifficulty()
+    {
+        return this.difficulty;
+    }
+    
+    public boolean hasTimed()
+    {
+        return this.timed;
+    }
+    
+    public Timer getTimer()
+    {
+        return this.timer;
+    }
+    
+    public int getLevel()
+    {
+        return this.level;
+    }
+    
+    /**
+     * Get the id of the current puzzle
+     * @return The index of the current puzzle in the library for the difficulty
+     */
+    public int getPuzzleId()
+    {
+        return this.current;
+    }
+    
+    /**
+     * Get the current puzzle
+     * @return The solution from the library, which must not be modified
+     */
+    public Puzzle getPuzzle()
+    {
+        return library.getPuzzle(difficulty, current);
+    }
+    
+    /**
+     * Get the number of puzzles remaining, including the current one unless it has been solved
+     * @return The number of puzzles remaining
+     */
+    public int getRemaining()
+    {
+        return this.remaining;
+    }
+    
+    /**
+     * Get the value of a location on the board
+     * @param col Column
+     * @param row Row
+     * @return Puzzles.KEY_FILL, Puzzles.KEY_EMPTY or Puzzles.KEY_MARK
+     */
+    public int getKeyValue(final int col, final int row)
+    {
+        return board.getKeyValue(col, row);
+    }
+    
+    /**
+     * Get the number of locations filled that should be empty
+     * @return The number of wrong locations
+     */
+    public int getWrong()
+    {
+        final long[] solution = library.getSolution(difficulty, current);
+        
+        int count = 0;
+        
+        for (int i = 0; i < board.getWords(); i++)
+        {
+            count += Long.bitCount(board.getFills(i) & ~solution[i]);
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Get the number of locations not yet filled that should be
+     * @return The number of missing locations
+     */
+    public int getMissing()
+    {
+        final long[] solution = library.getSolution(difficulty, current);
+        
+        int count = 0;
+        
+        for (int i = 0; i < board.getWords(); i++)
+        {
+            count += Long.bitCount(solution[i] & ~board.getFills(i));
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Has the current puzzle been solved?
+     * @return true=yes, false=no
+     */
+    public boolean hasSolved()
+    {
+        return this.puzzleSolved;
+    }
+    
+    /**
+     * Is the game finished?
+     * @return true if every puzzle was solved or the time ran out, false otherwise
+     */
+    public boolean hasFinished()
+    {
+        return this.finished;
+    }
+    
+    /**
+     * Did we win?
+     * @return true if the game is finished because every puzzle was solved, false otherwise
+     */
+    public boolean hasVictory()
+    {
+        return this.victory;
+    }
+    
+    /**
+     * Update the timer with the time passed since the previous update
+     * @param now The current time (nanoseconds)
+     * @return true if the time ran out in this update, false otherwise
+     */
+    boolean update(final long now)
+    {
+        final long elapsed = now - previous;
+        
+        previous = now;
+        
+        //the timer is stopped once the puzzle is solved, until the next level
+        if (finished || puzzleSolved)
+            return false;
+        
+        //update timer
+        timer.update(elapsed);
+        
+        //if time mode and time has passed
+        if (timed && now - deadline >= 0)
+        {
+            //set time remaining to 0
+            timer.setRemaining(0);
+            
+            //flag finished, and loss
+            finished = true;
+            victory = false;
+            
+            wheel.cancel(this);
+            
+            return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Change a location on the board.<br>
+     * If time mode is enabled and the location is filled when it should be empty 1 minute is deducted from the timer.
+     * @param col Column
+     * @param row Row
+     * @param value Puzzles.KEY_FILL, Puzzles.KEY_EMPTY or Puzzles.KEY_MARK
+     * @return true if the board was changed, false if the game is finished or the puzzle is already solved
+     */
+    public boolean move(final int col, final int row, final int value)
+    {
+        if (finished || puzzleSolved)
+            return false;
+        
+        if (col < 0 || col >= board.getCols() || row < 0 || row >= board.getRows())
+            throw new IllegalArgumentException("Location out of bounds - " + col + ", " + row);
+        
+        checkValue(value);
+        
+        apply((row * board.getCols()) + col, value);
+        
+        checkComplete();
+        
+        return true;
+    }
+    
+    /**
+     * Change many locations on the board at once.<br>
+     * Each move is packed in an int as (location index * 4) + value, the location index is row by row.
+     * Every move is checked before any is applied, so a bad batch doesn't change the board.
+     * @param moves The packed moves
+     * @param count The number of moves
+     * @return The number of locations filled that should be empty, -1 if the game is finished or the puzzle is already solved
+     * @throws IllegalArgumentException if a move is out of bounds or has an unknown value
+     */
+    public int move(final int[] moves, final int count)
+    {
+        if (finished || puzzleSolved)
+            return -1;
+        
+        final int size = board.getCols() * board.getRows();
+        
+        for (int i = 0; i < count; i++)
+        {
+            if (moves[i] < 0 || (moves[i] >>> 2) >= size)
+                throw new IllegalArgumentException("Location out of bounds - " + (moves[i] >>> 2));
+            
+            checkValue(moves[i] & 3);
+        }
+        
+        final long[] solution = library.getSolution(difficulty, current);
+        
+        int wrong = 0;
+        
+        for (int i = 0; i < count; i++)
+        {
+            final int cell = moves[i] >>> 2;
+            final int value = moves[i] & 3;
+            
+            if (value == Puzzles.KEY_FILL && !isSet(solution, cell))
+                wrong++;
+            
+            apply(cell, value);
+        }
+        
+        checkComplete();
+        
+        return wrong;
+    }
+    
+    /**
+     * Make sure the value can be placed on the board
+     * @param value The value
+     * @throws IllegalArgumentException if the value is not Puzzles.KEY_FILL, Puzzles.KEY_EMPTY or Puzzles.KEY_MARK
+     */
+    private static void checkValue(final int value)
+    {
+        if (value != Puzzles.KEY_FILL && value != Puzzles.KEY_EMPTY && value != Puzzles.KEY_MARK)
+            throw new IllegalArgumentException("Unknown value - " + value);
+    }
+    
+    /**
+     * Change a location on the board.<br>
+     * If time mode is enabled and the location is filled when it should be empty 1 minute is deducted from the timer.
+     * @param cell The location index, row by row
+     * @param value Puzzles.KEY_FILL, Puzzles.KEY_EMPTY or Puzzles.KEY_MARK
+     */
+    private void apply(final int cell, final int value)
+    {
+        board.setKeyValue(cell, value);
+        
+        //if player just filled the block when it should be empty, it was a bad move
+        if (timed && value == Puzzles.KEY_FILL && !isSet(library.getSolution(difficulty, current), cell))
+        {
+            timer.setRemaining(timer.getRemaining() - Timers.NANO_SECONDS_PER_MINUTE);
+            
+            //the deadline is a minute sooner
+            deadline -= Timers.NANO_SECONDS_PER_MINUTE;
+            wheel.schedule(this, deadline);
+        }
+    }
+    
+    /**
+     * Is the bit of the location set?
+     * @param bitmap The bitmap
+     * @param cell The location index, row by row
+     * @return true=yes, false=no
+     */
+    private static boolean isSet(final long[] bitmap, final int cell)
+    {
+        return ((bitmap[cell >>> 6] >>> (cell & 63)) & 1L) != 0;
+    }
+    
+    /**
+     * Check if the board matches the current puzzle, every filled location is filled and nothing else is
+     */
+    private void checkComplete()
+    {
+        if (!board.hasMatch(library.getSolution(difficulty, current)))
+            return;
+        
+        puzzleSolved = true;
+        
+        //the timer is stopped until the next level
+        if (timed)
+            wheel.cancel(this);
+        
+        //record how long it took
+        leaderboard.record(difficulty, library.getHash(difficulty, current), player, timer.getPassed());
+        
+        //remember the puzzle was solved so it isn't played again
+        solved[current >>> 6] |= (1L << (current & 63));
+        remaining--;
+        
+        //remove all existing marks to display the full picture
+        board.remove(Puzzles.KEY_MARK);
+    }
+    
+    /**
+     * Correct one random location on the board that doesn't match the solution.<br>
+     * A missing location is filled, a wrong location is marked.
+     * @return The location index corrected, -1 if there is nothing to correct or the game is finished
+     */
+    public int hint()
+    {
+        if (finished || puzzleSolved)
+            return -1;
+        
+        final long[] solution = library.getSolution(difficulty, current);
+        
+        int count = 0;
+        
+        for (int i = 0; i < board.getWords(); i++)
+        {
+            count += Long.bitCount(board.getFills(i) ^ solution[i]);
+        }
+        
+        if (count == 0)
+            return -1;
+        
+        //the index of the location within the locations that don't match
+        int index = random.nextInt(count);
+        
+        for (int word = 0; word < board.getWords(); word++)
+        {
+            long different = board.getFills(word) ^ solution[word];
+            
+            final int bits = Long.bitCount(different);
+            
+            if (index < bits)
+            {
+                //remove the lowest bits until we reach our location
+                for (int i = 0; i < index; i++)
+                {
+                    different &= different - 1;
+                }
+                
+                final int cell = (word * 64) + Long.numberOfTrailingZeros(different);
+                
+                board.setKeyValue(cell, isSet(solution, cell) ? Puzzles.KEY_FILL : Puzzles.KEY_MARK);
+                
+                checkComplete();
+                
+                return cell;
+            }
+            
+            index -= bits;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Setup the next level once the current puzzle is solved
+     * @return true if the next level was setup, false if the puzzle is not solved or the game is finished
+     */
+    public boolean nextLevel()
+    {
+        if (finished || !puzzleSolved)
+            return false;
+        
+        //if every puzzle has been solved, we win
+        if (remaining == 0)
+        {
+            finished = true;
+            victory = true;
+            return false;
+        }
+        
+        //next level
+        level++;
+        
+        //reset timer
+        timer.reset();
+        
+        //pick next random level
+        setRandomLevel();
+        
+        return true;
+    }
+    
+    /**
+     * Pick a random puzzle from the remaining puzzles and reset the board
+     */
+    private void setRandomLevel()
+    {
+        //the index of the puzzle within the remaining puzzles
+        int index = random.nextInt(remaining);
+        
+        for (int word = 0; word < solved.length; word++)
+        {
+            //the puzzles in this word that have not been solved
+            long unsolved = ~solved[word];
+            
+            //ignore the bits beyond the puzzles we have
+            if (word == solved.length - 1 && library.size(difficulty) % 64 != 0)
+                unsolved &= (1L << (library.size(difficulty) % 64)) - 1;
+            
+            final int count = Long.bitCount(unsolved);
+            
+            if (index < count)
+            {
+                //remove the lowest bits until we reach our puzzle
+                for (int i = 0; i < index; i++)
+                {
+                    unsolved &= unsolved - 1;
+                }
+                
+                current = (word * 64) + Long.numberOfTrailingZeros(unsolved);
+                break;
+            }
+            
+            index -= count;
+        }
+        
+        final Puzzle puzzle = getPuzzle();
+        
+        //get the board from the store, it only moves to another slot if the size changes
+        if (board == null)
+        {
+            board = store.allocate(puzzle.getCols(), puzzle.getRows());
+        }
+        else
+        {
+            store.reset(board, puzzle.getCols(), puzzle.getRows());
+        }
+        
+        puzzleSolved = false;
+        
+        //the time allowed starts again for each puzzle
+        if (timed)
+        {
+            deadline = previous + Manager.getTimeLimit(difficulty);
+            wheel.schedule(this, deadline);
+        }
+        
+        //if hint enabled, apply hint
+        if (hintEnabled)
+            applyHint();
+    }
+    
+    /**
+     * Apply the hint to the board.<br>
+     * A random location will be picked.<br>
+     * All vertical and horizontal columns, rows will be revealed
+     */
+    private void applyHint()
+    {
+        final Puzzle puzzle = getPuzzle();
+        
+        //pick random column and row
+        final int randCol = random.nextInt(puzzle.getCols());
+        final int randRow = random.nextInt(puzzle.getRows());
+        
+        //reveal row
+        for (int col = 0; col < puzzle.getCols(); col++)
+        {
+            reveal(puzzle, col, randRow);
+        }
+        
+        //reveal column
+        for (int row = 0; row < puzzle.getRows(); row++)
+        {
+            reveal(puzzle, randCol, row);
+        }
+    }
+    
+    /**
+     * Reveal the solution of a location, an empty location is marked
+     * @param puzzle The current puzzle
+     * @param col Column
+     * @param row Row
+     */
+    private void reveal(final Puzzle puzzle, final int col, final int row)
+    {
+        board.setKeyValue(col, row, (puzzle.getKeyValue(col, row) == Puzzles.KEY_EMPTY) ? Puzzles.KEY_MARK : puzzle.getKeyValue(col, row));
+    }
+}
\ No newline at end of file
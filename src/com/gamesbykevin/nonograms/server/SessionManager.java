@@ -0,0 +1,465 @@
+package com.gamesbykevin.nonograms.server;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+import com.gamesbykevin.nonograms.player.stat.Leaderboard;
+import com.gamesbykevin.nonograms.puzzles.Library;
+import com.gamesbykevin.nonograms.puzzles.Puzzles.Difficulty;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many sessions in one process, all sharing the same Library.<br>
+ * There is no thread for each session, the work for a session is queued and run by a small pool of threads.
+ * A session is run by one thread at a time, so the tasks of a session never need to be synchronized,
+ * and a session waiting for input costs nothing but its memory.
+ * The timer of a session is updated with the time passed whenever it runs.
+ * The deadlines of timed sessions are kept in a timing wheel, which runs a session when its time runs out,
+ * so the listener hears about the game over without any session being checked each update.
+ * The boards of every session are packed in one board store outside of the heap, and reused as sessions come and go.
+ * The solve times of every session go to one leaderboard, which is loaded and saved by the pool so play never waits for the disk.
+ * @author GOD
+ */
+public final class SessionManager implements Disposable
+{
+    //the library of every puzzle, shared by every session
+    private Library library;
+    
+    //the threads running the sessions
+    private ScheduledThreadPoolExecutor pool;
+    
+    //every session, by id
+    private ConcurrentHashMap<Long, Session> sessions;
+    
+    //the id of the next session
+    private final AtomicLong ids = new AtomicLong();
+    
+    //the duration of each tick of the timing wheel, the time running out is noticed within a tick
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(10);
+    
+    //the deadlines of every timed session
+    private TimingWheel wheel;
+    
+    //the boards of every session
+    private BoardStore store;
+    
+    //receives each game over, null if nobody is listening
+    private volatile Listener listener;
+    
+    //how often a snapshot of the leaderboard is saved
+    private static final long SAVE_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+    
+    //the fastest solve times of every player
+    private Leaderboard leaderboard;
+    
+    /**
+     * Receives each session that has run out of time
+     */
+    public interface Listener
+    {
+        /**
+         * The time ran out, this is called while the session is running so it can be read safely
+         * @param session The session
+         */
+        void gameOver(Session session);
+    }
+    
+    /**
+     * Create the session manager with a thread for each processor
+     * @param library The library of every puzzle
+     */
+    public SessionManager(final Library library)
+    {
+        this(library, Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Create the session manager
+     * @param library The library of every puzzle
+     * @param threads The number of threads running the sessions
+     */
+    public SessionManager(final Library library, final int threads)
+    {
+        this(library, threads, new Leaderboard(null));
+    }
+    
+    /**
+     * Create the session manager, the leaderboard is loaded in the background
+     * @param library The library of every puzzle
+     * @param threads The number of threads running the sessions
+     * @param leaderboard The fastest solve times of every player
+     */
+    public SessionManager(final Library library, final int threads, final Leaderboard leaderboard)
+    {
+        this.library = library;
+        this.leaderboard = leaderboard;
+        this.sessions = new ConcurrentHashMap<>();
+        this.store = new BoardStore();
+        
+        final AtomicInteger count = new AtomicInteger();
+        
+        this.pool = new ScheduledThreadPoolExecutor(threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                final Thread thread = new Thread(runnable, "session-" + count.incrementAndGet());
+                
+                //the sessions don't keep the process running
+                thread.setDaemon(true);
+                
+                return thread;
+            }
+        });
+        
+        this.wheel = new TimingWheel(TICK, System.nanoTime(), new TimingWheel.Listener()
+        {
+            @Override
+            public void expired(final TimingWheel.Timeout timeout)
+            {
+                //run the session so it notices the time has run out
+                schedule((Session)timeout);
+            }
+        });
+        
+        //advance the wheel every tick
+        this.pool.scheduleAtFixedRate(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                wheel.advance(System.nanoTime());
+            }
+        }, TICK, TICK, TimeUnit.NANOSECONDS);
+        
+        //load the leaderboard while the sessions are already being played
+        this.pool.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    leaderboard.load();
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        });
+        
+        //save a snapshot of the leaderboard every so often
+        this.pool.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                save();
+            }
+        }, SAVE_INTERVAL, SAVE_INTERVAL, TimeUnit.NANOSECONDS);
+    }
+    
+    @Override
+    public void dispose()
+    {
+        if (pool != null)
+        {
+            pool.shutdownNow();
+            
+            try
+            {
+                pool.awaitTermination(1, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            
+            pool = null;
+        }
+        
+        wheel = null;
+        
+        if (leaderboard != null)
+        {
+            //keep the times recorded since the last snapshot
+            save();
+            leaderboard = null;
+        }
+        
+        if (sessions != null)
+        {
+            for (Session session : sessions.values())
+            {
+                session.dispose();
+            }
+            
+            sessions.clear();
+            sessions = null;
+        }
+        
+        if (store != null)
+        {
+            store.dispose();
+            store = null;
+        }
+        
+        library = null;
+    }
+    
+    /**
+     * Set the object that receives each game over
+     * @param listener The listener, null if nobody is listening
+     */
+    public void setListener(final Listener listener)
+    {
+        this.listener = listener;
+    }
+    
+    /**
+     * Get the number of timed sessions waiting for their time to run out
+     * @return The number of deadlines in the timing wheel
+     */
+    public int getDeadlines()
+    {
+        return wheel.size();
+    }
+    
+    /**
+     * Get the library of every puzzle
+     * @return The library shared by every session
+     */
+    public Library getLibrary()
+    {
+        return this.library;
+    }
+    
+    /**
+     * Get the boards of every session
+     * @return The board store
+     */
+    public BoardStore getBoards()
+    {
+        return this.store;
+    }
+    
+    /**
+     * Get the fastest solve times of every player
+     * @return The leaderboard shared by every session
+     */
+    public Leaderboard getLeaderboard()
+    {
+        return this.leaderboard;
+    }
+    
+    /**
+     * Save a snapshot of the leaderboard
+     */
+    private void save()
+    {
+        try
+        {
+            leaderboard.save();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Get the threads running the sessions, so other work can be scheduled with them
+     * @return The scheduler
+     */
+    public ScheduledExecutorService getScheduler()
+    {
+        return this.pool;
+    }
+    
+    /**
+     * Create a new session and start the first puzzle, the player is named after the session
+     * @param seed The seed of the random object
+     * @param difficulty The difficulty of the puzzles played
+     * @param timed Is this timed mode
+     * @param hintEnabled Is a row and column revealed at the start of each puzzle
+     * @return The session
+     */
+    public Session create(final long seed, final Difficulty difficulty, final boolean timed, final boolean hintEnabled)
+    {
+        return create(seed, difficulty, timed, hintEnabled, null);
+    }
+    
+    /**
+     * Create a new session and start the first puzzle
+     * @param seed The seed of the random object
+     * @param difficulty The difficulty of the puzzles played
+     * @param timed Is this timed mode
+     * @param hintEnabled Is a row and column revealed at the start of each puzzle
+     * @param player The name of the player in the leaderboard, null to name the player after the session
+     * @return The session
+     */
+    public Session create(final long seed, final Difficulty difficulty, final boolean timed, final boolean hintEnabled, final String player)
+    {
+        final long id = ids.incrementAndGet();
+        
+        final Session session = new Session(id, library, wheel, store, leaderboard, (player == null) ? "session-" + id : player, seed, difficulty, timed, hintEnabled, System.nanoTime());
+        
+        sessions.put(session.getId(), session);
+        
+        return session;
+    }
+    
+    /**
+     * Get the session
+     * @param id The id of the session
+     * @return The session, null if it doesn't exist
+     */
+    public Session get(final long id)
+    {
+        return sessions.get(id);
+    }
+    
+    /**
+     * Remove the session, it is disposed after any tasks already submitted have run
+     * @param id The id of the session
+     * @return true if the session existed, false otherwise
+     */
+    public boolean remove(final long id)
+    {
+        final Session session = sessions.remove(id);
+        
+        if (session == null)
+            return false;
+        
+        submit(session, new Callable<Void>()
+        {
+            @Override
+            public Void call()
+            {
+                session.dispose();
+                return null;
+            }
+        });
+        
+        return true;
+    }
+    
+    /**
+     * Get the number of sessions
+     * @return The number of sessions
+     */
+    public int size()
+    {
+        return sessions.size();
+    }
+    
+    /**
+     * Run a task for the session.<br>
+     * The timer of the session is updated before the task runs, and no other task of the session runs at the same time.
+     * @param session The session
+     * @param task The task to run
+     * @return The result of the task once it has run
+     */
+    public <T> Future<T> submit(final Session session, final Callable<T> task)
+    {
+        final FutureTask<T> future = new FutureTask<>(task);
+        
+        session.tasks.add(future);
+        
+        schedule(session);
+        
+        return future;
+    }
+    
+    /**
+     * Run a task for the session on the calling thread, if no other thread is running the session.<br>
+     * Otherwise the task is queued as with submit, so a request thread can skip handing the task to the pool.
+     * @param session The session
+     * @param task The task to run
+     * @return The result of the task, which is already done unless the session was busy
+     */
+    public <T> Future<T> run(final Session session, final Callable<T> task)
+    {
+        final FutureTask<T> future = new FutureTask<>(task);
+        
+        session.tasks.add(future);
+        
+        //the session is idle, so run it here
+        if (session.scheduled.compareAndSet(false, true))
+            drain(session);
+        
+        return future;
+    }
+    
+    /**
+     * Queue the session to run, unless it is already queued or running
+     * @param session The session
+     */
+    private void schedule(final Session session)
+    {
+        if (!session.scheduled.compareAndSet(false, true))
+            return;
+        
+        pool.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                drain(session);
+            }
+        });
+    }
+    
+    /**
+     * Update the session then run every task waiting
+     * @param session The session
+     */
+    private void drain(final Session session)
+    {
+        try
+        {
+            try
+            {
+                //the session may have been disposed by a previous task
+                if (session.getTimer() != null && session.update(System.nanoTime()))
+                {
+                    final Listener current = listener;
+                    
+                    if (current != null)
+                        current.gameOver(session);
+                }
+            }
+            catch (RuntimeException e)
+            {
+                //the tasks waiting still run, and the update is tried again the next time the session runs
+                e.printStackTrace();
+            }
+            
+            Runnable task;
+            
+            while ((task = session.tasks.poll()) != null)
+            {
+                task.run();
+            }
+        }
+        finally
+        {
+            //otherwise the session would never run again
+            session.scheduled.set(false);
+        }
+        
+        //a task may have been added after we stopped looking
+        if (!session.tasks.isEmpty())
+            schedule(session);
+    }
+}
\ No newline at end of file
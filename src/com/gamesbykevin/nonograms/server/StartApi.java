@@ -0,0 +1,55 @@
+package com.gamesbykevin.nonograms.server;
+
+import com.gamesbykevin.nonograms.player.stat.Leaderboard;
+import com.gamesbykevin.nonograms.puzzles.Library;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+
+/**
+ * This file will start the HTTP endpoint for playing games without a display, on localhost.<br>
+ * The port is the first argument, or 8080 if none is provided.
+ * Run it with java -cp Nonograms.jar com.gamesbykevin.nonograms.server.StartApi
+ * The leaderboard is kept next to the leaderboard of the desktop game, and saved again when the process is stopped.
+ * @author GOD
+ */
+public final class StartApi
+{
+    public static void main(String[] args)
+    {
+        //the port we will listen on
+        final int port = (args.length > 0) ? Integer.parseInt(args[0]) : 8080;
+        
+        //send each response without waiting for the previous packet to be acknowledged, before the server is created
+        if (System.getProperty(ApiServer.NO_DELAY) == null)
+            System.setProperty(ApiServer.NO_DELAY, "true");
+        
+        try
+        {
+            final SessionManager manager = new SessionManager(Library.read(), Runtime.getRuntime().availableProcessors(), new Leaderboard(new File(Leaderboard.DEFAULT_FILE.getParentFile(), "leaderboard-api.dat")));
+            
+            //save the leaderboard when the process is stopped
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    manager.dispose();
+                }
+            }));
+            
+            final ApiServer server = new ApiServer(manager, new InetSocketAddress("localhost", port), Runtime.getRuntime().availableProcessors() * 2);
+            server.start();
+            
+            System.out.println("Listening on http://localhost:" + server.getPort());
+            
+            //run until the process is stopped
+            Thread.currentThread().join();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
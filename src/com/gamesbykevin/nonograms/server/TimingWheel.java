@@ -0,0 +1,279 @@
+package com.gamesbykevin.nonograms.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks the deadlines of many timeouts without checking each one every update.<br>
+ * Time is divided into ticks, and each timeout is put in a slot of the wheel by the tick it expires in.
+ * There are 4 levels of 64 slots, each slot of a level covering a full turn of the level below it,
+ * so a deadline hours away is held in a high level and moved down a level each time the level below it turns over.
+ * Each slot is a linked list of the timeouts themselves, so scheduling, rescheduling and cancelling a timeout is O(1).
+ * Advancing the wheel only visits the slots of the ticks passed, and the timeouts that have expired.
+ * @author GOD
+ */
+public final class TimingWheel
+{
+    //the number of bits of the tick used by each level, and the slots of each level
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    
+    //the number of levels
+    private static final int LEVELS = 4;
+    
+    //the furthest a timeout can be placed in ticks, anything further is placed here and moved down when reached
+    private static final long RANGE = (1L << (BITS * LEVELS)) - 1;
+    
+    /**
+     * Receives each timeout once it has expired
+     */
+    public interface Listener
+    {
+        /**
+         * The timeout has expired, this is called without holding the lock of the wheel
+         * @param timeout The timeout
+         */
+        void expired(Timeout timeout);
+    }
+    
+    /**
+     * A deadline in the wheel, the timeout is its own node in the list of its slot
+     */
+    public static class Timeout
+    {
+        //the neighbours in the list of the slot
+        private Timeout previous, next;
+        
+        //the tick the timeout expires in
+        private long expires;
+        
+        //the slot holding the timeout, -1 if it isn't scheduled
+        private int slot = -1;
+        
+        /**
+         * Is the timeout waiting to expire?
+         * @return true=yes, false=no
+         */
+        public boolean isScheduled()
+        {
+            return (slot >= 0);
+        }
+    }
+    
+    //the first timeout of each slot, level by level
+    private final Timeout[] slots = new Timeout[LEVELS * SLOTS];
+    
+    //the duration of each tick (nanoseconds)
+    private final long tick;
+    
+    //the time of tick 0 (nanoseconds)
+    private final long start;
+    
+    //the last tick processed
+    private long current = 0;
+    
+    //the number of timeouts scheduled
+    private int size = 0;
+    
+    //receives each timeout once it has expired
+    private final Listener listener;
+    
+    /**
+     * Create the wheel
+     * @param tick The duration of each tick (nanoseconds), a timeout expires within a tick of its deadline
+     * @param start The current time (nanoseconds)
+     * @param listener Receives each timeout once it has expired
+     */
+    public TimingWheel(final long tick, final long start, final Listener listener)
+    {
+        this.tick = tick;
+        this.start = start;
+        this.listener = listener;
+    }
+    
+    /**
+     * Schedule the timeout, if it is already scheduled it is moved to the new deadline
+     * @param timeout The timeout
+     * @param deadline The time the timeout expires (nanoseconds)
+     */
+    public synchronized void schedule(final Timeout timeout, final long deadline)
+    {
+        if (timeout.isScheduled())
+        {
+            unlink(timeout);
+        }
+        else
+        {
+            size++;
+        }
+        
+        //round up to the next tick, a deadline already passed expires on the next tick
+        final long difference = deadline - start;
+        
+        timeout.expires = Math.max((difference <= 0) ? 0 : ((difference - 1) / tick) + 1, current + 1);
+        
+        insert(timeout);
+    }
+    
+    /**
+     * Cancel the timeout
+     * @param timeout The timeout
+     * @return true if the timeout was scheduled, false otherwise
+     */
+    public synchronized boolean cancel(final Timeout timeout)
+    {
+        if (!timeout.isScheduled())
+            return false;
+        
+        unlink(timeout);
+        
+        size--;
+        
+        return true;
+    }
+    
+    /**
+     * Get the number of timeouts scheduled
+     * @return The number of timeouts waiting to expire
+     */
+    public synchronized int size()
+    {
+        return this.size;
+    }
+    
+    /**
+     * Process every tick up to the current time, each timeout that has expired is given to the listener
+     * @param now The current time (nanoseconds)
+     */
+    public void advance(final long now)
+    {
+        List<Timeout> expired = null;
+        
+        synchronized (this)
+        {
+            final long target = (now - start) / tick;
+            
+            while (current < target)
+            {
+                current++;
+                
+                //when a level turns over, move the timeouts of the next slot of the level above down
+                for (int level = 1; level < LEVELS; level++)
+                {
+                    if (((current >>> (BITS * (level - 1))) & MASK) != 0)
+                        break;
+                    
+                    cascade(level, (int)((current >>> (BITS * level)) & MASK));
+                }
+                
+                //every timeout in this slot expires now
+                final int index = (int)(current & MASK);
+                
+                Timeout timeout = slots[index];
+                
+                slots[index] = null;
+                
+                while (timeout != null)
+                {
+                    final Timeout next = timeout.next;
+                    
+                    timeout.previous = null;
+                    timeout.next = null;
+                    timeout.slot = -1;
+                    size--;
+                    
+                    if (expired == null)
+                        expired = new ArrayList<>();
+                    
+                    expired.add(timeout);
+                    
+                    timeout = next;
+                }
+            }
+        }
+        
+        //notify without holding the lock, so the listener can schedule again
+        if (expired != null)
+        {
+            for (Timeout timeout : expired)
+            {
+                listener.expired(timeout);
+            }
+        }
+    }
+    
+    /**
+     * Place the timeout in the slot for its tick
+     * @param timeout The timeout
+     */
+    private void insert(final Timeout timeout)
+    {
+        final long delta = Math.min(timeout.expires - current, RANGE);
+        
+        //the furthest a timeout can be placed is the end of the top level
+        final long expires = current + delta;
+        
+        int level = 0;
+        
+        while (level < LEVELS - 1 && (delta >>> (BITS * (level + 1))) != 0)
+        {
+            level++;
+        }
+        
+        final int index = (level * SLOTS) + (int)((expires >>> (BITS * level)) & MASK);
+        
+        timeout.slot = index;
+        timeout.previous = null;
+        timeout.next = slots[index];
+        
+        if (slots[index] != null)
+            slots[index].previous = timeout;
+        
+        slots[index] = timeout;
+    }
+    
+    /**
+     * Remove the timeout from its slot
+     * @param timeout The timeout
+     */
+    private void unlink(final Timeout timeout)
+    {
+        if (timeout.previous != null)
+        {
+            timeout.previous.next = timeout.next;
+        }
+        else
+        {
+            slots[timeout.slot] = timeout.next;
+        }
+        
+        if (timeout.next != null)
+            timeout.next.previous = timeout.previous;
+        
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.slot = -1;
+    }
+    
+    /**
+     * Place every timeout of a slot again, each one moves to a lower level now that it is closer
+     * @param level The level of the slot
+     * @param index The index of the slot in the level
+     */
+    private void cascade(final int level, final int index)
+    {
+        Timeout timeout = slots[(level * SLOTS) + index];
+        
+        slots[(level * SLOTS) + index] = null;
+        
+        while (timeout != null)
+        {
+            final Timeout next = timeout.next;
+            
+            insert(timeout);
+            
+            timeout = next;
+        }
+    }
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.gamesbykevin.nonograms.shared;
 
 import java.awt.Cursor;
+import java.awt.GraphicsEnvironment;
 import java.awt.Point;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
@@ -14,6 +15,9 @@ public final class Shared
     //show UPS counter and other DEBUG info
     public static final boolean DEBUG = false;
     
+    //do we record the seed and input of each game so it can be replayed
+    public static final boolean RECORD = false;
+    
     /**
      * These dimensions is the size of the game window the user will see.
      * NOTE: If these dimensions do not match the original then the mouse input will be off.
@@ -28,12 +32,24 @@ public final class Shared
     //do we hide mouse when the menu is not visible and actual gameplay has started
     public static boolean HIDE_MOUSE = false;
     
+    //do we render to a hardware accelerated back buffer, false will use the software fallback
+    public static final boolean ACCELERATED = true;
+    
     //how many updates per second, controls speed of game
     public static final int DEFAULT_UPS = 60;
     
+    //the maximum number of frames rendered per second
+    public static final int DEFAULT_FPS = 60;
+    
+    //the most updates we will run back to back (skipping rendering) when we fall behind
+    public static final int MAX_FRAME_SKIP = 5;
+    
+    //do we pace rendering to the refresh rate of the display
+    public static final boolean VSYNC = false;
+    
     //what is the name of our game
     public static final String GAME_NAME = "Nonograms";
     
-    //blank cursor created here to hide the mouse cursor
-    public static final Cursor CURSOR = Toolkit.getDefaultToolkit().createCustomCursor(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB), new Point(0, 0), "blank cursor");
+    //blank cursor created here to hide the mouse cursor, there is no cursor without a display
+    public static final Cursor CURSOR = (GraphicsEnvironment.isHeadless()) ? null : Toolkit.getDefaultToolkit().createCustomCursor(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB), new Point(0, 0), "blank cursor");
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+import com.gamesbykevin.nonograms.benchmark.Benchmark;
+import com.gamesbykevin.nonograms.benchmark.Benchmarks;
+import com.gamesbykevin.nonograms.benchmark.Runner;
+import com.gamesbykevin.nonograms.puzzles.Library;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This file will measure the core operations on the puzzles and write the results as JSON, no display is needed.<br>
+ * The arguments are the file the results are written to (benchmark.json), the text the name of a benchmark must contain (all),
+ * the milliseconds of each iteration (1000), the number of measured iterations (5) and the number of warmup iterations (3).
+ * @author GOD
+ */
+public final class StartBenchmark
+{
+    public static void main(String[] args)
+    {
+        final File file = new File((args.length > 0) ? args[0] : "benchmark.json");
+        final String filter = (args.length > 1) ? args[1] : "";
+        final long time = TimeUnit.MILLISECONDS.toNanos((args.length > 2) ? Long.parseLong(args[2]) : 1000);
+        final int iterations = (args.length > 3) ? Integer.parseInt(args[3]) : 5;
+        final int warmups = (args.length > 4) ? Integer.parseInt(args[4]) : 3;
+        
+        try
+        {
+            //this class is in the root directory so the puzzles can be found
+            final List<String> lines = Library.readLines(StartBenchmark.class);
+            
+            final Library library = new Library(lines);
+            
+            final Runner runner = new Runner(warmups, iterations, time);
+            
+            final List<Runner.Result> results = new ArrayList<>();
+            
+            for (Benchmark benchmark : Benchmarks.create(lines, library))
+            {
+                if (!benchmark.getName().contains(filter))
+                    continue;
+                
+                final Runner.Result result = runner.run(benchmark);
+                
+                System.out.println(String.format("%-28s %14.3f +- %10.3f %s", result.getName(), result.getScore(), result.getError(), result.getUnit()));
+                
+                results.add(result);
+            }
+            
+            runner.write(results, file);
+            
+            System.out.println("Results written to " + file.getAbsolutePath());
+            
+            library.dispose();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+import com.gamesbykevin.nonograms.puzzles.Library;
+import com.gamesbykevin.nonograms.server.ApiServer;
+import com.gamesbykevin.nonograms.server.LoadGenerator;
+import com.gamesbykevin.nonograms.server.SessionManager;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This file will measure the requests per second of the HTTP endpoint.<br>
+ * The arguments are the seconds to run (10), the number of threads (processors * 2) and the address of the endpoint.
+ * If no address is provided an endpoint is started in this process on a free port.
+ * @author GOD
+ */
+public final class StartLoad
+{
+    public static void main(String[] args)
+    {
+        final long seconds = (args.length > 0) ? Long.parseLong(args[0]) : 10;
+        final int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors() * 2;
+        
+        SessionManager manager = null;
+        ApiServer server = null;
+        
+        try
+        {
+            String base;
+            
+            if (args.length > 2)
+            {
+                base = args[2];
+            }
+            else
+            {
+                //send each response without waiting for the previous packet to be acknowledged, the same as StartApi
+                if (System.getProperty(ApiServer.NO_DELAY) == null)
+                    System.setProperty(ApiServer.NO_DELAY, "true");
+                
+                //this class is in the root directory so the puzzles can be found
+                manager = new SessionManager(Library.read(StartLoad.class));
+                
+                server = new ApiServer(manager, new InetSocketAddress("localhost", 0), Runtime.getRuntime().availableProcessors() * 2);
+                server.start();
+                
+                base = "http://localhost:" + server.getPort();
+            }
+            
+            //allow plenty of connections to be kept alive
+            System.setProperty("http.maxConnections", Integer.toString(threads));
+            
+            final LoadGenerator generator = new LoadGenerator(base, threads);
+            
+            final long duration = TimeUnit.SECONDS.toNanos(seconds);
+            
+            generator.run(duration);
+            
+            System.out.println(generator.getRequests() + " requests to " + base + " with " + threads + " threads in " + seconds + " seconds, " + generator.getThroughput(duration) + " requests per second, " + generator.getErrors() + " errors");
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            if (server != null)
+                server.dispose();
+            if (manager != null)
+                manager.dispose();
+        }
+    }
+}
\ No newline at end of file
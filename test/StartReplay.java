@@ -0,0 +1,53 @@
+import com.gamesbykevin.nonograms.engine.Recorder;
+import com.gamesbykevin.nonograms.engine.Replay;
+import com.gamesbykevin.nonograms.main.Main;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This file will play a recorded game as fast as possible without displaying it, no display is needed.<br>
+ * The recording is the first argument, or the default recording if none is provided.
+ * @author GOD
+ */
+public final class StartReplay
+{
+    public static void main(String[] args)
+    {
+        //the recording we will play
+        final File file = (args.length > 0) ? new File(args[0]) : Recorder.DEFAULT_FILE;
+        
+        //did the game end in the recorded state
+        boolean match = false;
+        
+        Replay replay = null;
+        
+        try
+        {
+            replay = new Replay(file);
+            
+            //there is no container, this class is in the root directory so the resources can be found
+            final Main main = new Main(replay.getUps(), StartReplay.class);
+            
+            final long before = System.nanoTime();
+            
+            match = replay.play(main);
+            
+            System.out.println("Replayed " + file + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - before) + " ms, " + (match ? "the state matches" : "the state does not match"));
+            
+            main.dispose();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            if (replay != null)
+                replay.dispose();
+        }
+        
+        //exit
+        System.exit(match ? 0 : 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+import com.gamesbykevin.nonograms.puzzles.Library;
+import com.gamesbykevin.nonograms.puzzles.Puzzles;
+import com.gamesbykevin.nonograms.server.Session;
+import com.gamesbykevin.nonograms.server.SessionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This file will host many games in one process without a display, and report the memory used by each.<br>
+ * The number of sessions is the first argument, or 100,000 if none is provided.
+ * @author GOD
+ */
+public final class StartServer
+{
+    public static void main(String[] args)
+    {
+        //the number of sessions we will host
+        final int count = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        
+        SessionManager manager = null;
+        
+        try
+        {
+            long before = System.nanoTime();
+            
+            //this class is in the root directory so the puzzles can be found
+            final Library library = Library.read(StartServer.class);
+            
+            System.out.println("Library loaded in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - before) + " ms");
+            
+            manager = new SessionManager(library);
+            
+            final long used = getUsedMemory();
+            
+            before = System.nanoTime();
+            
+            final Random random = new Random();
+            
+            for (int i = 0; i < count; i++)
+            {
+                manager.create(random.nextLong(), Puzzles.Difficulty.values()[i % Puzzles.Difficulty.values().length], (i % 2 == 0), false);
+            }
+            
+            System.out.println(count + " sessions created in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - before) + " ms");
+            System.out.println("Memory used by each idle session " + ((getUsedMemory() - used) / Math.max(count, 1)) + " bytes, and " + (manager.getBoards().getUsed() / Math.max(count, 1)) + " bytes for the board outside of the heap");
+            
+            //make a move in every session
+            final List<Future<Boolean>> moves = new ArrayList<>(count);
+            
+            before = System.nanoTime();
+            
+            for (long id = 1; id <= count; id++)
+            {
+                final Session session = manager.get(id);
+                final int col = random.nextInt(session.getPuzzle().getCols());
+                final int row = random.nextInt(session.getPuzzle().getRows());
+                
+                moves.add(manager.submit(session, new Callable<Boolean>()
+                {
+                    @Override
+                    public Boolean call()
+                    {
+                        return session.move(col, row, Puzzles.KEY_FILL);
+                    }
+                }));
+            }
+            
+            for (Future<Boolean> move : moves)
+            {
+                move.get();
+            }
+            
+            final long elapsed = System.nanoTime() - before;
+            
+            System.out.println(count + " moves made in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms, " + (long)(count / (elapsed / (double)TimeUnit.SECONDS.toNanos(1))) + " moves per second");
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            if (manager != null)
+                manager.dispose();
+        }
+    }
+    
+    /**
+     * Get the memory used once garbage has been collected
+     * @return The bytes of heap used
+     */
+    private static long getUsedMemory()
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+        }
+        
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+}
\ No newline at end of file
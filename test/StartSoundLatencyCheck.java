@@ -0,0 +1,324 @@
+import com.gamesbykevin.nonograms.resources.GameAudio;
+import com.gamesbykevin.nonograms.resources.Resources;
+import com.gamesbykevin.nonograms.resources.SoundEffects;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Control;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineListener;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * This file will check the delay between triggering a sound effect and its samples being written to the line.<br>
+ * The sound effects are triggered the way clicks trigger them, one at a time from a single thread,
+ * then the percentiles of the latencies recorded by the audio thread are compared with the targets.
+ * Without a sound card the line is simulated, it accepts samples only as fast as a real line would play them.
+ * The arguments are the number of triggers (1000, at most the last 1024 are measured), the milliseconds between triggers (25),
+ * the target of the 50th percentile in milliseconds (12), the target of the 99th percentile in milliseconds (20)
+ * and the line, simulated or device (simulated).
+ * The exit code is 0 if the check passes, 1 otherwise.
+ * @author GOD
+ */
+public final class StartSoundLatencyCheck
+{
+    //the sound effects triggered by clicks
+    private static final GameAudio.Keys[] CLICKS = {GameAudio.Keys.Fill, GameAudio.Keys.UnFill, GameAudio.Keys.Mark, GameAudio.Keys.UnMark, GameAudio.Keys.Invalid};
+    
+    //the number of voices, the same as the game
+    private static final int VOICES = 8;
+    
+    //the time to wait (milliseconds) after the last trigger, so it is written to the line
+    private static final long SETTLE = 250;
+    
+    public static void main(String[] args)
+    {
+        final int triggers = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        final long interval = TimeUnit.MILLISECONDS.toNanos((args.length > 1) ? Long.parseLong(args[1]) : 25);
+        final long target50 = TimeUnit.MILLISECONDS.toNanos((args.length > 2) ? Long.parseLong(args[2]) : 12);
+        final long target99 = TimeUnit.MILLISECONDS.toNanos((args.length > 3) ? Long.parseLong(args[3]) : 20);
+        final boolean device = (args.length > 4) && args[4].equalsIgnoreCase("device");
+        
+        boolean passed = false;
+        
+        SoundEffects effects = null;
+        
+        try
+        {
+            //this class is in the root directory so the effects can be found
+            effects = new SoundEffects(StartSoundLatencyCheck.class, Resources.XML_CONFIG_GAME_AUDIO, VOICES);
+            
+            while (!effects.isComplete())
+            {
+                effects.update(StartSoundLatencyCheck.class);
+            }
+            
+            effects.start(device ? null : new SimulatedLine());
+            
+            //trigger each effect in turn at a steady pace
+            long next = System.nanoTime();
+            
+            for (int i = 0; i < triggers; i++)
+            {
+                effects.play(CLICKS[i % CLICKS.length]);
+                
+                next += interval;
+                
+                for (long wait = next - System.nanoTime(); wait > 0; wait = next - System.nanoTime())
+                {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            
+            Thread.sleep(SETTLE);
+            
+            //stop the audio thread so the latencies can be read
+            final long average = effects.getAverageLatency();
+            final long max = effects.getMaxLatency();
+            
+            effects.dispose();
+            
+            final long percentile50 = effects.getLatencyPercentile(50);
+            final long percentile95 = effects.getLatencyPercentile(95);
+            final long percentile99 = effects.getLatencyPercentile(99);
+            
+            effects = null;
+            
+            final boolean passed50 = (percentile50 > 0 && percentile50 <= target50);
+            final boolean passed99 = (percentile99 > 0 && percentile99 <= target99);
+            
+            System.out.println("Triggered " + triggers + " effects every " + TimeUnit.NANOSECONDS.toMillis(interval) + " ms with the " + (device ? "device" : "simulated") + " line");
+            System.out.println(String.format("Latency average %.2f ms, 95th percentile %.2f ms, max %.2f ms", toMillis(average), toMillis(percentile95), toMillis(max)));
+            System.out.println(String.format("Latency 50th percentile %.2f ms, the target is %d ms, %s", toMillis(percentile50), TimeUnit.NANOSECONDS.toMillis(target50), passed50 ? "passed" : "failed"));
+            System.out.println(String.format("Latency 99th percentile %.2f ms, the target is %d ms, %s", toMillis(percentile99), TimeUnit.NANOSECONDS.toMillis(target99), passed99 ? "passed" : "failed"));
+            
+            passed = passed50 && passed99;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            if (effects != null)
+                effects.dispose();
+        }
+        
+        //exit
+        System.exit(passed ? 0 : 1);
+    }
+    
+    private static double toMillis(final long nanoseconds)
+    {
+        return nanoseconds / (double)TimeUnit.MILLISECONDS.toNanos(1);
+    }
+    
+    /**
+     * A line without a sound card, the samples are played by the clock.<br>
+     * A write blocks until the buffer has room, the same as a real line, so the audio thread is paced the same.
+     */
+    private static final class SimulatedLine implements SourceDataLine
+    {
+        private AudioFormat format;
+        
+        //the size of the buffer in bytes
+        private int size;
+        
+        //the bytes played every second
+        private long rate;
+        
+        //the total number of bytes written
+        private long written = 0;
+        
+        //when the first byte written was played (nano-seconds)
+        private long started = 0;
+        
+        private boolean open = false, running = false;
+        
+        @Override
+        public void open(final AudioFormat format, final int bufferSize)
+        {
+            this.format = format;
+            this.size = bufferSize;
+            this.rate = (long)(format.getFrameRate() * format.getFrameSize());
+            this.open = true;
+        }
+        
+        @Override
+        public void open(final AudioFormat format)
+        {
+            open(format, (int)(format.getFrameRate() * format.getFrameSize()) / 2);
+        }
+        
+        @Override
+        public void open()
+        {
+            throw new IllegalStateException("The format is needed to open the line");
+        }
+        
+        /**
+         * Get the number of bytes played
+         * @return The bytes played, never more than the bytes written
+         */
+        private long getPlayed()
+        {
+            final long now = System.nanoTime();
+            final long played = (now - started) * rate / TimeUnit.SECONDS.toNanos(1);
+            
+            //if the line ran out of samples it continues from the next write
+            if (played >= written)
+            {
+                started = now - (written * TimeUnit.SECONDS.toNanos(1) / rate);
+                return written;
+            }
+            
+            return played;
+        }
+        
+        @Override
+        public int write(final byte[] b, final int off, final int len)
+        {
+            //wait until the buffer has room
+            for (long waiting = written + len - getPlayed() - size; waiting > 0; waiting = written + len - getPlayed() - size)
+            {
+                LockSupport.parkNanos(waiting * TimeUnit.SECONDS.toNanos(1) / rate);
+            }
+            
+            written += len;
+            
+            return len;
+        }
+        
+        @Override
+        public int available()
+        {
+            return (int)(size - (written - getPlayed()));
+        }
+        
+        @Override
+        public void drain()
+        {
+            while (getPlayed() < written)
+            {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+        
+        @Override
+        public void flush()
+        {
+            written = getPlayed();
+        }
+        
+        @Override
+        public void start()
+        {
+            running = true;
+        }
+        
+        @Override
+        public void stop()
+        {
+            running = false;
+        }
+        
+        @Override
+        public boolean isRunning()
+        {
+            return running;
+        }
+        
+        @Override
+        public boolean isActive()
+        {
+            return running && getPlayed() < written;
+        }
+        
+        @Override
+        public AudioFormat getFormat()
+        {
+            return format;
+        }
+        
+        @Override
+        public int getBufferSize()
+        {
+            return size;
+        }
+        
+        @Override
+        public int getFramePosition()
+        {
+            return (int)getLongFramePosition();
+        }
+        
+        @Override
+        public long getLongFramePosition()
+        {
+            return getPlayed() / format.getFrameSize();
+        }
+        
+        @Override
+        public long getMicrosecondPosition()
+        {
+            return getPlayed() * TimeUnit.SECONDS.toMicros(1) / rate;
+        }
+        
+        @Override
+        public float getLevel()
+        {
+            return AudioSystem.NOT_SPECIFIED;
+        }
+        
+        @Override
+        public DataLine.Info getLineInfo()
+        {
+            return new DataLine.Info(SourceDataLine.class, format);
+        }
+        
+        @Override
+        public void close()
+        {
+            open = false;
+            running = false;
+        }
+        
+        @Override
+        public boolean isOpen()
+        {
+            return open;
+        }
+        
+        @Override
+        public Control[] getControls()
+        {
+            return new Control[0];
+        }
+        
+        @Override
+        public boolean isControlSupported(final Control.Type control)
+        {
+            return false;
+        }
+        
+        @Override
+        public Control getControl(final Control.Type control)
+        {
+            throw new IllegalArgumentException("Unsupported control type - " + control);
+        }
+        
+        @Override
+        public void addLineListener(final LineListener listener)
+        {
+            //the simulated line sends no events
+        }
+        
+        @Override
+        public void removeLineListener(final LineListener listener)
+        {
+            //the simulated line sends no events
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+import com.gamesbykevin.framework.util.Timers;
+
+import com.gamesbykevin.nonograms.player.stat.Stats;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+/**
+ * This file will check the stats panel allocates nothing once it is drawn, no display is needed.<br>
+ * First many steady frames are drawn, where the time displayed doesn't change, and they must allocate nothing.
+ * Then the timer advances 1/60 of a second each frame, so every digit of the timer changes.
+ * Each change of the time displayed may only allocate a little. Java2D allocates a small temporary for each image drawn
+ * unless the JIT removes it, so this part has an allowance for each change.
+ * The arguments are the number of frames measured (216000, one hour), the allowance for all steady frames in bytes (1024)
+ * and the allowance for each change of the time displayed in bytes (512).
+ * The exit code is 0 if the check passes, 1 otherwise.
+ * @author GOD
+ */
+public final class StartStatsAllocCheck
+{
+    //the frames drawn first, so the static parts are rendered and the code is compiled
+    private static final int WARMUP = 20000;
+    
+    //the time each frame advances the timer (nanoseconds)
+    private static final long FRAME = Timers.NANO_SECONDS_PER_SECOND / 60;
+    
+    public static void main(String[] args)
+    {
+        final int frames = (args.length > 0) ? Integer.parseInt(args[0]) : 216000;
+        final long steadyAllowance = (args.length > 1) ? Long.parseLong(args[1]) : 1024;
+        final long changeAllowance = (args.length > 2) ? Long.parseLong(args[2]) : 512;
+        
+        boolean passed = false;
+        
+        Stats stats = null;
+        Graphics2D graphics = null;
+        
+        try
+        {
+            final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            
+            if (!(bean instanceof com.sun.management.ThreadMXBean) || !((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported())
+                throw new Exception("Allocated bytes per thread are not supported by this JVM");
+            
+            final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+            
+            final long thread = Thread.currentThread().getId();
+            
+            //the screen the stats are drawn to
+            final BufferedImage screen = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+            graphics = screen.createGraphics();
+            
+            stats = new Stats(new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB));
+            stats.setupTimer();
+            stats.setLevel(1);
+            
+            for (int i = 0; i < WARMUP; i++)
+            {
+                stats.getTimer().update(FRAME);
+                stats.render(graphics);
+            }
+            
+            //the bytes allocated by reading the bytes allocated
+            final long overhead = -(threads.getThreadAllocatedBytes(thread) - threads.getThreadAllocatedBytes(thread));
+            
+            //the time displayed doesn't change
+            long before = threads.getThreadAllocatedBytes(thread);
+            
+            for (int i = 0; i < frames; i++)
+            {
+                stats.render(graphics);
+            }
+            
+            final long steady = Math.max(0, threads.getThreadAllocatedBytes(thread) - before - overhead);
+            
+            //the time displayed changes once every 60 frames
+            before = threads.getThreadAllocatedBytes(thread);
+            
+            for (int i = 0; i < frames; i++)
+            {
+                stats.getTimer().update(FRAME);
+                stats.render(graphics);
+            }
+            
+            final long ticking = Math.max(0, threads.getThreadAllocatedBytes(thread) - before - overhead);
+            
+            final long changes = Math.max(1, frames / 60);
+            
+            final boolean steadyPassed = (steady <= steadyAllowance);
+            final boolean tickingPassed = (ticking <= changes * changeAllowance);
+            
+            System.out.println("Allocated " + steady + " bytes drawing " + frames + " steady frames, the allowance is " + steadyAllowance + " bytes, " + (steadyPassed ? "passed" : "failed"));
+            System.out.println("Allocated " + ticking + " bytes drawing " + frames + " frames with " + changes + " changes of the time, " + (ticking / changes) + " bytes per change, the allowance is " + changeAllowance + " bytes per change, " + (tickingPassed ? "passed" : "failed"));
+            
+            passed = steadyPassed && tickingPassed;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            if (graphics != null)
+                graphics.dispose();
+            if (stats != null)
+                stats.dispose();
+        }
+        
+        //exit
+        System.exit(passed ? 0 : 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.gamesbykevin.nonograms.benchmark;
+
+import com.gamesbykevin.framework.resources.Disposable;
+
+/**
+ * A piece of work measured by the runner.<br>
+ * Each invocation of run() performs a batch of operations, for example every puzzle of the library,
+ * so the time of a single operation is far larger than the cost of reading the clock.
+ * The value returned depends on the work so the JIT can't remove it.
+ * @author GOD
+ */
+public abstract class Benchmark implements Disposable
+{
+    /**
+     * How the score is reported
+     */
+    public enum Mode
+    {
+        //operations per second
+        Throughput,
+        
+        //nanoseconds per operation
+        AverageTime
+    }
+    
+    //the name of the benchmark
+    private final String name;
+    
+    //how the score is reported
+    private final Mode mode;
+    
+    //the number of operations performed by each invocation
+    private final int operations;
+    
+    /**
+     * Create the benchmark
+     * @param name The name of the benchmark
+     * @param mode How the score is reported
+     * @param operations The number of operations performed by each invocation
+     */
+    protected Benchmark(final String name, final Mode mode, final int operations)
+    {
+        this.name = name;
+        this.mode = mode;
+        this.operations = operations;
+    }
+    
+    public String getName()
+    {
+        return this.name;
+    }
+    
+    public Mode getMode()
+    {
+        return this.mode;
+    }
+    
+    public int getOperations()
+    {
+        return this.operations;
+    }
+    
+    /**
+     * Prepare the state used by every invocation, this is not measured
+     * @throws Exception if the state can't be prepared
+     */
+    public void setup() throws Exception
+    {
+        //nothing to prepare by default
+    }
+    
+    /**
+     * Perform the operations once
+     * @return A value depending on the work performed
+     * @throws Exception if the work fails
+     */
+    public abstract int run() throws Exception;
+    
+    @Override
+    public void dispose()
+    {
+        //nothing to release by default
+    }
+}
\ No newline at end of file
@@ -0,0 +1,474 @@
+package com.gamesbykevin.nonograms.benchmark;
+
+import com.gamesbykevin.nonograms.player.Human;
+import com.gamesbykevin.nonograms.puzzles.Library;
+import com.gamesbykevin.nonograms.puzzles.Progress;
+import com.gamesbykevin.nonograms.puzzles.Puzzle;
+import com.gamesbykevin.nonograms.puzzles.Puzzles;
+import com.gamesbykevin.nonograms.puzzles.Puzzles.Difficulty;
+import com.gamesbykevin.nonograms.puzzles.Solver;
+import com.gamesbykevin.nonograms.server.BoardStore;
+import com.gamesbykevin.nonograms.server.Session;
+import com.gamesbykevin.nonograms.server.Sessions;
+import com.gamesbykevin.nonograms.shared.Shared;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The benchmarks of the core operations on the puzzles, none of them need the game resources or a display.
+ * @author GOD
+ */
+public final class Benchmarks
+{
+    //the size of the sprite sheet of the puzzle, 5 animations of 64 pixels across and down
+    private static final int SPRITE_SHEET_SIZE = 5 * 64;
+    
+    private Benchmarks()
+    {
+        //everything is static
+    }
+    
+    /**
+     * Create every benchmark
+     * @param lines The lines of the text file with puzzle solutions
+     * @param library The library parsed from the lines
+     * @return The benchmarks, in the order they should be run
+     */
+    public static List<Benchmark> create(final List<String> lines, final Library library)
+    {
+        final List<Benchmark> benchmarks = new ArrayList<>();
+        
+        benchmarks.add(createLoad(lines));
+        benchmarks.add(createLoadDuplicates(lines));
+        benchmarks.add(createCalculateHint(library));
+        benchmarks.add(createHasMatch(library));
+        benchmarks.add(createMove(library));
+        benchmarks.add(createRender(library));
+        benchmarks.add(createRenderHints(library));
+        
+        for (Difficulty difficulty : Difficulty.values())
+        {
+            benchmarks.add(createSolve(library, difficulty));
+        }
+        
+        return benchmarks;
+    }
+    
+    /**
+     * Get every puzzle of the library
+     * @param library The library
+     * @return The puzzles of every difficulty
+     */
+    private static List<Puzzle> getPuzzles(final Library library)
+    {
+        final List<Puzzle> puzzles = new ArrayList<>();
+        
+        for (Difficulty difficulty : Difficulty.values())
+        {
+            puzzles.addAll(library.getPuzzles(difficulty));
+        }
+        
+        return puzzles;
+    }
+    
+    /**
+     * Parse the whole pack, each operation is one pack
+     * @param lines The lines of the text file with puzzle solutions
+     * @return The benchmark
+     */
+    private static Benchmark createLoad(final List<String> lines)
+    {
+        return new Benchmark("Library.load", Benchmark.Mode.AverageTime, 1)
+        {
+            @Override
+            public int run()
+            {
+                return new Library(lines).size(Difficulty.Hard);
+            }
+        };
+    }
+    
+    /**
+     * Parse the pack twice over, so every puzzle of the second copy is rejected as a duplicate when added.<br>
+     * The difference from Library.load is the cost of checking each puzzle against those already added.
+     * @param lines The lines of the text file with puzzle solutions
+     * @return The benchmark
+     */
+    private static Benchmark createLoadDuplicates(final List<String> lines)
+    {
+        final List<String> duplicates = new ArrayList<>(lines);
+        
+        duplicates.addAll(lines);
+        
+        return new Benchmark("Library.load.duplicates", Benchmark.Mode.AverageTime, 1)
+        {
+            @Override
+            public int run()
+            {
+                return new Library(duplicates).size(Difficulty.Hard);
+            }
+        };
+    }
+    
+    /**
+     * Calculate the hints of a copy of every puzzle in the library, each operation is one puzzle.<br>
+     * The copies are filled the same as the library and only their hints change, so every invocation does the same work
+     * and the puzzles of the library used by the other benchmarks aren't modified.
+     * @param library The library
+     * @return The benchmark
+     */
+    private static Benchmark createCalculateHint(final Library library)
+    {
+        final List<Puzzle> puzzles = getPuzzles(library);
+        
+        return new Benchmark("Puzzle.calculateHint", Benchmark.Mode.AverageTime, puzzles.size())
+        {
+            //the copy of each puzzle
+            private List<Puzzle> copies;
+            
+            @Override
+            public void setup()
+            {
+                copies = new ArrayList<>();
+                
+                for (Puzzle puzzle : puzzles)
+                {
+                    copies.add(copy(puzzle));
+                }
+            }
+            
+            @Override
+            public int run()
+            {
+                int hints = 0;
+                
+                for (int i = 0; i < copies.size(); i++)
+                {
+                    final Puzzle copy = copies.get(i);
+                    
+                    copy.calculateHint();
+                    
+                    hints += copy.getRowHint(0).size();
+                }
+                
+                return hints;
+            }
+            
+            @Override
+            public void dispose()
+            {
+                if (copies != null)
+                {
+                    for (Puzzle copy : copies)
+                    {
+                        copy.dispose();
+                    }
+                    
+                    copies.clear();
+                    copies = null;
+                }
+            }
+        };
+    }
+    
+    /**
+     * Compare every puzzle in the library with a solved copy, so every location is checked, each operation is one puzzle
+     * @param library The library
+     * @return The benchmark
+     */
+    private static Benchmark createHasMatch(final Library library)
+    {
+        final List<Puzzle> puzzles = getPuzzles(library);
+        
+        return new Benchmark("Puzzle.hasMatch", Benchmark.Mode.AverageTime, puzzles.size())
+        {
+            //the solved copy of each puzzle
+            private List<Puzzle> copies;
+            
+            @Override
+            public void setup()
+            {
+                copies = new ArrayList<>();
+                
+                for (Puzzle puzzle : puzzles)
+                {
+                    copies.add(copy(puzzle));
+                }
+            }
+            
+            @Override
+            public int run()
+            {
+                int matches = 0;
+                
+                for (int i = 0; i < puzzles.size(); i++)
+                {
+                    if (puzzles.get(i).hasMatch(copies.get(i)))
+                        matches++;
+                }
+                
+                return matches;
+            }
+            
+            @Override
+            public void dispose()
+            {
+                if (copies != null)
+                {
+                    for (Puzzle copy : copies)
+                    {
+                        copy.dispose();
+                    }
+                    
+                    copies.clear();
+                    copies = null;
+                }
+            }
+        };
+    }
+    
+    /**
+     * Mark then clear the first locations of the first row of a session of each difficulty, each operation is one move.<br>
+     * Every move checks if the puzzle is complete, the marks never complete it so every move is checked in full.
+     * The sessions are created without a session manager, so no threads are started.
+     * @param library The library
+     * @return The benchmark
+     */
+    private static Benchmark createMove(final Library library)
+    {
+        //every puzzle is at least this wide
+        final int cols = Puzzles.DIMENSIONS_VERY_EASY;
+        
+        return new Benchmark("Session.move", Benchmark.Mode.AverageTime, Difficulty.values().length * cols * 2)
+        {
+            //the boards of the sessions
+            private BoardStore store;
+            
+            //a session of each difficulty
+            private List<Session> sessions;
+            
+            @Override
+            public void setup()
+            {
+                store = new BoardStore();
+                
+                sessions = new ArrayList<>();
+                
+                for (Difficulty difficulty : Difficulty.values())
+                {
+                    sessions.add(Sessions.create(library, store, difficulty.ordinal(), difficulty));
+                }
+            }
+            
+            @Override
+            public int run()
+            {
+                int changed = 0;
+                
+                for (int i = 0; i < sessions.size(); i++)
+                {
+                    final Session session = sessions.get(i);
+                    
+                    for (int col = 0; col < cols; col++)
+                    {
+                        if (session.move(col, 0, Puzzles.KEY_MARK))
+                            changed++;
+                        if (session.move(col, 0, Puzzles.KEY_EMPTY))
+                            changed++;
+                    }
+                }
+                
+                return changed;
+            }
+            
+            @Override
+            public void dispose()
+            {
+                if (sessions != null)
+                {
+                    for (Session session : sessions)
+                    {
+                        session.dispose();
+                    }
+                    
+                    sessions = null;
+                }
+                
+                if (store != null)
+                {
+                    store.dispose();
+                    store = null;
+                }
+            }
+        };
+    }
+    
+    /**
+     * Draw the board of a player solving the first hard puzzle to an image the size of the window, each operation is one board
+     * @param library The library
+     * @return The benchmark
+     */
+    private static Benchmark createRender(final Library library)
+    {
+        return new Benchmark("Puzzle.render", Benchmark.Mode.AverageTime, 1)
+        {
+            //the player whose board is drawn
+            private Human player;
+            
+            //where the board is drawn
+            private BufferedImage image;
+            private Graphics2D graphics;
+            
+            @Override
+            public void setup()
+            {
+                final Puzzle puzzle = library.getPuzzle(Difficulty.Hard, 0);
+                
+                player = new Human(new BufferedImage(SPRITE_SHEET_SIZE, SPRITE_SHEET_SIZE, BufferedImage.TYPE_INT_ARGB), new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB));
+                player.create(puzzle);
+                
+                //fill the board so every animation of a location is drawn
+                for (int row = 0; row < puzzle.getRows(); row++)
+                {
+                    for (int col = 0; col < puzzle.getCols(); col++)
+                    {
+                        player.getPuzzle().setKeyValue(col, row, puzzle.getKeyValue(col, row));
+                    }
+                }
+                
+                image = new BufferedImage(Shared.ORIGINAL_WIDTH, Shared.ORIGINAL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+                graphics = image.createGraphics();
+            }
+            
+            @Override
+            public int run() throws Exception
+            {
+                player.getPuzzle().render(graphics, player, Puzzles.START_X, Puzzles.START_Y);
+                
+                return image.getRGB(Puzzles.START_X, Puzzles.START_Y);
+            }
+            
+            @Override
+            public void dispose()
+            {
+                if (graphics != null)
+                {
+                    graphics.dispose();
+                    graphics = null;
+                }
+                
+                if (player != null)
+                {
+                    player.dispose();
+                    player = null;
+                }
+                
+                image = null;
+            }
+        };
+    }
+    
+    /**
+     * Draw the hints of the first hard puzzle to an image the size of the window, each operation is one set of hints
+     * @param library The library
+     * @return The benchmark
+     */
+    private static Benchmark createRenderHints(final Library library)
+    {
+        return new Benchmark("Puzzles.renderHints", Benchmark.Mode.AverageTime, 1)
+        {
+            //draws the hints of the puzzle of the library, the same as a game
+            private Puzzles puzzles;
+            
+            //where the hints are drawn
+            private BufferedImage image;
+            private Graphics2D graphics;
+            
+            @Override
+            public void setup()
+            {
+                puzzles = new Puzzles(new BufferedImage(SPRITE_SHEET_SIZE, SPRITE_SHEET_SIZE, BufferedImage.TYPE_INT_ARGB), library, new Progress(library, null));
+                
+                image = new BufferedImage(Shared.ORIGINAL_WIDTH, Shared.ORIGINAL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+                graphics = image.createGraphics();
+            }
+            
+            @Override
+            public int run() throws Exception
+            {
+                puzzles.renderHints(graphics, library.getPuzzle(Difficulty.Hard, 0), Puzzles.START_X, Puzzles.START_Y);
+                
+                return image.getRGB(0, 0);
+            }
+            
+            @Override
+            public void dispose()
+            {
+                if (graphics != null)
+                {
+                    graphics.dispose();
+                    graphics = null;
+                }
+                
+                if (puzzles != null)
+                {
+                    puzzles.dispose();
+                    puzzles = null;
+                }
+                
+                image = null;
+            }
+        };
+    }
+    
+    /**
+     * Solve every puzzle of a difficulty from its hints, each operation is one puzzle
+     * @param library The library
+     * @param difficulty The difficulty
+     * @return The benchmark
+     */
+    private static Benchmark createSolve(final Library library, final Difficulty difficulty)
+    {
+        final List<Puzzle> puzzles = library.getPuzzles(difficulty);
+        
+        return new Benchmark("Solver.solve." + difficulty, Benchmark.Mode.Throughput, puzzles.size())
+        {
+            @Override
+            public int run()
+            {
+                int solved = 0;
+                
+                for (int i = 0; i < puzzles.size(); i++)
+                {
+                    if (new Solver(puzzles.get(i)).solve())
+                        solved++;
+                }
+                
+                return solved;
+            }
+        };
+    }
+    
+    /**
+     * Copy a puzzle with every location filled the same
+     * @param puzzle The puzzle
+     * @return The copy
+     */
+    private static Puzzle copy(final Puzzle puzzle)
+    {
+        final Puzzle copy = new Puzzle(puzzle);
+        
+        for (int row = 0; row < puzzle.getRows(); row++)
+        {
+            for (int col = 0; col < puzzle.getCols(); col++)
+            {
+                copy.setKeyValue(col, row, puzzle.getKeyValue(col, row));
+            }
+        }
+        
+        return copy;
+    }
+}
\ No newline at end of file
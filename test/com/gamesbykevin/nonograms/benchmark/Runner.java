@@ -0,0 +1,290 @@
+package com.gamesbykevin.nonograms.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures benchmarks in the current JVM, a number of warmup iterations so the JIT compiles the code,
+ * then a number of measured iterations, each running the benchmark repeatedly for a fixed time.<br>
+ * The results are written as JSON in the format of JMH, so the same tools can compare the results of each release.
+ * @author GOD
+ */
+public final class Runner
+{
+    //the critical values of the t distribution for a 99.9% confidence interval, by degrees of freedom
+    private static final double[] T_999 = {
+        636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+        4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+        3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646,
+    };
+    
+    //the critical value when there are more degrees of freedom than above
+    private static final double Z_999 = 3.291;
+    
+    //the number of warmup and measured iterations
+    private final int warmups, iterations;
+    
+    //the time of each iteration (nanoseconds)
+    private final long time;
+    
+    //the values returned by the benchmarks, so their work isn't removed
+    private volatile int sink;
+    
+    /**
+     * The score of each measured iteration of a benchmark
+     */
+    public static final class Result
+    {
+        //the name of the benchmark
+        private final String name;
+        
+        //how the score is reported
+        private final Benchmark.Mode mode;
+        
+        //the score of each iteration
+        private final double[] scores;
+        
+        private Result(final String name, final Benchmark.Mode mode, final double[] scores)
+        {
+            this.name = name;
+            this.mode = mode;
+            this.scores = scores;
+        }
+        
+        public String getName()
+        {
+            return this.name;
+        }
+        
+        public Benchmark.Mode getMode()
+        {
+            return this.mode;
+        }
+        
+        /**
+         * Get the unit of the score
+         * @return ops/s or ns/op
+         */
+        public String getUnit()
+        {
+            return (mode == Benchmark.Mode.Throughput) ? "ops/s" : "ns/op";
+        }
+        
+        /**
+         * Get the mean score of every iteration
+         * @return The score
+         */
+        public double getScore()
+        {
+            double total = 0;
+            
+            for (double score : scores)
+            {
+                total += score;
+            }
+            
+            return total / scores.length;
+        }
+        
+        /**
+         * Get the half width of the 99.9% confidence interval of the score
+         * @return The error, 0 if there is only one iteration
+         */
+        public double getError()
+        {
+            if (scores.length < 2)
+                return 0;
+            
+            final double mean = getScore();
+            
+            double variance = 0;
+            
+            for (double score : scores)
+            {
+                variance += (score - mean) * (score - mean);
+            }
+            
+            variance /= (scores.length - 1);
+            
+            final int freedom = scores.length - 1;
+            
+            return ((freedom <= T_999.length) ? T_999[freedom - 1] : Z_999) * Math.sqrt(variance / scores.length);
+        }
+    }
+    
+    /**
+     * Create the runner
+     * @param warmups The number of iterations before measuring
+     * @param iterations The number of iterations measured
+     * @param time The time of each iteration (nanoseconds)
+     */
+    public Runner(final int warmups, final int iterations, final long time)
+    {
+        if (iterations < 1)
+            throw new IllegalArgumentException("At least 1 iteration is needed - " + iterations);
+        
+        this.warmups = Math.max(0, warmups);
+        this.iterations = iterations;
+        this.time = time;
+    }
+    
+    /**
+     * Warm up and measure a benchmark, the benchmark is disposed once measured
+     * @param benchmark The benchmark
+     * @return The result
+     * @throws Exception if the benchmark fails
+     */
+    public Result run(final Benchmark benchmark) throws Exception
+    {
+        try
+        {
+            benchmark.setup();
+            
+            for (int i = 0; i < warmups; i++)
+            {
+                iterate(benchmark);
+            }
+            
+            final double[] scores = new double[iterations];
+            
+            for (int i = 0; i < iterations; i++)
+            {
+                scores[i] = iterate(benchmark);
+            }
+            
+            return new Result(benchmark.getName(), benchmark.getMode(), scores);
+        }
+        finally
+        {
+            benchmark.dispose();
+        }
+    }
+    
+    /**
+     * Run the benchmark repeatedly until the time of an iteration has passed
+     * @param benchmark The benchmark
+     * @return The score of the iteration
+     * @throws Exception if the benchmark fails
+     */
+    private double iterate(final Benchmark benchmark) throws Exception
+    {
+        final long start = System.nanoTime();
+        
+        long invocations = 0, elapsed;
+        
+        do
+        {
+            sink += benchmark.run();
+            invocations++;
+            
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < time);
+        
+        final double operations = (double)invocations * benchmark.getOperations();
+        
+        if (benchmark.getMode() == Benchmark.Mode.Throughput)
+            return operations / (elapsed / (double)TimeUnit.SECONDS.toNanos(1));
+        
+        return elapsed / operations;
+    }
+    
+    /**
+     * Write the results as JSON in the format of JMH
+     * @param results The results
+     * @return The JSON
+     */
+    public String toJson(final List<Result> results)
+    {
+        final StringBuilder builder = new StringBuilder(1024);
+        
+        builder.append("[\n");
+        
+        for (int i = 0; i < results.size(); i++)
+        {
+            final Result result = results.get(i);
+            
+            final double score = result.getScore();
+            final double error = result.getError();
+            
+            builder.append("    {\n");
+            builder.append("        \"benchmark\" : \"").append(escape(result.getName())).append("\",\n");
+            builder.append("        \"mode\" : \"").append((result.getMode() == Benchmark.Mode.Throughput) ? "thrpt" : "avgt").append("\",\n");
+            builder.append("        \"threads\" : 1,\n");
+            builder.append("        \"forks\" : 0,\n");
+            builder.append("        \"jdkVersion\" : \"").append(escape(System.getProperty("java.version"))).append("\",\n");
+            builder.append("        \"vmName\" : \"").append(escape(System.getProperty("java.vm.name"))).append("\",\n");
+            builder.append("        \"vmVersion\" : \"").append(escape(System.getProperty("java.vm.version"))).append("\",\n");
+            builder.append("        \"warmupIterations\" : ").append(warmups).append(",\n");
+            builder.append("        \"warmupTime\" : \"").append(getTime()).append("\",\n");
+            builder.append("        \"measurementIterations\" : ").append(iterations).append(",\n");
+            builder.append("        \"measurementTime\" : \"").append(getTime()).append("\",\n");
+            builder.append("        \"primaryMetric\" : {\n");
+            builder.append("            \"score\" : ").append(format(score)).append(",\n");
+            builder.append("            \"scoreError\" : ").append(format(error)).append(",\n");
+            builder.append("            \"scoreConfidence\" : [").append(format(score - error)).append(", ").append(format(score + error)).append("],\n");
+            builder.append("            \"scoreUnit\" : \"").append(result.getUnit()).append("\",\n");
+            builder.append("            \"rawData\" : [[");
+            
+            for (int j = 0; j < result.scores.length; j++)
+            {
+                if (j > 0)
+                    builder.append(", ");
+                
+                builder.append(format(result.scores[j]));
+            }
+            
+            builder.append("]]\n");
+            builder.append("        }\n");
+            builder.append((i < results.size() - 1) ? "    },\n" : "    }\n");
+        }
+        
+        builder.append("]\n");
+        
+        return builder.toString();
+    }
+    
+    /**
+     * Write the results as JSON to a file
+     * @param results The results
+     * @param file The file, it is replaced if it exists
+     * @throws IOException if the file can't be written
+     */
+    public void write(final List<Result> results, final File file) throws IOException
+    {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))
+        {
+            writer.write(toJson(results));
+        }
+    }
+    
+    /**
+     * Get the time of each iteration as JMH describes it
+     * @return The time, for example "1000 ms"
+     */
+    private String getTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(time) + " ms";
+    }
+    
+    private static String format(final double value)
+    {
+        //the decimal point is always a period in JSON
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+    
+    private static String escape(final String value)
+    {
+        if (value == null)
+            return "";
+        
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
\ No newline at end of file
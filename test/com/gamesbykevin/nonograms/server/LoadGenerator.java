@@ -0,0 +1,256 @@
+package com.gamesbykevin.nonograms.server;
+
+import com.gamesbykevin.nonograms.puzzles.Puzzles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays games through the HTTP endpoint from many threads, to measure the requests per second it sustains.<br>
+ * Each thread creates a session, then repeats a batch of random moves and a status request,
+ * with a hint every few batches, starting the next puzzle when solved and a new session when finished.
+ * The connections are kept alive so the endpoint is measured and not the creation of connections.
+ * @author GOD
+ */
+public final class LoadGenerator
+{
+    //the number of moves in each batch
+    private static final int BATCH = 4;
+    
+    //a hint is requested every this many batches
+    private static final int HINT_INTERVAL = 8;
+    
+    //the address of the endpoint
+    private final String base;
+    
+    //the number of threads making requests
+    private final int threads;
+    
+    //the number of requests completed, and failed
+    private final AtomicLong requests = new AtomicLong(), errors = new AtomicLong();
+    
+    /**
+     * Create the load generator
+     * @param base The address of the endpoint, for example http://localhost:8080
+     * @param threads The number of threads making requests
+     */
+    public LoadGenerator(final String base, final int threads)
+    {
+        this.base = base;
+        this.threads = threads;
+    }
+    
+    public long getRequests()
+    {
+        return this.requests.get();
+    }
+    
+    public long getErrors()
+    {
+        return this.errors.get();
+    }
+    
+    /**
+     * Make requests from every thread until the time has passed
+     * @param duration How long to make requests (nanoseconds)
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public void run(final long duration) throws InterruptedException
+    {
+        final long end = System.nanoTime() + duration;
+        final CountDownLatch done = new CountDownLatch(threads);
+        
+        for (int i = 0; i < threads; i++)
+        {
+            final long seed = i;
+            
+            final Thread thread = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        play(new Random(seed), end);
+                    }
+                    finally
+                    {
+                        done.countDown();
+                    }
+                }
+            }, "load-" + i);
+            
+            thread.setDaemon(true);
+            thread.start();
+        }
+        
+        done.await();
+    }
+    
+    /**
+     * Play games until the time has passed
+     * @param random Object used to make random decisions
+     * @param end The time to stop (nanoseconds)
+     */
+    private void play(final Random random, final long end)
+    {
+        String session = null;
+        int size = 0;
+        int batches = 0;
+        
+        while (System.nanoTime() < end)
+        {
+            try
+            {
+                if (session == null)
+                {
+                    final Puzzles.Difficulty difficulty = Puzzles.Difficulty.values()[random.nextInt(Puzzles.Difficulty.values().length)];
+                    final String response = request("POST", "/sessions?difficulty=" + difficulty + "&seed=" + random.nextLong(), null);
+                    
+                    session = "/sessions/" + getField(response, "id");
+                    size = (int)(getField(response, "cols") * getField(response, "rows"));
+                    continue;
+                }
+                
+                //a batch of random moves
+                final StringBuilder body = new StringBuilder("{\"moves\":[");
+                
+                for (int i = 0; i < BATCH; i++)
+                {
+                    final int value = (random.nextInt(3) == 0) ? Puzzles.KEY_MARK : Puzzles.KEY_FILL;
+                    
+                    body.append((i > 0) ? "," : "").append((random.nextInt(size) * 4) + value);
+                }
+                
+                String response = request("POST", session + "/moves", body.append("]}").toString());
+                
+                //check the status
+                if (!response.contains("\"solved\":true"))
+                    response = request("GET", session, null);
+                
+                //ask for help
+                if (++batches % HINT_INTERVAL == 0)
+                    response = request("POST", session + "/hint", null);
+                
+                if (response.contains("\"finished\":true"))
+                {
+                    request("DELETE", session, null);
+                    session = null;
+                }
+                else if (response.contains("\"solved\":true"))
+                {
+                    response = request("POST", session + "/next", null);
+                    
+                    if (response.contains("\"finished\":true"))
+                    {
+                        request("DELETE", session, null);
+                        session = null;
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                errors.incrementAndGet();
+                
+                //start over with a new session
+                session = null;
+            }
+        }
+    }
+    
+    /**
+     * Make a request and read the response
+     * @param method The http method
+     * @param path The path and query
+     * @param body The JSON body, null if there is none
+     * @return The response body
+     * @throws IOException if the request failed or the response was an error
+     */
+    private String request(final String method, final String path, final String body) throws IOException
+    {
+        final HttpURLConnection connection = (HttpURLConnection)new URL(base + path).openConnection();
+        
+        connection.setRequestMethod(method);
+        
+        if (body != null)
+        {
+            final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(bytes.length);
+            connection.setRequestProperty("Content-Type", "application/json");
+            
+            try (OutputStream output = connection.getOutputStream())
+            {
+                output.write(bytes);
+            }
+        }
+        
+        final int status = connection.getResponseCode();
+        
+        //the response needs to be read completely for the connection to be used again
+        try (InputStream input = (status < 400) ? connection.getInputStream() : connection.getErrorStream())
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1024];
+            
+            int read;
+            
+            while (input != null && (read = input.read(buffer)) > 0)
+            {
+                bytes.write(buffer, 0, read);
+            }
+            
+            requests.incrementAndGet();
+            
+            if (status >= 400)
+                throw new IOException(method + " " + path + " - " + status + " " + bytes.toString("UTF-8"));
+            
+            return bytes.toString("UTF-8");
+        }
+    }
+    
+    /**
+     * Get a number from the JSON response
+     * @param response The JSON response
+     * @param name The name of the field
+     * @return The number
+     * @throws IOException if the field is not found
+     */
+    private static long getField(final String response, final String name) throws IOException
+    {
+        final String key = "\"" + name + "\":";
+        final int start = response.indexOf(key);
+        
+        if (start < 0)
+            throw new IOException("Field not found - " + name);
+        
+        int end = start + key.length();
+        
+        while (end < response.length() && (Character.isDigit(response.charAt(end)) || response.charAt(end) == '-'))
+        {
+            end++;
+        }
+        
+        return Long.parseLong(response.substring(start + key.length(), end));
+    }
+    
+    /**
+     * Get the requests per second
+     * @param duration The time the requests were made in (nanoseconds)
+     * @return The requests per second
+     */
+    public long getThroughput(final long duration)
+    {
+        return (long)(getRequests() / (duration / (double)TimeUnit.SECONDS.toNanos(1)));
+    }
+}
\ No newline at end of file
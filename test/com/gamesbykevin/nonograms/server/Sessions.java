@@ -0,0 +1,31 @@
+package com.gamesbykevin.nonograms.server;
+
+import com.gamesbykevin.nonograms.player.stat.Leaderboard;
+import com.gamesbykevin.nonograms.puzzles.Library;
+import com.gamesbykevin.nonograms.puzzles.Puzzles.Difficulty;
+
+/**
+ * Creates sessions without a session manager, so a session can be measured without the threads of the manager.<br>
+ * The sessions are not timed so they are never scheduled in a timing wheel, and the solve times are only kept in memory.
+ * @author GOD
+ */
+public final class Sessions
+{
+    private Sessions()
+    {
+        //everything is static
+    }
+    
+    /**
+     * Create a session without timed mode or hints and start the first puzzle
+     * @param library The library of every puzzle
+     * @param store The boards of the sessions, disposed by the caller
+     * @param seed The seed of the random object, also the id of the session
+     * @param difficulty The difficulty of the puzzles played
+     * @return The session
+     */
+    public static Session create(final Library library, final BoardStore store, final long seed, final Difficulty difficulty)
+    {
+        return new Session(seed, library, null, store, new Leaderboard(null), "session-" + seed, seed, difficulty, false, false, System.nanoTime());
+    }
+}
\ No newline at end of file